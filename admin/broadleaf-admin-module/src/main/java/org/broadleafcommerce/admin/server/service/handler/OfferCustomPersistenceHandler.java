@@ -26,6 +26,7 @@ import org.broadleafcommerce.core.offer.domain.Offer;
 import org.broadleafcommerce.core.offer.domain.OfferCode;
 import org.broadleafcommerce.core.offer.domain.OfferCodeImpl;
 import org.broadleafcommerce.core.offer.domain.OfferRule;
+import org.broadleafcommerce.core.offer.service.processor.OfferRuleEngine;
 import org.broadleafcommerce.core.offer.service.type.OfferRuleType;
 import org.broadleafcommerce.openadmin.client.dto.BasicFieldMetadata;
 import org.broadleafcommerce.openadmin.client.dto.ClassMetadata;
@@ -73,6 +74,9 @@ public class OfferCustomPersistenceHandler extends CustomPersistenceHandlerAdapt
     
     @Resource(name = "blEntityConfiguration")
     protected EntityConfiguration entityConfiguration;
+
+    @Resource(name = "blOfferRuleEngine")
+    protected OfferRuleEngine offerRuleEngine;
     
     @Override
     public Boolean canHandleInspect(PersistencePackage persistencePackage) {
@@ -311,6 +315,7 @@ public class OfferCustomPersistenceHandler extends CustomPersistenceHandlerAdapt
             Object primaryKey = helper.getPrimaryKey(entity, offerProperties);
             Offer offerInstance = (Offer) dynamicEntityDao.retrieve(Class.forName(entity.getType()[0]), primaryKey);
             dynamicEntityDao.remove(offerInstance);
+            offerRuleEngine.invalidateOffer(offerInstance);
         } catch (Exception e) {
             LOG.error("Unable to remove entity for " + entity.getType()[0] + ". It is likely this offer is currently associated with one or more orders. Only unused offers may be deleted.", e);
             throw new ServiceException("Unable to remove entity for " + entity.getType()[0] + ". It is likely this offer is currently associated with one or more orders. Only unused offers may be deleted.", e);
@@ -333,6 +338,7 @@ public class OfferCustomPersistenceHandler extends CustomPersistenceHandlerAdapt
             updateRule(entity, offerInstance, "appliesToFulfillmentGroupRules", OfferRuleType.FULFILLMENT_GROUP);
             
             dynamicEntityDao.merge(offerInstance);
+            offerRuleEngine.invalidateOffer(offerInstance);
             
             Property offerCodeId = entity.findProperty("offerCode.id");
             OfferCode offerCode = null;
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.cms.common;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache for CMS lookups backed by an Ehcache region.
+ *
+ * Only one thread loads a missing key at a time; other threads requesting the same key wait for that load
+ * rather than issuing the same query. Cached values are stamped with the cache version, and
+ * {@link #invalidateAll()} simply bumps the version rather than removing entries. An entry from an older version,
+ * or one marked by {@link #invalidate(String)}, is stale: the next request reloads it while concurrent requests for
+ * the same key keep being served the stale value until the reload completes.
+ *
+ * The cache is also a {@link CacheInvalidationListener}, so that invalidations received from other nodes mark
+ * entries stale rather than removing them.
+ */
+public class VersionedContentCache implements CacheInvalidationListener {
+
+    private static final Log LOG = LogFactory.getLog(VersionedContentCache.class);
+
+    protected static final long STALE = -1L;
+
+    protected final String cacheName;
+    protected volatile Ehcache cache;
+
+    protected final AtomicLong version = new AtomicLong();
+    protected final ConcurrentMap<String, Load> loads = new ConcurrentHashMap<String, Load>();
+
+    protected final AtomicLong hitCount = new AtomicLong();
+    protected final AtomicLong staleHitCount = new AtomicLong();
+    protected final AtomicLong loadCount = new AtomicLong();
+    protected final AtomicLong waitCount = new AtomicLong();
+
+    public VersionedContentCache(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    /**
+     * Retrieves the value for the key, loading it if it is not cached or is stale.
+     *
+     * @param key the cache key
+     * @param loader loads the value on a miss. The value must be serializable and must not be null.
+     * @return the cached, stale or newly loaded value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, final Loader<T> loader) {
+        long currentVersion = version.get();
+        VersionedValue cached = getCachedValue(key);
+        if (cached != null && cached.version == currentVersion) {
+            hitCount.incrementAndGet();
+            return (T) cached.value;
+        }
+        Load task = new Load(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return loader.load();
+            }
+        });
+        Load pending = loads.putIfAbsent(key, task);
+        if (pending != null) {
+            if (cached != null) {
+                staleHitCount.incrementAndGet();
+                return (T) cached.value;
+            }
+            waitCount.incrementAndGet();
+            return (T) await(pending);
+        }
+        try {
+            //another thread may have finished loading the key after our initial lookup
+            VersionedValue latest = getCachedValue(key);
+            if (latest != null && latest.version == currentVersion) {
+                hitCount.incrementAndGet();
+                return (T) latest.value;
+            }
+            loadCount.incrementAndGet();
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Loading " + cacheName + " entry for key: " + key);
+            }
+            task.run();
+            Object value = await(task);
+            //a value loaded across an invalidation of its key may already be out of date, so it is cached as stale
+            long valueVersion = task.invalidated ? STALE : currentVersion;
+            getCache().put(new Element(key, new VersionedValue(valueVersion, (Serializable) value)));
+            return (T) value;
+        } finally {
+            loads.remove(key, task);
+        }
+    }
+
+    /**
+     * Marks the entry for the key as stale, so that it is reloaded by the next request for it. A load of the key that
+     * is in progress is marked as well, so that its result is not cached as current.
+     */
+    public void invalidate(String key) {
+        Load pending = loads.get(key);
+        if (pending != null) {
+            pending.invalidated = true;
+        }
+        VersionedValue cached = getCachedValue(key);
+        if (cached != null) {
+            getCache().put(new Element(key, new VersionedValue(STALE, cached.value)));
+        }
+    }
+
+    @Override
+    public void invalidate(String cacheName, Collection<Serializable> keys) {
+        for (Serializable key : keys) {
+            invalidate(String.valueOf(key));
+        }
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        invalidateAll();
+    }
+
+    /**
+     * Bumps the cache version so that every cached entry is revalidated on its next request. When called within a
+     * transaction, the version is bumped again once the transaction commits, so that entries reloaded before the
+     * commit are not mistaken for current ones.
+     */
+    public void invalidateAll() {
+        bumpVersion();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    bumpVersion();
+                }
+            });
+        }
+    }
+
+    protected void bumpVersion() {
+        long newVersion = version.incrementAndGet();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Bumped the " + cacheName + " version to " + newVersion);
+        }
+    }
+
+    protected VersionedValue getCachedValue(String key) {
+        Element element = getCache().get(key);
+        if (element != null && element.getObjectValue() instanceof VersionedValue) {
+            return (VersionedValue) element.getObjectValue();
+        }
+        return null;
+    }
+
+    protected Object await(Load task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a " + cacheName + " entry to load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Unable to load a " + cacheName + " entry", cause);
+        }
+    }
+
+    protected Ehcache getCache() {
+        if (cache == null) {
+            cache = CacheManager.getInstance().getEhcache(cacheName);
+        }
+        return cache;
+    }
+
+    public void setCache(Ehcache cache) {
+        this.cache = cache;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of requests served a stale value while another thread reloaded it
+     */
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * @return the number of requests that waited for another thread to load a missing value
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * Loads the value for a cache miss.
+     */
+    public interface Loader<T> {
+
+        public T load();
+
+    }
+
+    /**
+     * A load of a single key, shared by the threads that request the key while it is in progress
+     */
+    protected static class Load extends FutureTask<Object> {
+
+        protected volatile boolean invalidated;
+
+        protected Load(Callable<Object> callable) {
+            super(callable);
+        }
+
+    }
+
+    protected static class VersionedValue implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final long version;
+        protected final Serializable value;
+
+        protected VersionedValue(long version, Serializable value) {
+            this.version = version;
+            this.value = value;
+        }
+
+    }
+
+}
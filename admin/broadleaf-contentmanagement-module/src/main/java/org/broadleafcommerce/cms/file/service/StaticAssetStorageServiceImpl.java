@@ -31,7 +31,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -39,6 +38,7 @@ import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -80,6 +80,7 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
 
     private static final Log LOG = LogFactory.getLog(StaticAssetStorageServiceImpl.class);
     private static final File DEFAULTCACHEDIRECTORY = new File(System.getProperty("java.io.tmpdir"));
+    protected static final int BUFFER_SIZE = 8192;
 
     protected String cacheDirectory;
     protected boolean cleanupThreadEnabled = true;
@@ -207,31 +208,9 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
             clearObsoleteCacheFiles(staticAsset, cacheFile);
             StaticAssetStorage storage = readStaticAssetStorageByStaticAssetId(staticAsset.getId());
             if (!convertedParameters.isEmpty()) {
-                //there are filter operations to perform on the asset
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                InputStream is = null;
-                try {
-                    is = storage.getFileData().getBinaryStream();
-                    boolean eof = false;
-                    while (!eof) {
-                        int temp = is.read();
-                        if (temp < 0) {
-                            eof = true;
-                        } else {
-                            baos.write(temp);
-                        }
-                    }
-                    baos.flush();
-                } finally {
-                    if (is != null) {
-                        try{
-                            is.close();
-                        } catch (Throwable e) {
-                            //do nothing
-                        }
-                    }
-                }
-                InputStream original = new ByteArrayInputStream(baos.toByteArray());
+                //there are filter operations to perform on the asset. The image processors decode the
+                //whole artifact and require a resettable stream, so the original is read into memory here.
+                InputStream original = new ByteArrayInputStream(readBlob(storage.getFileData()));
                 Operation[] operations = artifactService.buildOperations(convertedParameters, original, staticAsset.getMimeType());
                 InputStream converted = artifactService.convert(original, operations, staticAsset.getMimeType());
                 createCacheFile(converted, cacheFile);
@@ -303,26 +282,63 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
                 throw new RuntimeException("Unable to create middle directories for file: " + cacheFile.getAbsolutePath());
             }
         }
-        BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(cacheFile));
+        //write to a temporary file first so that concurrent requests never serve a partially written asset. The
+        //leading dot keeps the temporary file out of reach of the obsolete file cleanup.
+        File tempFile = File.createTempFile("." + cacheFile.getName(), ".tmp", cacheFile.getParentFile());
         try {
-            boolean eof = false;
-            int temp;
-            while (!eof) {
-                temp = is.read();
-                if (temp < 0) {
-                    eof = true;
-                } else {
-                    bos.write(temp);
+            OutputStream os = new FileOutputStream(tempFile);
+            try {
+                copy(is, os);
+            } finally {
+                try {
+                    os.close();
+                } catch (Throwable e) {
+                    //do nothing
                 }
             }
+            if (!tempFile.renameTo(cacheFile) && !cacheFile.exists()) {
+                throw new IOException("Unable to create the asset cache file: " + cacheFile.getAbsolutePath());
+            }
+        } finally {
+            try {
+                is.close();
+            } catch (Throwable e) {
+                //do nothing
+            }
+            if (tempFile.exists() && !tempFile.delete()) {
+                LOG.warn("Unable to delete temporary asset cache file: " + tempFile.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Reads the blob contents in full, presizing the buffer from the blob length.
+     */
+    protected byte[] readBlob(Blob blob) throws SQLException, IOException {
+        long length = blob.length();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(length > 0 && length < Integer.MAX_VALUE ? (int) length : BUFFER_SIZE);
+        InputStream is = blob.getBinaryStream();
+        try {
+            copy(is, baos);
         } finally {
             try {
-                bos.flush();
-                bos.close();
+                is.close();
             } catch (Throwable e) {
                 //do nothing
             }
         }
+        return baos.toByteArray();
+    }
+
+    protected long copy(InputStream is, OutputStream os) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            os.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
     }
 
     protected String constructCacheFileName(StaticAsset staticAsset, Map<String, String> parameterMap) {
@@ -137,8 +137,9 @@ public interface PageService {
     Long countPages(SandBox sandBox, Criteria criteria);
 
     /**
-     * Call to evict both secure and non-secure pages matching
-     * the passed in key.
+     * Call to mark both secure and non-secure pages matching
+     * the passed in key as stale, so that they are reloaded on
+     * their next request.
      *
      * @param baseKey
      */
@@ -16,15 +16,13 @@
 
 package org.broadleafcommerce.cms.page.service;
 
-import net.sf.ehcache.Cache;
-import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.Element;
 
 import org.apache.commons.beanutils.BeanComparator;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.cms.common.AbstractContentService;
+import org.broadleafcommerce.cms.common.VersionedContentCache;
 import org.broadleafcommerce.cms.file.service.StaticAssetService;
 import org.broadleafcommerce.cms.page.dao.PageDao;
 import org.broadleafcommerce.cms.page.domain.Page;
@@ -37,6 +35,7 @@ import org.broadleafcommerce.cms.page.dto.NullPageDTO;
 import org.broadleafcommerce.cms.page.dto.PageDTO;
 import org.broadleafcommerce.cms.page.message.ArchivedPagePublisher;
 import org.broadleafcommerce.cms.structure.dto.ItemCriteriaDTO;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
 import org.broadleafcommerce.common.locale.domain.Locale;
 import org.broadleafcommerce.common.locale.service.LocaleService;
 import org.broadleafcommerce.common.locale.util.LocaleUtil;
@@ -52,6 +51,7 @@ import org.hibernate.Criteria;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import java.util.ArrayList;
@@ -87,10 +87,13 @@ public class PageServiceImpl extends AbstractContentService implements PageServi
     @Resource(name="blStaticAssetService")
     protected StaticAssetService staticAssetService;
 
+    @Resource(name="blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
+
     @Value("${automatically.approve.pages}")
     protected boolean automaticallyApproveAndPromotePages=true;
     
-    protected Cache pageCache;
+    protected VersionedContentCache pageCache = new VersionedContentCache("cmsPageCache");
 
     protected List<ArchivedPagePublisher> archivedPageListeners;
     
@@ -482,27 +485,7 @@ public class PageServiceImpl extends AbstractContentService implements PageServi
     
             String key = buildKey(productionSandbox, locale, uri);
             key = key + "-" + secure;
-            returnList = getPageListFromCache(key);
-            if (returnList == null) {
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("Page not found in cache, searching DB for key: " + key);
-                }
-                List<Page> productionPages = pageDao.findPageByURI(productionSandbox, locale, languageOnlyLocale, uri);
-                
-                if (productionPages != null) {
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("Pages found, adding pages to cache with key: " + key);
-                    }
-                    returnList = buildPageDTOList(productionPages, secure);
-                    Collections.sort(returnList, new BeanComparator("priority"));
-                    addPageListToCache(returnList, key);
-                } else {
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("No match found for passed in URI, locale, and sandbox.  Key = " + key);
-                    }
-                    addPageListToCache(EMPTY_PAGE_DTO, key);
-                }
-            }
+            returnList = getPageCache().get(key, createPageLoader(productionSandbox, locale, languageOnlyLocale, uri, secure, key));
             
             // If the request is from a non-production SandBox, we need to check to see if the SandBox has an override 
             // for this page before returning.  No caching is used for Sandbox pages.
@@ -517,6 +500,34 @@ public class PageServiceImpl extends AbstractContentService implements PageServi
         return evaluatePageRules(returnList, locale, ruleDTOs);
     }
 
+    /**
+     * Loads the production pages for the uri when they are not in the page cache. Only one thread loads a given
+     * key at a time.
+     */
+    protected VersionedContentCache.Loader<List<PageDTO>> createPageLoader(final SandBox productionSandbox, final Locale locale, final Locale languageOnlyLocale, final String uri, final boolean secure, final String key) {
+        return new VersionedContentCache.Loader<List<PageDTO>>() {
+            @Override
+            public List<PageDTO> load() {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("Page not found in cache, searching DB for key: " + key);
+                }
+                List<Page> productionPages = pageDao.findPageByURI(productionSandbox, locale, languageOnlyLocale, uri);
+                if (productionPages != null) {
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("Pages found, adding pages to cache with key: " + key);
+                    }
+                    List<PageDTO> pageList = buildPageDTOList(productionPages, secure);
+                    Collections.sort(pageList, new BeanComparator("priority"));
+                    return pageList;
+                }
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("No match found for passed in URI, locale, and sandbox.  Key = " + key);
+                }
+                return EMPTY_PAGE_DTO;
+            }
+        };
+    }
+
     @Override
     public List<Page> findPages(SandBox sandbox, Criteria c) {
         return (List<Page>) findItems(sandbox, c, Page.class, PageImpl.class, "originalPageId");
@@ -528,9 +539,7 @@ public class PageServiceImpl extends AbstractContentService implements PageServi
     }
     
     protected void productionItemArchived(Page page) {
-        // Immediately remove the page from this VM.
-        removePageFromCache(page);
-
+        // Pages cached in this VM are revalidated by the version bump in itemPromoted; other VMs are notified here.
         if (archivedPageListeners != null) {
             for (ArchivedPagePublisher listener : archivedPageListeners) {
                 listener.processPageArchive(page, buildKey(page));
@@ -580,6 +589,12 @@ public class PageServiceImpl extends AbstractContentService implements PageServi
         }
         page.setSandbox(destinationSandBox);
         pageDao.updatePage(page);
+
+        if (isProductionSandBox(destinationSandBox)) {
+            // Revalidate every cached page rather than removing keys one at a time. New pages need this as
+            // well, since their uri may already be cached as having no page.
+            cacheInvalidationBus.invalidateAll(getPageCache().getCacheName());
+        }
     }
 
     @Override
@@ -617,10 +632,12 @@ public class PageServiceImpl extends AbstractContentService implements PageServi
         }
     }
     
-    private Cache getPageCache() {
-        if (pageCache == null) {
-            pageCache = CacheManager.getInstance().getCache("cmsPageCache");
-        }
+    @PostConstruct
+    public void registerCacheInvalidationListener() {
+        cacheInvalidationBus.addListener(getPageCache().getCacheName(), getPageCache());
+    }
+
+    protected VersionedContentCache getPageCache() {
         return pageCache;
     }
 
@@ -641,19 +658,6 @@ public class PageServiceImpl extends AbstractContentService implements PageServi
         return buildKey(page.getSandbox(), page.getPageTemplate().getLocale(), page.getFullUrl());
     }
     
-    private void addPageListToCache(List<PageDTO> pageList, String key) {
-        getPageCache().put(new Element(key, pageList));
-    }
-    
-    @SuppressWarnings("unchecked")
-    private List<PageDTO> getPageListFromCache(String key) {
-        Element cacheElement = getPageCache().get(key);
-        if (cacheElement != null && cacheElement.getValue() != null) {
-            return (List<PageDTO>) cacheElement.getValue();
-        }
-        return null;
-    }
-
     /**
      * Call to evict an item from the cache.
      * @param p
@@ -665,16 +669,17 @@ public class PageServiceImpl extends AbstractContentService implements PageServi
     }
 
     /**
-     * Call to evict both secure and non-secure pages matching
-     * the passed in key.
+     * Call to mark both secure and non-secure pages matching
+     * the passed in key as stale, so that they are reloaded on
+     * their next request.
      *
      * @param baseKey
      */
     public void removePageFromCache(String baseKey) {
         // Remove secure and non-secure instances of the page.
         // Typically the page will be in one or the other if at all.
-        getPageCache().remove(baseKey+"-"+true);
-        getPageCache().remove(baseKey+"-"+false);
+        getPageCache().invalidate(baseKey+"-"+true);
+        getPageCache().invalidate(baseKey+"-"+false);
     }
 
     public List<ArchivedPagePublisher> getArchivedPageListeners() {
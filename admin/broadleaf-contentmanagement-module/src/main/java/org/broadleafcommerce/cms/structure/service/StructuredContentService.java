@@ -239,7 +239,7 @@ public interface StructuredContentService extends SandBoxItemListener {
 
 
     /**
-     * Removes the items from cache that match the passed in name and page keys.
+     * Marks the cached items that match the passed in name and page keys as stale.
      * @param nameKey - key for a specific content item
      * @param typeKey - key for a type of content item
      */
@@ -16,15 +16,13 @@
 
 package org.broadleafcommerce.cms.structure.service;
 
-import net.sf.ehcache.Cache;
-import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.Element;
 
 import org.apache.commons.beanutils.BeanComparator;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.cms.common.AbstractContentService;
+import org.broadleafcommerce.cms.common.VersionedContentCache;
 import org.broadleafcommerce.cms.file.service.StaticAssetService;
 import org.broadleafcommerce.cms.structure.dao.StructuredContentDao;
 import org.broadleafcommerce.cms.structure.domain.StructuredContent;
@@ -36,6 +34,7 @@ import org.broadleafcommerce.cms.structure.domain.StructuredContentType;
 import org.broadleafcommerce.cms.structure.dto.ItemCriteriaDTO;
 import org.broadleafcommerce.cms.structure.dto.StructuredContentDTO;
 import org.broadleafcommerce.cms.structure.message.ArchivedStructuredContentPublisher;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
 import org.broadleafcommerce.common.locale.domain.Locale;
 import org.broadleafcommerce.common.locale.service.LocaleService;
 import org.broadleafcommerce.common.locale.util.LocaleUtil;
@@ -50,6 +49,7 @@ import org.hibernate.Criteria;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import java.util.ArrayList;
@@ -86,10 +86,13 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
     @Resource(name="blContentRuleProcessors")
     protected List<StructuredContentRuleProcessor> contentRuleProcessors;
 
+    @Resource(name="blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
+
     @Value("${automatically.approve.structured.content}")
     protected boolean automaticallyApproveAndPromoteStructuredContent=true;
 
-    protected Cache structuredContentCache;
+    protected VersionedContentCache structuredContentCache = new VersionedContentCache("cmsStructuredContentCache");
 
     protected List<ArchivedStructuredContentPublisher> archivedStructuredContentListeners;
 
@@ -453,22 +456,22 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
     }
 
     @Override
-    public List<StructuredContentDTO> lookupStructuredContentItemsByType(SandBox sandBox, StructuredContentType contentType, Locale locale, Integer count, Map<String, Object> ruleDTOs, boolean secure) {
+    public List<StructuredContentDTO> lookupStructuredContentItemsByType(SandBox sandBox, final StructuredContentType contentType, final Locale locale, Integer count, Map<String, Object> ruleDTOs, final boolean secure) {
         
         List<StructuredContent> sandBoxContentList = null;
 
-        Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
+        final Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
         
-        String cacheKey = buildTypeKey(getProductionSandBox(sandBox), locale, contentType.getName()); 
+        final SandBox productionSandBox = getProductionSandBox(sandBox);
+        String cacheKey = buildTypeKey(productionSandBox, locale, contentType.getName()); 
         cacheKey = cacheKey+"-"+secure;
-        List<StructuredContentDTO> productionContentDTOList = getStructuredContentListFromCache(cacheKey);
-        if (productionContentDTOList == null) {
-            List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByType(getProductionSandBox(sandBox), contentType, locale, languageOnlyLocale);
-            productionContentDTOList = buildStructuredContentDTOList(productionContentList, secure);
-            if (productionContentDTOList != null) {
-                addStructuredContentListToCache(cacheKey, productionContentDTOList);
+        List<StructuredContentDTO> productionContentDTOList = getStructuredContentCache().get(cacheKey, new VersionedContentCache.Loader<List<StructuredContentDTO>>() {
+            @Override
+            public List<StructuredContentDTO> load() {
+                List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByType(productionSandBox, contentType, locale, languageOnlyLocale);
+                return buildStructuredContentDTOList(productionContentList, secure);
             }
-        }
+        });
         
         final List<StructuredContentDTO> contentList;
         if (! isProductionSandBox(sandBox)) {
@@ -482,20 +485,20 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
     }
 
     @Override
-    public List<StructuredContentDTO> lookupStructuredContentItemsByName(SandBox sandBox, StructuredContentType contentType, String contentName, org.broadleafcommerce.common.locale.domain.Locale locale, Integer count, Map<String, Object> ruleDTOs, boolean secure) {
+    public List<StructuredContentDTO> lookupStructuredContentItemsByName(SandBox sandBox, final StructuredContentType contentType, final String contentName, final org.broadleafcommerce.common.locale.domain.Locale locale, Integer count, Map<String, Object> ruleDTOs, final boolean secure) {
         List<StructuredContent> sandBoxContentList = null;
-        Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
+        final Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
         
-        String cacheKey = buildNameKey(getProductionSandBox(sandBox), locale, contentType.getName(), contentName); 
+        final SandBox productionSandBox = getProductionSandBox(sandBox);
+        String cacheKey = buildNameKey(productionSandBox, locale, contentType.getName(), contentName); 
         cacheKey = cacheKey+"-"+secure;
-        List<StructuredContentDTO> productionContentDTOList = getStructuredContentListFromCache(cacheKey);
-        if (productionContentDTOList == null) {                
-            List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByNameAndType(getProductionSandBox(sandBox), contentType, contentName, locale, languageOnlyLocale);
-            productionContentDTOList = buildStructuredContentDTOList(productionContentList, secure);
-            if (productionContentDTOList != null) {
-                addStructuredContentListToCache(cacheKey, productionContentDTOList);
+        List<StructuredContentDTO> productionContentDTOList = getStructuredContentCache().get(cacheKey, new VersionedContentCache.Loader<List<StructuredContentDTO>>() {
+            @Override
+            public List<StructuredContentDTO> load() {
+                List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByNameAndType(productionSandBox, contentType, contentName, locale, languageOnlyLocale);
+                return buildStructuredContentDTOList(productionContentList, secure);
             }
-        }
+        });
 
         final List<StructuredContentDTO> contentList;
         if (! isProductionSandBox(sandBox)) {
@@ -509,20 +512,20 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
     }
 
     @Override
-    public List<StructuredContentDTO> lookupStructuredContentItemsByName(SandBox sandBox, String contentName, org.broadleafcommerce.common.locale.domain.Locale locale, Integer count, Map<String, Object> ruleDTOs, boolean secure) {
+    public List<StructuredContentDTO> lookupStructuredContentItemsByName(SandBox sandBox, final String contentName, final org.broadleafcommerce.common.locale.domain.Locale locale, Integer count, Map<String, Object> ruleDTOs, final boolean secure) {
         List<StructuredContent> sandBoxContentList = null;
-        Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
+        final Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
 
-        String cacheKey = buildNameKey(getProductionSandBox(sandBox), locale, "any", contentName);
+        final SandBox productionSandBox = getProductionSandBox(sandBox);
+        String cacheKey = buildNameKey(productionSandBox, locale, "any", contentName);
         cacheKey = cacheKey+"-"+secure;
-        List<StructuredContentDTO> productionContentDTOList = getStructuredContentListFromCache(cacheKey);
-        if (productionContentDTOList == null) {
-            List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByName(getProductionSandBox(sandBox), contentName, locale, languageOnlyLocale);
-            productionContentDTOList = buildStructuredContentDTOList(productionContentList, secure);
-            if (productionContentDTOList != null) {
-                addStructuredContentListToCache(cacheKey, productionContentDTOList);
+        List<StructuredContentDTO> productionContentDTOList = getStructuredContentCache().get(cacheKey, new VersionedContentCache.Loader<List<StructuredContentDTO>>() {
+            @Override
+            public List<StructuredContentDTO> load() {
+                List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByName(productionSandBox, contentName, locale, languageOnlyLocale);
+                return buildStructuredContentDTOList(productionContentList, secure);
             }
-        }
+        });
 
         final List<StructuredContentDTO> contentList;
         if (! isProductionSandBox(sandBox)) {
@@ -554,9 +557,7 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
     }
 
     protected void productionItemArchived(StructuredContent sc) {
-        // Immediately remove the content from this VM.
-        removeStructuredContentFromCache(sc);
-
+        // Content cached in this VM is revalidated by the version bump in itemPromoted; other VMs are notified here.
         if (archivedStructuredContentListeners != null) {
             for (ArchivedStructuredContentPublisher listener : archivedStructuredContentListeners) {                
                 listener.processStructuredContentArchive(sc, buildTypeKey(sc), buildNameKey(sc));
@@ -606,6 +607,12 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
         }
         sc.setSandbox(destinationSandBox);
         structuredContentDao.addOrUpdateContentItem(sc);
+
+        if (isProductionSandBox(destinationSandBox)) {
+            // Revalidate all cached content rather than removing keys one at a time. New content needs this
+            // as well, since its type and name lookups may already be cached without it.
+            cacheInvalidationBus.invalidateAll(getStructuredContentCache().getCacheName());
+        }
     }
 
     @Override
@@ -651,10 +658,12 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
         this.contentRuleProcessors = contentRuleProcessors;
     }
 
-    private Cache getStructuredContentCache() {
-        if (structuredContentCache == null) {
-            structuredContentCache = CacheManager.getInstance().getCache("cmsStructuredContentCache");
-        }
+    @PostConstruct
+    public void registerCacheInvalidationListener() {
+        cacheInvalidationBus.addListener(getStructuredContentCache().getCacheName(), getStructuredContentCache());
+    }
+
+    protected VersionedContentCache getStructuredContentCache() {
         return structuredContentCache;
     }
     
@@ -694,18 +703,6 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
     }
 
 
-    private void addStructuredContentListToCache(String key, List<StructuredContentDTO> scDTOList) {
-        getStructuredContentCache().put(new Element(key, scDTOList));
-    }
-
-    private List<StructuredContentDTO> getStructuredContentListFromCache(String key) {
-        Element scElement =  getStructuredContentCache().get(key);
-        if (scElement != null) {
-            return (List<StructuredContentDTO>) scElement.getValue();
-        }
-        return null;
-    }
-
     /**
      * Call to evict an item from the cache.
      * @param sc
@@ -717,19 +714,20 @@ public class StructuredContentServiceImpl extends AbstractContentService impleme
     }
 
     /**
-     * Call to evict both secure and non-secure SC items matching
-     * the passed in key.
+     * Call to mark both secure and non-secure SC items matching
+     * the passed in keys as stale, so that they are reloaded on
+     * their next request.
      *
      * @param nameKey
      */
     public void removeItemFromCache(String nameKey, String typeKey) {
         // Remove secure and non-secure instances of the structured content.
         // Typically the structured content will be in one or the other if at all.
-        getStructuredContentCache().remove(nameKey+"-"+true);
-        getStructuredContentCache().remove(nameKey+"-"+false);
+        getStructuredContentCache().invalidate(nameKey+"-"+true);
+        getStructuredContentCache().invalidate(nameKey+"-"+false);
 
-        getStructuredContentCache().remove(typeKey+"-"+true);
-        getStructuredContentCache().remove(typeKey+"-"+false);
+        getStructuredContentCache().invalidate(typeKey+"-"+true);
+        getStructuredContentCache().invalidate(typeKey+"-"+false);
     }
 
     public List<ArchivedStructuredContentPublisher> getArchivedStructuredContentListeners() {
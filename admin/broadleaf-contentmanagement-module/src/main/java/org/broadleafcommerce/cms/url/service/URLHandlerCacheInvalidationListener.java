@@ -0,0 +1,49 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.cms.url.service;
+
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.util.SpringAppContext;
+import org.springframework.context.ApplicationContext;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that invalidates the URL handler cache on every node when a URL handler is added, changed
+ * or removed. The whole cache is invalidated, since a changed incoming URL leaves the handler cached under its
+ * previous URL as well. Entity listeners are instantiated by the persistence provider, so the bus is looked up
+ * from the application context on each event.
+ */
+public class URLHandlerCacheInvalidationListener {
+
+    public static final String URL_HANDLER_CACHE = "cmsUrlHandlerCache";
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void invalidateCache(Object entity) {
+        ApplicationContext context = SpringAppContext.getApplicationContext();
+        if (context == null || !context.containsBean("blCacheInvalidationBus")) {
+            return;
+        }
+        ((CacheInvalidationBus) context.getBean("blCacheInvalidationBus")).invalidateAll(URL_HANDLER_CACHE);
+    }
+
+}
@@ -18,8 +18,8 @@ package org.broadleafcommerce.cms.url.service;
 
 import javax.annotation.Resource;
 
-import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 
 import org.apache.commons.logging.Log;
@@ -27,6 +27,7 @@ import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.cms.url.dao.URLHandlerDao;
 import org.broadleafcommerce.cms.url.domain.NullURLHandler;
 import org.broadleafcommerce.cms.url.domain.URLHandler;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.springframework.stereotype.Service;
 
@@ -42,8 +43,11 @@ public class URLHandlerServiceImpl implements URLHandlerService {
 
     @Resource(name="blURLHandlerDao")
     protected URLHandlerDao urlHandlerDao;
+
+    @Resource(name="blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
     
-    protected Cache urlHandlerCache;
+    protected Ehcache urlHandlerCache;
 
     /**
      * Checks the passed in URL to determine if there is a matching URLHandler.
@@ -73,7 +77,7 @@ public class URLHandlerServiceImpl implements URLHandlerService {
     private String buildKey(URLHandler urlHandler) {
         BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
         String key = urlHandler.getIncomingURL();
-        if (context != null & context.getSandbox() != null) {
+        if (context != null && context.getSandbox() != null) {
             key = context.getSandbox().getId() + "_" + key;
         }       
         return key;
@@ -94,9 +98,9 @@ public class URLHandlerServiceImpl implements URLHandlerService {
         }
     }
     
-    private Cache getUrlHandlerCache() {
+    private Ehcache getUrlHandlerCache() {
         if (urlHandlerCache == null) {
-            urlHandlerCache = CacheManager.getInstance().getCache("cmsUrlHandlerCache");
+            urlHandlerCache = CacheManager.getInstance().getEhcache("cmsUrlHandlerCache");
         }
         return urlHandlerCache;
     }
@@ -110,11 +114,11 @@ public class URLHandlerServiceImpl implements URLHandlerService {
     }
 
     /**
-     * Call to evict an item from the cache.
-     * @param p
+     * Call to evict an item from the cache on every node.
+     * @param urlhandler
      */
     public void removeURLHandlerFromCache(URLHandler urlhandler) {
-        getUrlHandlerCache().remove(buildKey(urlhandler));
+        cacheInvalidationBus.invalidate(getUrlHandlerCache().getName(), buildKey(urlhandler));
     }
     
     protected URLHandler findURLHandlerByURIInternal(String uri) {
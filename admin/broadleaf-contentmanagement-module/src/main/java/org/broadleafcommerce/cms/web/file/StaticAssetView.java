@@ -19,10 +19,14 @@ package org.broadleafcommerce.cms.web.file;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -30,13 +34,25 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.web.servlet.View;
 
 /**
+ * Streams a cached static asset file to the response. The file is transferred through its {@link FileChannel}
+ * (or handed to the container when it advertises sendfile support), so assets are never buffered on the heap.
+ * Supports ETag/Last-Modified validation, conditional GETs and single byte range requests.
+ *
  * Created by jfischer
  */
 public class StaticAssetView implements View {
 
     private static final Log LOG = LogFactory.getLog(StaticAssetView.class);
 
+    protected static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    protected static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    protected static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    protected static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    protected static final long[] UNSATISFIABLE_RANGE = new long[0];
+
     protected boolean browserAssetCachingEnabled = true;
+    protected boolean sendfileEnabled = true;
 
     @Override
     public String getContentType() {
@@ -46,28 +62,67 @@ public class StaticAssetView implements View {
     @Override
     public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response) throws Exception {
         String cacheFilePath = (String) model.get("cacheFilePath");
-        BufferedInputStream bis = new BufferedInputStream(new FileInputStream(cacheFilePath));
-        try {
-            String mimeType = (String) model.get("mimeType");
-            response.setContentType(mimeType);
-            if (!browserAssetCachingEnabled) {
-                response.setHeader("Cache-Control","no-cache");
-                response.setHeader("Pragma","no-cache");
-                response.setDateHeader ("Expires", 0);
+        File cacheFile = new File(cacheFilePath);
+        if (!cacheFile.exists()) {
+            LOG.warn("Unable to find the cached asset file: " + cacheFilePath);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long length = cacheFile.length();
+        //http dates have a resolution of one second
+        long lastModified = cacheFile.lastModified() / 1000L * 1000L;
+        String eTag = buildETag(cacheFile, length, lastModified);
+
+        String mimeType = (String) model.get("mimeType");
+        response.setContentType(mimeType);
+        if (!browserAssetCachingEnabled) {
+            response.setHeader("Cache-Control","no-cache");
+            response.setHeader("Pragma","no-cache");
+            response.setDateHeader ("Expires", 0);
+        }
+        response.setHeader("ETag", eTag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Accept-Ranges", "bytes");
+
+        if (isNotModified(request, eTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader != null && isRangeCurrent(request, eTag, lastModified)) {
+            long[] range = parseRange(rangeHeader, length);
+            if (range == UNSATISFIABLE_RANGE) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
             }
-            OutputStream os = response.getOutputStream();
-            boolean eof = false;
-            while (!eof) {
-                int temp = bis.read();
-                if (temp < 0) {
-                    eof = true;
-                } else {
-                    os.write(temp);
-                }
+            if (range != null) {
+                start = range[0];
+                end = range[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
             }
-            os.flush();
+        }
+        long count = end - start + 1;
+        response.setHeader("Content-Length", String.valueOf(count));
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (sendfileEnabled && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, cacheFile.getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, end + 1);
+            return;
+        }
+
+        try {
+            transfer(cacheFile, start, count, response.getOutputStream());
         } catch (Exception e) {
-            if (e.getCause() instanceof SocketException) {
+            if (e instanceof SocketException || e.getCause() instanceof SocketException) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("Unable to stream asset", e);
                 }
@@ -75,15 +130,138 @@ public class StaticAssetView implements View {
                 LOG.error("Unable to stream asset", e);
                 throw e;
             }
+        }
+    }
+
+    /**
+     * Copies the requested portion of the file to the output stream through the file's channel. The JVM uses
+     * the platform's zero copy support where the target allows it, and otherwise reuses a fixed size buffer.
+     */
+    protected void transfer(File file, long start, long count, OutputStream os) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            WritableByteChannel target = Channels.newChannel(os);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    //the file was truncated underneath us
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            os.flush();
         } finally {
             try {
-                bis.close();
+                fis.close();
             } catch (Throwable e) {
                 //do nothing
             }
         }
     }
 
+    /**
+     * Cache file names change whenever the asset (or the requested operations on it) changes, so the name,
+     * size and modification time identify the content.
+     */
+    protected String buildETag(File file, long length, long lastModified) {
+        return "\"" + Integer.toHexString(file.getName().hashCode()) + '-' + Long.toHexString(length) + '-' + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * @return whether the client's cached copy is current according to the If-None-Match or, in its absence,
+     * the If-Modified-Since request header
+     */
+    protected boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+        if (!"GET".equalsIgnoreCase(request.getMethod()) && !"HEAD".equalsIgnoreCase(request.getMethod())) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || eTag.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * @return false if the request carries an If-Range header that no longer matches the asset, in which case
+     * the full asset is returned instead of the range
+     */
+    protected boolean isRangeCurrent(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return eTag.equals(ifRange);
+        }
+        return getDateHeader(request, "If-Range") == lastModified;
+    }
+
+    /**
+     * Parses a single byte range ("bytes=first-last", "bytes=first-" or "bytes=-suffixLength").
+     *
+     * @return the inclusive first and last byte positions, null if the header should be ignored (malformed or a
+     * multiple range request) or {@link #UNSATISFIABLE_RANGE} if the range lies outside the asset
+     */
+    protected long[] parseRange(String rangeHeader, long length) {
+        if (!rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (spec.indexOf(',') >= 0 || dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffixLength = Long.parseLong(spec.substring(1).trim());
+                if (suffixLength <= 0 || length == 0) {
+                    return UNSATISFIABLE_RANGE;
+                }
+                start = Math.max(0, length - suffixLength);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash).trim());
+                String last = spec.substring(dash + 1).trim();
+                end = last.length() == 0 ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+                if (start > end && last.length() != 0 && start < length) {
+                    return null;
+                }
+                if (start >= length) {
+                    return UNSATISFIABLE_RANGE;
+                }
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
     public boolean isBrowserAssetCachingEnabled() {
         return browserAssetCachingEnabled;
     }
@@ -91,4 +269,12 @@ public class StaticAssetView implements View {
     public void setBrowserAssetCachingEnabled(boolean browserAssetCachingEnabled) {
         this.browserAssetCachingEnabled = browserAssetCachingEnabled;
     }
+
+    public boolean isSendfileEnabled() {
+        return sendfileEnabled;
+    }
+
+    public void setSendfileEnabled(boolean sendfileEnabled) {
+        this.sendfileEnabled = sendfileEnabled;
+    }
 }
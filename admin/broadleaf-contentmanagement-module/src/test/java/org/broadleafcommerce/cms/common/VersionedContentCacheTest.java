@@ -0,0 +1,163 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.cms.common;
+
+import junit.framework.TestCase;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VersionedContentCacheTest extends TestCase {
+
+    private VersionedContentCache cache;
+    private AtomicInteger loads;
+
+    @Override
+    protected void setUp() throws Exception {
+        CacheManager manager = CacheManager.create();
+        if (!manager.cacheExists("versionedContentCacheTest")) {
+            manager.addCache(new Cache(new CacheConfiguration("versionedContentCacheTest", 100)));
+        }
+        manager.getEhcache("versionedContentCacheTest").removeAll();
+        cache = new VersionedContentCache("versionedContentCacheTest");
+        loads = new AtomicInteger();
+    }
+
+    private VersionedContentCache.Loader<String> loader(final String value) {
+        return new VersionedContentCache.Loader<String>() {
+            @Override
+            public String load() {
+                loads.incrementAndGet();
+                return value;
+            }
+        };
+    }
+
+    public void testReadThrough() throws Exception {
+        assertEquals("v1", cache.get("key", loader("v1")));
+        assertEquals("v1", cache.get("key", loader("v2")));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    public void testInvalidation() throws Exception {
+        cache.get("key", loader("v1"));
+        cache.get("other", loader("v1"));
+
+        cache.invalidate("key");
+        assertEquals("v2", cache.get("key", loader("v2")));
+        assertEquals("v1", cache.get("other", loader("v2")));
+
+        cache.invalidateAll();
+        assertEquals("v3", cache.get("key", loader("v3")));
+        assertEquals("v3", cache.get("other", loader("v3")));
+        assertEquals(5, loads.get());
+    }
+
+    public void testSingleFlightWithStaleValue() throws Exception {
+        cache.get("key", loader("v1"));
+        cache.invalidateAll();
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> reload = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return cache.get("key", new VersionedContentCache.Loader<String>() {
+                        @Override
+                        public String load() {
+                            loads.incrementAndGet();
+                            started.countDown();
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                throw new RuntimeException(e);
+                            }
+                            return "v2";
+                        }
+                    });
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            //served the stale value without loading while the reload is in progress
+            assertEquals("v1", cache.get("key", loader("unexpected")));
+            assertEquals(1, cache.getStaleHitCount());
+            release.countDown();
+            assertEquals("v2", reload.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("v2", cache.get("key", loader("unexpected")));
+        assertEquals(2, loads.get());
+    }
+
+    public void testInvalidationDuringLoadOnlyAffectsItsKey() throws Exception {
+        //a load that overlaps the invalidation of another key is cached as current
+        assertEquals("v1", loadWhileInvalidating("key", "other"));
+        assertEquals("v1", cache.get("key", loader("unexpected")));
+
+        //a load that overlaps the invalidation of its own key is cached as stale and reloaded
+        cache.invalidate("key");
+        assertEquals("v1", loadWhileInvalidating("key", "key"));
+        assertEquals("v2", cache.get("key", loader("v2")));
+        assertEquals(3, loads.get());
+    }
+
+    private String loadWhileInvalidating(final String key, final String invalidatedKey) throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> load = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return cache.get(key, new VersionedContentCache.Loader<String>() {
+                        @Override
+                        public String load() {
+                            loads.incrementAndGet();
+                            started.countDown();
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                throw new RuntimeException(e);
+                            }
+                            return "v1";
+                        }
+                    });
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            cache.invalidate(invalidatedKey);
+            release.countDown();
+            return load.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.cms.web.file;
+
+import junit.framework.TestCase;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+public class StaticAssetViewTest extends TestCase {
+
+    private StaticAssetView view = new StaticAssetView();
+    private File assetFile;
+    private Map<String, String> model = new HashMap<String, String>();
+
+    @Override
+    protected void setUp() throws Exception {
+        assetFile = File.createTempFile("asset", ".txt");
+        FileOutputStream fos = new FileOutputStream(assetFile);
+        try {
+            fos.write("0123456789".getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        model.put("cacheFilePath", assetFile.getAbsolutePath());
+        model.put("mimeType", "text/plain");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        assetFile.delete();
+    }
+
+    public void testFullAndConditionalGet() throws Exception {
+        MockHttpServletResponse response = render(new MockHttpServletRequest("GET", "/asset.txt"));
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        String eTag = (String) response.getHeader("ETag");
+        assertNotNull(eTag);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.addHeader("If-None-Match", eTag);
+        response = render(request);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.addHeader("If-Modified-Since", assetFile.lastModified() / 1000L * 1000L);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, render(request).getStatus());
+    }
+
+    public void testRanges() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.addHeader("Range", "bytes=2-4");
+        MockHttpServletResponse response = render(request);
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+        assertEquals("234", response.getContentAsString());
+
+        request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.addHeader("Range", "bytes=-3");
+        assertEquals("789", render(request).getContentAsString());
+
+        request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.addHeader("Range", "bytes=20-");
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, render(request).getStatus());
+
+        //a stale If-Range returns the whole asset
+        request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", "\"stale\"");
+        response = render(request);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    public void testSendfile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.setAttribute(StaticAssetView.SENDFILE_SUPPORT_ATTRIBUTE, Boolean.TRUE);
+        request.addHeader("Range", "bytes=5-");
+        MockHttpServletResponse response = render(request);
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(assetFile.getCanonicalPath(), request.getAttribute(StaticAssetView.SENDFILE_FILENAME_ATTRIBUTE));
+        assertEquals(5L, request.getAttribute(StaticAssetView.SENDFILE_START_ATTRIBUTE));
+        assertEquals(10L, request.getAttribute(StaticAssetView.SENDFILE_END_ATTRIBUTE));
+    }
+
+    protected MockHttpServletResponse render(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        view.render(model, request, response);
+        return response;
+    }
+
+}
@@ -16,8 +16,6 @@
 
 package org.broadleafcommerce.openadmin.server.dao;
 
-import net.entropysoft.transmorph.cache.LRUMap;
-
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -81,6 +79,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 
@@ -89,12 +89,17 @@ import java.util.Map;
  */
 @Component("blDynamicEntityDao")
 @Scope("prototype")
-public class DynamicEntityDaoImpl extends BaseHibernateCriteriaDao<Serializable> implements DynamicEntityDao {
+public class DynamicEntityDaoImpl extends BaseHibernateCriteriaDao<Serializable> implements DynamicEntityDao, ReadOnlyMergedPropertiesProvider {
     
     private static final Log LOG = LogFactory.getLog(DynamicEntityDaoImpl.class);
-    protected static final Object LOCK_OBJECT = new Object();
-    protected static final Map<String,Map<String, FieldMetadata>> METADATA_CACHE = new LRUMap<String, Map<String, FieldMetadata>>(1000);
-    protected static final Map<Class<?>, Class<?>[]> POLYMORPHIC_ENTITY_CACHE = new LRUMap<Class<?>, Class<?>[]>(1000);
+    /*
+     * The metadata caches are read concurrently without locking. An entry is built outside of any lock and
+     * published with putIfAbsent, so two threads that miss on the same key at the same time may both build it, but
+     * only the first result is ever handed out. Published entries are never modified.
+     */
+    protected static final ConcurrentMap<String, Map<String, FieldMetadata>> METADATA_CACHE = new ConcurrentHashMap<String, Map<String, FieldMetadata>>();
+    protected static final ConcurrentMap<String, Map<String, FieldMetadata>> MERGED_PROPERTIES_CACHE = new ConcurrentHashMap<String, Map<String, FieldMetadata>>();
+    protected static final ConcurrentMap<Class<?>, Class<?>[]> POLYMORPHIC_ENTITY_CACHE = new ConcurrentHashMap<Class<?>, Class<?>[]>();
     
     protected EntityManager standardEntityManager;
 
@@ -175,22 +180,21 @@ public class DynamicEntityDaoImpl extends BaseHibernateCriteriaDao<Serializable>
      */
     @Override
     public Class<?>[] getAllPolymorphicEntitiesFromCeiling(Class<?> ceilingClass) {
-        Class<?>[] cache;
-        synchronized(LOCK_OBJECT) {
-            cache = POLYMORPHIC_ENTITY_CACHE.get(ceilingClass);
-            if (cache == null) {
-                List<Class<?>> entities = new ArrayList<Class<?>>();
-                for (Object item : getSessionFactory().getAllClassMetadata().values()) {
-                    ClassMetadata metadata = (ClassMetadata) item;
-                    Class<?> mappedClass = metadata.getMappedClass(EntityMode.POJO);
-                    if (mappedClass != null && ceilingClass.isAssignableFrom(mappedClass)) {
-                        entities.add(mappedClass);
-                    }
+        Class<?>[] cache = POLYMORPHIC_ENTITY_CACHE.get(ceilingClass);
+        if (cache == null) {
+            List<Class<?>> entities = new ArrayList<Class<?>>();
+            for (Object item : getSessionFactory().getAllClassMetadata().values()) {
+                ClassMetadata metadata = (ClassMetadata) item;
+                Class<?> mappedClass = metadata.getMappedClass(EntityMode.POJO);
+                if (mappedClass != null && ceilingClass.isAssignableFrom(mappedClass)) {
+                    entities.add(mappedClass);
                 }
-                Class<?>[] sortedEntities = sortEntities(ceilingClass, entities);
+            }
+            Class<?>[] sortedEntities = sortEntities(ceilingClass, entities);
 
+            cache = POLYMORPHIC_ENTITY_CACHE.putIfAbsent(ceilingClass, sortedEntities);
+            if (cache == null) {
                 cache = sortedEntities;
-                POLYMORPHIC_ENTITY_CACHE.put(ceilingClass, sortedEntities);
             }
         }
 
@@ -392,6 +396,90 @@ public class DynamicEntityDaoImpl extends BaseHibernateCriteriaDao<Serializable>
         String[] excludeFields,
         String configurationKey,
         String prefix
+    ) {
+        Map<String, FieldMetadata> readOnlyProperties = getReadOnlyMergedProperties(
+            ceilingEntityFullyQualifiedClassname,
+            entities,
+            foreignField,
+            additionalNonPersistentProperties,
+            additionalForeignFields,
+            mergedPropertyType,
+            populateManyToOneFields,
+            includeFields,
+            excludeFields,
+            configurationKey,
+            prefix
+        );
+        //callers of this method are free to modify the metadata, so they receive their own copy
+        Map<String, FieldMetadata> mergedProperties = new HashMap<String, FieldMetadata>(readOnlyProperties.size());
+        for (Map.Entry<String, FieldMetadata> entry : readOnlyProperties.entrySet()) {
+            mergedProperties.put(entry.getKey(), entry.getValue().cloneFieldMetadata());
+        }
+        return mergedProperties;
+    }
+
+    @Override
+    public Map<String, FieldMetadata> getReadOnlyMergedProperties(
+        String ceilingEntityFullyQualifiedClassname,
+        Class<?>[] entities,
+        ForeignKey foreignField,
+        String[] additionalNonPersistentProperties,
+        ForeignKey[] additionalForeignFields,
+        MergedPropertyType mergedPropertyType,
+        Boolean populateManyToOneFields,
+        String[] includeFields,
+        String[] excludeFields,
+        String configurationKey,
+        String prefix
+    ) {
+        String cacheKey = getMergedPropertiesCacheKey(
+            ceilingEntityFullyQualifiedClassname,
+            entities,
+            foreignField,
+            additionalNonPersistentProperties,
+            additionalForeignFields,
+            mergedPropertyType,
+            populateManyToOneFields,
+            includeFields,
+            excludeFields,
+            configurationKey,
+            prefix
+        );
+        Map<String, FieldMetadata> mergedProperties = MERGED_PROPERTIES_CACHE.get(cacheKey);
+        if (mergedProperties == null) {
+            Map<String, FieldMetadata> built = Collections.unmodifiableMap(buildMergedProperties(
+                ceilingEntityFullyQualifiedClassname,
+                entities,
+                foreignField,
+                additionalNonPersistentProperties,
+                additionalForeignFields,
+                mergedPropertyType,
+                populateManyToOneFields,
+                includeFields,
+                excludeFields,
+                configurationKey,
+                prefix
+            ));
+            mergedProperties = MERGED_PROPERTIES_CACHE.putIfAbsent(cacheKey, built);
+            if (mergedProperties == null) {
+                mergedProperties = built;
+            }
+        }
+        return mergedProperties;
+    }
+
+    protected Map<String, FieldMetadata> buildMergedProperties(
+        String ceilingEntityFullyQualifiedClassname,
+        Class<?>[] entities,
+        ForeignKey foreignField,
+        String[] additionalNonPersistentProperties,
+        ForeignKey[] additionalForeignFields,
+        MergedPropertyType mergedPropertyType,
+        Boolean populateManyToOneFields,
+        String[] includeFields,
+        String[] excludeFields,
+        String configurationKey,
+        String prefix
     ) {
         Map<String, FieldMetadata> mergedProperties = getMergedPropertiesRecursively(
             ceilingEntityFullyQualifiedClassname,
@@ -444,6 +532,58 @@ public class DynamicEntityDaoImpl extends BaseHibernateCriteriaDao<Serializable>
         return mergedProperties;
     }
 
+    protected String getMergedPropertiesCacheKey(
+        String ceilingEntityFullyQualifiedClassname,
+        Class<?>[] entities,
+        ForeignKey foreignField,
+        String[] additionalNonPersistentProperties,
+        ForeignKey[] additionalForeignFields,
+        MergedPropertyType mergedPropertyType,
+        Boolean populateManyToOneFields,
+        String[] includeFields,
+        String[] excludeFields,
+        String configurationKey,
+        String prefix
+    ) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(ceilingEntityFullyQualifiedClassname).append('|');
+        for (Class<?> entity : entities) {
+            sb.append(entity.getName()).append(',');
+        }
+        sb.append('|');
+        appendForeignKey(sb, foreignField);
+        sb.append('|').append(ArrayUtils.toString(additionalNonPersistentProperties));
+        sb.append('|');
+        if (additionalForeignFields != null) {
+            for (ForeignKey key : additionalForeignFields) {
+                appendForeignKey(sb, key);
+                sb.append(',');
+            }
+        }
+        sb.append('|').append(mergedPropertyType);
+        sb.append('|').append(populateManyToOneFields);
+        sb.append('|').append(ArrayUtils.toString(includeFields));
+        sb.append('|').append(ArrayUtils.toString(excludeFields));
+        sb.append('|').append(configurationKey);
+        sb.append('|').append(prefix);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the structural parts of the foreign key to a metadata cache key. The current value (the id of the
+     * parent record being viewed) does not affect the metadata and is deliberately left out, otherwise every
+     * parent record would produce its own cache entry.
+     */
+    protected void appendForeignKey(StringBuilder sb, ForeignKey foreignKey) {
+        if (foreignKey != null) {
+            sb.append(foreignKey.getManyToField());
+            sb.append(foreignKey.getForeignKeyClass());
+            sb.append(foreignKey.getDataSourceName());
+            sb.append(foreignKey.getRestrictionType());
+            sb.append(foreignKey.getDisplayValueProperty());
+        }
+    }
+
     protected Map<String, FieldMetadata> getMergedPropertiesRecursively(
         final String ceilingEntityFullyQualifiedClassname,
         final Class<?>[] entities,
@@ -570,7 +710,7 @@ public class DynamicEntityDaoImpl extends BaseHibernateCriteriaDao<Serializable>
     protected String getCacheKey(ForeignKey foreignField, String[] additionalNonPersistentProperties, ForeignKey[] additionalForeignFields, MergedPropertyType mergedPropertyType, Boolean populateManyToOneFields, Class<?> clazz, String configurationKey, Boolean isParentExcluded) {
         StringBuilder sb = new StringBuilder(150);
         sb.append(clazz.hashCode());
-        sb.append(foreignField==null?"":foreignField.toString());
+        appendForeignKey(sb, foreignField);
         sb.append(configurationKey);
         sb.append(isParentExcluded);
         if (additionalNonPersistentProperties != null) {
@@ -580,7 +720,7 @@ public class DynamicEntityDaoImpl extends BaseHibernateCriteriaDao<Serializable>
         }
         if (additionalForeignFields != null) {
             for (ForeignKey key : additionalForeignFields) {
-                sb.append(key.toString());
+                appendForeignKey(sb, key);
             }
         }
         sb.append(mergedPropertyType);
@@ -618,46 +758,46 @@ public class DynamicEntityDaoImpl extends BaseHibernateCriteriaDao<Serializable>
         for (Class<?> clazz : entities) {
             String cacheKey = getCacheKey(foreignField, additionalNonPersistentProperties, additionalForeignFields, mergedPropertyType, populateManyToOneFields, clazz, configurationKey, isParentExcluded);
 
-            Map<String, FieldMetadata> cacheData;
-            synchronized(LOCK_OBJECT) {
-                cacheData = METADATA_CACHE.get(cacheKey);
-                if (cacheData == null) {
-                    Map<String, FieldMetadata> props = getPropertiesForEntityClass(
-                        clazz,
-                        foreignField,
-                        additionalNonPersistentProperties,
-                        additionalForeignFields,
-                        mergedPropertyType,
-                        populateManyToOneFields,
-                        includeFields,
-                        excludeFields,
-                        configurationKey,
-                        ceilingEntityFullyQualifiedClassname,
-                        parentClasses,
-                        prefix,
-                        isParentExcluded
-                    );
-                    //first check all the properties currently in there to see if my entity inherits from them
-                    for (Class<?> clazz2 : entities) {
-                        if (!clazz2.getName().equals(clazz.getName())) {
-                            for (Map.Entry<String, FieldMetadata> entry : props.entrySet()) {
-                                FieldMetadata metadata = entry.getValue();
-                                try {
-                                    if (Class.forName(metadata.getInheritedFromType()).isAssignableFrom(clazz2)) {
-                                        String[] both = (String[]) ArrayUtils.addAll(metadata.getAvailableToTypes(), new String[]{clazz2.getName()});
-                                        metadata.setAvailableToTypes(both);
-                                    }
-                                } catch (ClassNotFoundException e) {
-                                    throw new RuntimeException(e);
+            Map<String, FieldMetadata> cacheData = METADATA_CACHE.get(cacheKey);
+            if (cacheData == null) {
+                Map<String, FieldMetadata> props = getPropertiesForEntityClass(
+                    clazz,
+                    foreignField,
+                    additionalNonPersistentProperties,
+                    additionalForeignFields,
+                    mergedPropertyType,
+                    populateManyToOneFields,
+                    includeFields,
+                    excludeFields,
+                    configurationKey,
+                    ceilingEntityFullyQualifiedClassname,
+                    parentClasses,
+                    prefix,
+                    isParentExcluded
+                );
+                //first check all the properties currently in there to see if my entity inherits from them
+                for (Class<?> clazz2 : entities) {
+                    if (!clazz2.getName().equals(clazz.getName())) {
+                        for (Map.Entry<String, FieldMetadata> entry : props.entrySet()) {
+                            FieldMetadata metadata = entry.getValue();
+                            try {
+                                if (Class.forName(metadata.getInheritedFromType()).isAssignableFrom(clazz2)) {
+                                    String[] both = (String[]) ArrayUtils.addAll(metadata.getAvailableToTypes(), new String[]{clazz2.getName()});
+                                    metadata.setAvailableToTypes(both);
                                 }
+                            } catch (ClassNotFoundException e) {
+                                throw new RuntimeException(e);
                             }
                         }
                     }
-                    METADATA_CACHE.put(cacheKey, props);
+                }
+                cacheData = METADATA_CACHE.putIfAbsent(cacheKey, Collections.unmodifiableMap(props));
+                if (cacheData == null) {
                     cacheData = props;
                 }
             }
-            //clone the metadata before passing to the system
+            //clone the metadata before passing to the system, since the merge overrides the cloned values. This only
+            //happens when the merged result for a configuration is first built; see getReadOnlyMergedProperties
             Map<String, FieldMetadata> clonedCache = new HashMap<String, FieldMetadata>(cacheData.size());
             for (Map.Entry<String, FieldMetadata> entry : cacheData.entrySet()) {
                 clonedCache.put(entry.getKey(), entry.getValue().cloneFieldMetadata());
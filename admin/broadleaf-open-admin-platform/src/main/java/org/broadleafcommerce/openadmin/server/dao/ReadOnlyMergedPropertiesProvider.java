@@ -0,0 +1,41 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.openadmin.server.dao;
+
+import org.broadleafcommerce.openadmin.client.dto.FieldMetadata;
+import org.broadleafcommerce.openadmin.client.dto.ForeignKey;
+import org.broadleafcommerce.openadmin.client.dto.MergedPropertyType;
+
+import java.util.Map;
+
+/**
+ * Optionally implemented by a {@link DynamicEntityDao} that can hand out the merged metadata it has cached for a
+ * configuration without copying it. Callers should check for this interface with <code>instanceof</code> and fall
+ * back to {@link DynamicEntityDao#getMergedProperties(String, Class[], ForeignKey, String[], ForeignKey[], MergedPropertyType, Boolean, String[], String[], String, String)}
+ * otherwise.
+ */
+public interface ReadOnlyMergedPropertiesProvider {
+
+    /**
+     * Same as {@link DynamicEntityDao#getMergedProperties(String, Class[], ForeignKey, String[], ForeignKey[], MergedPropertyType, Boolean, String[], String[], String, String)},
+     * but returns the shared, unmodifiable metadata registered for this configuration rather than a private copy. The
+     * {@link FieldMetadata} instances in the returned map must not be modified.
+     */
+    public Map<String, FieldMetadata> getReadOnlyMergedProperties(String ceilingEntityFullyQualifiedClassname, Class<?>[] entities, ForeignKey foreignField, String[] additionalNonPersistentProperties, ForeignKey[] additionalForeignFields, MergedPropertyType mergedPropertyType, Boolean populateManyToOneFields, String[] includeManyToOneFields, String[] excludeManyToOneFields, String configurationKey, String prefix);
+
+}
@@ -39,23 +39,22 @@ public class SessionFactoryChangeListener implements SessionFactoryObserver {
 
     @Override
     public void sessionFactoryCreated(SessionFactory factory) {
-        synchronized (DynamicEntityDaoImpl.LOCK_OBJECT) {
-            DynamicEntityDaoImpl.METADATA_CACHE.clear();
-            DynamicEntityDaoImpl.POLYMORPHIC_ENTITY_CACHE.clear();
-            try {
-                Field metadataCache = DynamicEntityRemoteService.class.getDeclaredField("METADATA_CACHE");
-                metadataCache.setAccessible(true);
-                ((Map) metadataCache.get(null)).clear();
-            } catch (Throwable e) {
-                throw new RuntimeException(e);
-            }
-            try {
-                Field fieldCache = IdOverrideTableGenerator.class.getDeclaredField("FIELD_CACHE");
-                fieldCache.setAccessible(true);
-                ((Map) fieldCache.get(null)).clear();
-            } catch (Throwable e) {
-                throw new RuntimeException(e);
-            }
+        DynamicEntityDaoImpl.METADATA_CACHE.clear();
+        DynamicEntityDaoImpl.MERGED_PROPERTIES_CACHE.clear();
+        DynamicEntityDaoImpl.POLYMORPHIC_ENTITY_CACHE.clear();
+        try {
+            Field metadataCache = DynamicEntityRemoteService.class.getDeclaredField("METADATA_CACHE");
+            metadataCache.setAccessible(true);
+            ((Map) metadataCache.get(null)).clear();
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            Field fieldCache = IdOverrideTableGenerator.class.getDeclaredField("FIELD_CACHE");
+            fieldCache.setAccessible(true);
+            ((Map) fieldCache.get(null)).clear();
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.openadmin.server.service.persistence;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.persistence.EntityConfiguration;
+import org.broadleafcommerce.openadmin.client.dto.PersistencePerspective;
+import org.broadleafcommerce.openadmin.server.dao.DynamicEntityDao;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds the admin field metadata for every entity registered with {@link EntityConfiguration} once the admin
+ * application context has started, so that the first user to open a given entity in the admin does not pay for the
+ * metadata introspection. The work is done on a background daemon thread and does not delay startup. Entities whose
+ * metadata cannot be built ahead of time are simply skipped and will be built on first use, as before.
+ *
+ * Pre-warming can be disabled with the <code>admin.metadata.prewarm.enabled</code> property.
+ */
+@Component("blMetadataCachePrewarmer")
+public class MetadataCachePrewarmer implements ApplicationListener<ContextRefreshedEvent>, ApplicationContextAware {
+
+    private static final Log LOG = LogFactory.getLog(MetadataCachePrewarmer.class);
+
+    @PersistenceContext(unitName="blPU")
+    protected EntityManager em;
+
+    @Resource(name="blEntityConfiguration")
+    protected EntityConfiguration entityConfiguration;
+
+    @Value("${admin.metadata.prewarm.enabled:true}")
+    protected boolean enabled = true;
+
+    protected ApplicationContext applicationContext;
+    protected final AtomicBoolean started = new AtomicBoolean(false);
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!enabled || event.getApplicationContext() != applicationContext || !started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prewarm();
+            }
+        }, "blMetadataCachePrewarmer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Builds the default metadata for each registered ceiling entity. This populates the polymorphic entity, per
+     * class and merged property caches held by the {@link DynamicEntityDao}.
+     */
+    public void prewarm() {
+        long start = System.currentTimeMillis();
+        DynamicEntityDao dynamicEntityDao = (DynamicEntityDao) applicationContext.getBean("blDynamicEntityDao");
+        dynamicEntityDao.setStandardEntityManager(em);
+        int count = 0;
+        for (String entityName : entityConfiguration.getEntityBeanNames()) {
+            try {
+                dynamicEntityDao.getSimpleMergedProperties(entityName, new PersistencePerspective());
+                count++;
+            } catch (Exception e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Unable to pre-warm the admin metadata for " + entityName, e);
+                }
+            }
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Pre-warmed the admin metadata for " + count + " entities in " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+}
@@ -20,10 +20,12 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.common.cache.engine.CacheFactoryException;
+import org.broadleafcommerce.common.cache.engine.ConcurrentHydratedCacheManager;
 import org.broadleafcommerce.common.cache.engine.HydratedAnnotationManager;
 import org.broadleafcommerce.common.cache.engine.HydratedCacheEventListenerFactory;
 import org.broadleafcommerce.common.cache.engine.HydratedCacheManager;
 import org.broadleafcommerce.common.cache.engine.HydrationDescriptor;
+import org.broadleafcommerce.common.cache.engine.HydrationItemDescriptor;
 import org.hibernate.annotations.Cache;
 import org.springframework.orm.jpa.EntityManagerHolder;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
@@ -34,9 +36,9 @@ import javax.persistence.EntityManagerFactory;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 
@@ -46,12 +48,13 @@ import java.util.Map;
 public class HydratedSetup {
     
     private static final Log LOG = LogFactory.getLog(HydratedSetup.class);
-    private static Map<String, String> inheritanceHierarchyRoots = Collections.synchronizedMap(new HashMap<String, String>());
+    private static Map<String, String> inheritanceHierarchyRoots = new ConcurrentHashMap<String, String>();
 
     private static String getInheritanceHierarchyRoot(Class<?> myEntityClass) {
         String myEntityName = myEntityClass.getName();
-        if (inheritanceHierarchyRoots.containsKey(myEntityName)) {
-            return inheritanceHierarchyRoots.get(myEntityName);
+        String root = inheritanceHierarchyRoots.get(myEntityName);
+        if (root != null) {
+            return root;
         }
         Class<?> currentClass = myEntityClass;
         boolean eof = false;
@@ -69,26 +72,41 @@ public class HydratedSetup {
         }
 
         inheritanceHierarchyRoots.put(myEntityName, currentClass.getName());
-        return inheritanceHierarchyRoots.get(myEntityName);
+        return currentClass.getName();
     }
 
-    public static void populateFromCache(Object entity) {
+    public static void populateFromCache(final Object entity) {
         HydratedCacheManager manager = HydratedCacheEventListenerFactory.getConfiguredManager();
         HydrationDescriptor descriptor = ((HydratedAnnotationManager) manager).getHydrationDescriptor(entity);
         if (!MapUtils.isEmpty(descriptor.getHydratedMutators())) {
             Method[] idMutators = descriptor.getIdMutators();
             String cacheRegion = descriptor.getCacheRegion();
-            for (String field : descriptor.getHydratedMutators().keySet()) {
+            String cacheName = getInheritanceHierarchyRoot(entity.getClass());
+            Serializable entityId = null;
+            for (Map.Entry<String, HydrationItemDescriptor> entry : descriptor.getHydratedMutators().entrySet()) {
+                String field = entry.getKey();
                 try {
-                    Serializable entityId = (Serializable) idMutators[0].invoke(entity);
-                    Object hydratedItem = manager.getHydratedCacheElementItem(cacheRegion, getInheritanceHierarchyRoot(entity.getClass()), entityId, field);
-                    if (hydratedItem == null) {
-                        Method factoryMethod = entity.getClass().getMethod(descriptor.getHydratedMutators().get(field).getFactoryMethod(), new Class[]{});
-                        Object fieldVal = factoryMethod.invoke(entity);
-                        manager.addHydratedCacheElementItem(cacheRegion, getInheritanceHierarchyRoot(entity.getClass()), entityId, field, fieldVal);
-                        hydratedItem = fieldVal;
+                    if (entityId == null) {
+                        entityId = (Serializable) idMutators[0].invoke(entity);
                     }
-                    descriptor.getHydratedMutators().get(field).getMutators()[1].invoke(entity, hydratedItem);
+                    final Method factoryMethod = getFactoryMethod(entity, entry.getValue());
+                    Object hydratedItem;
+                    if (manager instanceof ConcurrentHydratedCacheManager) {
+                        hydratedItem = ((ConcurrentHydratedCacheManager) manager).getOrCreateHydratedCacheElementItem(cacheRegion, cacheName, entityId, field, new Callable<Object>() {
+                            @Override
+                            public Object call() throws Exception {
+                                return factoryMethod.invoke(entity);
+                            }
+                        });
+                    } else {
+                        hydratedItem = manager.getHydratedCacheElementItem(cacheRegion, cacheName, entityId, field);
+                        if (hydratedItem == null) {
+                            Object fieldVal = factoryMethod.invoke(entity);
+                            manager.addHydratedCacheElementItem(cacheRegion, cacheName, entityId, field, fieldVal);
+                            hydratedItem = fieldVal;
+                        }
+                    }
+                    entry.getValue().getMutators()[1].invoke(entity, hydratedItem);
                 } catch (InvocationTargetException e) {
                     if (e.getTargetException() != null && e.getTargetException() instanceof CacheFactoryException) {
                         LOG.warn("Unable to setup the hydrated cache for an entity. " + e.getTargetException().getMessage());
@@ -102,6 +120,13 @@ public class HydratedSetup {
         }
     }
 
+    private static Method getFactoryMethod(Object entity, HydrationItemDescriptor itemDescriptor) throws NoSuchMethodException {
+        if (itemDescriptor.getFactory() != null) {
+            return itemDescriptor.getFactory();
+        }
+        return entity.getClass().getMethod(itemDescriptor.getFactoryMethod(), new Class[]{});
+    }
+
     public static void addCacheItem(String cacheRegion, String cacheName, Serializable elementKey, String elementItemName, Object elementValue) {
         HydratedCacheManager manager = HydratedCacheEventListenerFactory.getConfiguredManager();
         manager.addHydratedCacheElementItem(cacheRegion, cacheName, elementKey, elementItemName, elementValue);
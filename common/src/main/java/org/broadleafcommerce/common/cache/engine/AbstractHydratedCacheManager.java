@@ -21,9 +21,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.lang.reflect.Method;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author jfischer
@@ -32,23 +31,36 @@ public abstract class AbstractHydratedCacheManager implements CacheEventListener
 
     private static final Log LOG = LogFactory.getLog(AbstractHydratedCacheManager.class);
 
-    private Map<String, HydrationDescriptor> hydrationDescriptors = Collections.synchronizedMap(new HashMap(100));
+    private Map<String, HydrationDescriptor> hydrationDescriptors = new ConcurrentHashMap<String, HydrationDescriptor>(100);
 
     @Override
     public HydrationDescriptor getHydrationDescriptor(Object entity) {
-        if (hydrationDescriptors.containsKey(entity.getClass().getName())) {
-            return hydrationDescriptors.get(entity.getClass().getName());
+        HydrationDescriptor descriptor = hydrationDescriptors.get(entity.getClass().getName());
+        if (descriptor != null) {
+            return descriptor;
         }
-        HydrationDescriptor descriptor = new HydrationDescriptor();
+        descriptor = new HydrationDescriptor();
         Class<?> topEntityClass = getTopEntityClass(entity);
         HydrationScanner scanner = new HydrationScanner(topEntityClass, entity.getClass());
         scanner.init();
-        descriptor.setHydratedMutators(scanner.getCacheMutators());
+        Map<String, HydrationItemDescriptor> cacheMutators = scanner.getCacheMutators();
+        for (Map.Entry<String, HydrationItemDescriptor> entry : cacheMutators.entrySet()) {
+            try {
+                Method factory = entity.getClass().getMethod(entry.getValue().getFactoryMethod());
+                factory.setAccessible(true);
+                entry.getValue().setFactory(factory);
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("Unable to find the factory method (" + entry.getValue().getFactoryMethod() + ") for the hydrated field (" + entry.getKey() + ") on " + entity.getClass().getName(), e);
+            }
+            makeAccessible(entry.getValue().getMutators());
+        }
+        descriptor.setHydratedMutators(cacheMutators);
         Map<String, Method[]> mutators = scanner.getIdMutators();
         if (mutators.size() != 1) {
             throw new RuntimeException("Broadleaf Commerce Hydrated Cache currently only supports entities with a single @Id annotation.");
         }
         Method[] singleMutators = mutators.values().iterator().next();
+        makeAccessible(singleMutators);
         descriptor.setIdMutators(singleMutators);
         String cacheRegion = scanner.getCacheRegion();
         if (cacheRegion == null || "".equals(cacheRegion)) {
@@ -59,6 +71,19 @@ public abstract class AbstractHydratedCacheManager implements CacheEventListener
         return descriptor;
     }
 
+    /**
+     * The descriptor is cached and its methods invoked on every hydrated entity load, so skip the access checks.
+     */
+    protected void makeAccessible(Method[] methods) {
+        if (methods != null) {
+            for (Method method : methods) {
+                if (method != null) {
+                    method.setAccessible(true);
+                }
+            }
+        }
+    }
+
     protected Class<?> getTopEntityClass(Object entity) {
         Class<?> myClass = entity.getClass();
         Class<?> superClass = entity.getClass().getSuperclass();
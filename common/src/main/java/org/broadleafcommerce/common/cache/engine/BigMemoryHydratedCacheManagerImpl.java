@@ -16,141 +16,81 @@
 
 package org.broadleafcommerce.common.cache.engine;
 
-import net.sf.ehcache.Cache;
-import net.sf.ehcache.CacheException;
-import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.Ehcache;
-import net.sf.ehcache.Element;
-import net.sf.ehcache.config.CacheConfiguration;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-import org.hibernate.cache.CacheKey;
+import org.broadleafcommerce.common.cache.offheap.OffHeapCacheDecoratorFactory;
+import org.broadleafcommerce.common.cache.offheap.OffHeapStore;
 
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Properties;
 
 /**
- * 
+ * Hydrated cache manager that keeps hydrated items serialized in an {@link OffHeapStore} rather than on the heap,
+ * so that large category trees do not add to old generation occupancy. Item membership and expiry are tracked
+ * on the heap exactly as in {@link ConcurrentHydratedCacheManagerImpl}. Select it with the managerClass property
+ * of the {@link HydratedCacheEventListenerFactory}; the maxMemoryOffHeap, segments and directory properties
+ * size the store (see {@link OffHeapCacheDecoratorFactory}).
+ *
  * @author jfischer
  *
  */
-public class BigMemoryHydratedCacheManagerImpl extends AbstractHydratedCacheManager {
+public class BigMemoryHydratedCacheManagerImpl extends ConcurrentHydratedCacheManagerImpl {
 
-    private static final Log LOG = LogFactory.getLog(BigMemoryHydratedCacheManagerImpl.class);
     private static final BigMemoryHydratedCacheManagerImpl MANAGER = new BigMemoryHydratedCacheManagerImpl();
 
     public static BigMemoryHydratedCacheManagerImpl getInstance() {
         return MANAGER;
     }
 
-    private Map<String, List<String>> cacheMemberNamesByEntity = Collections.synchronizedMap(new HashMap<String, List<String>>(100));
-    private List<String> removeKeys = Collections.synchronizedList(new ArrayList<String>(100));
-    private Cache offHeap = null;
+    private volatile OffHeapStore offHeap = null;
+    private Properties storeProperties = new Properties();
 
     private BigMemoryHydratedCacheManagerImpl()  {
-        //CacheManager.getInstance() and CacheManager.create() cannot be called in this constructor because it will create two cache manager instances
+        storeProperties.setProperty("maxMemoryOffHeap", "1400M");
     }
-    
-    private Cache getHeap() {
+
+    protected OffHeapStore getOffHeap() {
         if (offHeap == null) {
-            if (CacheManager.getInstance().cacheExists("hydrated-offheap-cache")) {
-                offHeap = CacheManager.getInstance().getCache("hydrated-offheap-cache");
-            } else {
-                CacheConfiguration config = new CacheConfiguration("hydrated-offheap-cache", 500).eternal(true).overflowToOffHeap(true).maxMemoryOffHeap("1400M");
-                Cache cache = new Cache(config);
-                CacheManager.create().addCache(cache);
-                offHeap = cache;
+            synchronized (this) {
+                if (offHeap == null) {
+                    offHeap = OffHeapCacheDecoratorFactory.createStore("hydrated-offheap-cache", storeProperties);
+                }
             }
         }
         return offHeap;
     }
 
     @Override
-    public Object getHydratedCacheElementItem(String cacheRegion, String cacheName, Serializable elementKey, String elementItemName) {
-        Element element;
-        String myKey = cacheRegion + '_' + cacheName + '_' + elementItemName + '_' + elementKey;
-        if (removeKeys.contains(myKey)) {
-            return null;
-        }
-        Object response = null;
-        element = getHeap().get(myKey);
-        if (element != null) {
-            response = element.getObjectValue();
-        }
-        return response;
-    }
-
-    @Override
-    public void addHydratedCacheElementItem(String cacheRegion, String cacheName, Serializable elementKey, String elementItemName, Object elementValue) {
-        String heapKey = cacheRegion + '_' + cacheName + '_' + elementItemName + '_' + elementKey;
-        String nameKey = cacheRegion + '_' + cacheName + '_' + elementKey;
-        removeKeys.remove(nameKey);
-        Element element = new Element(heapKey, elementValue);
-        if (!cacheMemberNamesByEntity.containsKey(nameKey)) {
-            List<String> myMembers = new ArrayList<String>(50);
-            myMembers.add(elementItemName);
-            cacheMemberNamesByEntity.put(nameKey, myMembers);
-        } else {
-            List<String> myMembers = cacheMemberNamesByEntity.get(nameKey);
-            myMembers.add(elementItemName);
-        }
-        getHeap().put(element);
-    }
-
-    protected void removeCache(String cacheRegion, Serializable key) {
-        String cacheName = cacheRegion;
-        if (key instanceof CacheKey) {
-            cacheName = ((CacheKey) key).getEntityOrRoleName();
-            key = ((CacheKey) key).getKey();
-        }
-        String nameKey = cacheRegion + '_' + cacheName + '_' + key;
-        if (cacheMemberNamesByEntity.containsKey(nameKey)) {
-            String[] members = new String[cacheMemberNamesByEntity.get(nameKey).size()];
-            members = cacheMemberNamesByEntity.get(nameKey).toArray(members);
-            for (String myMember : members) {
-                String itemKey = cacheRegion + '_' + myMember + '_' + key;
-                removeKeys.add(itemKey);
+    public void configure(Properties properties) {
+        super.configure(properties);
+        for (String name : new String[]{"maxMemoryOffHeap", "segments", "directory"}) {
+            if (properties.getProperty(name) != null) {
+                storeProperties.setProperty(name, properties.getProperty(name));
             }
-            cacheMemberNamesByEntity.remove(nameKey);
         }
     }
-    
-    protected void removeAll(String cacheName) {
-        //do nothing
-    }
-
-    @Override
-    public void notifyElementEvicted(Ehcache arg0, Element arg1) {
-        removeCache(arg0.getName(), arg1.getKey());
-    }
 
     @Override
-    public void notifyElementExpired(Ehcache arg0, Element arg1) {
-        removeCache(arg0.getName(), arg1.getKey());
-    }
-
-    @Override
-    public void notifyElementPut(Ehcache arg0, Element arg1) throws CacheException {
-        //do nothing
+    protected HydratedCacheEntry createEntry(HydratedCacheKey key, Object elementValue, long expiration) {
+        if (getOffHeap().put(key, elementValue)) {
+            return new HydratedCacheEntry(null, expiration);
+        }
+        return null;
     }
 
     @Override
-    public void notifyElementRemoved(Ehcache arg0, Element arg1) throws CacheException {
-        removeCache(arg0.getName(), arg1.getKey());
+    protected Object readValue(HydratedCacheKey key, HydratedCacheEntry entry) {
+        return getOffHeap().get(key);
     }
 
     @Override
-    public void notifyElementUpdated(Ehcache arg0, Element arg1) throws CacheException {
-        removeCache(arg0.getName(), arg1.getKey());
+    protected void releaseEntry(HydratedCacheKey key, HydratedCacheEntry entry) {
+        getOffHeap().remove(key);
     }
 
     @Override
-    public void notifyRemoveAll(Ehcache arg0) {
-        removeAll(arg0.getName());
+    public void dispose() {
+        super.dispose();
+        if (offHeap != null) {
+            offHeap.clear();
+        }
     }
 
 }
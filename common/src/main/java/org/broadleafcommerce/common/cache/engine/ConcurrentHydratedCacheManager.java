@@ -0,0 +1,45 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.engine;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link HydratedCacheManager} that can coordinate the creation of missing cache items, so that
+ * concurrent readers of the same missing item wait for a single invocation of its factory rather than
+ * each building (and caching) their own copy.
+ */
+public interface ConcurrentHydratedCacheManager extends HydratedCacheManager {
+
+    /**
+     * Retrieves the cached item, invoking the factory to build and cache it if it is not present. Only one
+     * thread at a time will invoke the factory for a given item; other threads requesting the same item
+     * block until it is available.
+     *
+     * @param cacheRegion the cache region of the owning entity
+     * @param cacheName the name of the inheritance root of the owning entity
+     * @param elementKey the id of the owning entity
+     * @param elementItemName the name of the hydrated field
+     * @param factory builds the item when it is not cached
+     * @return the cached or newly built item
+     * @throws Exception the exception thrown by the factory, if any
+     */
+    public Object getOrCreateHydratedCacheElementItem(String cacheRegion, String cacheName, Serializable elementKey, String elementItemName, Callable<Object> factory) throws Exception;
+
+}
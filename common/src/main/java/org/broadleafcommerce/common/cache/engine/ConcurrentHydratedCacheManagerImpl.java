@@ -0,0 +1,521 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.engine;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.hibernate.cache.CacheKey;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hydrated cache manager backed by striped concurrent maps rather than a synchronized membership map and a
+ * string keyed Ehcache. Items are stored under a precomputed {@link HydratedCacheKey}, may optionally expire
+ * after {@link #setTimeToLiveSeconds(long)}, and are populated through
+ * {@link #getOrCreateHydratedCacheElementItem(String, String, Serializable, String, Callable)} so that only one
+ * thread builds a missing item. Hit, miss and load counts are kept per cache region.
+ *
+ * Once more than maxElements items are cached, items are evicted in least recently used order, approximated
+ * with the clock (second chance) algorithm: items are queued in insertion order, and an item that was read since
+ * it was last considered goes back to the end of the queue instead of being evicted. Time is read from
+ * {@link SystemTime}.
+ *
+ * This is the manager used by {@link HydratedCacheEventListenerFactory} unless another managerClass is configured.
+ * The optional timeToLiveSeconds and maxElements listener properties are applied to this manager. Subclasses may
+ * keep item values in another storage tier through {@link #createEntry(HydratedCacheKey, Object, long)}.
+ */
+public class ConcurrentHydratedCacheManagerImpl extends AbstractHydratedCacheManager implements ConcurrentHydratedCacheManager {
+
+    private static final Log LOG = LogFactory.getLog(ConcurrentHydratedCacheManagerImpl.class);
+    private static final ConcurrentHydratedCacheManagerImpl MANAGER = new ConcurrentHydratedCacheManagerImpl();
+
+    public static ConcurrentHydratedCacheManagerImpl getInstance() {
+        return MANAGER;
+    }
+
+    protected final ConcurrentMap<HydratedCacheKey, HydratedCacheEntry> items = new ConcurrentHashMap<HydratedCacheKey, HydratedCacheEntry>(1000, 0.75f, 64);
+    /**
+     * The element item names cached for each entity. A member set is only changed while holding its monitor, and
+     * an empty set is discarded, so a set that is no longer mapped must not be added to.
+     */
+    protected final ConcurrentMap<HydratedCacheKey, Set<String>> cacheMembersByEntity = new ConcurrentHashMap<HydratedCacheKey, Set<String>>(1000, 0.75f, 64);
+    private final ConcurrentLinkedQueue<HydratedCacheKey> evictionQueue = new ConcurrentLinkedQueue<HydratedCacheKey>();
+    private final AtomicInteger evictionQueueLength = new AtomicInteger();
+    private final AtomicBoolean purgingEvictionQueue = new AtomicBoolean();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final ConcurrentMap<HydratedCacheKey, FutureTask<Object>> pendingItems = new ConcurrentHashMap<HydratedCacheKey, FutureTask<Object>>(16, 0.75f, 64);
+    private final ConcurrentMap<String, RegionStatistics> statistics = new ConcurrentHashMap<String, RegionStatistics>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile long timeToLiveSeconds = 0;
+    private volatile int maxElements = 100000;
+
+    protected ConcurrentHydratedCacheManagerImpl() {
+        //singleton - use getInstance()
+    }
+
+    @Override
+    public Object getHydratedCacheElementItem(String cacheRegion, String cacheName, Serializable elementKey, String elementItemName) {
+        return getItem(new HydratedCacheKey(cacheRegion, cacheName, elementKey, elementItemName));
+    }
+
+    @Override
+    public void addHydratedCacheElementItem(String cacheRegion, String cacheName, Serializable elementKey, String elementItemName, Object elementValue) {
+        addItem(new HydratedCacheKey(cacheRegion, cacheName, elementKey, elementItemName), elementValue);
+    }
+
+    @Override
+    public Object getOrCreateHydratedCacheElementItem(String cacheRegion, String cacheName, Serializable elementKey, String elementItemName, Callable<Object> factory) throws Exception {
+        HydratedCacheKey key = new HydratedCacheKey(cacheRegion, cacheName, elementKey, elementItemName);
+        Object response = getItem(key);
+        if (response != null) {
+            return response;
+        }
+        FutureTask<Object> task = new FutureTask<Object>(factory);
+        FutureTask<Object> pending = pendingItems.putIfAbsent(key, task);
+        try {
+            if (pending == null) {
+                try {
+                    //another thread may have finished populating the item after our initial lookup
+                    response = peekItem(key);
+                    if (response != null) {
+                        return response;
+                    }
+                    getStatistics(cacheRegion).loadCount.incrementAndGet();
+                    task.run();
+                    response = task.get();
+                    addItem(key, response);
+                } finally {
+                    pendingItems.remove(key, task);
+                }
+            } else {
+                response = pending.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+        return response;
+    }
+
+    protected Object getItem(HydratedCacheKey key) {
+        Object response = peekItem(key);
+        RegionStatistics regionStatistics = getStatistics(key.getCacheRegion());
+        if (response == null) {
+            regionStatistics.missCount.incrementAndGet();
+        } else {
+            regionStatistics.hitCount.incrementAndGet();
+        }
+        return response;
+    }
+
+    protected Object peekItem(HydratedCacheKey key) {
+        HydratedCacheEntry entry = items.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiration > 0 && entry.isExpired(SystemTime.asMillis())) {
+            removeItem(key, entry);
+            return null;
+        }
+        Object value = readValue(key, entry);
+        if (value == null) {
+            //the value is no longer available from the storage tier
+            removeItem(key, entry);
+        } else if (!entry.accessed) {
+            entry.accessed = true;
+        }
+        return value;
+    }
+
+    protected void addItem(HydratedCacheKey key, Object elementValue) {
+        if (elementValue == null) {
+            return;
+        }
+        long expiration = timeToLiveSeconds > 0 ? SystemTime.asMillis() + timeToLiveSeconds * 1000L : 0L;
+        HydratedCacheEntry entry = createEntry(key, elementValue, expiration);
+        if (entry == null) {
+            return;
+        }
+        HydratedCacheKey entityKey = key.getEntityKey();
+        boolean added = false;
+        while (!added) {
+            Set<String> members = getMembers(entityKey);
+            synchronized (members) {
+                //the set may have been discarded since it was looked up, in which case its replacement is used
+                if (cacheMembersByEntity.get(entityKey) == members) {
+                    members.add(key.getElementItemName());
+                    if (items.put(key, entry) == null) {
+                        size.incrementAndGet();
+                        evictionQueue.offer(key);
+                        evictionQueueLength.incrementAndGet();
+                    }
+                    added = true;
+                }
+            }
+        }
+        evictIfNecessary();
+    }
+
+    protected Set<String> getMembers(HydratedCacheKey entityKey) {
+        Set<String> members = cacheMembersByEntity.get(entityKey);
+        if (members == null) {
+            members = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(4));
+            Set<String> existing = cacheMembersByEntity.putIfAbsent(entityKey, members);
+            if (existing != null) {
+                members = existing;
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Removes the item's name from the members of its entity once the item is no longer cached, discarding the
+     * member set when it becomes empty.
+     */
+    protected void removeMember(HydratedCacheKey key) {
+        HydratedCacheKey entityKey = key.getEntityKey();
+        Set<String> members = cacheMembersByEntity.get(entityKey);
+        if (members != null) {
+            synchronized (members) {
+                if (!items.containsKey(key)) {
+                    members.remove(key.getElementItemName());
+                    if (members.isEmpty()) {
+                        cacheMembersByEntity.remove(entityKey, members);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts items until no more than maxElements are cached. Each queued item is given a second chance if it was
+     * read since it was queued.
+     */
+    protected void evictIfNecessary() {
+        int attempts = evictionQueueLength.get() * 2;
+        while (size.get() > maxElements && attempts-- > 0) {
+            HydratedCacheKey candidate = evictionQueue.poll();
+            if (candidate == null) {
+                break;
+            }
+            evictionQueueLength.decrementAndGet();
+            HydratedCacheEntry entry = items.get(candidate);
+            if (entry == null) {
+                //already removed
+                continue;
+            }
+            if (entry.accessed) {
+                entry.accessed = false;
+                evictionQueue.offer(candidate);
+                evictionQueueLength.incrementAndGet();
+                continue;
+            }
+            removeItem(candidate, entry);
+            evictionCount.incrementAndGet();
+        }
+        if (evictionQueueLength.get() > 2 * size.get() + 1000) {
+            purgeEvictionQueue();
+        }
+    }
+
+    /**
+     * Drops the queued keys of items that were removed by invalidation or expiry rather than eviction, along with
+     * any duplicates, so that the queue does not grow while the cache is below its bound.
+     */
+    protected void purgeEvictionQueue() {
+        if (!purgingEvictionQueue.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Set<HydratedCacheKey> queued = new HashSet<HydratedCacheKey>();
+            int purged = 0;
+            for (Iterator<HydratedCacheKey> itr = evictionQueue.iterator(); itr.hasNext();) {
+                HydratedCacheKey key = itr.next();
+                if (!items.containsKey(key) || !queued.add(key)) {
+                    itr.remove();
+                    evictionQueueLength.decrementAndGet();
+                    purged++;
+                }
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Purged " + purged + " stale keys from the hydrated cache eviction queue");
+            }
+        } finally {
+            purgingEvictionQueue.set(false);
+        }
+    }
+
+    /**
+     * Creates the entry to hold in the cache for the item. Subclasses may store the value in another tier and
+     * return an entry that references it, or return null if the value cannot be cached.
+     */
+    protected HydratedCacheEntry createEntry(HydratedCacheKey key, Object elementValue, long expiration) {
+        return new HydratedCacheEntry(elementValue, expiration);
+    }
+
+    /**
+     * @return the value held by the entry, or null if it is no longer available
+     */
+    protected Object readValue(HydratedCacheKey key, HydratedCacheEntry entry) {
+        return entry.value;
+    }
+
+    /**
+     * Called once an entry has been removed from the cache.
+     */
+    protected void releaseEntry(HydratedCacheKey key, HydratedCacheEntry entry) {
+        //do nothing
+    }
+
+    protected void removeItem(HydratedCacheKey key, HydratedCacheEntry entry) {
+        if (items.remove(key, entry)) {
+            size.decrementAndGet();
+            releaseEntry(key, entry);
+            removeMember(key);
+        }
+    }
+
+    protected void removeItem(HydratedCacheKey key) {
+        HydratedCacheEntry entry = items.remove(key);
+        if (entry != null) {
+            size.decrementAndGet();
+            releaseEntry(key, entry);
+            removeMember(key);
+        }
+    }
+
+    protected void removeCache(String cacheRegion, Serializable key) {
+        String cacheName = cacheRegion;
+        if (key instanceof CacheKey) {
+            cacheName = ((CacheKey) key).getEntityOrRoleName();
+            key = ((CacheKey) key).getKey();
+        }
+        HydratedCacheKey entityKey = new HydratedCacheKey(cacheRegion, cacheName, key, null);
+        Set<String> members = cacheMembersByEntity.remove(entityKey);
+        if (members != null) {
+            List<String> names;
+            synchronized (members) {
+                names = new ArrayList<String>(members);
+            }
+            for (String member : names) {
+                removeItem(new HydratedCacheKey(cacheRegion, cacheName, key, member));
+            }
+        }
+    }
+
+    protected void removeAll(String cacheRegion) {
+        for (Iterator<HydratedCacheKey> itr = cacheMembersByEntity.keySet().iterator(); itr.hasNext();) {
+            if (cacheRegion.equals(itr.next().getCacheRegion())) {
+                itr.remove();
+            }
+        }
+        for (HydratedCacheKey key : items.keySet()) {
+            if (cacheRegion.equals(key.getCacheRegion())) {
+                removeItem(key);
+            }
+        }
+    }
+
+    protected RegionStatistics getStatistics(String cacheRegion) {
+        RegionStatistics regionStatistics = statistics.get(cacheRegion);
+        if (regionStatistics == null) {
+            regionStatistics = new RegionStatistics();
+            RegionStatistics existing = statistics.putIfAbsent(cacheRegion, regionStatistics);
+            if (existing != null) {
+                regionStatistics = existing;
+            }
+        }
+        return regionStatistics;
+    }
+
+    /**
+     * @return the hit, miss and load statistics for each cache region that has been accessed, keyed by region
+     */
+    public Map<String, RegionStatistics> getRegionStatistics() {
+        return Collections.<String, RegionStatistics>unmodifiableMap(statistics);
+    }
+
+    public void resetStatistics() {
+        statistics.clear();
+    }
+
+    /**
+     * @return the number of items currently cached
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of items evicted because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getTimeToLiveSeconds() {
+        return timeToLiveSeconds;
+    }
+
+    /**
+     * @param timeToLiveSeconds the number of seconds an item may be served after it was cached, or 0 for items
+     * that only leave the cache when their owning entity is evicted
+     */
+    public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+        this.timeToLiveSeconds = timeToLiveSeconds;
+    }
+
+    /**
+     * Applies the properties declared for the {@link HydratedCacheEventListenerFactory}.
+     */
+    public void configure(Properties properties) {
+        if (properties.getProperty("timeToLiveSeconds") != null) {
+            setTimeToLiveSeconds(Long.parseLong(properties.getProperty("timeToLiveSeconds").trim()));
+        }
+        if (properties.getProperty("maxElements") != null) {
+            setMaxElements(Integer.parseInt(properties.getProperty("maxElements").trim()));
+        }
+    }
+
+    public int getMaxElements() {
+        return maxElements;
+    }
+
+    /**
+     * @param maxElements the maximum number of items cached. Once exceeded, the least recently used items are
+     * evicted.
+     */
+    public void setMaxElements(int maxElements) {
+        this.maxElements = maxElements;
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        items.clear();
+        cacheMembersByEntity.clear();
+        pendingItems.clear();
+        evictionQueue.clear();
+        evictionQueueLength.set(0);
+        size.set(0);
+    }
+
+    @Override
+    public void notifyElementEvicted(Ehcache arg0, Element arg1) {
+        removeCache(arg0.getName(), arg1.getKey());
+    }
+
+    @Override
+    public void notifyElementExpired(Ehcache arg0, Element arg1) {
+        removeCache(arg0.getName(), arg1.getKey());
+    }
+
+    @Override
+    public void notifyElementPut(Ehcache arg0, Element arg1) throws CacheException {
+        //do nothing
+    }
+
+    @Override
+    public void notifyElementRemoved(Ehcache arg0, Element arg1) throws CacheException {
+        removeCache(arg0.getName(), arg1.getKey());
+    }
+
+    @Override
+    public void notifyElementUpdated(Ehcache arg0, Element arg1) throws CacheException {
+        removeCache(arg0.getName(), arg1.getKey());
+    }
+
+    @Override
+    public void notifyRemoveAll(Ehcache arg0) {
+        removeAll(arg0.getName());
+    }
+
+    protected static class HydratedCacheEntry {
+
+        protected final Object value;
+        protected final long expiration;
+        protected volatile boolean accessed;
+
+        protected HydratedCacheEntry(Object value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        protected boolean isExpired(long now) {
+            return expiration > 0 && now >= expiration;
+        }
+
+    }
+
+    public static class RegionStatistics {
+
+        protected final AtomicLong hitCount = new AtomicLong();
+        protected final AtomicLong missCount = new AtomicLong();
+        protected final AtomicLong loadCount = new AtomicLong();
+
+        public long getHitCount() {
+            return hitCount.get();
+        }
+
+        public long getMissCount() {
+            return missCount.get();
+        }
+
+        /**
+         * @return the number of times a missing item was built by its factory
+         */
+        public long getLoadCount() {
+            return loadCount.get();
+        }
+
+        @Override
+        public String toString() {
+            return "hits: [" + getHitCount() + "], misses: [" + getMissCount() + "], loads: [" + getLoadCount() + ']';
+        }
+
+    }
+
+}
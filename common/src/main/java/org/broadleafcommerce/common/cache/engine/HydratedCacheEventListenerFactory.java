@@ -34,14 +34,17 @@ public class HydratedCacheEventListenerFactory extends CacheEventListenerFactory
     @Override
     public CacheEventListener createCacheEventListener(Properties props) {
         try {
-            if (props == null || props.isEmpty()) {
-                manager = EhcacheHydratedCacheManagerImpl.getInstance();
+            String managerClass = props == null ? null : props.getProperty("managerClass");
+            if (managerClass == null) {
+                manager = ConcurrentHydratedCacheManagerImpl.getInstance();
             } else {
-                String managerClass = props.getProperty("managerClass");
                 Class<?> clazz = Class.forName(managerClass);
                 Method method = clazz.getDeclaredMethod("getInstance");
                 manager = (HydratedCacheManager) method.invoke(null);
             }
+            if (manager instanceof ConcurrentHydratedCacheManagerImpl && props != null) {
+                ((ConcurrentHydratedCacheManagerImpl) manager).configure(props);
+            }
         } catch (Exception e) {
             throw new RuntimeException("Unable to create a CacheEventListener instance", e);
         }
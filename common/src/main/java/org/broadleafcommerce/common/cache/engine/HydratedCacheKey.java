@@ -0,0 +1,99 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.engine;
+
+import java.io.Serializable;
+
+/**
+ * Immutable composite key for the hydrated cache. The hash is computed once at construction so that
+ * lookups do not need to build a concatenated string key for every entity load. A key without an item name
+ * identifies the owning entity itself and is used to track the items cached for that entity.
+ */
+public final class HydratedCacheKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String cacheRegion;
+    private final String cacheName;
+    private final Serializable elementKey;
+    private final String elementItemName;
+    private final int hash;
+
+    public HydratedCacheKey(String cacheRegion, String cacheName, Serializable elementKey, String elementItemName) {
+        this.cacheRegion = cacheRegion;
+        this.cacheName = cacheName;
+        this.elementKey = elementKey;
+        this.elementItemName = elementItemName;
+        int result = cacheRegion == null ? 0 : cacheRegion.hashCode();
+        result = 31 * result + (cacheName == null ? 0 : cacheName.hashCode());
+        result = 31 * result + (elementKey == null ? 0 : elementKey.hashCode());
+        result = 31 * result + (elementItemName == null ? 0 : elementItemName.hashCode());
+        this.hash = result;
+    }
+
+    /**
+     * @return the key identifying the entity that owns this item
+     */
+    public HydratedCacheKey getEntityKey() {
+        return elementItemName == null ? this : new HydratedCacheKey(cacheRegion, cacheName, elementKey, null);
+    }
+
+    public String getCacheRegion() {
+        return cacheRegion;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public Serializable getElementKey() {
+        return elementKey;
+    }
+
+    public String getElementItemName() {
+        return elementItemName;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HydratedCacheKey)) {
+            return false;
+        }
+        HydratedCacheKey other = (HydratedCacheKey) obj;
+        return hash == other.hash && equal(cacheRegion, other.cacheRegion) && equal(cacheName, other.cacheName)
+                && equal(elementKey, other.elementKey) && equal(elementItemName, other.elementItemName);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public String toString() {
+        return cacheRegion + '_' + cacheName + '_' + elementItemName + '_' + elementKey;
+    }
+
+}
@@ -27,6 +27,7 @@ public class HydrationItemDescriptor {
     
     private String factoryMethod;
     private Method[] mutators;
+    private Method factory;
     
     public String getFactoryMethod() {
         return factoryMethod;
@@ -44,4 +45,15 @@ public class HydrationItemDescriptor {
         this.mutators = mutators;
     }
 
+    /**
+     * @return the resolved factory method, or null if the descriptor was not built by a manager that resolves it
+     */
+    public Method getFactory() {
+        return factory;
+    }
+
+    public void setFactory(Method factory) {
+        this.factory = factory;
+    }
+
 }
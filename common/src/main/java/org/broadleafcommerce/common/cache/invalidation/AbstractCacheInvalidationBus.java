@@ -0,0 +1,285 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.invalidation;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base {@link CacheInvalidationBus} that applies invalidations locally, coalesces them into a pending
+ * {@link CacheInvalidationBatch} and hands the batch to {@link #send(CacheInvalidationBatch)} every
+ * {@link #setFlushInterval(long) flushInterval} milliseconds, or as soon as it holds
+ * {@link #setMaxBatchSize(int) maxBatchSize} invalidations. Implementations pass batches received from other
+ * nodes to {@link #receive(CacheInvalidationBatch)}.
+ */
+public abstract class AbstractCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final Log LOG = LogFactory.getLog(AbstractCacheInvalidationBus.class);
+
+    protected final String nodeId = UUID.randomUUID().toString();
+    protected final ConcurrentMap<String, List<CacheInvalidationListener>> listeners = new ConcurrentHashMap<String, List<CacheInvalidationListener>>();
+    protected CacheInvalidationListener defaultListener = new EhcacheInvalidationListener();
+
+    protected final Object pendingLock = new Object();
+    protected CacheInvalidationBatch pending;
+
+    protected long flushInterval = 250;
+    protected int maxBatchSize = 1000;
+    protected ScheduledExecutorService flushExecutor;
+
+    protected final AtomicLong publishedCount = new AtomicLong();
+    protected final AtomicLong coalescedCount = new AtomicLong();
+    protected final AtomicLong sentBatchCount = new AtomicLong();
+    protected final AtomicLong receivedBatchCount = new AtomicLong();
+    protected final AtomicLong sendFailureCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (flushInterval > 0) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "blCacheInvalidationBus");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            flushExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        flush();
+                    } catch (Throwable e) {
+                        LOG.error("Unable to flush the pending cache invalidations", e);
+                    }
+                }
+            }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+        }
+        flush();
+    }
+
+    @Override
+    public void invalidate(String cacheName, Serializable key) {
+        notifyListeners(cacheName, Collections.singleton(key), false);
+        publishAfterCommit(cacheName, key);
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        notifyListeners(cacheName, null, true);
+        publishAfterCommit(cacheName, null);
+    }
+
+    @Override
+    public void addListener(String cacheName, CacheInvalidationListener listener) {
+        List<CacheInvalidationListener> cacheListeners = listeners.get(cacheName);
+        if (cacheListeners == null) {
+            cacheListeners = new CopyOnWriteArrayList<CacheInvalidationListener>();
+            List<CacheInvalidationListener> existing = listeners.putIfAbsent(cacheName, cacheListeners);
+            if (existing != null) {
+                cacheListeners = existing;
+            }
+        }
+        cacheListeners.add(listener);
+    }
+
+    @Override
+    public void flush() {
+        CacheInvalidationBatch batch;
+        synchronized (pendingLock) {
+            batch = pending;
+            pending = null;
+        }
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        try {
+            send(batch);
+            sentBatchCount.incrementAndGet();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Sent " + batch);
+            }
+        } catch (Exception e) {
+            sendFailureCount.incrementAndGet();
+            LOG.warn("Unable to send cache invalidations to the other nodes. Their caches will refresh when the entries expire: " + batch, e);
+        }
+    }
+
+    /**
+     * Sends the batch to the other nodes.
+     */
+    protected abstract void send(CacheInvalidationBatch batch) throws Exception;
+
+    /**
+     * Applies a batch sent by another node. Batches sent by this node are ignored, since they were applied
+     * locally when they were published.
+     */
+    public void receive(CacheInvalidationBatch batch) {
+        if (batch == null || nodeId.equals(batch.getOrigin())) {
+            return;
+        }
+        receivedBatchCount.incrementAndGet();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Received " + batch);
+        }
+        for (String cacheName : batch.getInvalidatedCaches()) {
+            notifyListeners(cacheName, null, true);
+        }
+        for (Map.Entry<String, ? extends Set<Serializable>> entry : batch.getKeysByCache().entrySet()) {
+            notifyListeners(entry.getKey(), entry.getValue(), false);
+        }
+    }
+
+    protected void publishAfterCommit(final String cacheName, final Serializable key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    publish(cacheName, key);
+                }
+            });
+        } else {
+            publish(cacheName, key);
+        }
+    }
+
+    /**
+     * Adds the invalidation to the pending batch. A null key invalidates the whole cache.
+     */
+    protected void publish(String cacheName, Serializable key) {
+        publishedCount.incrementAndGet();
+        boolean full;
+        synchronized (pendingLock) {
+            if (pending == null) {
+                pending = new CacheInvalidationBatch(nodeId);
+            }
+            boolean added = key == null ? pending.addCache(cacheName) : pending.addKey(cacheName, key);
+            if (!added) {
+                coalescedCount.incrementAndGet();
+            }
+            full = pending.size() >= maxBatchSize;
+        }
+        if (full || flushExecutor == null) {
+            flush();
+        }
+    }
+
+    protected void notifyListeners(String cacheName, Collection<Serializable> keys, boolean all) {
+        List<CacheInvalidationListener> cacheListeners = listeners.get(cacheName);
+        if (cacheListeners == null || cacheListeners.isEmpty()) {
+            cacheListeners = Collections.singletonList(defaultListener);
+        }
+        for (CacheInvalidationListener listener : cacheListeners) {
+            try {
+                if (all) {
+                    listener.invalidateAll(cacheName);
+                } else {
+                    listener.invalidate(cacheName, keys);
+                }
+            } catch (Exception e) {
+                LOG.error("Unable to apply a cache invalidation to " + cacheName, e);
+            }
+        }
+    }
+
+    /**
+     * @return the identifier this node stamps on the batches it sends
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public CacheInvalidationListener getDefaultListener() {
+        return defaultListener;
+    }
+
+    public void setDefaultListener(CacheInvalidationListener defaultListener) {
+        this.defaultListener = defaultListener;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * @param flushInterval the number of milliseconds invalidations are collected before being sent. With a value of
+     * 0 or less, each invalidation is sent as soon as it is published.
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * @return the number of published invalidations that were merged into an invalidation already pending
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getSentBatchCount() {
+        return sentBatchCount.get();
+    }
+
+    public long getReceivedBatchCount() {
+        return receivedBatchCount.get();
+    }
+
+    public long getSendFailureCount() {
+        return sendFailureCount.get();
+    }
+
+}
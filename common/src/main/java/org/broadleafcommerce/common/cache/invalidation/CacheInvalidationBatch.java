@@ -0,0 +1,99 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The coalesced invalidations sent from one node to the others in a single message.
+ */
+public class CacheInvalidationBatch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final String origin;
+    protected final HashMap<String, HashSet<Serializable>> keysByCache = new HashMap<String, HashSet<Serializable>>();
+    protected final HashSet<String> invalidatedCaches = new HashSet<String>();
+
+    public CacheInvalidationBatch(String origin) {
+        this.origin = origin;
+    }
+
+    /**
+     * @return false if the key was already invalidated by this batch
+     */
+    public boolean addKey(String cacheName, Serializable key) {
+        if (invalidatedCaches.contains(cacheName)) {
+            return false;
+        }
+        HashSet<Serializable> keys = keysByCache.get(cacheName);
+        if (keys == null) {
+            keys = new HashSet<Serializable>();
+            keysByCache.put(cacheName, keys);
+        }
+        return keys.add(key);
+    }
+
+    /**
+     * @return false if the cache was already invalidated by this batch
+     */
+    public boolean addCache(String cacheName) {
+        keysByCache.remove(cacheName);
+        return invalidatedCaches.add(cacheName);
+    }
+
+    /**
+     * @return the identifier of the node that sent the batch
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Map<String, ? extends Set<Serializable>> getKeysByCache() {
+        return keysByCache;
+    }
+
+    /**
+     * @return the names of the caches invalidated in full
+     */
+    public Set<String> getInvalidatedCaches() {
+        return invalidatedCaches;
+    }
+
+    public int size() {
+        int size = invalidatedCaches.size();
+        for (Set<Serializable> keys : keysByCache.values()) {
+            size += keys.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return invalidatedCaches.isEmpty() && keysByCache.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidationBatch from " + origin + " - caches: " + invalidatedCaches + ", keys: " + keysByCache;
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.invalidation;
+
+import java.io.Serializable;
+
+/**
+ * Propagates cache invalidations to every node in the cluster. Invalidations are applied to the listeners of this
+ * node immediately and are queued for the other nodes, where they are delivered in batches. Repeated invalidations
+ * of the same key, and key invalidations superseded by an invalidation of the whole cache, are coalesced before
+ * they are sent. When called within a transaction, the invalidation is only sent once the transaction commits.
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * Invalidates a single entry of the named cache on every node.
+     *
+     * @param cacheName the name of the cache, typically the Ehcache region name
+     * @param key the key of the entry to invalidate
+     */
+    public void invalidate(String cacheName, Serializable key);
+
+    /**
+     * Invalidates every entry of the named cache on every node.
+     *
+     * @param cacheName the name of the cache, typically the Ehcache region name
+     */
+    public void invalidateAll(String cacheName);
+
+    /**
+     * Registers a listener that applies invalidations of the named cache on this node. Caches without a listener
+     * are handled by the default listener, which removes the entries from the Ehcache region of the same name.
+     */
+    public void addListener(String cacheName, CacheInvalidationListener listener);
+
+    /**
+     * Sends any queued invalidations to the other nodes now rather than waiting for the next scheduled flush.
+     */
+    public void flush();
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Applies invalidations received through the {@link CacheInvalidationBus} to a cache on this node.
+ */
+public interface CacheInvalidationListener {
+
+    public void invalidate(String cacheName, Collection<Serializable> keys);
+
+    public void invalidateAll(String cacheName);
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.invalidation;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Default {@link CacheInvalidationListener}, which removes the invalidated entries from the Ehcache region named
+ * by the invalidation. Invalidations of caches that do not exist on this node are ignored.
+ */
+public class EhcacheInvalidationListener implements CacheInvalidationListener {
+
+    @Override
+    public void invalidate(String cacheName, Collection<Serializable> keys) {
+        Ehcache cache = getCache(cacheName);
+        if (cache != null) {
+            for (Serializable key : keys) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        Ehcache cache = getCache(cacheName);
+        if (cache != null) {
+            cache.removeAll();
+        }
+    }
+
+    protected Ehcache getCache(String cacheName) {
+        CacheManager cacheManager = CacheManager.getInstance();
+        return cacheManager.cacheExists(cacheName) ? cacheManager.getEhcache(cacheName) : null;
+    }
+
+}
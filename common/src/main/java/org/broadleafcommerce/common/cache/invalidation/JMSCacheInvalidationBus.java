@@ -0,0 +1,77 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.invalidation;
+
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.ObjectMessage;
+import javax.jms.Session;
+
+/**
+ * JMS implementation of the {@link CacheInvalidationBus}. Each batch is published as a single ObjectMessage to
+ * the configured destination, which should be a topic that every node subscribes to with this bean as the
+ * message listener.
+ *
+ * Utilizes Spring JMS template pattern where template and destination
+ * are configured via Spring.
+ */
+public class JMSCacheInvalidationBus extends AbstractCacheInvalidationBus implements MessageListener {
+
+    private JmsTemplate invalidationTemplate;
+
+    private Destination invalidationDestination;
+
+    @Override
+    protected void send(final CacheInvalidationBatch batch) {
+        invalidationTemplate.send(invalidationDestination, new MessageCreator() {
+            public Message createMessage(Session session) throws JMSException {
+                return session.createObjectMessage(batch);
+            }
+        });
+    }
+
+    public void onMessage(Message message) {
+        try {
+            receive((CacheInvalidationBatch) ((ObjectMessage) message).getObject());
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public JmsTemplate getInvalidationTemplate() {
+        return invalidationTemplate;
+    }
+
+    public void setInvalidationTemplate(JmsTemplate invalidationTemplate) {
+        this.invalidationTemplate = invalidationTemplate;
+    }
+
+    public Destination getInvalidationDestination() {
+        return invalidationDestination;
+    }
+
+    public void setInvalidationDestination(Destination invalidationDestination) {
+        this.invalidationDestination = invalidationDestination;
+    }
+
+}
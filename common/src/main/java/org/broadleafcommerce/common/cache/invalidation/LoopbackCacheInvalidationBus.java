@@ -0,0 +1,47 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-JVM {@link CacheInvalidationBus}. Batches are delivered directly to the peer buses registered with
+ * {@link #addPeer(AbstractCacheInvalidationBus)}, which makes it suitable for tests and single node installations.
+ * Without peers, invalidations only apply to this node.
+ */
+public class LoopbackCacheInvalidationBus extends AbstractCacheInvalidationBus {
+
+    protected final List<AbstractCacheInvalidationBus> peers = new CopyOnWriteArrayList<AbstractCacheInvalidationBus>();
+
+    @Override
+    protected void send(CacheInvalidationBatch batch) {
+        for (AbstractCacheInvalidationBus peer : peers) {
+            peer.receive(batch);
+        }
+    }
+
+    public void addPeer(AbstractCacheInvalidationBus peer) {
+        peers.add(peer);
+    }
+
+    public List<AbstractCacheInvalidationBus> getPeers() {
+        return peers;
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.offheap;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.constructs.CacheDecoratorFactory;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Moves the elements of an Ehcache off-heap. Register it on a cache in the ehcache configuration:
+ *
+ * <pre>
+ * &lt;cache name="cmsPageCache" ...&gt;
+ *     &lt;cacheDecoratorFactory class="org.broadleafcommerce.common.cache.offheap.OffHeapCacheDecoratorFactory"
+ *         properties="maxMemoryOffHeap=64M,segments=16"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ *
+ * Supported properties are maxMemoryOffHeap (bytes, or with a k, m or g suffix; defaults to 32M), segments (defaults
+ * to 16) and directory, which maps the store to files in the given directory instead of using direct memory.
+ */
+public class OffHeapCacheDecoratorFactory extends CacheDecoratorFactory {
+
+    public static final String DEFAULT_MAX_MEMORY_OFF_HEAP = "32M";
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    @Override
+    public Ehcache createDecoratedEhcache(Ehcache cache, Properties properties) {
+        return new OffHeapEhcacheDecorator(cache, createStore(cache.getName(), properties));
+    }
+
+    @Override
+    public Ehcache createDefaultDecoratedEhcache(Ehcache cache, Properties properties) {
+        return createDecoratedEhcache(cache, properties);
+    }
+
+    public static OffHeapStore createStore(String name, Properties properties) {
+        String maxMemory = DEFAULT_MAX_MEMORY_OFF_HEAP;
+        int segments = DEFAULT_SEGMENTS;
+        File directory = null;
+        if (properties != null) {
+            if (properties.getProperty("maxMemoryOffHeap") != null) {
+                maxMemory = properties.getProperty("maxMemoryOffHeap");
+            }
+            if (properties.getProperty("segments") != null) {
+                segments = Integer.parseInt(properties.getProperty("segments").trim());
+            }
+            if (properties.getProperty("directory") != null) {
+                directory = new File(properties.getProperty("directory").trim());
+            }
+        }
+        return new OffHeapStore(name, parseSize(maxMemory), segments, directory);
+    }
+
+    public static long parseSize(String size) {
+        String value = size.trim().toLowerCase();
+        long multiplier = 1;
+        char unit = value.charAt(value.length() - 1);
+        if (unit == 'k') {
+            multiplier = 1024L;
+        } else if (unit == 'm') {
+            multiplier = 1024L * 1024L;
+        } else if (unit == 'g') {
+            multiplier = 1024L * 1024L * 1024L;
+        }
+        if (multiplier > 1) {
+            value = value.substring(0, value.length() - 1).trim();
+        }
+        return Long.parseLong(value) * multiplier;
+    }
+
+}
@@ -0,0 +1,519 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.offheap;
+
+import net.sf.ehcache.CacheEntry;
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.constructs.EhcacheDecoratorAdapter;
+import net.sf.ehcache.loader.CacheLoader;
+import net.sf.ehcache.writer.CacheWriterManager;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decorates an Ehcache so that serializable elements are held in an {@link OffHeapStore} instead of the heap.
+ * Element expiry still honors the time to live and time to idle settings of the decorated cache. Elements whose
+ * values cannot be serialized, or that do not fit in the store, fall back to the decorated cache.
+ *
+ * Every write goes through {@link #putElement(Element, boolean, boolean, boolean)} and every removal through
+ * {@link #removeKey(Object, boolean, boolean, boolean)}. Both notify the listeners and replicators registered with
+ * the decorated cache, and call its cache writer, just as the decorated cache would for an element it held
+ * itself. The reads, including the atomic operations, consult the store before the decorated cache, so they all
+ * agree on the current value of a key.
+ *
+ * Values read from the store are copies, so their access statistics cannot be updated in place. For elements
+ * that expire when idle, the last access time of each read is kept on the heap alongside the store's key index
+ * and applied to the copy that is read next, rather than serializing the element again on every read.
+ *
+ * Callers must look the cache up with {@link net.sf.ehcache.CacheManager#getEhcache(String)}, since the
+ * decorator replaces the original cache under the same name.
+ *
+ * @see OffHeapCacheDecoratorFactory
+ */
+public class OffHeapEhcacheDecorator extends EhcacheDecoratorAdapter {
+
+    protected static final int LOCK_STRIPES = 64;
+
+    protected final OffHeapStore store;
+    protected final ConcurrentMap<Object, Long> lastAccessTimes = new ConcurrentHashMap<Object, Long>();
+    protected final Object[] locks = new Object[LOCK_STRIPES];
+
+    public OffHeapEhcacheDecorator(Ehcache underlyingCache, OffHeapStore store) {
+        super(underlyingCache);
+        this.store = store;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public Element get(Object key) throws IllegalStateException, CacheException {
+        Element element = getFromStore(key);
+        if (element == null) {
+            return super.get(key);
+        }
+        element.updateAccessStatistics();
+        if (isIdleExpiring(element)) {
+            lastAccessTimes.put(key, element.getLastAccessTime());
+            if (lastAccessTimes.size() > 2 * store.getSize() + 1000) {
+                removeEvictedAccessTimes();
+            }
+        }
+        return element;
+    }
+
+    @Override
+    public Element get(Serializable key) throws IllegalStateException, CacheException {
+        return get((Object) key);
+    }
+
+    /**
+     * Reads a copy of the element, with the last access time recorded for it, without updating its access
+     * statistics.
+     */
+    @Override
+    public Element getQuiet(Object key) throws IllegalStateException, CacheException {
+        Element element = getFromStore(key);
+        return element == null ? super.getQuiet(key) : element;
+    }
+
+    @Override
+    public Element getQuiet(Serializable key) throws IllegalStateException, CacheException {
+        return getQuiet((Object) key);
+    }
+
+    @Override
+    public Element getWithLoader(Object key, CacheLoader loader, Object loaderArgument) throws CacheException {
+        Element element = get(key);
+        return element == null ? super.getWithLoader(key, loader, loaderArgument) : element;
+    }
+
+    @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public Map getAllWithLoader(Collection keys, Object loaderArgument) throws CacheException {
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        List<Object> missing = new ArrayList<Object>();
+        for (Object key : keys) {
+            Element element = getFromStore(key);
+            if (element == null) {
+                missing.add(key);
+            } else {
+                values.put(key, element.getObjectValue());
+            }
+        }
+        if (!missing.isEmpty()) {
+            values.putAll(super.getAllWithLoader(missing, loaderArgument));
+        }
+        return values;
+    }
+
+    protected Element getFromStore(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Element element = (Element) store.get(key);
+        if (element == null) {
+            lastAccessTimes.remove(key);
+            return null;
+        }
+        Long lastAccessTime = lastAccessTimes.get(key);
+        if (lastAccessTime != null && lastAccessTime > element.getLastAccessTime()) {
+            element = new Element(element.getObjectKey(), element.getObjectValue(), element.getVersion(), element.getCreationTime(),
+                    lastAccessTime, element.getHitCount(), element.usesCacheDefaultLifespan(), element.getTimeToLive(),
+                    element.getTimeToIdle(), element.getLastUpdateTime());
+        }
+        if (element.isExpired(underlyingCache.getCacheConfiguration())) {
+            boolean removed = false;
+            synchronized (lockFor(key)) {
+                //another thread may have written a new value since the expired one was read
+                Element current = (Element) store.get(key);
+                if (current != null && current.isExpired(underlyingCache.getCacheConfiguration())) {
+                    removed = removeFromStore(key);
+                }
+            }
+            if (removed) {
+                underlyingCache.getCacheEventNotificationService().notifyElementExpiry(element, false);
+            }
+            return null;
+        }
+        return element;
+    }
+
+    protected boolean isIdleExpiring(Element element) {
+        if (element.usesCacheDefaultLifespan()) {
+            return !underlyingCache.getCacheConfiguration().isEternal() && underlyingCache.getCacheConfiguration().getTimeToIdleSeconds() > 0;
+        }
+        return !element.isEternal() && element.getTimeToIdle() > 0;
+    }
+
+    /**
+     * Discards the last access times of elements that the store has since evicted
+     */
+    protected void removeEvictedAccessTimes() {
+        for (Iterator<Object> itr = lastAccessTimes.keySet().iterator(); itr.hasNext();) {
+            if (!store.containsKey(itr.next())) {
+                itr.remove();
+            }
+        }
+    }
+
+    @Override
+    public void put(Element element) throws IllegalArgumentException, IllegalStateException, CacheException {
+        putElement(element, true, false, false);
+    }
+
+    @Override
+    public void put(Element element, boolean doNotNotifyCacheReplicators) throws IllegalArgumentException, IllegalStateException, CacheException {
+        putElement(element, true, doNotNotifyCacheReplicators, false);
+    }
+
+    @Override
+    public void putQuiet(Element element) throws IllegalArgumentException, IllegalStateException, CacheException {
+        putElement(element, false, false, false);
+    }
+
+    @Override
+    public void putWithWriter(Element element) throws IllegalArgumentException, IllegalStateException, CacheException {
+        putElement(element, true, false, true);
+    }
+
+    @Override
+    public Element putIfAbsent(Element element) throws NullPointerException {
+        checkElement(element);
+        synchronized (lockFor(element.getObjectKey())) {
+            Element current = getQuiet(element.getObjectKey());
+            if (current == null) {
+                putElement(element, true, false, false);
+            }
+            return current;
+        }
+    }
+
+    @Override
+    public Element replace(Element element) throws NullPointerException {
+        checkElement(element);
+        synchronized (lockFor(element.getObjectKey())) {
+            Element current = getQuiet(element.getObjectKey());
+            if (current != null) {
+                putElement(element, true, false, false);
+            }
+            return current;
+        }
+    }
+
+    @Override
+    public boolean replace(Element old, Element element) throws NullPointerException, IllegalArgumentException {
+        checkElement(old);
+        checkElement(element);
+        if (!old.getObjectKey().equals(element.getObjectKey())) {
+            throw new IllegalArgumentException("The keys of the old and new elements differ");
+        }
+        synchronized (lockFor(element.getObjectKey())) {
+            if (!isValueEqual(getQuiet(old.getObjectKey()), old)) {
+                return false;
+            }
+            putElement(element, true, false, false);
+            return true;
+        }
+    }
+
+    /**
+     * The single path by which elements are written. An element is kept in the store when it can be serialized
+     * and fits, in which case the decorated cache's listeners, replicators and writer are invoked here, as they
+     * are when the element replaces one held in the store. Otherwise the element is handed to the corresponding
+     * operation of the decorated cache, which invokes them itself.
+     *
+     * @param element the element to write
+     * @param notify whether the listeners are notified, false for {@link #putQuiet(Element)}
+     * @param doNotNotifyCacheReplicators whether the write is hidden from the cache replicators
+     * @param useWriter whether the cache writer is called
+     */
+    protected void putElement(Element element, boolean notify, boolean doNotNotifyCacheReplicators, boolean useWriter) {
+        if (element == null || element.getObjectKey() == null) {
+            putInUnderlyingCache(element, notify, doNotNotifyCacheReplicators, useWriter);
+            return;
+        }
+        Object key = element.getObjectKey();
+        synchronized (lockFor(key)) {
+            boolean inStore = store.containsKey(key);
+            lastAccessTimes.remove(key);
+            boolean updated;
+            if (element.isSerializable() && store.put(key, element)) {
+                //make sure an older value that did not fit off-heap is not served instead
+                updated = underlyingCache.removeQuiet(key) || inStore;
+            } else if (inStore) {
+                //the value replaces one held off-heap, which the decorated cache would report as a new element
+                store.remove(key);
+                underlyingCache.putQuiet(element);
+                updated = true;
+            } else {
+                store.remove(key);
+                putInUnderlyingCache(element, notify, doNotNotifyCacheReplicators, useWriter);
+                return;
+            }
+            if (useWriter) {
+                CacheWriterManager writerManager = underlyingCache.getWriterManager();
+                if (writerManager != null) {
+                    writerManager.put(element);
+                }
+            }
+            if (notify) {
+                if (updated) {
+                    underlyingCache.getCacheEventNotificationService().notifyElementUpdated(element, doNotNotifyCacheReplicators);
+                } else {
+                    underlyingCache.getCacheEventNotificationService().notifyElementPut(element, doNotNotifyCacheReplicators);
+                }
+            }
+        }
+    }
+
+    protected void putInUnderlyingCache(Element element, boolean notify, boolean doNotNotifyCacheReplicators, boolean useWriter) {
+        if (useWriter) {
+            underlyingCache.putWithWriter(element);
+        } else if (notify) {
+            underlyingCache.put(element, doNotNotifyCacheReplicators);
+        } else {
+            underlyingCache.putQuiet(element);
+        }
+    }
+
+    @Override
+    public boolean remove(Object key) throws IllegalStateException {
+        return removeKey(key, true, false, false);
+    }
+
+    @Override
+    public boolean remove(Serializable key) throws IllegalStateException {
+        return remove((Object) key);
+    }
+
+    @Override
+    public boolean remove(Object key, boolean doNotNotifyCacheReplicators) throws IllegalStateException {
+        return removeKey(key, true, doNotNotifyCacheReplicators, false);
+    }
+
+    @Override
+    public boolean remove(Serializable key, boolean doNotNotifyCacheReplicators) throws IllegalStateException {
+        return remove((Object) key, doNotNotifyCacheReplicators);
+    }
+
+    @Override
+    public boolean removeQuiet(Object key) throws IllegalStateException {
+        return removeKey(key, false, false, false);
+    }
+
+    @Override
+    public boolean removeQuiet(Serializable key) throws IllegalStateException {
+        return removeQuiet((Object) key);
+    }
+
+    @Override
+    public boolean removeWithWriter(Object key) throws IllegalStateException, CacheException {
+        return removeKey(key, true, false, true);
+    }
+
+    @Override
+    public boolean removeElement(Element element) throws NullPointerException {
+        checkElement(element);
+        synchronized (lockFor(element.getObjectKey())) {
+            if (!isValueEqual(getQuiet(element.getObjectKey()), element)) {
+                return false;
+            }
+            return removeKey(element.getObjectKey(), true, false, false);
+        }
+    }
+
+    /**
+     * The single path by which keys are removed. Removing a key held in the store invokes the decorated cache's
+     * listeners, replicators and writer here; any other key is removed through the corresponding operation of the
+     * decorated cache.
+     */
+    protected boolean removeKey(Object key, boolean notify, boolean doNotNotifyCacheReplicators, boolean useWriter) {
+        if (key == null) {
+            return removeFromUnderlyingCache(key, notify, doNotNotifyCacheReplicators, useWriter);
+        }
+        synchronized (lockFor(key)) {
+            Element stored = notify || useWriter ? (Element) store.get(key) : null;
+            if (!removeFromStore(key)) {
+                return removeFromUnderlyingCache(key, notify, doNotNotifyCacheReplicators, useWriter);
+            }
+            if (stored == null) {
+                stored = new Element(key, null);
+            }
+            if (useWriter) {
+                CacheWriterManager writerManager = underlyingCache.getWriterManager();
+                if (writerManager != null) {
+                    writerManager.remove(new CacheEntry(key, stored));
+                }
+            }
+            if (notify) {
+                underlyingCache.getCacheEventNotificationService().notifyElementRemoved(stored, doNotNotifyCacheReplicators);
+            }
+            return true;
+        }
+    }
+
+    protected boolean removeFromUnderlyingCache(Object key, boolean notify, boolean doNotNotifyCacheReplicators, boolean useWriter) {
+        if (useWriter) {
+            return underlyingCache.removeWithWriter(key);
+        } else if (notify) {
+            return underlyingCache.remove(key, doNotNotifyCacheReplicators);
+        }
+        return underlyingCache.removeQuiet(key);
+    }
+
+    protected boolean removeFromStore(Object key) {
+        lastAccessTimes.remove(key);
+        return store.remove(key);
+    }
+
+    @Override
+    public void removeAll() throws IllegalStateException, CacheException {
+        store.clear();
+        lastAccessTimes.clear();
+        super.removeAll();
+    }
+
+    @Override
+    public void removeAll(boolean doNotNotifyCacheReplicators) throws IllegalStateException, CacheException {
+        store.clear();
+        lastAccessTimes.clear();
+        super.removeAll(doNotNotifyCacheReplicators);
+    }
+
+    @Override
+    public void evictExpiredElements() {
+        for (Object key : store.getKeys()) {
+            //reading an expired element removes it and notifies the listeners of its expiry
+            getFromStore(key);
+        }
+        super.evictExpiredElements();
+    }
+
+    @Override
+    public boolean isKeyInCache(Object key) {
+        return (key != null && store.containsKey(key)) || super.isKeyInCache(key);
+    }
+
+    @Override
+    public boolean isValueInCache(Object value) {
+        for (Object key : store.getKeys()) {
+            Element element = (Element) store.get(key);
+            if (element != null && (value == null ? element.getObjectValue() == null : value.equals(element.getObjectValue()))) {
+                return true;
+            }
+        }
+        return super.isValueInCache(value);
+    }
+
+    @Override
+    public boolean isElementInMemory(Object key) {
+        return (key != null && store.containsKey(key)) || super.isElementInMemory(key);
+    }
+
+    @Override
+    public boolean isElementInMemory(Serializable key) {
+        return isElementInMemory((Object) key);
+    }
+
+    @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public List getKeys() throws IllegalStateException, CacheException {
+        List<Object> keys = new ArrayList<Object>(store.getKeys());
+        keys.addAll(super.getKeys());
+        return keys;
+    }
+
+    @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public List getKeysNoDuplicateCheck() throws IllegalStateException {
+        List<Object> keys = new ArrayList<Object>(store.getKeys());
+        keys.addAll(super.getKeysNoDuplicateCheck());
+        return keys;
+    }
+
+    @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public List getKeysWithExpiryCheck() throws IllegalStateException, CacheException {
+        List<Object> keys = new ArrayList<Object>();
+        for (Object key : store.getKeys()) {
+            if (getFromStore(key) != null) {
+                keys.add(key);
+            }
+        }
+        keys.addAll(super.getKeysWithExpiryCheck());
+        return keys;
+    }
+
+    @Override
+    public int getSize() throws IllegalStateException, CacheException {
+        return store.getSize() + super.getSize();
+    }
+
+    @Override
+    public int getSizeBasedOnAccuracy(int statisticsAccuracy) throws IllegalArgumentException, IllegalStateException, CacheException {
+        return store.getSize() + super.getSizeBasedOnAccuracy(statisticsAccuracy);
+    }
+
+    @Override
+    public long getOffHeapStoreSize() throws IllegalStateException {
+        return store.getSize() + super.getOffHeapStoreSize();
+    }
+
+    @Override
+    public void dispose() throws IllegalStateException {
+        store.clear();
+        lastAccessTimes.clear();
+        super.dispose();
+    }
+
+    protected void checkElement(Element element) {
+        if (element == null || element.getObjectKey() == null) {
+            throw new NullPointerException("The element and its key must not be null");
+        }
+    }
+
+    protected boolean isValueEqual(Element current, Element expected) {
+        if (current == null) {
+            return false;
+        }
+        Object value = current.getObjectValue();
+        return value == null ? expected.getObjectValue() == null : value.equals(expected.getObjectValue());
+    }
+
+    protected Object lockFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return locks[(hash & 0x7fffffff) % locks.length];
+    }
+
+    public OffHeapStore getStore() {
+        return store;
+    }
+
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.offheap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A size bounded store that keeps serialized values outside of the Java heap, either in direct buffers or in
+ * memory-mapped files. Only the key index lives on the heap, so large caches no longer add to old generation
+ * occupancy or collection pauses.
+ *
+ * The configured capacity is split into independently locked segments selected by key hash. Each segment is
+ * written as a ring: values are appended at the write position and, once the segment is full, the oldest values
+ * are evicted as the write position wraps around and overwrites them. Values larger than a segment are not stored.
+ */
+public class OffHeapStore {
+
+    private static final Log LOG = LogFactory.getLog(OffHeapStore.class);
+
+    protected final String name;
+    protected final Segment[] segments;
+
+    protected final AtomicLong hitCount = new AtomicLong();
+    protected final AtomicLong missCount = new AtomicLong();
+    protected final AtomicLong evictionCount = new AtomicLong();
+    protected final AtomicLong rejectionCount = new AtomicLong();
+
+    /**
+     * Creates a store backed by direct buffers.
+     *
+     * @param name the name of the store, used for logging
+     * @param maxBytes the total off-heap capacity
+     * @param segmentCount the number of independently locked segments the capacity is divided into
+     */
+    public OffHeapStore(String name, long maxBytes, int segmentCount) {
+        this(name, maxBytes, segmentCount, null);
+    }
+
+    /**
+     * Creates a store backed by memory-mapped files in the given directory, or by direct buffers when the
+     * directory is null.
+     */
+    public OffHeapStore(String name, long maxBytes, int segmentCount, File directory) {
+        if (segmentCount < 1) {
+            throw new IllegalArgumentException("segmentCount must be at least 1");
+        }
+        long segmentSize = maxBytes / segmentCount;
+        if (segmentSize < 1 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Each segment must hold between 1 byte and 2GB (maxBytes: " + maxBytes + ", segmentCount: " + segmentCount + ")");
+        }
+        this.name = name;
+        segments = new Segment[segmentCount];
+        for (int j = 0; j < segmentCount; j++) {
+            segments[j] = new Segment(allocate(directory, j, (int) segmentSize));
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Allocated " + maxBytes + " bytes " + (directory == null ? "of direct memory" : "mapped in " + directory.getAbsolutePath()) + " for the off-heap store " + name);
+        }
+    }
+
+    protected ByteBuffer allocate(File directory, int index, int size) {
+        if (directory == null) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Unable to create the directory " + directory.getAbsolutePath());
+            }
+            File file = new File(directory, name + '-' + index + ".offheap");
+            file.deleteOnExit();
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(size);
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                //the mapping remains valid after the channel is closed
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to map the off-heap store " + name + " in " + directory.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * @return a copy of the value stored for the key, or null if it is not present or has been evicted
+     */
+    public Object get(Object key) {
+        byte[] bytes = segmentFor(key).read(key);
+        if (bytes == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return deserialize(bytes);
+    }
+
+    /**
+     * Serializes and stores the value, evicting older values from the key's segment as required.
+     *
+     * @return false if the value could not be stored because it is not serializable or is larger than a segment
+     */
+    public boolean put(Object key, Object value) {
+        if (!(value instanceof Serializable)) {
+            rejectionCount.incrementAndGet();
+            return false;
+        }
+        byte[] bytes;
+        try {
+            bytes = serialize(value);
+        } catch (IOException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Unable to serialize the value for key " + key + " in the off-heap store " + name, e);
+            }
+            rejectionCount.incrementAndGet();
+            return false;
+        }
+        if (!segmentFor(key).write(key, bytes)) {
+            rejectionCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public boolean remove(Object key) {
+        return segmentFor(key).remove(key);
+    }
+
+    public boolean containsKey(Object key) {
+        return segmentFor(key).containsKey(key);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return a snapshot of the keys currently stored
+     */
+    public List<Object> getKeys() {
+        List<Object> keys = new ArrayList<Object>();
+        for (Segment segment : segments) {
+            segment.addKeys(keys);
+        }
+        return keys;
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of bytes held by live values
+     */
+    public long getUsedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.getUsedBytes();
+        }
+        return used;
+    }
+
+    public long getCapacity() {
+        long capacity = 0;
+        for (Segment segment : segments) {
+            capacity += segment.buffer.capacity();
+        }
+        return capacity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return the number of values that could not be stored
+     */
+    public long getRejectionCount() {
+        return rejectionCount.get();
+    }
+
+    protected Segment segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    protected byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        try {
+            oos.writeObject(value);
+        } finally {
+            oos.close();
+        }
+        return baos.toByteArray();
+    }
+
+    protected Object deserialize(byte[] bytes) {
+        try {
+            ObjectInputStream ois = new ContextClassLoaderObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return ois.readObject();
+            } finally {
+                ois.close();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to deserialize a value from the off-heap store " + name, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapStore " + name + " - size: [" + getSize() + "], used: [" + getUsedBytes() + '/' + getCapacity() + " bytes], hits: ["
+                + getHitCount() + "], misses: [" + getMissCount() + "], evictions: [" + getEvictionCount() + ']';
+    }
+
+    protected static class Record {
+
+        protected final Object key;
+        protected final int offset;
+        protected final int length;
+
+        protected Record(Object key, int offset, int length) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+    protected class Segment {
+
+        protected final ByteBuffer buffer;
+        protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        protected final Map<Object, Record> index = new HashMap<Object, Record>();
+        //every record written to the buffer, in write order, including those since replaced or removed
+        protected final ArrayDeque<Record> log = new ArrayDeque<Record>();
+        protected int writePosition = 0;
+        protected long usedBytes = 0;
+
+        protected Segment(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        protected byte[] read(Object key) {
+            lock.readLock().lock();
+            try {
+                Record record = index.get(key);
+                if (record == null) {
+                    return null;
+                }
+                byte[] bytes = new byte[record.length];
+                ByteBuffer view = buffer.duplicate();
+                view.position(record.offset);
+                view.get(bytes);
+                return bytes;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        protected boolean write(Object key, byte[] bytes) {
+            int length = bytes.length;
+            if (length > buffer.capacity()) {
+                return false;
+            }
+            lock.writeLock().lock();
+            try {
+                if (writePosition + length > buffer.capacity()) {
+                    //the remainder of the segment is too small, so release the records stored there and wrap
+                    while (!log.isEmpty() && log.peekFirst().offset >= writePosition) {
+                        evict(log.pollFirst());
+                    }
+                    writePosition = 0;
+                }
+                int end = writePosition + length;
+                while (!log.isEmpty() && log.peekFirst().offset >= writePosition && log.peekFirst().offset < end) {
+                    evict(log.pollFirst());
+                }
+                ByteBuffer view = buffer.duplicate();
+                view.position(writePosition);
+                view.put(bytes);
+                Record record = new Record(key, writePosition, length);
+                log.addLast(record);
+                Record previous = index.put(key, record);
+                if (previous != null) {
+                    usedBytes -= previous.length;
+                }
+                usedBytes += length;
+                writePosition = end;
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        protected void evict(Record record) {
+            if (index.get(record.key) == record) {
+                index.remove(record.key);
+                usedBytes -= record.length;
+                evictionCount.incrementAndGet();
+            }
+        }
+
+        protected boolean remove(Object key) {
+            lock.writeLock().lock();
+            try {
+                Record record = index.remove(key);
+                if (record != null) {
+                    usedBytes -= record.length;
+                    return true;
+                }
+                return false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        protected boolean containsKey(Object key) {
+            lock.readLock().lock();
+            try {
+                return index.containsKey(key);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        protected void clear() {
+            lock.writeLock().lock();
+            try {
+                index.clear();
+                log.clear();
+                writePosition = 0;
+                usedBytes = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        protected void addKeys(List<Object> keys) {
+            lock.readLock().lock();
+            try {
+                keys.addAll(index.keySet());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        protected int getSize() {
+            lock.readLock().lock();
+            try {
+                return index.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        protected long getUsedBytes() {
+            lock.readLock().lock();
+            try {
+                return usedBytes;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+    }
+
+    /**
+     * Resolves classes against the thread context class loader so that application classes stored from a web
+     * application can be read back.
+     */
+    protected static class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+        protected ContextClassLoaderObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, loader);
+                } catch (ClassNotFoundException e) {
+                    //fall back to the default resolution
+                }
+            }
+            return super.resolveClass(desc);
+        }
+
+    }
+
+}
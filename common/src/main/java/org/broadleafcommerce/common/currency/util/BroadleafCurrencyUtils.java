@@ -18,8 +18,10 @@ package org.broadleafcommerce.common.currency.util;
 
 import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
 import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.money.MoneyAccumulator;
 
 import java.math.BigDecimal;
+import java.util.Currency;
 
 
 /**
@@ -50,4 +52,15 @@ public class BroadleafCurrencyUtils {
         }
     }
 
+    /**
+     * @return an empty {@link MoneyAccumulator} in the given currency, or the default currency if none is given
+     */
+    public static MoneyAccumulator getMoneyAccumulator(BroadleafCurrency currency) {
+        if (currency != null) {
+            return new MoneyAccumulator(Currency.getInstance(currency.getCurrencyCode()));
+        } else {
+            return new MoneyAccumulator();
+        }
+    }
+
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.common.money;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * A mutable running total of {@link Money} values held as a scaled long (the number of minor units at the
+ * accumulator's scale). Summing with {@link Money#add(Money)} creates a new {@link BigDecimal} and {@link Money}
+ * for every step; the accumulator instead adds in place and only creates a {@link Money} when
+ * {@link #toMoney()} is called, so it is intended for the loops in the pricing and offer engines that total
+ * many line amounts.
+ * 
+ * The result is the same as chaining {@link Money#add(Money)} from a zero amount: values that carry more
+ * decimal places than the accumulator's scale are rounded half-even into the running total, and values in
+ * another currency are converted through the {@link CurrencyConversionContext} exactly as {@link Money} does.
+ * Null values are ignored. Instances are not thread-safe.
+ */
+public class MoneyAccumulator implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    protected final Currency currency;
+    protected final int scale;
+    protected long units;
+
+    public MoneyAccumulator() {
+        this(Money.defaultCurrency());
+    }
+
+    public MoneyAccumulator(Currency currency) {
+        this(currency, BankersRounding.DEFAULT_SCALE);
+    }
+
+    public MoneyAccumulator(Currency currency, int scale) {
+        if (currency == null) {
+            throw new IllegalArgumentException("currency cannot be null");
+        }
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("scale must be between 0 and " + (POWERS_OF_TEN.length - 1));
+        }
+        this.currency = currency;
+        this.scale = scale;
+    }
+
+    public MoneyAccumulator add(Money money) {
+        if (money != null) {
+            accumulate(convert(money).getAmount(), 1L);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the given amount multiplied by the quantity, for instance an item price times the quantity ordered
+     * 
+     * @param money
+     * @param quantity
+     * @return this accumulator
+     */
+    public MoneyAccumulator add(Money money, int quantity) {
+        if (money != null) {
+            accumulate(convert(money).getAmount(), quantity);
+        }
+        return this;
+    }
+
+    public MoneyAccumulator add(MoneyAccumulator other) {
+        if (other != null) {
+            if (other.currency.equals(currency)) {
+                accumulate(BigDecimal.valueOf(other.units, other.scale), 1L);
+            } else {
+                add(other.toMoney());
+            }
+        }
+        return this;
+    }
+
+    public MoneyAccumulator subtract(Money money) {
+        if (money != null) {
+            accumulate(convert(money).getAmount(), -1L);
+        }
+        return this;
+    }
+
+    public MoneyAccumulator reset() {
+        units = 0L;
+        return this;
+    }
+
+    public boolean isZero() {
+        return units == 0L;
+    }
+
+    /**
+     * @return the running total in minor units at this accumulator's scale
+     */
+    public long getUnits() {
+        return units;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public BigDecimal getAmount() {
+        return BigDecimal.valueOf(units, scale);
+    }
+
+    public Money toMoney() {
+        return new Money(getAmount(), currency, scale);
+    }
+
+    protected Money convert(Money money) {
+        if (money.getCurrency().equals(currency)) {
+            return money;
+        }
+        // Money performs (or refuses) the conversion in the same way it would for a chained add
+        return Money.zero(currency).add(money);
+    }
+
+    protected void accumulate(BigDecimal amount, long multiplier) {
+        int amountScale = amount.scale();
+        if (amountScale >= 0 && amountScale <= scale) {
+            BigInteger unscaled = amount.unscaledValue();
+            if (unscaled.bitLength() <= 63) {
+                long value = multiplyExact(unscaled.longValue(), POWERS_OF_TEN[scale - amountScale]);
+                units = addExact(units, multiplyExact(value, multiplier));
+                return;
+            }
+        }
+        // finer grained (or very large) amounts are rounded into the total in the same manner as Money
+        BigInteger total = getAmount().add(amount.multiply(BigDecimal.valueOf(multiplier)))
+                .setScale(scale, RoundingMode.HALF_EVEN).unscaledValue();
+        if (total.bitLength() > 63) {
+            throw new ArithmeticException("MoneyAccumulator overflow");
+        }
+        units = total.longValue();
+    }
+
+    private static long multiplyExact(long a, long b) {
+        long result = a * b;
+        long absA = Math.abs(a);
+        long absB = Math.abs(b);
+        if (((absA | absB) >>> 31 != 0) && ((b != 0 && result / b != a) || (a == Long.MIN_VALUE && b == -1))) {
+            throw new ArithmeticException("MoneyAccumulator overflow");
+        }
+        return result;
+    }
+
+    private static long addExact(long a, long b) {
+        long result = a + b;
+        if (((a ^ result) & (b ^ result)) < 0) {
+            throw new ArithmeticException("MoneyAccumulator overflow");
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getAmount().toString();
+    }
+
+}
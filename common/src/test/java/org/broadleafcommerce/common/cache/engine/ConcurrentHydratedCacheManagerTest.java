@@ -0,0 +1,168 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.engine;
+
+import junit.framework.TestCase;
+import org.broadleafcommerce.common.time.FixedTimeSource;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.hibernate.EntityMode;
+import org.hibernate.cache.CacheKey;
+import org.hibernate.type.LongType;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentHydratedCacheManagerTest extends TestCase {
+
+    private static final String REGION = "blStandardElements";
+    private static final String NAME = "org.broadleafcommerce.core.catalog.domain.CategoryImpl";
+
+    private ConcurrentHydratedCacheManagerImpl manager;
+
+    @Override
+    protected void setUp() throws Exception {
+        manager = new ConcurrentHydratedCacheManagerImpl();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SystemTime.reset();
+    }
+
+    public void testAddAndRemove() throws Exception {
+        assertNull(manager.getHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap"));
+        manager.addHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap", "value");
+        manager.addHydratedCacheElementItem(REGION, NAME, 2L, "childCategoryURLMap", "other");
+        assertEquals("value", manager.getHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap"));
+        assertEquals(2, manager.getSize());
+
+        manager.removeCache(REGION, new CacheKey(1L, LongType.INSTANCE, NAME, EntityMode.POJO, null));
+        assertNull(manager.getHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap"));
+        assertEquals("other", manager.getHydratedCacheElementItem(REGION, NAME, 2L, "childCategoryURLMap"));
+        assertEquals(1, manager.getSize());
+
+        ConcurrentHydratedCacheManagerImpl.RegionStatistics statistics = manager.getRegionStatistics().get(REGION);
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+
+        manager.removeAll(REGION);
+        assertEquals(0, manager.getSize());
+    }
+
+    public void testTimeToLive() throws Exception {
+        long now = System.currentTimeMillis();
+        SystemTime.setLocalTimeSource(new FixedTimeSource(now));
+        manager.setTimeToLiveSeconds(1);
+        manager.addHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap", "value");
+        assertNotNull(manager.getHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap"));
+
+        SystemTime.setLocalTimeSource(new FixedTimeSource(now + 1100));
+        assertNull(manager.getHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap"));
+        assertEquals(0, manager.getSize());
+        assertTrue(manager.cacheMembersByEntity.isEmpty());
+    }
+
+    public void testEvictionKeepsRecentlyReadItems() throws Exception {
+        manager.setMaxElements(3);
+        manager.addHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap", "1");
+        manager.addHydratedCacheElementItem(REGION, NAME, 2L, "childCategoryURLMap", "2");
+        manager.addHydratedCacheElementItem(REGION, NAME, 3L, "childCategoryURLMap", "3");
+        assertEquals("1", manager.getHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap"));
+
+        manager.addHydratedCacheElementItem(REGION, NAME, 4L, "childCategoryURLMap", "4");
+        manager.addHydratedCacheElementItem(REGION, NAME, 5L, "childCategoryURLMap", "5");
+        assertEquals(3, manager.getSize());
+        assertEquals(2, manager.getEvictionCount());
+        assertEquals("1", manager.getHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap"));
+        assertNull(manager.getHydratedCacheElementItem(REGION, NAME, 2L, "childCategoryURLMap"));
+        assertNull(manager.getHydratedCacheElementItem(REGION, NAME, 3L, "childCategoryURLMap"));
+        assertEquals("5", manager.getHydratedCacheElementItem(REGION, NAME, 5L, "childCategoryURLMap"));
+        assertEquals(3, manager.cacheMembersByEntity.size());
+    }
+
+    public void testMembersFollowItems() throws Exception {
+        manager.setMaxElements(10);
+        for (long i = 0; i < 100; i++) {
+            manager.addHydratedCacheElementItem(REGION, NAME, i, "childCategoryURLMap", "value");
+        }
+        assertEquals(10, manager.getSize());
+        assertEquals(10, manager.cacheMembersByEntity.size());
+
+        manager.removeAll(REGION);
+        assertEquals(0, manager.getSize());
+        assertTrue(manager.cacheMembersByEntity.isEmpty());
+    }
+
+    public void testSingleFlightPopulation() throws Exception {
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Object> factory = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                invocations.incrementAndGet();
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "value";
+            }
+        };
+        Callable<Object> reader = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return manager.getOrCreateHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap", factory);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Object> first = executor.submit(reader);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> second = executor.submit(reader);
+            Future<Object> third = executor.submit(reader);
+            release.countDown();
+            assertEquals("value", first.get());
+            assertEquals("value", second.get());
+            assertEquals("value", third.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, invocations.get());
+        assertEquals(1, manager.getRegionStatistics().get(REGION).getLoadCount());
+    }
+
+    public void testFactoryFailureIsNotCached() throws Exception {
+        Callable<Object> failing = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                throw new CacheFactoryException("unavailable");
+            }
+        };
+        try {
+            manager.getOrCreateHydratedCacheElementItem(REGION, NAME, 1L, "childCategoryURLMap", failing);
+            fail();
+        } catch (CacheFactoryException e) {
+            //expected
+        }
+        assertEquals(0, manager.getSize());
+    }
+
+}
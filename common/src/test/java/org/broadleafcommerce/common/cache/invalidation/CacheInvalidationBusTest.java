@@ -0,0 +1,78 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.invalidation;
+
+import junit.framework.TestCase;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class CacheInvalidationBusTest extends TestCase {
+
+    public void testPeerInvalidation() throws Exception {
+        LoopbackCacheInvalidationBus node1 = new LoopbackCacheInvalidationBus();
+        LoopbackCacheInvalidationBus node2 = new LoopbackCacheInvalidationBus();
+        node1.addPeer(node1);
+        node1.addPeer(node2);
+        RecordingListener listener1 = new RecordingListener();
+        RecordingListener listener2 = new RecordingListener();
+        node1.addListener("test", listener1);
+        node2.addListener("test", listener2);
+
+        node1.invalidate("test", "key1");
+        //applied locally once, the batch sent back to the originating node is ignored
+        assertEquals(1, listener1.keys.size());
+        assertEquals(1, listener2.keys.size());
+        assertEquals("key1", listener2.keys.get(0));
+        assertEquals(0, node1.getReceivedBatchCount());
+        assertEquals(1, node2.getReceivedBatchCount());
+
+        node1.invalidateAll("test");
+        assertEquals(1, listener2.allCount);
+    }
+
+    public void testCoalescing() throws Exception {
+        CacheInvalidationBatch batch = new CacheInvalidationBatch("node");
+        assertTrue(batch.addKey("test", "key1"));
+        assertFalse(batch.addKey("test", "key1"));
+        assertTrue(batch.addCache("test"));
+        //the whole cache is already invalidated, so individual keys are redundant
+        assertFalse(batch.addKey("test", "key2"));
+        assertEquals(1, batch.size());
+    }
+
+    protected static class RecordingListener implements CacheInvalidationListener {
+
+        protected List<Serializable> keys = new ArrayList<Serializable>();
+        protected int allCount;
+
+        @Override
+        public void invalidate(String cacheName, Collection<Serializable> keys) {
+            this.keys.addAll(keys);
+        }
+
+        @Override
+        public void invalidateAll(String cacheName) {
+            allCount++;
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.offheap;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares an on-heap Ehcache with the same cache decorated by {@link OffHeapEhcacheDecorator}. Each run fills the
+ * cache with maps shaped like the category url maps (string keys and values), then performs random reads while
+ * allocating short lived garbage, and reports the heap retained by the cache, the collections during the reads and
+ * the read time.
+ *
+ * This is not a unit test and is not run by the build. Run each mode in a fresh JVM, for example:
+ *
+ * <pre>
+ * java -Xmx1g -XX:+UseParallelGC -cp &lt;test classpath&gt; org.broadleafcommerce.common.cache.offheap.OffHeapCacheBenchmark heap
+ * java -Xmx1g -XX:+UseParallelGC -cp &lt;test classpath&gt; org.broadleafcommerce.common.cache.offheap.OffHeapCacheBenchmark offheap
+ * </pre>
+ *
+ * Optional further arguments are the number of entries (60000), the size of each map (20) and the number of
+ * reads (400000).
+ */
+public class OffHeapCacheBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        boolean offHeap = args.length > 0 && "offheap".equals(args[0]);
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 60000;
+        int mapSize = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int reads = args.length > 3 ? Integer.parseInt(args[3]) : 400000;
+
+        Cache cache = new Cache(new CacheConfiguration("benchmark", entries).eternal(true));
+        cache.initialise();
+        Ehcache target = offHeap ? new OffHeapEhcacheDecorator(cache, new OffHeapStore("benchmark", 512L * 1024L * 1024L, 16)) : cache;
+
+        long baseline = usedHeap();
+        for (int i = 0; i < entries; i++) {
+            HashMap<String, String> urls = new HashMap<String, String>();
+            for (int j = 0; j < mapSize; j++) {
+                urls.put("/category-" + i + "/sub-" + j, "/category-" + i + "/product-" + j + "?id=" + (i * mapSize + j));
+            }
+            target.put(new Element("category-" + i, urls));
+        }
+        long retained = usedHeap() - baseline;
+
+        // warm up the read path before measuring
+        Random random = new Random(42);
+        runReads(target, entries, reads / 10, random);
+
+        long collections = collectionCount();
+        long collectionTime = collectionTime();
+        long start = System.nanoTime();
+        long checksum = runReads(target, entries, reads, random);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println((offHeap ? "off-heap" : "on-heap") + ": " + entries + " entries of " + mapSize + ", " + reads + " reads");
+        System.out.println("  retained heap:   " + retained / (1024 * 1024) + "MB");
+        System.out.println("  collections:     " + (collectionCount() - collections));
+        System.out.println("  collection time: " + (collectionTime() - collectionTime) + "ms");
+        System.out.println("  read time:       " + elapsed / 1000000 + "ms (checksum " + checksum + ")");
+        cache.dispose();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static long runReads(Ehcache cache, int entries, int reads, Random random) {
+        long checksum = 0;
+        Object[] churn = new Object[1024];
+        for (int i = 0; i < reads; i++) {
+            Element element = cache.get("category-" + random.nextInt(entries));
+            checksum += ((Map<String, String>) element.getObjectValue()).size();
+            churn[i & (churn.length - 1)] = new byte[256];
+        }
+        return checksum;
+    }
+
+    protected static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    protected static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += bean.getCollectionCount();
+        }
+        return count;
+    }
+
+    protected static long collectionTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += bean.getCollectionTime();
+        }
+        return time;
+    }
+
+}
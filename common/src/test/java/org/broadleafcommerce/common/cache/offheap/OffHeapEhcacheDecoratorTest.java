@@ -0,0 +1,162 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.common.cache.offheap;
+
+import junit.framework.TestCase;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.event.CacheEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class OffHeapEhcacheDecoratorTest extends TestCase {
+
+    private OffHeapEhcacheDecorator decorator;
+    private RecordingListener listener;
+    private Cache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        cache = new Cache(new CacheConfiguration("test", 100).timeToIdleSeconds(10));
+        cache.initialise();
+        listener = new RecordingListener();
+        cache.getCacheEventNotificationService().registerListener(listener);
+        decorator = new OffHeapEhcacheDecorator(cache, new OffHeapStore("test", 64 * 1024, 4));
+    }
+
+    public void testReadsAreServedFromTheStore() throws Exception {
+        decorator.put(new Element("key", "value"));
+        assertEquals(1, decorator.getStore().getSize());
+        assertEquals("value", decorator.get("key").getObjectValue());
+        assertEquals(1, decorator.getKeys().size());
+
+        assertTrue(decorator.remove("key"));
+        assertNull(decorator.get("key"));
+        assertTrue(decorator.lastAccessTimes.isEmpty());
+    }
+
+    public void testReadsRecordTheLastAccessTime() throws Exception {
+        long now = System.currentTimeMillis();
+        decorator.put(createElement("idle", now - 8000));
+        assertTrue(decorator.getQuiet("idle").getLastAccessTime() < now - 5000);
+
+        //a read keeps the element from expiring when idle, although the stored copy is not rewritten
+        Element element = decorator.get("idle");
+        assertEquals(1, element.getHitCount());
+        assertEquals(element.getLastAccessTime(), decorator.lastAccessTimes.get("idle").longValue());
+        //element times are kept to the second
+        assertTrue(decorator.getQuiet("idle").getLastAccessTime() >= now - 1000);
+    }
+
+    public void testIdleElementsExpire() throws Exception {
+        decorator.put(createElement("expired", System.currentTimeMillis() - 11000));
+        assertNull(decorator.get("expired"));
+        assertEquals(0, decorator.getStore().getSize());
+    }
+
+    public void testWritesNotifyTheDecoratedCacheListeners() throws Exception {
+        decorator.put(new Element("key", "value"));
+        decorator.put(new Element("key", "value2"));
+        decorator.putQuiet(new Element("quiet", "value"));
+        decorator.remove("key");
+        decorator.removeQuiet("quiet");
+        assertEquals(Arrays.asList("put:key", "updated:key", "removed:key"), listener.events);
+        assertEquals(0, decorator.getStore().getSize());
+        assertEquals(0, cache.getSize());
+    }
+
+    public void testAtomicOperationsUseTheStore() throws Exception {
+        decorator.put(new Element("key", "value"));
+        assertEquals("value", decorator.putIfAbsent(new Element("key", "other")).getObjectValue());
+        assertNull(decorator.putIfAbsent(new Element("absent", "value")));
+        assertEquals(2, decorator.getStore().getSize());
+        assertEquals(0, cache.getSize());
+
+        assertFalse(decorator.replace(new Element("key", "other"), new Element("key", "replaced")));
+        assertTrue(decorator.replace(new Element("key", "value"), new Element("key", "replaced")));
+        assertEquals("replaced", decorator.replace(new Element("key", "again")).getObjectValue());
+        assertNull(decorator.replace(new Element("missing", "value")));
+        assertFalse(decorator.removeElement(new Element("key", "replaced")));
+        assertTrue(decorator.removeElement(new Element("key", "again")));
+        assertNull(decorator.get("key"));
+
+        Map<?, ?> values = decorator.getAllWithLoader(Arrays.asList("absent", "missing"), null);
+        assertEquals("value", values.get("absent"));
+        assertTrue(values.containsKey("missing"));
+        assertNull(values.get("missing"));
+    }
+
+    public void testValuesThatCannotBeSerializedStayOnHeap() throws Exception {
+        decorator.put(new Element("key", "value"));
+        decorator.put(new Element("key", new Object()));
+        assertEquals(0, decorator.getStore().getSize());
+        assertEquals(1, cache.getSize());
+        assertEquals(Arrays.asList("put:key", "updated:key"), listener.events);
+    }
+
+    protected Element createElement(String key, long lastAccessTime) {
+        return new Element(key, "value", 1L, lastAccessTime, lastAccessTime, 0L, true, 0, 0, lastAccessTime);
+    }
+
+    public static class RecordingListener implements CacheEventListener {
+
+        protected final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void notifyElementPut(Ehcache cache, Element element) {
+            events.add("put:" + element.getObjectKey());
+        }
+
+        @Override
+        public void notifyElementUpdated(Ehcache cache, Element element) {
+            events.add("updated:" + element.getObjectKey());
+        }
+
+        @Override
+        public void notifyElementRemoved(Ehcache cache, Element element) {
+            events.add("removed:" + element.getObjectKey());
+        }
+
+        @Override
+        public void notifyElementExpired(Ehcache cache, Element element) {
+        }
+
+        @Override
+        public void notifyElementEvicted(Ehcache cache, Element element) {
+        }
+
+        @Override
+        public void notifyRemoveAll(Ehcache cache) {
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            throw new CloneNotSupportedException();
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.common.cache.offheap;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class OffHeapStoreTest extends TestCase {
+
+    public void testPutGetRemove() throws Exception {
+        OffHeapStore store = new OffHeapStore("test", 64 * 1024, 4);
+        HashMap<String, List<Long>> value = new HashMap<String, List<Long>>();
+        List<Long> ids = new ArrayList<Long>();
+        ids.add(1L);
+        ids.add(2L);
+        value.put("/hats", ids);
+
+        assertTrue(store.put("key", value));
+        assertEquals(value, store.get("key"));
+        assertNotSame(value, store.get("key"));
+        assertEquals(1, store.getSize());
+
+        assertTrue(store.put("key", "replaced"));
+        assertEquals("replaced", store.get("key"));
+        assertEquals(1, store.getSize());
+
+        assertTrue(store.remove("key"));
+        assertNull(store.get("key"));
+        assertEquals(0, store.getSize());
+        assertEquals(0, store.getUsedBytes());
+    }
+
+    public void testOldestValuesEvictedWhenFull() throws Exception {
+        OffHeapStore store = new OffHeapStore("test", 4 * 1024, 1);
+        byte[] value = new byte[900];
+        for (int j = 0; j < 10; j++) {
+            assertTrue(store.put(j, value));
+        }
+        assertTrue(store.getSize() < 10);
+        assertTrue(store.getEvictionCount() > 0);
+        assertNull(store.get(0));
+        assertNotNull(store.get(9));
+        assertTrue(store.getUsedBytes() <= store.getCapacity());
+    }
+
+    public void testRejectsValuesThatCannotBeStored() throws Exception {
+        OffHeapStore store = new OffHeapStore("test", 1024, 1);
+        assertFalse(store.put("large", new byte[2048]));
+        assertFalse(store.put("unserializable", new Object()));
+        assertEquals(2, store.getRejectionCount());
+        assertEquals(0, store.getSize());
+    }
+
+}
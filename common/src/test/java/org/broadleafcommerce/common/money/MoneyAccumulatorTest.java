@@ -0,0 +1,78 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.common.money;
+
+import junit.framework.TestCase;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+public class MoneyAccumulatorTest extends TestCase {
+
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    public void testMatchesChainedMoneyArithmetic() throws Exception {
+        String[] amounts = new String[] { "19.99", "0.01", "-5.25", "1200", "0.005", "3.3333", "-0.004", "7.125" };
+        Money expected = Money.zero(USD);
+        MoneyAccumulator accumulator = new MoneyAccumulator(USD);
+        for (int i = 0; i < amounts.length; i++) {
+            Money money = new Money(new BigDecimal(amounts[i]), USD, new BigDecimal(amounts[i]).scale());
+            expected = expected.add(money.multiply(i + 1));
+            accumulator.add(money, i + 1);
+        }
+        assertEquals(expected, accumulator.toMoney());
+
+        expected = expected.subtract(new Money("10.10", USD));
+        accumulator.subtract(new Money("10.10", USD));
+        assertEquals(expected, accumulator.toMoney());
+    }
+
+    public void testAccumulateInPlace() throws Exception {
+        MoneyAccumulator accumulator = new MoneyAccumulator(USD);
+        accumulator.add(new Money("1.50", USD)).add((Money) null).add(new Money("2.25", USD), 2);
+        assertEquals(600L, accumulator.getUnits());
+
+        MoneyAccumulator other = new MoneyAccumulator(USD).add(new Money("0.40", USD));
+        accumulator.add(other);
+        assertEquals(new Money("6.40", USD), accumulator.toMoney());
+
+        assertTrue(accumulator.reset().isZero());
+    }
+
+    public void testCurrencyMismatchWithoutConversionService() throws Exception {
+        MoneyAccumulator accumulator = new MoneyAccumulator(USD);
+        try {
+            accumulator.add(new Money("1.00", EUR));
+            fail("Adding a different currency without a conversion service should fail");
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+    }
+
+    public void testOverflow() throws Exception {
+        MoneyAccumulator accumulator = new MoneyAccumulator(USD);
+        accumulator.add(new Money(new BigDecimal("90000000000000000"), USD));
+        try {
+            accumulator.add(new Money(new BigDecimal("90000000000000000"), USD));
+            fail("Overflow should be detected");
+        } catch (ArithmeticException e) {
+            //expected
+        }
+    }
+
+}
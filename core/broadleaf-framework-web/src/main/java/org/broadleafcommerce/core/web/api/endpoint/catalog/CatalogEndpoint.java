@@ -24,6 +24,8 @@ import org.broadleafcommerce.core.catalog.domain.ProductBundle;
 import org.broadleafcommerce.core.catalog.domain.RelatedProduct;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.domain.SkuAttribute;
+import org.broadleafcommerce.core.catalog.service.CatalogBatchLoadingService;
+import org.broadleafcommerce.core.catalog.service.CatalogPrefetchPlan;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.media.domain.Media;
 import org.broadleafcommerce.core.web.api.wrapper.CategoriesWrapper;
@@ -79,6 +81,9 @@ public class CatalogEndpoint implements ApplicationContextAware {
     @Resource(name="blCatalogService")
     private CatalogService catalogService;
 
+    @Resource(name="blCatalogBatchLoadingService")
+    private CatalogBatchLoadingService catalogBatchLoadingService;
+
     private ApplicationContext context;
 
     //We don't inject this here because of a few dependency issues. Instead, we look this up dynamically
@@ -133,6 +138,7 @@ public class CatalogEndpoint implements ApplicationContextAware {
 
         List<ProductWrapper> out = new ArrayList<ProductWrapper>();
         if (result != null) {
+            catalogBatchLoadingService.prefetch(result, CatalogPrefetchPlan.API_PRODUCT);
             for (Product product : result) {
                 ProductWrapper wrapper;
                 if (product instanceof ProductBundle) {
@@ -303,6 +309,7 @@ public class CatalogEndpoint implements ApplicationContextAware {
                 products = catalogService.findProductsForCategory(category, limit, offset);
             }
             if (products != null) {
+                catalogBatchLoadingService.prefetch(products, CatalogPrefetchPlan.API_PRODUCT);
                 for (Product product : products) {
                     ProductWrapper wrapper;
                     if (product instanceof ProductBundle) {
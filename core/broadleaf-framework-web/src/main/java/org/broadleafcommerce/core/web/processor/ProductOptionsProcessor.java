@@ -26,6 +26,7 @@ import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.catalog.domain.ProductOption;
 import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
 import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.service.CatalogPrefetchPlan;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.web.util.ProcessorUtils;
 import org.codehaus.jackson.map.ObjectMapper;
@@ -73,6 +74,7 @@ public class ProductOptionsProcessor extends AbstractModelVariableModifierProces
         Long productId = (Long) StandardExpressionProcessor.processExpression(arguments, element.getAttributeValue("productId"));
         Product product = catalogService.findProductById(productId);
         if (product != null) {
+            ProcessorUtils.getCatalogBatchLoadingService(arguments).prefetch(Collections.singletonList(product), CatalogPrefetchPlan.PRODUCT_OPTIONS);
             addAllProductOptionsToModel(arguments, product);
             addProductOptionPricingToModel(arguments, product);
         }
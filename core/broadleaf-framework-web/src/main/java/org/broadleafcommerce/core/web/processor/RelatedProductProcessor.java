@@ -21,6 +21,7 @@ import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.catalog.domain.PromotableProduct;
 import org.broadleafcommerce.core.catalog.domain.RelatedProductDTO;
 import org.broadleafcommerce.core.catalog.domain.RelatedProductTypeEnum;
+import org.broadleafcommerce.core.catalog.service.CatalogPrefetchPlan;
 import org.broadleafcommerce.core.catalog.service.RelatedProductsService;
 import org.broadleafcommerce.core.web.util.ProcessorUtils;
 import org.springframework.stereotype.Component;
@@ -75,8 +76,10 @@ public class RelatedProductProcessor extends AbstractModelVariableModifierProces
     protected void modifyModelAttributes(Arguments arguments, Element element) {
         RelatedProductsService relatedProductsService = ProcessorUtils.getRelatedProductsService(arguments);
         List<? extends PromotableProduct> relatedProducts = relatedProductsService.findRelatedProducts(buildDTO(arguments, element));
+        List<Product> products = convertRelatedProductsToProducts(relatedProducts);
+        ProcessorUtils.getCatalogBatchLoadingService(arguments).prefetch(products, CatalogPrefetchPlan.LISTING_TILE);
         addToModel(arguments, getRelatedProductsResultVar(element), relatedProducts);
-        addToModel(arguments, getProductsResultVar(element), convertRelatedProductsToProducts(relatedProducts));
+        addToModel(arguments, getProductsResultVar(element), products);
     }
     
     protected List<Product> convertRelatedProductsToProducts(List<? extends PromotableProduct> relatedProducts) {
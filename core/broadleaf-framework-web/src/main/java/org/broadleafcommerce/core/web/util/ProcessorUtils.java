@@ -24,6 +24,7 @@ import java.util.Map.Entry;
 
 import org.broadleafcommerce.cms.file.service.StaticAssetService;
 import org.broadleafcommerce.common.security.service.ExploitProtectionService;
+import org.broadleafcommerce.core.catalog.service.CatalogBatchLoadingService;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.catalog.service.RelatedProductsService;
 import org.broadleafcommerce.core.order.service.OrderService;
@@ -74,6 +75,22 @@ public class ProcessorUtils {
         return catalogService;
     }
     
+    /**
+     * Gets the "blCatalogBatchLoadingService" bean via the Spring Web Application Context
+     * @param arguments the Thymeleaf arguments that's part of the request
+     * @return "blCatalogBatchLoadingService" bean instance
+     */
+    public static CatalogBatchLoadingService getCatalogBatchLoadingService(Arguments arguments) {
+        String key = "blCatalogBatchLoadingService";
+        CatalogBatchLoadingService catalogBatchLoadingService = (CatalogBatchLoadingService) cachedBeans.get(key);
+        if (catalogBatchLoadingService == null) { 
+            final ApplicationContext appCtx = ((SpringWebContext) arguments.getContext()).getApplicationContext(); 
+            catalogBatchLoadingService = (CatalogBatchLoadingService) appCtx.getBean(key);
+            cachedBeans.put(key, catalogBatchLoadingService);
+        }
+        return catalogBatchLoadingService;
+    }
+    
     /**
      * Gets the "blStaticAssetService" bean via the Spring Web Application Context
      * @param arguments the Thymeleaf arguments that's part of the request
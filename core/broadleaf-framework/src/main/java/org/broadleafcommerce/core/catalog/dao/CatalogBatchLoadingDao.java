@@ -0,0 +1,41 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.catalog.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@code CatalogBatchLoadingDao} initializes chains of lazy associations for a batch of entities using a
+ * fixed number of fetch join queries.
+ */
+public interface CatalogBatchLoadingDao {
+
+    /**
+     * Initializes the association paths for every entity in the collection. Each distinct path segment is
+     * loaded with one fetch join query per batch of entities that still need it; entities whose association
+     * is already initialized (for instance from the second level cache) are skipped.
+     *
+     * @param entities managed instances of the entity class (or Hibernate proxies for them)
+     * @param entityClass the mapped class the paths are rooted at
+     * @param paths dot separated chains of mapped property names
+     * @return the number of queries issued
+     * @throws IllegalArgumentException if the class is not mapped or a path names an unmapped property
+     */
+    public int prefetch(Collection<?> entities, Class<?> entityClass, List<String> paths);
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.catalog.dao;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.EntityMode;
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.ejb.HibernateEntityManager;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository("blCatalogBatchLoadingDao")
+public class CatalogBatchLoadingDaoImpl implements CatalogBatchLoadingDao {
+
+    private static final Log LOG = LogFactory.getLog(CatalogBatchLoadingDaoImpl.class);
+
+    @PersistenceContext(unitName="blPU")
+    protected EntityManager em;
+
+    /**
+     * The maximum number of ids bound to the IN clause of a single prefetch query
+     */
+    protected int batchSize = 500;
+
+    @Override
+    public int prefetch(Collection<?> entities, Class<?> entityClass, List<String> paths) {
+        if (entities == null || entities.isEmpty() || paths.isEmpty()) {
+            return 0;
+        }
+        Session session = ((HibernateEntityManager) em).getSession();
+        ClassMetadata metadata = session.getSessionFactory().getClassMetadata(entityClass);
+        if (metadata == null) {
+            throw new IllegalArgumentException(entityClass.getName() + " is not a mapped entity");
+        }
+        PathNode root = new PathNode();
+        for (String path : paths) {
+            root.add(path.split("\\."), 0);
+        }
+        Map<Serializable, Object> byId = new LinkedHashMap<Serializable, Object>();
+        for (Object entity : entities) {
+            index(session, entity, byId);
+        }
+        return prefetch(session, metadata, byId, root);
+    }
+
+    protected int prefetch(Session session, ClassMetadata metadata, Map<Serializable, Object> entities, PathNode node) {
+        int queries = 0;
+        for (Map.Entry<String, PathNode> child : node.children.entrySet()) {
+            String property = child.getKey();
+            Type type;
+            try {
+                type = metadata.getPropertyType(property);
+            } catch (HibernateException e) {
+                throw new IllegalArgumentException(property + " is not a mapped property of " + metadata.getEntityName(), e);
+            }
+
+            List<Serializable> unloaded = new ArrayList<Serializable>();
+            for (Map.Entry<Serializable, Object> entry : entities.entrySet()) {
+                if (!isLoaded(metadata, entry.getValue(), property)) {
+                    unloaded.add(entry.getKey());
+                }
+            }
+            String hql = "from " + metadata.getEntityName() + " e left join fetch e." + property
+                    + " where e." + metadata.getIdentifierPropertyName() + " in (:ids)";
+            for (int i = 0; i < unloaded.size(); i += batchSize) {
+                Query query = session.createQuery(hql);
+                query.setParameterList("ids", unloaded.subList(i, Math.min(i + batchSize, unloaded.size())));
+                query.list();
+                queries++;
+            }
+
+            String associatedEntityName = getAssociatedEntityName(session, type);
+            if (associatedEntityName != null && !child.getValue().children.isEmpty()) {
+                Map<Serializable, Object> associated = new LinkedHashMap<Serializable, Object>();
+                for (Object entity : entities.values()) {
+                    Object value = metadata.getPropertyValue(unproxy(entity), property, EntityMode.POJO);
+                    if (value instanceof Map) {
+                        value = ((Map<?, ?>) value).values();
+                    }
+                    if (value instanceof Collection) {
+                        for (Object element : (Collection<?>) value) {
+                            index(session, element, associated);
+                        }
+                    } else {
+                        index(session, value, associated);
+                    }
+                }
+                if (!associated.isEmpty()) {
+                    ClassMetadata associatedMetadata = session.getSessionFactory().getClassMetadata(associatedEntityName);
+                    queries += prefetch(session, associatedMetadata, associated, child.getValue());
+                }
+            }
+        }
+        return queries;
+    }
+
+    protected boolean isLoaded(ClassMetadata metadata, Object entity, String property) {
+        return Hibernate.isInitialized(entity) && Hibernate.isInitialized(metadata.getPropertyValue(unproxy(entity), property, EntityMode.POJO));
+    }
+
+    protected String getAssociatedEntityName(Session session, Type type) {
+        if (type.isCollectionType()) {
+            type = ((CollectionType) type).getElementType((SessionFactoryImplementor) session.getSessionFactory());
+        }
+        if (type.isEntityType()) {
+            return ((EntityType) type).getAssociatedEntityName();
+        }
+        return null;
+    }
+
+    protected void index(Session session, Object entity, Map<Serializable, Object> byId) {
+        if (entity == null) {
+            return;
+        }
+        Serializable id;
+        if (entity instanceof HibernateProxy) {
+            id = ((HibernateProxy) entity).getHibernateLazyInitializer().getIdentifier();
+        } else {
+            if (!session.contains(entity)) {
+                // A detached entity cannot be filled in by the session, so it is simply left to load lazily
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Skipping prefetch of an entity that is not attached to the current persistence context: " + entity);
+                }
+                return;
+            }
+            id = session.getIdentifier(entity);
+        }
+        byId.put(id, entity);
+    }
+
+    protected Object unproxy(Object entity) {
+        if (entity instanceof HibernateProxy) {
+            return ((HibernateProxy) entity).getHibernateLazyInitializer().getImplementation();
+        }
+        return entity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * A node of the association tree built from the plan paths, so that a shared prefix is loaded only once
+     */
+    protected static class PathNode {
+
+        protected final Map<String, PathNode> children = new LinkedHashMap<String, PathNode>();
+
+        protected void add(String[] segments, int index) {
+            if (index < segments.length) {
+                PathNode child = children.get(segments[index]);
+                if (child == null) {
+                    child = new PathNode();
+                    children.put(segments[index], child);
+                }
+                child.add(segments, index + 1);
+            }
+        }
+
+    }
+
+}
@@ -18,9 +18,11 @@ package org.broadleafcommerce.core.catalog.dao;
 
 
 import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryTreeRow;
 import org.broadleafcommerce.core.catalog.domain.Product;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -201,4 +203,22 @@ public interface CategoryDao {
     public void setCurrentDateResolution(@Nonnull  Long currentDateResolution);
     @Nonnull
     Category findCategoryByURI(String uri);
+
+    /**
+     * Reads the structure of the whole category tree, one row per category, using column projections rather than
+     * loading the category entities.
+     *
+     * @return a row for every category
+     */
+    @Nonnull
+    public List<CategoryTreeRow> readCategoryTreeRows();
+
+    /**
+     * Retrieve the ids of the products assigned to any of the given categories. Each id is returned once.
+     *
+     * @param categoryIds the primary keys of the categories
+     * @return the ids of the products in the categories
+     */
+    @Nonnull
+    public List<Long> readProductIdsByCategoryIds(@Nonnull Collection<Long> categoryIds);
 }
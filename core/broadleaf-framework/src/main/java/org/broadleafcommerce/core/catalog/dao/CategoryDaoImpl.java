@@ -21,6 +21,9 @@ import org.broadleafcommerce.common.persistence.Status;
 import org.broadleafcommerce.common.time.SystemTime;
 import org.broadleafcommerce.core.catalog.domain.Category;
 import org.broadleafcommerce.core.catalog.domain.CategoryImpl;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXrefImpl;
+import org.broadleafcommerce.core.catalog.domain.CategoryTreeRow;
+import org.broadleafcommerce.core.catalog.domain.CategoryXrefImpl;
 import org.broadleafcommerce.core.catalog.domain.Product;
 import org.hibernate.ejb.QueryHints;
 import org.springframework.stereotype.Repository;
@@ -29,9 +32,21 @@ import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 
@@ -219,4 +234,57 @@ public class CategoryDaoImpl implements CategoryDao {
         }
     }
 
+    @Override
+    public List<CategoryTreeRow> readCategoryTreeRows() {
+        Map<Long, CategoryTreeRow> rows = new LinkedHashMap<Long, CategoryTreeRow>();
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> categories = builder.createTupleQuery();
+        Root<?> category = categories.from(entityConfiguration.lookupEntityClass(Category.class.getName()));
+        Join<?, ?> defaultParent = category.join("defaultParentCategory", JoinType.LEFT);
+        categories.multiselect(category.get("id"), defaultParent.get("id"), category.get("urlKey"),
+                category.get("activeStartDate"), category.get("activeEndDate"), category.get("archiveStatus").get("archived"));
+        for (Tuple tuple : em.createQuery(categories).getResultList()) {
+            CategoryTreeRow row = new CategoryTreeRow((Long) tuple.get(0));
+            row.setDefaultParentId((Long) tuple.get(1));
+            row.setUrlKey((String) tuple.get(2));
+            row.setActiveStartDate((Date) tuple.get(3));
+            row.setActiveEndDate((Date) tuple.get(4));
+            row.setArchived(Character.valueOf('Y').equals(tuple.get(5)));
+            rows.put(row.getId(), row);
+        }
+
+        CriteriaQuery<Tuple> xrefs = builder.createTupleQuery();
+        Root<CategoryXrefImpl> xref = xrefs.from(CategoryXrefImpl.class);
+        xrefs.multiselect(xref.get("categoryXrefPK").get("category").get("id"),
+                xref.get("categoryXrefPK").get("subCategory").get("id"));
+        xrefs.orderBy(builder.asc(xref.get("displayOrder")));
+        for (Tuple tuple : em.createQuery(xrefs).getResultList()) {
+            CategoryTreeRow parent = rows.get((Long) tuple.get(0));
+            CategoryTreeRow child = rows.get((Long) tuple.get(1));
+            if (parent != null && child != null) {
+                parent.getChildIds().add(child.getId());
+                child.getParentIds().add(parent.getId());
+            }
+        }
+
+        return new ArrayList<CategoryTreeRow>(rows.values());
+    }
+
+    @Override
+    public List<Long> readProductIdsByCategoryIds(Collection<Long> categoryIds) {
+        Set<Long> productIds = new LinkedHashSet<Long>();
+        List<Long> ids = new ArrayList<Long>(categoryIds);
+        // Keep the IN clause within the limits of every supported database
+        for (int i = 0; i < ids.size(); i += 500) {
+            CriteriaBuilder builder = em.getCriteriaBuilder();
+            CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+            Root<CategoryProductXrefImpl> xref = criteria.from(CategoryProductXrefImpl.class);
+            criteria.select(xref.get("categoryProductXref").get("product").get("id").as(Long.class));
+            criteria.where(xref.get("categoryProductXref").get("category").get("id").in(ids.subList(i, Math.min(i + 500, ids.size()))));
+            productIds.addAll(em.createQuery(criteria).getResultList());
+        }
+        return new ArrayList<Long>(productIds);
+    }
+
 }
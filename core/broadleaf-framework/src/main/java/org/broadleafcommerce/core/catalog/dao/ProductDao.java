@@ -51,6 +51,17 @@ public interface ProductDao {
      */
     public List<Product> readProductsByIds(@Nonnull List<Long> productIds);
 
+    /**
+     * Retrieves a list of Product instances by their primary keys, in the same order as the keys. Products that
+     * are held in the second level cache are read from it and the remainder are read from the database in a single
+     * query. Keys that do not match a product are skipped.
+     * 
+     * @param productIds the ordered list of primary keys for products
+     * @return the list of products specified by the primary keys, in key order
+     */
+    @Nonnull
+    public List<Product> readProductsByIdsInOrder(@Nonnull List<Long> productIds);
+
     /**
      * Persist a {@code Product} instance to the datastore
      *
@@ -212,6 +223,18 @@ public interface ProductDao {
      */
     public List<Product> readAllActiveProducts(int page, int pageSize, Date currentDate);
 
+    /**
+     * Reads the ids of products that are currently active, in ascending id order, starting after the given id.
+     * Unlike {@link #readAllActiveProducts(int, int, Date)}, this method pages by key rather than by offset, so the
+     * cost of reading a page does not grow as the caller moves through the catalog.
+     * 
+     * @param lastId - the last id read by the previous call, or null to start from the beginning
+     * @param pageSize - the maximum number of ids to return
+     * @param currentDate
+     * @return the next page of active product ids
+     */
+    public List<Long> readAllActiveProductIds(Long lastId, int pageSize, Date currentDate);
+
     /**
      * Returns the number of products that are currently active.
      * 
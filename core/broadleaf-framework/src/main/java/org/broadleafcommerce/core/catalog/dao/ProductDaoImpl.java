@@ -33,6 +33,7 @@ import org.springframework.stereotype.Repository;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Resource;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
@@ -49,7 +50,9 @@ import javax.persistence.criteria.Root;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 /**
@@ -98,6 +101,40 @@ public class ProductDaoImpl implements ProductDao {
         return (List<Product>) em.createQuery(criteria).getResultList();
     }
 
+    @Override
+    public List<Product> readProductsByIdsInOrder(List<Long> productIds) {
+        Map<Long, Product> productMap = new HashMap<Long, Product>(productIds.size());
+        List<Long> uncachedIds = new ArrayList<Long>();
+
+        Cache cache = em.getEntityManagerFactory().getCache();
+        for (Long productId : productIds) {
+            Product product = null;
+            if (cache.contains(ProductImpl.class, productId)) {
+                product = em.find(ProductImpl.class, productId);
+            }
+            if (product != null) {
+                productMap.put(productId, product);
+            } else {
+                uncachedIds.add(productId);
+            }
+        }
+
+        if (!uncachedIds.isEmpty()) {
+            for (Product product : readProductsByIds(uncachedIds)) {
+                productMap.put(product.getId(), product);
+            }
+        }
+
+        List<Product> products = new ArrayList<Product>(productIds.size());
+        for (Long productId : productIds) {
+            Product product = productMap.get(productId);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
     @Override
     public List<Product> readProductsByName(String searchName) {
         TypedQuery<Product> query = em.createNamedQuery("BC_READ_PRODUCTS_BY_NAME", Product.class);
@@ -432,6 +469,25 @@ public class ProductDaoImpl implements ProductDao {
         return (List<Product>) em.createQuery(criteria).setFirstResult(firstResult).setMaxResults(pageSize).getResultList();
     }
 
+    @Override
+    public List<Long> readAllActiveProductIds(Long lastId, int pageSize, Date currentDate) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+        Root<ProductImpl> product = criteria.from(ProductImpl.class);
+        Join<Product, Sku> sku = product.join("defaultSku");
+        criteria.select(product.get("id").as(Long.class));
+
+        List<Predicate> restrictions = new ArrayList<Predicate>();
+        attachActiveRestriction(currentDate, product, sku, restrictions);
+        if (lastId != null) {
+            restrictions.add(builder.greaterThan(product.get("id").as(Long.class), lastId));
+        }
+
+        criteria.where(restrictions.toArray(new Predicate[restrictions.size()]));
+        criteria.orderBy(builder.asc(product.get("id")));
+        return em.createQuery(criteria).setMaxResults(pageSize).getResultList();
+    }
+
     @Override
     public List<Product> readAllActiveProducts(Date currentDate) {
         CriteriaQuery<Product> criteria = getCriteriaForActiveProducts(currentDate);
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.catalog.domain;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A flat projection of the position of a single category in the category tree, read without loading the category
+ * entity.
+ * 
+ * @see org.broadleafcommerce.core.catalog.dao.CategoryDao#readCategoryTreeRows()
+ */
+public class CategoryTreeRow {
+
+    protected final Long id;
+    protected Long defaultParentId;
+    protected String urlKey;
+    protected Date activeStartDate;
+    protected Date activeEndDate;
+    protected boolean archived;
+    protected final List<Long> parentIds = new ArrayList<Long>();
+    protected final List<Long> childIds = new ArrayList<Long>();
+
+    public CategoryTreeRow(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getDefaultParentId() {
+        return defaultParentId;
+    }
+
+    public void setDefaultParentId(Long defaultParentId) {
+        this.defaultParentId = defaultParentId;
+    }
+
+    public String getUrlKey() {
+        return urlKey;
+    }
+
+    public void setUrlKey(String urlKey) {
+        this.urlKey = urlKey;
+    }
+
+    public Date getActiveStartDate() {
+        return activeStartDate;
+    }
+
+    public void setActiveStartDate(Date activeStartDate) {
+        this.activeStartDate = activeStartDate;
+    }
+
+    public Date getActiveEndDate() {
+        return activeEndDate;
+    }
+
+    public void setActiveEndDate(Date activeEndDate) {
+        this.activeEndDate = activeEndDate;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
+    /**
+     * @return the ids of the categories this category is a sub category of, as in {@link Category#getAllParentCategories()}
+     */
+    public List<Long> getParentIds() {
+        return parentIds;
+    }
+
+    /**
+     * @return the ids of the sub categories of this category in display order, as in {@link Category#getAllChildCategories()}
+     */
+    public List<Long> getChildIds() {
+        return childIds;
+    }
+
+}
@@ -20,7 +20,6 @@ import org.broadleafcommerce.common.presentation.AdminPresentation;
 import org.broadleafcommerce.common.presentation.RequiredOverride;
 import org.broadleafcommerce.common.presentation.client.SupportedFieldType;
 import org.broadleafcommerce.common.presentation.client.VisibilityEnum;
-import org.broadleafcommerce.core.catalog.service.dynamic.DefaultDynamicSkuPricingInvocationHandler;
 import org.broadleafcommerce.core.catalog.service.dynamic.DynamicSkuPrices;
 import org.broadleafcommerce.core.catalog.service.dynamic.SkuPricingConsiderationContext;
 import org.hibernate.annotations.Cache;
@@ -39,7 +38,6 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 
-import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 
 @Entity
@@ -107,15 +105,8 @@ public class SkuBundleItemImpl implements SkuBundleItem {
         Money returnPrice = null;
         
         if (SkuPricingConsiderationContext.hasDynamicPricing()) {
-            if (dynamicPrices != null) {
-                returnPrice = dynamicPrices.getSalePrice();
-            } else {
-                DefaultDynamicSkuPricingInvocationHandler handler = new DefaultDynamicSkuPricingInvocationHandler(sku);
-                Sku proxy = (Sku) Proxy.newProxyInstance(getClass().getClassLoader(), getClass().getInterfaces(), handler);
-                
-                dynamicPrices = SkuPricingConsiderationContext.getSkuPricingService().getSkuPrices(proxy, SkuPricingConsiderationContext.getSkuPricingConsiderationContext());
-                returnPrice = dynamicPrices.getSalePrice();
-            }
+            dynamicPrices = SkuPricingConsiderationContext.getDynamicSkuPrices(sku);
+            returnPrice = dynamicPrices.getSalePrice();
         } else {
             if (salePrice != null) {
                 returnPrice = new Money(salePrice,Money.defaultCurrency());
@@ -26,7 +26,6 @@ import org.broadleafcommerce.common.presentation.AdminPresentationMapKey;
 import org.broadleafcommerce.common.presentation.client.SupportedFieldType;
 import org.broadleafcommerce.common.presentation.client.VisibilityEnum;
 import org.broadleafcommerce.common.util.DateUtil;
-import org.broadleafcommerce.core.catalog.service.dynamic.DefaultDynamicSkuPricingInvocationHandler;
 import org.broadleafcommerce.core.catalog.service.dynamic.DynamicSkuPrices;
 import org.broadleafcommerce.core.catalog.service.dynamic.SkuPricingConsiderationContext;
 import org.broadleafcommerce.core.inventory.service.type.InventoryType;
@@ -35,6 +34,8 @@ import org.broadleafcommerce.core.media.domain.MediaImpl;
 import org.broadleafcommerce.core.order.domain.FulfillmentOption;
 import org.broadleafcommerce.core.order.domain.FulfillmentOptionImpl;
 import org.broadleafcommerce.core.order.service.type.FulfillmentType;
+import org.broadleafcommerce.core.catalog.service.CatalogCacheInvalidationEntityListener;
+import org.broadleafcommerce.core.search.service.solr.SolrIndexChangeListener;
 import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
@@ -51,6 +52,7 @@ import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -67,7 +69,6 @@ import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import javax.persistence.Transient;
-import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
@@ -96,6 +97,7 @@ import java.util.Map;
 @Inheritance(strategy = InheritanceType.JOINED)
 @Table(name = "BLC_SKU")
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "blStandardElements")
+@EntityListeners(value = { SolrIndexChangeListener.class, CatalogCacheInvalidationEntityListener.class })
 @AdminPresentationClass(friendlyName = "baseSku")
 public class SkuImpl implements Sku {
 
@@ -364,15 +366,8 @@ public class SkuImpl implements Sku {
 
         // TODO:  See if there is a dynamic price for this SKU
         if (SkuPricingConsiderationContext.hasDynamicPricing()) {
-            if (dynamicPrices != null) {
-                returnPrice = dynamicPrices.getSalePrice();
-            } else {
-                DefaultDynamicSkuPricingInvocationHandler handler = new DefaultDynamicSkuPricingInvocationHandler(this);
-                Sku proxy = (Sku) Proxy.newProxyInstance(getClass().getClassLoader(), getClass().getInterfaces(), handler);
-
-                dynamicPrices = SkuPricingConsiderationContext.getSkuPricingService().getSkuPrices(proxy, SkuPricingConsiderationContext.getSkuPricingConsiderationContext());
-                returnPrice = dynamicPrices.getSalePrice();
-            }
+            dynamicPrices = SkuPricingConsiderationContext.getDynamicSkuPrices(this);
+            returnPrice = dynamicPrices.getSalePrice();
         } else {
             if (salePrice != null) {
                 returnPrice = new Money(salePrice, Money.defaultCurrency());
@@ -412,15 +407,8 @@ public class SkuImpl implements Sku {
         Money returnPrice = null;
 
         if (SkuPricingConsiderationContext.hasDynamicPricing()) {
-            if (dynamicPrices != null) {
-                returnPrice = dynamicPrices.getRetailPrice();
-            } else {
-                DefaultDynamicSkuPricingInvocationHandler handler = new DefaultDynamicSkuPricingInvocationHandler(this);
-                Sku proxy = (Sku) Proxy.newProxyInstance(getClass().getClassLoader(), getClass().getInterfaces(), handler);
-
-                dynamicPrices = SkuPricingConsiderationContext.getSkuPricingService().getSkuPrices(proxy, SkuPricingConsiderationContext.getSkuPricingConsiderationContext());
-                returnPrice = dynamicPrices.getRetailPrice();
-            }
+            dynamicPrices = SkuPricingConsiderationContext.getDynamicSkuPrices(this);
+            returnPrice = dynamicPrices.getRetailPrice();
         } else {
             if (retailPrice != null) {
                 returnPrice = new Money(retailPrice, Money.defaultCurrency());
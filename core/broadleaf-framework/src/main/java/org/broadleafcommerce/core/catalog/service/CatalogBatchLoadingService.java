@@ -0,0 +1,65 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.core.catalog.domain.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Loads the associations a view needs for a page of products up front, in a number of queries that depends on
+ * the {@link CatalogPrefetchPlan} rather than on the number of products. Without a prefetch, templates and API
+ * wrappers that walk Product, Sku, Media, ProductAttribute and ProductOption lazily issue one query per product
+ * per association.
+ */
+public interface CatalogBatchLoadingService {
+
+    /**
+     * Reads the products with the given ids, in the order of the ids, and prefetches the associations
+     * described by the named plan. Ids that do not match a product are skipped.
+     *
+     * @param productIds the product ids
+     * @param planName the name of a registered {@link CatalogPrefetchPlan}
+     * @return the products, in the order of the ids
+     */
+    public List<Product> readProductsByIds(List<Long> productIds, String planName);
+
+    /**
+     * Initializes the associations described by the named plan for every product in the collection.
+     * The products must be attached to the current persistence context.
+     *
+     * @param products the products to prefetch
+     * @param planName the name of a registered {@link CatalogPrefetchPlan}
+     * @throws IllegalArgumentException if no plan is registered under the name
+     */
+    public void prefetch(Collection<? extends Product> products, String planName);
+
+    /**
+     * Registers a plan, replacing any plan previously registered under the same name.
+     *
+     * @param plan the plan
+     */
+    public void registerPlan(CatalogPrefetchPlan plan);
+
+    /**
+     * @param planName the name of the plan
+     * @return the plan registered under the name, or null
+     */
+    public CatalogPrefetchPlan getPlan(String planName);
+
+}
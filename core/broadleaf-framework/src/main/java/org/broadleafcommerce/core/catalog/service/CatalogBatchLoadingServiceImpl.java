@@ -0,0 +1,119 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.catalog.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.persistence.EntityConfiguration;
+import org.broadleafcommerce.core.catalog.dao.CatalogBatchLoadingDao;
+import org.broadleafcommerce.core.catalog.dao.ProductDao;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Default {@link CatalogBatchLoadingService}. The {@link CatalogPrefetchPlan#LISTING_TILE},
+ * {@link CatalogPrefetchPlan#PRODUCT_DETAIL}, {@link CatalogPrefetchPlan#PRODUCT_OPTIONS} and
+ * {@link CatalogPrefetchPlan#API_PRODUCT} plans are registered out of the box; additional or replacement plans can be supplied through {@link #setPlans(List)} or
+ * {@link #registerPlan(CatalogPrefetchPlan)}.
+ */
+@Service("blCatalogBatchLoadingService")
+public class CatalogBatchLoadingServiceImpl implements CatalogBatchLoadingService {
+
+    private static final Log LOG = LogFactory.getLog(CatalogBatchLoadingServiceImpl.class);
+
+    @Resource(name = "blCatalogBatchLoadingDao")
+    protected CatalogBatchLoadingDao catalogBatchLoadingDao;
+
+    @Resource(name = "blProductDao")
+    protected ProductDao productDao;
+
+    @Resource(name = "blEntityConfiguration")
+    protected EntityConfiguration entityConfiguration;
+
+    protected final ConcurrentMap<String, CatalogPrefetchPlan> plans = new ConcurrentHashMap<String, CatalogPrefetchPlan>();
+
+    public CatalogBatchLoadingServiceImpl() {
+        registerPlan(new CatalogPrefetchPlan(CatalogPrefetchPlan.LISTING_TILE,
+                "defaultSku.skuMedia",
+                "defaultSku.productOptionValues"));
+        registerPlan(new CatalogPrefetchPlan(CatalogPrefetchPlan.PRODUCT_DETAIL,
+                "defaultSku.skuMedia",
+                "defaultSku.skuAttributes",
+                "defaultSku.productOptionValues",
+                "additionalSkus.skuMedia",
+                "additionalSkus.productOptionValues",
+                "productAttributes",
+                "productOptions.allowedValues",
+                "crossSaleProducts.relatedSaleProduct.defaultSku.skuMedia",
+                "upSaleProducts.relatedSaleProduct.defaultSku.skuMedia"));
+        registerPlan(new CatalogPrefetchPlan(CatalogPrefetchPlan.PRODUCT_OPTIONS,
+                "productOptions.allowedValues",
+                "additionalSkus.productOptionValues"));
+        registerPlan(new CatalogPrefetchPlan(CatalogPrefetchPlan.API_PRODUCT,
+                "defaultSku.skuMedia",
+                "defaultSku.productOptionValues",
+                "productOptions.allowedValues"));
+    }
+
+    @Override
+    public List<Product> readProductsByIds(List<Long> productIds, String planName) {
+        List<Product> products = productDao.readProductsByIdsInOrder(productIds);
+        prefetch(products, planName);
+        return products;
+    }
+
+    @Override
+    public void prefetch(Collection<? extends Product> products, String planName) {
+        CatalogPrefetchPlan plan = plans.get(planName);
+        if (plan == null) {
+            throw new IllegalArgumentException("No catalog prefetch plan is registered under the name " + planName);
+        }
+        if (products == null || products.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int queries = catalogBatchLoadingDao.prefetch(products, entityConfiguration.lookupEntityClass(Product.class.getName()), plan.getPaths());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Prefetched plan " + plan + " for " + products.size() + " products with " + queries + " queries in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    @Override
+    public void registerPlan(CatalogPrefetchPlan plan) {
+        plans.put(plan.getName(), plan);
+    }
+
+    @Override
+    public CatalogPrefetchPlan getPlan(String planName) {
+        return plans.get(planName);
+    }
+
+    public void setPlans(List<CatalogPrefetchPlan> plans) {
+        for (CatalogPrefetchPlan plan : plans) {
+            registerPlan(plan);
+        }
+    }
+
+}
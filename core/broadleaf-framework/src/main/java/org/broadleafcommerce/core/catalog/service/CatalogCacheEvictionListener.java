@@ -0,0 +1,121 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.catalog.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationListener;
+import org.broadleafcommerce.core.catalog.domain.CategoryImpl;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Evicts catalog entities from the second level cache of this node when another node reports that they changed
+ * through the {@link CacheInvalidationBus}. Changes are reported by the {@link CatalogCacheInvalidationEntityListener}.
+ */
+@Component("blCatalogCacheEvictionListener")
+public class CatalogCacheEvictionListener implements CacheInvalidationListener {
+
+    private static final Log LOG = LogFactory.getLog(CatalogCacheEvictionListener.class);
+
+    public static final String CATALOG_CACHE = "blCatalogEntities";
+
+    @PersistenceContext(unitName="blPU")
+    protected EntityManager em;
+
+    @Resource(name="blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
+
+    @PostConstruct
+    public void init() {
+        cacheInvalidationBus.addListener(CATALOG_CACHE, this);
+    }
+
+    @Override
+    public void invalidate(String cacheName, Collection<Serializable> keys) {
+        for (Serializable key : keys) {
+            EntityKey entityKey = (EntityKey) key;
+            try {
+                em.getEntityManagerFactory().getCache().evict(Class.forName(entityKey.getEntityClass()), entityKey.getId());
+            } catch (ClassNotFoundException e) {
+                LOG.warn("Unable to evict an unknown catalog entity from the second level cache: " + entityKey);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        em.getEntityManagerFactory().getCache().evict(ProductImpl.class);
+        em.getEntityManagerFactory().getCache().evict(SkuImpl.class);
+        em.getEntityManagerFactory().getCache().evict(CategoryImpl.class);
+    }
+
+    /**
+     * Identifies a changed catalog entity in a cache invalidation.
+     */
+    public static class EntityKey implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final String entityClass;
+        protected final Long id;
+
+        public EntityKey(String entityClass, Long id) {
+            this.entityClass = entityClass;
+            this.id = id;
+        }
+
+        public String getEntityClass() {
+            return entityClass;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entityClass.hashCode() + (id == null ? 0 : id.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EntityKey)) {
+                return false;
+            }
+            EntityKey other = (EntityKey) obj;
+            return entityClass.equals(other.entityClass) && (id == null ? other.id == null : id.equals(other.id));
+        }
+
+        @Override
+        public String toString() {
+            return entityClass + '#' + id;
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.util.SpringAppContext;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.springframework.context.ApplicationContext;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that reports changed products, skus and categories to the other nodes through the
+ * {@link CacheInvalidationBus}, so that they evict their second level cache copies. New entities are reported as
+ * well, for the benefit of listeners such as the in memory search index. Entity listeners are
+ * instantiated by the persistence provider, so the bus is looked up from the application context on each event.
+ */
+public class CatalogCacheInvalidationEntityListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void invalidateCache(Object entity) {
+        Long id = null;
+        if (entity instanceof Product) {
+            id = ((Product) entity).getId();
+        } else if (entity instanceof Sku) {
+            id = ((Sku) entity).getId();
+        } else if (entity instanceof Category) {
+            id = ((Category) entity).getId();
+        }
+        if (id == null) {
+            return;
+        }
+        ApplicationContext context = SpringAppContext.getApplicationContext();
+        if (context == null || !context.containsBean("blCacheInvalidationBus")) {
+            return;
+        }
+        ((CacheInvalidationBus) context.getBean("blCacheInvalidationBus")).invalidate(CatalogCacheEvictionListener.CATALOG_CACHE,
+                new CatalogCacheEvictionListener.EntityKey(entity.getClass().getName(), id));
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.catalog.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the associations a view navigates from a page of {@link org.broadleafcommerce.core.catalog.domain.Product}s.
+ * Each path is a dot separated chain of mapped property names rooted at the product, such as
+ * <code>defaultSku.skuMedia</code> or <code>productOptions.allowedValues</code>. Paths that share a prefix share
+ * the query that loads it, so a plan costs at most one query per distinct path segment for each batch of
+ * products, regardless of how many products are on the page.
+ */
+public class CatalogPrefetchPlan {
+
+    /**
+     * Product tiles on category and search result pages: default sku media and price adjustments
+     */
+    public static final String LISTING_TILE = "LISTING_TILE";
+
+    /**
+     * The product detail page: every sku, option, attribute and related product tile
+     */
+    public static final String PRODUCT_DETAIL = "PRODUCT_DETAIL";
+
+    /**
+     * The product option selectors: the allowed option values and the option values of each sku
+     */
+    public static final String PRODUCT_OPTIONS = "PRODUCT_OPTIONS";
+
+    /**
+     * The product wrapper produced by the REST catalog API
+     */
+    public static final String API_PRODUCT = "API_PRODUCT";
+
+    protected final String name;
+    protected final List<String> paths;
+
+    public CatalogPrefetchPlan(String name, String... paths) {
+        this(name, Arrays.asList(paths));
+    }
+
+    public CatalogPrefetchPlan(String name, List<String> paths) {
+        if (name == null) {
+            throw new IllegalArgumentException("A prefetch plan requires a name");
+        }
+        for (String path : paths) {
+            if (path == null || path.trim().length() == 0 || path.startsWith(".") || path.endsWith(".") || path.contains("..")) {
+                throw new IllegalArgumentException("Invalid association path (" + path + ") for prefetch plan " + name);
+            }
+        }
+        this.name = name;
+        this.paths = Collections.unmodifiableList(new ArrayList<String>(paths));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    @Override
+    public String toString() {
+        return name + paths;
+    }
+
+}
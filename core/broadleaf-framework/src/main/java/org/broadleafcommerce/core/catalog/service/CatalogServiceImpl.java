@@ -55,6 +55,9 @@ public class CatalogServiceImpl implements CatalogService {
     @Resource(name="blProductOptionDao")
     protected ProductOptionDao productOptionDao;
 
+    @Resource(name="blCategoryTreeService")
+    protected CategoryTreeService categoryTreeService;
+
     @Override
     public Product findProductById(Long productId) {
         return productDao.readProductById(productId);
@@ -227,11 +230,7 @@ public class CatalogServiceImpl implements CatalogService {
 
     @Override
     public Map<String, List<Long>> getChildCategoryURLMapByCategoryId(Long categoryId) {
-        Category category = findCategoryById(categoryId);
-        if (category != null) {
-            return category.getChildCategoryURLMap();
-        }
-        return null;
+        return categoryTreeService.getChildCategoryURLMap(categoryId);
     }
     
     @Override
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.common.util.DateUtil;
+import org.broadleafcommerce.core.catalog.domain.CategoryTreeRow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable snapshot of the category tree together with its closure: the ancestors of every category and,
+ * inverted from them, the descendants of every category. Both are computed once when the snapshot is built, so
+ * hierarchy and subtree lookups never walk the category entities. Child category url maps are computed on first
+ * use and retained for the life of the snapshot.
+ */
+public class CategoryTree {
+
+    protected final Map<Long, CategoryTreeRow> rows = new HashMap<Long, CategoryTreeRow>();
+    protected final Map<Long, List<Long>> fullHierarchies = new HashMap<Long, List<Long>>();
+    protected final Map<Long, List<Long>> defaultHierarchies = new HashMap<Long, List<Long>>();
+    protected final Map<Long, Set<Long>> descendants = new HashMap<Long, Set<Long>>();
+    protected final ConcurrentMap<Long, Map<String, List<Long>>> childCategoryURLMaps = new ConcurrentHashMap<Long, Map<String, List<Long>>>();
+
+    public CategoryTree(List<CategoryTreeRow> categoryRows) {
+        for (CategoryTreeRow row : categoryRows) {
+            rows.put(row.getId(), row);
+        }
+
+        Map<Long, Set<Long>> subtrees = new HashMap<Long, Set<Long>>();
+        for (CategoryTreeRow row : categoryRows) {
+            List<Long> hierarchy = new ArrayList<Long>();
+            hierarchy.add(row.getId());
+            addFullHierarchy(row, new LinkedHashSet<Long>(hierarchy), hierarchy);
+            fullHierarchies.put(row.getId(), Collections.unmodifiableList(hierarchy));
+
+            for (Long ancestorId : hierarchy) {
+                Set<Long> subtree = subtrees.get(ancestorId);
+                if (subtree == null) {
+                    subtree = new LinkedHashSet<Long>();
+                    subtrees.put(ancestorId, subtree);
+                }
+                subtree.add(row.getId());
+            }
+
+            List<Long> defaultHierarchy = new ArrayList<Long>();
+            for (CategoryTreeRow current = row; current != null && !defaultHierarchy.contains(current.getId());
+                    current = current.getDefaultParentId() == null ? null : rows.get(current.getDefaultParentId())) {
+                defaultHierarchy.add(current.getId());
+            }
+            defaultHierarchies.put(row.getId(), Collections.unmodifiableList(defaultHierarchy));
+        }
+        for (Map.Entry<Long, Set<Long>> entry : subtrees.entrySet()) {
+            descendants.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+        }
+    }
+
+    /**
+     * Visits the default parent and then every other parent, depth first, in the same order as
+     * {@link org.broadleafcommerce.core.catalog.domain.Category#buildFullCategoryHierarchy(List)}.
+     */
+    protected void addFullHierarchy(CategoryTreeRow row, Set<Long> visited, List<Long> hierarchy) {
+        List<Long> parentIds = new ArrayList<Long>(row.getParentIds().size() + 1);
+        if (row.getDefaultParentId() != null) {
+            parentIds.add(row.getDefaultParentId());
+        }
+        parentIds.addAll(row.getParentIds());
+        for (Long parentId : parentIds) {
+            CategoryTreeRow parent = rows.get(parentId);
+            if (parent != null && visited.add(parentId)) {
+                hierarchy.add(parentId);
+                addFullHierarchy(parent, visited, hierarchy);
+            }
+        }
+    }
+
+    /**
+     * @return the number of categories in the tree
+     */
+    public int size() {
+        return rows.size();
+    }
+
+    public boolean contains(Long categoryId) {
+        return rows.containsKey(categoryId);
+    }
+
+    /**
+     * @param categoryId
+     * @return the category followed by all of its ancestors through every parent, or an empty list if the category
+     * does not exist
+     */
+    public List<Long> getFullHierarchy(Long categoryId) {
+        List<Long> hierarchy = fullHierarchies.get(categoryId);
+        return hierarchy == null ? Collections.<Long>emptyList() : hierarchy;
+    }
+
+    /**
+     * @param categoryId
+     * @return the category followed by its default parent, its default parent's default parent and so on up to the
+     * root, or an empty list if the category does not exist
+     */
+    public List<Long> getDefaultHierarchy(Long categoryId) {
+        List<Long> hierarchy = defaultHierarchies.get(categoryId);
+        return hierarchy == null ? Collections.<Long>emptyList() : hierarchy;
+    }
+
+    /**
+     * @param categoryId
+     * @return the category and every category below it through any parent, or an empty set if the category does
+     * not exist
+     */
+    public Set<Long> getDescendantIds(Long categoryId) {
+        Set<Long> subtree = descendants.get(categoryId);
+        return subtree == null ? Collections.<Long>emptySet() : subtree;
+    }
+
+    /**
+     * Builds the same map as {@link org.broadleafcommerce.core.catalog.domain.Category#getChildCategoryURLMap()}: the
+     * url path of the category and of each of its active descendants, mapped to the ids of the categories along that
+     * path. Activity is evaluated the first time the map of a category is requested.
+     *
+     * @param categoryId
+     * @return the url map, or null if the category does not exist
+     */
+    public Map<String, List<Long>> getChildCategoryURLMap(Long categoryId) {
+        CategoryTreeRow row = rows.get(categoryId);
+        if (row == null) {
+            return null;
+        }
+        Map<String, List<Long>> urlMap = childCategoryURLMaps.get(categoryId);
+        if (urlMap == null) {
+            urlMap = new HashMap<String, List<Long>>(50);
+            fillInURLMap(urlMap, row, "", new ArrayList<Long>(10));
+            urlMap = Collections.unmodifiableMap(urlMap);
+            childCategoryURLMaps.putIfAbsent(categoryId, urlMap);
+        }
+        return urlMap;
+    }
+
+    protected void fillInURLMap(Map<String, List<Long>> urlMap, CategoryTreeRow row, String startingPath, List<Long> startingCategoryList) {
+        if (row.getUrlKey() == null) {
+            throw new IllegalStateException("Cannot create childCategoryURLMap - the urlKey for a category(" + row.getId() + ") was null");
+        }
+
+        String currentPath = "";
+        if (!"/".equals(row.getUrlKey())) {
+            currentPath = startingPath + "/" + row.getUrlKey();
+        }
+
+        List<Long> categoryList = new ArrayList<Long>(startingCategoryList);
+        categoryList.add(row.getId());
+
+        urlMap.put(currentPath, Collections.unmodifiableList(categoryList));
+        for (Long childId : row.getChildIds()) {
+            CategoryTreeRow child = rows.get(childId);
+            if (child != null && !categoryList.contains(childId) && isActive(child)) {
+                fillInURLMap(urlMap, child, currentPath, categoryList);
+            }
+        }
+    }
+
+    protected boolean isActive(CategoryTreeRow row) {
+        return DateUtil.isActive(row.getActiveStartDate(), row.getActiveEndDate(), true) && !row.isArchived();
+    }
+
+}
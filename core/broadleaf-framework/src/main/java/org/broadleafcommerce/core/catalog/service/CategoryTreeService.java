@@ -0,0 +1,75 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.catalog.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers category hierarchy questions from a precomputed {@link CategoryTree} rather than by walking the category
+ * entities. The tree is replaced as a whole whenever a category changes on any node.
+ */
+public interface CategoryTreeService {
+
+    /**
+     * @return the current snapshot of the category tree, built on first use
+     */
+    public CategoryTree getCategoryTree();
+
+    /**
+     * @param categoryId
+     * @return the ids of the category and all of its ancestors
+     * @see CategoryTree#getFullHierarchy(Long)
+     */
+    public List<Long> getFullHierarchy(Long categoryId);
+
+    /**
+     * @param categoryId
+     * @return the ids of the category and its default parents, ordered from the category up to the root, as used
+     * for breadcrumbs
+     * @see CategoryTree#getDefaultHierarchy(Long)
+     */
+    public List<Long> getDefaultHierarchy(Long categoryId);
+
+    /**
+     * @param categoryId
+     * @return the ids of the category and of every category below it
+     * @see CategoryTree#getDescendantIds(Long)
+     */
+    public Set<Long> getDescendantIds(Long categoryId);
+
+    /**
+     * @param categoryId
+     * @return the url map of the category and its active descendants, or null if the category does not exist
+     * @see CategoryTree#getChildCategoryURLMap(Long)
+     */
+    public Map<String, List<Long>> getChildCategoryURLMap(Long categoryId);
+
+    /**
+     * @param categoryId
+     * @return the ids of the products assigned to the category or to any category below it
+     */
+    public List<Long> findProductIdsInSubtree(Long categoryId);
+
+    /**
+     * Discards the current tree so that it is rebuilt on next use.
+     */
+    public void refresh();
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.catalog.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationListener;
+import org.broadleafcommerce.core.catalog.dao.CategoryDao;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default {@link CategoryTreeService}. The tree is read with two projection queries through
+ * {@link CategoryDao#readCategoryTreeRows()} and published through a volatile field, so readers never block. A
+ * changed category, reported through the {@link CacheInvalidationBus} by the
+ * {@link CatalogCacheInvalidationEntityListener}, discards the tree once the modifying transaction completes; the
+ * next caller builds its replacement.
+ */
+@Service("blCategoryTreeService")
+@ManagedResource(objectName="org.broadleafcommerce:name=CategoryTreeService", description="Category Tree Service", currencyTimeLimit=15)
+public class CategoryTreeServiceImpl implements CategoryTreeService, CacheInvalidationListener {
+
+    private static final Log LOG = LogFactory.getLog(CategoryTreeServiceImpl.class);
+
+    @Resource(name = "blCategoryDao")
+    protected CategoryDao categoryDao;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @Resource(name = "blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
+
+    protected volatile CategoryTree categoryTree;
+    protected final AtomicLong version = new AtomicLong();
+
+    protected final AtomicLong buildCount = new AtomicLong();
+    protected volatile long lastBuildTime;
+
+    @PostConstruct
+    public void init() {
+        cacheInvalidationBus.addListener(CatalogCacheEvictionListener.CATALOG_CACHE, this);
+    }
+
+    @Override
+    public CategoryTree getCategoryTree() {
+        CategoryTree tree = categoryTree;
+        if (tree == null) {
+            synchronized (this) {
+                tree = categoryTree;
+                if (tree == null) {
+                    // A tree read while a refresh was requested may already be stale, so it is used but not published
+                    long currentVersion = version.get();
+                    tree = buildCategoryTree();
+                    if (version.get() == currentVersion) {
+                        categoryTree = tree;
+                    }
+                }
+            }
+        }
+        return tree;
+    }
+
+    protected CategoryTree buildCategoryTree() {
+        long start = System.currentTimeMillis();
+        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+        def.setName("readCategoryTree");
+        def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        def.setReadOnly(true);
+        TransactionStatus status = transactionManager.getTransaction(def);
+        CategoryTree tree;
+        try {
+            tree = new CategoryTree(categoryDao.readCategoryTreeRows());
+        } finally {
+            transactionManager.rollback(status);
+        }
+        buildCount.incrementAndGet();
+        lastBuildTime = System.currentTimeMillis() - start;
+        LOG.debug("Built the category tree of " + tree.size() + " categories in " + lastBuildTime + "ms");
+        return tree;
+    }
+
+    @Override
+    public List<Long> getFullHierarchy(Long categoryId) {
+        return getCategoryTree().getFullHierarchy(categoryId);
+    }
+
+    @Override
+    public List<Long> getDefaultHierarchy(Long categoryId) {
+        return getCategoryTree().getDefaultHierarchy(categoryId);
+    }
+
+    @Override
+    public Set<Long> getDescendantIds(Long categoryId) {
+        return getCategoryTree().getDescendantIds(categoryId);
+    }
+
+    @Override
+    public Map<String, List<Long>> getChildCategoryURLMap(Long categoryId) {
+        return getCategoryTree().getChildCategoryURLMap(categoryId);
+    }
+
+    @Override
+    public List<Long> findProductIdsInSubtree(Long categoryId) {
+        Set<Long> categoryIds = getDescendantIds(categoryId);
+        if (categoryIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return categoryDao.readProductIdsByCategoryIds(categoryIds);
+    }
+
+    @Override
+    @ManagedOperation(description="Discard the category tree so that it is rebuilt on next use")
+    public void refresh() {
+        version.incrementAndGet();
+        categoryTree = null;
+    }
+
+    @Override
+    public void invalidate(String cacheName, Collection<Serializable> keys) {
+        for (Serializable key : keys) {
+            String entityClass = ((CatalogCacheEvictionListener.EntityKey) key).getEntityClass();
+            if (isCategory(entityClass)) {
+                refreshAfterCompletion();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        refreshAfterCompletion();
+    }
+
+    /**
+     * Local invalidations are delivered while the modifying transaction is still open, when a rebuilt tree would not
+     * yet see the change, so the tree is discarded once that transaction completes.
+     */
+    protected void refreshAfterCompletion() {
+        refresh();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    refresh();
+                }
+            });
+        }
+    }
+
+    protected boolean isCategory(String entityClass) {
+        try {
+            return Category.class.isAssignableFrom(Class.forName(entityClass));
+        } catch (ClassNotFoundException e) {
+            return true;
+        }
+    }
+
+    @ManagedAttribute(description="The number of categories in the current tree", currencyTimeLimit=15)
+    public int getCategoryCount() {
+        CategoryTree tree = categoryTree;
+        return tree == null ? 0 : tree.size();
+    }
+
+    @ManagedAttribute(description="The number of times the category tree was built", currencyTimeLimit=15)
+    public long getBuildCount() {
+        return buildCount.get();
+    }
+
+    @ManagedAttribute(description="The time taken by the last build of the category tree in milliseconds", currencyTimeLimit=15)
+    public long getLastBuildTime() {
+        return lastBuildTime;
+    }
+
+    public void setCategoryDao(CategoryDao categoryDao) {
+        this.categoryDao = categoryDao;
+    }
+
+}
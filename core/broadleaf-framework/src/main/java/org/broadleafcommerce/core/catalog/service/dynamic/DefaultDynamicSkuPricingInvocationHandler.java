@@ -16,17 +16,32 @@
 
 package org.broadleafcommerce.core.catalog.service.dynamic;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.springframework.util.ClassUtils;
 
+/**
+ * Presents a {@link Sku} to the {@link DynamicSkuPricingService} with its persisted retail and sale
+ * prices, bypassing the dynamic pricing lookup that would otherwise recurse. The price fields and the
+ * proxy constructor are resolved once per Sku class and cached, so creating a proxy on the request
+ * thread involves no reflective lookups.
+ */
 public class DefaultDynamicSkuPricingInvocationHandler implements InvocationHandler {
 
+    private static final ConcurrentMap<Class<?>, PriceFields> PRICE_FIELDS = new ConcurrentHashMap<Class<?>, PriceFields>();
+    private static final ConcurrentMap<Class<?>, Constructor<?>> PROXY_CONSTRUCTORS = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+
     private Sku delegate;
     private Money retailPrice;
     private Money salePrice;
@@ -34,13 +49,10 @@ public class DefaultDynamicSkuPricingInvocationHandler implements InvocationHand
     public DefaultDynamicSkuPricingInvocationHandler(Sku sku) {
         this.delegate = sku;
         try {
-            Field retail = getSingleField(delegate.getClass(), "retailPrice");
-            retail.setAccessible(true);
-            Object retailVal = retail.get(delegate);
+            PriceFields fields = getPriceFields(delegate.getClass());
+            Object retailVal = fields.retail.get(delegate);
             retailPrice = retailVal==null?null:new Money((BigDecimal) retailVal);
-            Field sale = getSingleField(delegate.getClass(), "salePrice");
-            sale.setAccessible(true);
-            Object saleVal = sale.get(delegate);
+            Object saleVal = fields.sale.get(delegate);
             salePrice = saleVal==null?null:new Money((BigDecimal) saleVal);
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -89,7 +101,60 @@ public class DefaultDynamicSkuPricingInvocationHandler implements InvocationHand
         }
     }
     
-    private Field getSingleField(Class<?> clazz, String fieldName) throws IllegalStateException {
+    /**
+     * Creates a proxy for the given Sku whose retail and sale prices are the persisted values.
+     *
+     * @param sku the Sku to price
+     * @return a proxy implementing every interface of the Sku's class
+     */
+    public static Sku createProxy(Sku sku) {
+        return createProxy(sku, new DefaultDynamicSkuPricingInvocationHandler(sku));
+    }
+
+    /**
+     * Creates a proxy for the given Sku backed by the supplied handler. The proxy class and its
+     * constructor are cached per Sku class.
+     *
+     * @param sku the Sku whose class determines the proxied interfaces
+     * @param handler the handler to back the proxy
+     * @return the proxy
+     */
+    public static Sku createProxy(Sku sku, InvocationHandler handler) {
+        Class<?> clazz = sku.getClass();
+        Constructor<?> constructor = PROXY_CONSTRUCTORS.get(clazz);
+        try {
+            if (constructor == null) {
+                Class<?> proxyClass = Proxy.getProxyClass(clazz.getClassLoader(), ClassUtils.getAllInterfacesForClass(clazz, clazz.getClassLoader()));
+                constructor = proxyClass.getConstructor(InvocationHandler.class);
+                PROXY_CONSTRUCTORS.putIfAbsent(clazz, constructor);
+            }
+            return (Sku) constructor.newInstance(handler);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getTargetException());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected static PriceFields getPriceFields(Class<?> clazz) {
+        PriceFields fields = PRICE_FIELDS.get(clazz);
+        if (fields == null) {
+            fields = new PriceFields(getAccessibleField(clazz, "retailPrice"), getAccessibleField(clazz, "salePrice"));
+            PRICE_FIELDS.putIfAbsent(clazz, fields);
+        }
+        return fields;
+    }
+
+    private static Field getAccessibleField(Class<?> clazz, String fieldName) {
+        Field field = getSingleField(clazz, fieldName);
+        if (field == null) {
+            throw new IllegalStateException("Unable to find the field " + fieldName + " on " + clazz.getName());
+        }
+        field.setAccessible(true);
+        return field;
+    }
+
+    private static Field getSingleField(Class<?> clazz, String fieldName) throws IllegalStateException {
         try {
             return clazz.getDeclaredField(fieldName);
         } catch (NoSuchFieldException nsf) {
@@ -118,4 +183,16 @@ public class DefaultDynamicSkuPricingInvocationHandler implements InvocationHand
         retailPrice = null;
         salePrice = null;
     }
+
+    protected static class PriceFields {
+
+        protected final Field retail;
+        protected final Field sale;
+
+        protected PriceFields(Field retail, Field sale) {
+            this.retail = retail;
+            this.sale = sale;
+        }
+
+    }
 }
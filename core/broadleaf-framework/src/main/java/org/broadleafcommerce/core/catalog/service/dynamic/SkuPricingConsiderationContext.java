@@ -16,9 +16,16 @@
 
 package org.broadleafcommerce.core.catalog.service.dynamic;
 
+import org.broadleafcommerce.core.catalog.domain.Sku;
+
 import java.util.HashMap;
+import java.util.Map;
 
 /**
+ * Holds the pricing considerations and {@link DynamicSkuPricingService} for the current thread. Prices
+ * computed by {@link #getDynamicSkuPrices(Sku)} are memoized per Sku id for as long as the same
+ * considerations and service are in place, so a Sku that is priced several times while rendering a
+ * page only consults the pricing service once.
  * 
  * @author jfischer
  *
@@ -30,6 +37,8 @@ public class SkuPricingConsiderationContext {
     @SuppressWarnings("rawtypes")
     private static final ThreadLocal<HashMap> skuPricingConsiderationContext = new ThreadLocal<HashMap>();
     
+    private static final ThreadLocal<PriceMemo> priceMemo = new ThreadLocal<PriceMemo>();
+    
     @SuppressWarnings("rawtypes")
     public static HashMap getSkuPricingConsiderationContext() {
         return SkuPricingConsiderationContext.skuPricingConsiderationContext.get();
@@ -37,6 +46,7 @@ public class SkuPricingConsiderationContext {
     
     public static void setSkuPricingConsiderationContext(@SuppressWarnings("rawtypes") HashMap skuPricingConsiderationContext) {
         SkuPricingConsiderationContext.skuPricingConsiderationContext.set(skuPricingConsiderationContext);
+        clearPriceMemo();
     }
     
     public static DynamicSkuPricingService getSkuPricingService() {
@@ -45,6 +55,7 @@ public class SkuPricingConsiderationContext {
     
     public static void setSkuPricingService(DynamicSkuPricingService skuPricingService) {
         SkuPricingConsiderationContext.skuPricingService.set(skuPricingService);
+        clearPriceMemo();
     }
     
     public static boolean hasDynamicPricing() {
@@ -54,4 +65,54 @@ public class SkuPricingConsiderationContext {
                     getSkuPricingService() != null
                    ); 
     }
+    
+    /**
+     * Returns the dynamic prices for the given Sku under the current considerations. Results for
+     * persisted Skus are memoized until the considerations or the pricing service change, or until
+     * {@link #clearPriceMemo()} is called (for instance after mutating the considerations map in place).
+     * 
+     * @param sku the Sku to price
+     * @return the prices computed by the current {@link DynamicSkuPricingService}
+     */
+    public static DynamicSkuPrices getDynamicSkuPrices(Sku sku) {
+        @SuppressWarnings("rawtypes")
+        HashMap considerations = getSkuPricingConsiderationContext();
+        DynamicSkuPricingService service = getSkuPricingService();
+        if (sku.getId() == null) {
+            return service.getSkuPrices(DefaultDynamicSkuPricingInvocationHandler.createProxy(sku), considerations);
+        }
+        PriceMemo memo = priceMemo.get();
+        if (memo == null || memo.considerations != considerations || memo.service != service) {
+            memo = new PriceMemo(considerations, service);
+            priceMemo.set(memo);
+        }
+        DynamicSkuPrices prices = memo.prices.get(sku.getId());
+        if (prices == null) {
+            prices = service.getSkuPrices(DefaultDynamicSkuPricingInvocationHandler.createProxy(sku), considerations);
+            memo.prices.put(sku.getId(), prices);
+        }
+        return prices;
+    }
+    
+    /**
+     * Discards the prices memoized for the current thread.
+     */
+    public static void clearPriceMemo() {
+        priceMemo.remove();
+    }
+    
+    private static class PriceMemo {
+        
+        @SuppressWarnings("rawtypes")
+        private final HashMap considerations;
+        private final DynamicSkuPricingService service;
+        private final Map<Long, DynamicSkuPrices> prices = new HashMap<Long, DynamicSkuPrices>();
+        
+        @SuppressWarnings("rawtypes")
+        private PriceMemo(HashMap considerations, DynamicSkuPricingService service) {
+            this.considerations = considerations;
+            this.service = service;
+        }
+        
+    }
 }
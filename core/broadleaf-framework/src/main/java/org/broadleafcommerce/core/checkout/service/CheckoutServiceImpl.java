@@ -20,6 +20,7 @@ import org.broadleafcommerce.common.time.SystemTime;
 import org.broadleafcommerce.core.checkout.service.exception.CheckoutException;
 import org.broadleafcommerce.core.checkout.service.workflow.CheckoutResponse;
 import org.broadleafcommerce.core.checkout.service.workflow.CheckoutSeed;
+import org.broadleafcommerce.core.inventory.service.InventoryReservationService;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.service.OrderService;
 import org.broadleafcommerce.core.payment.domain.PaymentInfo;
@@ -43,6 +44,9 @@ public class CheckoutServiceImpl implements CheckoutService {
     @Resource(name="blOrderService")
     protected OrderService orderService;
 
+    @Resource(name="blInventoryReservationService")
+    protected InventoryReservationService inventoryReservationService;
+
     /* (non-Javadoc)
      * @see org.broadleafcommerce.core.checkout.service.CheckoutService#performCheckout(org.broadleafcommerce.core.order.domain.Order, java.util.Map)
      */
@@ -76,8 +80,10 @@ public class CheckoutServiceImpl implements CheckoutService {
 
             return seed;
         } catch (PricingException e) {
+            releaseInventory(order);
             throw new CheckoutException("Unable to checkout order -- id: " + order.getId(), e, seed);
         } catch (WorkflowException e) {
+            releaseInventory(order);
             Throwable cause = e;
             while (e.getCause() != null) {
                 if (cause.equals(e.getCause())) {
@@ -89,6 +95,15 @@ public class CheckoutServiceImpl implements CheckoutService {
         }
     }
 
+    /**
+     * Releases any inventory reserved by the checkout workflow for an order that failed to check out
+     */
+    protected void releaseInventory(Order order) {
+        if (inventoryReservationService.isEnabled() && order.getId() != null) {
+            inventoryReservationService.releaseReservations(order.getId());
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.broadleafcommerce.core.checkout.service.CheckoutService#performCheckout(org.broadleafcommerce.core.order.domain.Order)
      */
@@ -47,4 +47,17 @@ public interface AvailabilityDao {
     public List<SkuAvailability> readSKUAvailabilityForLocation(List<Long> skuIds, Long locationId, boolean realTime);
 
     public void save(SkuAvailability skuAvailability);
+
+    /**
+     * Subtracts the given quantity from the quantity on hand of the SKU Availability record for the passed in
+     * skuId and locationId (or the record without a location if locationId is null) with a single update
+     * statement, so concurrent decrements are never lost. The record is only updated when its quantity on hand
+     * covers the whole quantity, so stock never goes negative; records without a quantity on hand are not updated.
+     *
+     * @param skuId
+     * @param locationId
+     * @param quantity
+     * @return the number of records updated, 0 if there was not enough stock on hand
+     */
+    public int decrementQuantityOnHand(Long skuId, Long locationId, int quantity);
 }
@@ -63,4 +63,18 @@ public class AvailabilityDaoImpl extends BatchRetrieveDao implements Availabilit
         em.merge(skuAvailability);
     }
 
+    @Override
+    public int decrementQuantityOnHand(Long skuId, Long locationId, int quantity) {
+        Query query;
+        if (locationId == null) {
+            query = em.createNamedQuery("BC_DECREMENT_SKU_QUANTITY_ON_HAND");
+        } else {
+            query = em.createNamedQuery("BC_DECREMENT_SKU_QUANTITY_ON_HAND_FOR_LOCATION");
+            query.setParameter("locationId", locationId);
+        }
+        query.setParameter("skuId", skuId);
+        query.setParameter("quantity", quantity);
+        return query.executeUpdate();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.inventory.service;
+
+import org.broadleafcommerce.core.inventory.service.exception.InventoryUnavailableException;
+import org.broadleafcommerce.core.order.domain.Order;
+
+/**
+ * Reserves inventory for an order (generally the customer's cart) against the quantity available in
+ * {@link org.broadleafcommerce.core.inventory.domain.SkuAvailability}. A reservation holds stock for a limited
+ * time; it is either committed when the order is submitted, at which point the quantity on hand is decremented,
+ * or released (explicitly or by expiring) so that the stock is available again.
+ * 
+ * SKUs without a SkuAvailability record, or whose quantity on hand is null, are not inventory tracked and can
+ * always be reserved.
+ */
+public interface InventoryReservationService {
+
+    /**
+     * @return whether inventory reservations are enabled. When disabled, the checkout workflow does not reserve
+     * or commit inventory.
+     */
+    public boolean isEnabled();
+
+    /**
+     * Reserves an additional quantity of the SKU at the given location for the order.
+     * 
+     * @param orderId
+     * @param skuId
+     * @param locationId the location, or null for the SKU's default availability record
+     * @param quantity
+     * @return whether the quantity could be reserved
+     */
+    public boolean reserveInventory(Long orderId, Long skuId, Long locationId, int quantity);
+
+    /**
+     * Adjusts the reservations held for the order so that they match the quantities of the SKUs currently in
+     * the order. Either every adjustment is made or none of them are.
+     * 
+     * @param order
+     * @throws InventoryUnavailableException if any SKU does not have enough inventory available
+     */
+    public void reserveInventory(Order order) throws InventoryUnavailableException;
+
+    /**
+     * Commits the reservations held for the order, decrementing the quantity on hand of each reserved SKU. When
+     * called within a transaction, the reservations are committed once the transaction commits and released if
+     * it rolls back.
+     * 
+     * @param orderId
+     */
+    public void commitReservations(Long orderId);
+
+    /**
+     * Releases the reservations held for the order
+     * 
+     * @param orderId
+     */
+    public void releaseReservations(Long orderId);
+
+    /**
+     * @param skuId
+     * @param locationId
+     * @return the quantity that can currently be reserved, or null if the SKU is not inventory tracked
+     */
+    public Integer getAvailableQuantity(Long skuId, Long locationId);
+
+    /**
+     * Releases the reservations that have not been renewed within the reservation time to live
+     * 
+     * @return the number of orders whose reservations were released
+     */
+    public int expireReservations();
+
+    /**
+     * Writes the committed quantities to the database. A quantity that is larger than what is left on hand is not
+     * written; it is logged as a shortfall instead.
+     * 
+     * @return the number of SKU/location records updated
+     */
+    public int flush();
+
+    /**
+     * Reloads the quantity on hand of the SKUs currently being reserved from the database, picking up the
+     * quantities written by other nodes
+     * 
+     * @return the number of SKU/location records whose quantity on hand changed
+     */
+    public int reconcile();
+
+}
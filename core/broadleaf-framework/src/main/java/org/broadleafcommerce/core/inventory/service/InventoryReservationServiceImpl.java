@@ -0,0 +1,728 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.inventory.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.core.inventory.dao.AvailabilityDao;
+import org.broadleafcommerce.core.inventory.domain.SkuAvailability;
+import org.broadleafcommerce.core.inventory.service.exception.InventoryUnavailableException;
+import org.broadleafcommerce.core.order.domain.BundleOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderItem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+/**
+ * Default {@link InventoryReservationService}. The stock available for each SKU and location is tracked by an
+ * in-memory counter that is loaded from its {@link SkuAvailability} record on first use. Counters are guarded by
+ * a fixed set of striped locks, so reservations for different SKUs rarely contend and a reservation never waits
+ * on a database row lock.
+ * 
+ * Committed quantities are written behind: a single background thread applies them to the database every
+ * <code>inventory.reservation.flushInterval</code> milliseconds, in one transaction, using relative updates
+ * (see {@link AvailabilityDao#decrementQuantityOnHand(Long, Long, int)}). Once a counter has no outstanding
+ * reservations or unwritten quantities it is discarded, so that it is reloaded with the current quantity on
+ * hand the next time it is used. Reservations are disabled unless <code>inventory.reservation.enabled</code>
+ * is set.
+ * 
+ * The counters are local to this JVM, so the guarantee that stock is never oversold only holds for a single node.
+ * When several nodes sell the same SKU, each one only sees the quantities the others have already written, which
+ * is refreshed by {@link #reconcile()} after every flush. The decrement is guarded so the quantity on hand never
+ * goes negative; a decrement that does not fit is reported as a shortfall rather than written.
+ */
+@Service("blInventoryReservationService")
+@ManagedResource(objectName="org.broadleafcommerce:name=InventoryReservationService", description="Inventory Reservation Service", currencyTimeLimit=15)
+public class InventoryReservationServiceImpl implements InventoryReservationService {
+
+    private static final Log LOG = LogFactory.getLog(InventoryReservationServiceImpl.class);
+
+    protected static final int STRIPES = 64;
+
+    @Value("${inventory.reservation.enabled}")
+    protected boolean enabled = false;
+
+    /**
+     * The time in milliseconds a reservation is held after it was last adjusted
+     */
+    @Value("${inventory.reservation.timeToLive}")
+    protected long reservationTimeToLive = 900000L;
+
+    @Value("${inventory.reservation.flushInterval}")
+    protected long flushInterval = 5000L;
+
+    @Resource(name = "blAvailabilityDao")
+    protected AvailabilityDao availabilityDao;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    protected final Object[] locks = new Object[STRIPES];
+    protected final ConcurrentMap<StockKey, StockCounter> counters = new ConcurrentHashMap<StockKey, StockCounter>();
+    protected final ConcurrentMap<Long, CartReservation> reservations = new ConcurrentHashMap<Long, CartReservation>();
+    protected final Object flushLock = new Object();
+
+    protected ScheduledExecutorService scheduler;
+
+    protected final AtomicLong reservedCount = new AtomicLong();
+    protected final AtomicLong rejectedCount = new AtomicLong();
+    protected final AtomicLong committedCount = new AtomicLong();
+    protected final AtomicLong releasedCount = new AtomicLong();
+    protected final AtomicLong expiredCount = new AtomicLong();
+    protected final AtomicLong flushedQuantity = new AtomicLong();
+    protected final AtomicLong flushFailureCount = new AtomicLong();
+    protected final AtomicLong shortfallCount = new AtomicLong();
+
+    public InventoryReservationServiceImpl() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || flushInterval <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "blInventoryReservationWriter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    expireReservations();
+                    flush();
+                    reconcile();
+                } catch (Exception e) {
+                    LOG.error("Unable to write the committed inventory reservations. They will be retried.", e);
+                }
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            flush();
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description="Whether inventory is reserved during checkout", currencyTimeLimit=15)
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean reserveInventory(Long orderId, Long skuId, Long locationId, int quantity) {
+        if (quantity <= 0) {
+            return true;
+        }
+        StockKey key = new StockKey(skuId, locationId);
+        if (!tryReserve(key, quantity)) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        while (true) {
+            CartReservation reservation = getReservation(orderId);
+            synchronized (reservation) {
+                if (!reservation.closed) {
+                    reservation.add(key, quantity);
+                    reservation.renew(SystemTime.asMillis() + reservationTimeToLive);
+                    reservedCount.incrementAndGet();
+                    return true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reserveInventory(Order order) throws InventoryUnavailableException {
+        if (order.getId() == null) {
+            throw new IllegalArgumentException("The order must be saved before inventory can be reserved for it");
+        }
+        Map<StockKey, Integer> required = gatherQuantities(order);
+        while (true) {
+            CartReservation reservation = getReservation(order.getId());
+            synchronized (reservation) {
+                if (reservation.closed) {
+                    continue;
+                }
+                Set<StockKey> keys = new HashSet<StockKey>(required.keySet());
+                keys.addAll(reservation.quantities.keySet());
+
+                Map<StockKey, Integer> added = new HashMap<StockKey, Integer>();
+                for (StockKey key : keys) {
+                    int delta = getQuantity(required, key) - getQuantity(reservation.quantities, key);
+                    if (delta > 0) {
+                        if (!tryReserve(key, delta)) {
+                            for (Map.Entry<StockKey, Integer> entry : added.entrySet()) {
+                                unreserve(entry.getKey(), entry.getValue());
+                            }
+                            rejectedCount.incrementAndGet();
+                            Integer available = getAvailableQuantity(key.skuId, key.locationId);
+                            throw new InventoryUnavailableException("Not enough inventory is available for sku (id=" + key.skuId
+                                    + "): requested " + getQuantity(required, key) + ", available " + available, key.skuId,
+                                    getQuantity(required, key), available);
+                        }
+                        added.put(key, delta);
+                    }
+                }
+                for (StockKey key : keys) {
+                    int delta = getQuantity(required, key) - getQuantity(reservation.quantities, key);
+                    if (delta < 0) {
+                        unreserve(key, -delta);
+                    }
+                }
+                reservation.quantities.clear();
+                reservation.quantities.putAll(required);
+                reservation.renew(SystemTime.asMillis() + reservationTimeToLive);
+                reservedCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void commitReservations(final Long orderId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        doCommitReservations(orderId);
+                    } else {
+                        releaseReservations(orderId);
+                    }
+                }
+            });
+        } else {
+            doCommitReservations(orderId);
+        }
+    }
+
+    protected void doCommitReservations(Long orderId) {
+        Map<StockKey, Integer> quantities = closeReservation(orderId, null);
+        if (quantities == null) {
+            return;
+        }
+        for (Map.Entry<StockKey, Integer> entry : quantities.entrySet()) {
+            StockKey key = entry.getKey();
+            synchronized (lockFor(key)) {
+                StockCounter counter = counters.get(key);
+                counter.reserved -= entry.getValue();
+                if (counter.unlimited) {
+                    // there is no quantity on hand to decrement
+                    if (counter.isIdle()) {
+                        counters.remove(key);
+                    }
+                } else {
+                    counter.pending += entry.getValue();
+                }
+            }
+        }
+        committedCount.incrementAndGet();
+    }
+
+    @Override
+    public void releaseReservations(Long orderId) {
+        Map<StockKey, Integer> quantities = closeReservation(orderId, null);
+        if (quantities != null) {
+            release(quantities);
+            releasedCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Integer getAvailableQuantity(Long skuId, Long locationId) {
+        StockKey key = new StockKey(skuId, locationId);
+        StockCounter counter = counters.get(key);
+        if (counter == null) {
+            counter = loadCounter(key);
+        }
+        synchronized (lockFor(key)) {
+            StockCounter current = counters.get(key);
+            if (current != null) {
+                counter = current;
+            }
+            return counter.unlimited ? null : counter.getAvailable();
+        }
+    }
+
+    @Override
+    @ManagedOperation(description="Release the reservations that have expired")
+    public int expireReservations() {
+        long now = SystemTime.asMillis();
+        int expired = 0;
+        for (Map.Entry<Long, CartReservation> entry : reservations.entrySet()) {
+            if (entry.getValue().expiresAt < now) {
+                Map<StockKey, Integer> quantities = closeReservation(entry.getKey(), now);
+                if (quantities != null) {
+                    release(quantities);
+                    expired++;
+                }
+            }
+        }
+        if (expired > 0) {
+            expiredCount.addAndGet(expired);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Released " + expired + " expired inventory reservations");
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    @ManagedOperation(description="Write the committed inventory reservations to the database")
+    public int flush() {
+        synchronized (flushLock) {
+            Map<StockKey, Integer> batch = new HashMap<StockKey, Integer>();
+            for (Map.Entry<StockKey, StockCounter> entry : counters.entrySet()) {
+                synchronized (lockFor(entry.getKey())) {
+                    StockCounter counter = entry.getValue();
+                    if (counter.pending > 0) {
+                        batch.put(entry.getKey(), counter.pending);
+                        counter.flushing += counter.pending;
+                        counter.pending = 0;
+                    }
+                }
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            boolean success = false;
+            Set<StockKey> shortfalls = Collections.emptySet();
+            try {
+                shortfalls = writeQuantities(batch);
+                success = true;
+            } catch (RuntimeException e) {
+                flushFailureCount.incrementAndGet();
+                LOG.error("Unable to write " + batch.size() + " committed inventory reservations. They will be retried.", e);
+            }
+
+            for (Map.Entry<StockKey, Integer> entry : batch.entrySet()) {
+                StockKey key = entry.getKey();
+                synchronized (lockFor(key)) {
+                    StockCounter counter = counters.get(key);
+                    counter.flushing -= entry.getValue();
+                    if (!success) {
+                        counter.pending += entry.getValue();
+                    } else if (shortfalls.contains(key)) {
+                        // the quantity is dropped; reconcile picks up what is actually left on hand
+                        shortfallCount.incrementAndGet();
+                        LOG.error("Not enough inventory was on hand to decrement sku (id=" + key.skuId + ", location="
+                                + key.locationId + ") by " + entry.getValue() + ". The committed orders were oversold.");
+                    } else {
+                        counter.onHand -= entry.getValue();
+                        flushedQuantity.addAndGet(entry.getValue());
+                        if (counter.isIdle()) {
+                            counters.remove(key);
+                        }
+                    }
+                }
+            }
+            if (!success) {
+                return 0;
+            }
+            if (!shortfalls.isEmpty()) {
+                reconcile(shortfalls);
+            }
+            return batch.size() - shortfalls.size();
+        }
+    }
+
+    @Override
+    @ManagedOperation(description="Reload the quantity on hand of the counters in use from the database")
+    public int reconcile() {
+        return reconcile(new ArrayList<StockKey>(counters.keySet()));
+    }
+
+    /**
+     * Replaces the quantity on hand of each counter with the value currently in the database. This runs under the
+     * flush lock, so none of the quantities it reads are in the middle of being written.
+     * 
+     * @return the number of counters whose quantity on hand changed
+     */
+    protected int reconcile(Collection<StockKey> keys) {
+        synchronized (flushLock) {
+            Map<Long, List<Long>> skuIdsByLocation = new HashMap<Long, List<Long>>();
+            for (StockKey key : keys) {
+                List<Long> skuIds = skuIdsByLocation.get(key.locationId);
+                if (skuIds == null) {
+                    skuIds = new ArrayList<Long>();
+                    skuIdsByLocation.put(key.locationId, skuIds);
+                }
+                skuIds.add(key.skuId);
+            }
+            int changed = 0;
+            for (Map.Entry<Long, List<Long>> entry : skuIdsByLocation.entrySet()) {
+                Map<Long, Integer> available = readAvailableQuantities(entry.getValue(), entry.getKey());
+                for (Long skuId : entry.getValue()) {
+                    StockKey key = new StockKey(skuId, entry.getKey());
+                    Integer onHand = available.get(skuId);
+                    synchronized (lockFor(key)) {
+                        StockCounter counter = counters.get(key);
+                        if (counter != null && !counter.unlimited && onHand != null && counter.onHand != onHand) {
+                            counter.onHand = onHand;
+                            changed++;
+                        }
+                    }
+                }
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * @return the keys whose quantity on hand could not be decremented because not enough was left
+     */
+    protected Set<StockKey> writeQuantities(Map<StockKey, Integer> batch) {
+        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+        def.setName("writeInventoryReservations");
+        def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Set<StockKey> shortfalls = new HashSet<StockKey>();
+        TransactionStatus status = transactionManager.getTransaction(def);
+        try {
+            for (Map.Entry<StockKey, Integer> entry : batch.entrySet()) {
+                if (availabilityDao.decrementQuantityOnHand(entry.getKey().skuId, entry.getKey().locationId, entry.getValue()) == 0) {
+                    shortfalls.add(entry.getKey());
+                }
+            }
+        } catch (RuntimeException e) {
+            transactionManager.rollback(status);
+            throw e;
+        }
+        transactionManager.commit(status);
+        return shortfalls;
+    }
+
+    /**
+     * Reserves the quantity against the counter for the key if enough stock is available. The counter is loaded
+     * outside of the stripe lock so that a database read never holds up other reservations.
+     */
+    protected boolean tryReserve(StockKey key, int quantity) {
+        StockCounter loaded = null;
+        if (!counters.containsKey(key)) {
+            loaded = loadCounter(key);
+        }
+        synchronized (lockFor(key)) {
+            StockCounter counter = counters.get(key);
+            if (counter == null) {
+                counter = loaded == null ? loadCounter(key) : loaded;
+                counters.put(key, counter);
+            }
+            if (!counter.unlimited && counter.getAvailable() < quantity) {
+                return false;
+            }
+            counter.reserved += quantity;
+            return true;
+        }
+    }
+
+    protected void unreserve(StockKey key, int quantity) {
+        synchronized (lockFor(key)) {
+            StockCounter counter = counters.get(key);
+            counter.reserved -= quantity;
+            if (counter.isIdle()) {
+                counters.remove(key);
+            }
+        }
+    }
+
+    protected void release(Map<StockKey, Integer> quantities) {
+        for (Map.Entry<StockKey, Integer> entry : quantities.entrySet()) {
+            unreserve(entry.getKey(), entry.getValue());
+        }
+    }
+
+    protected StockCounter loadCounter(StockKey key) {
+        return new StockCounter(readAvailableQuantities(Collections.singletonList(key.skuId), key.locationId).get(key.skuId));
+    }
+
+    /**
+     * @return the available quantity of each SKU that is inventory tracked at the location, keyed by SKU id
+     */
+    protected Map<Long, Integer> readAvailableQuantities(List<Long> skuIds, Long locationId) {
+        List<SkuAvailability> availabilities;
+        if (locationId == null) {
+            availabilities = availabilityDao.readSKUAvailability(skuIds, true);
+        } else {
+            availabilities = availabilityDao.readSKUAvailabilityForLocation(skuIds, locationId, true);
+        }
+        Map<Long, Integer> available = new HashMap<Long, Integer>();
+        if (availabilities != null) {
+            for (SkuAvailability availability : availabilities) {
+                if (availability.getAvailableQuantity() != null) {
+                    available.put(availability.getSkuId(), availability.getAvailableQuantity());
+                }
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Marks the reservation for the order as closed and removes it. If expiredBefore is not null, the reservation
+     * is only closed if it has not been renewed since then.
+     * 
+     * @return the reserved quantities, or null if there was no reservation to close
+     */
+    protected Map<StockKey, Integer> closeReservation(Long orderId, Long expiredBefore) {
+        CartReservation reservation = reservations.get(orderId);
+        if (reservation == null) {
+            return null;
+        }
+        synchronized (reservation) {
+            if (reservation.closed || (expiredBefore != null && reservation.expiresAt >= expiredBefore)) {
+                return null;
+            }
+            reservation.closed = true;
+            reservations.remove(orderId, reservation);
+            return reservation.quantities;
+        }
+    }
+
+    protected CartReservation getReservation(Long orderId) {
+        CartReservation reservation = reservations.get(orderId);
+        if (reservation == null) {
+            CartReservation created = new CartReservation();
+            reservation = reservations.putIfAbsent(orderId, created);
+            if (reservation == null) {
+                reservation = created;
+            }
+        }
+        return reservation;
+    }
+
+    protected Map<StockKey, Integer> gatherQuantities(Order order) {
+        Map<StockKey, Integer> quantities = new HashMap<StockKey, Integer>();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            if (orderItem instanceof BundleOrderItem) {
+                for (DiscreteOrderItem discreteItem : ((BundleOrderItem) orderItem).getDiscreteOrderItems()) {
+                    addQuantity(quantities, discreteItem, discreteItem.getQuantity() * orderItem.getQuantity());
+                }
+            } else if (orderItem instanceof DiscreteOrderItem) {
+                addQuantity(quantities, (DiscreteOrderItem) orderItem, orderItem.getQuantity());
+            }
+        }
+        return quantities;
+    }
+
+    protected void addQuantity(Map<StockKey, Integer> quantities, DiscreteOrderItem item, int quantity) {
+        if (item.getSku() == null || quantity <= 0) {
+            return;
+        }
+        StockKey key = new StockKey(item.getSku().getId(), null);
+        quantities.put(key, getQuantity(quantities, key) + quantity);
+    }
+
+    protected int getQuantity(Map<StockKey, Integer> quantities, StockKey key) {
+        Integer quantity = quantities.get(key);
+        return quantity == null ? 0 : quantity;
+    }
+
+    protected Object lockFor(StockKey key) {
+        return locks[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    @ManagedAttribute(description="The number of successful reservations", currencyTimeLimit=15)
+    public long getReservedCount() {
+        return reservedCount.get();
+    }
+
+    @ManagedAttribute(description="The number of reservations rejected for lack of inventory", currencyTimeLimit=15)
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @ManagedAttribute(description="The number of orders whose reservations were committed", currencyTimeLimit=15)
+    public long getCommittedCount() {
+        return committedCount.get();
+    }
+
+    @ManagedAttribute(description="The number of orders whose reservations were released", currencyTimeLimit=15)
+    public long getReleasedCount() {
+        return releasedCount.get();
+    }
+
+    @ManagedAttribute(description="The number of orders whose reservations expired", currencyTimeLimit=15)
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    @ManagedAttribute(description="The total quantity written to the database", currencyTimeLimit=15)
+    public long getFlushedQuantity() {
+        return flushedQuantity.get();
+    }
+
+    @ManagedAttribute(description="The number of failed writes to the database", currencyTimeLimit=15)
+    public long getFlushFailureCount() {
+        return flushFailureCount.get();
+    }
+
+    @ManagedAttribute(description="The number of decrements that did not fit the quantity on hand", currencyTimeLimit=15)
+    public long getShortfallCount() {
+        return shortfallCount.get();
+    }
+
+    @ManagedAttribute(description="The number of orders currently holding reservations", currencyTimeLimit=15)
+    public int getReservationCount() {
+        return reservations.size();
+    }
+
+    @ManagedAttribute(description="The number of SKU/location counters currently held in memory", currencyTimeLimit=15)
+    public int getCounterCount() {
+        return counters.size();
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setReservationTimeToLive(long reservationTimeToLive) {
+        this.reservationTimeToLive = reservationTimeToLive;
+    }
+
+    public void setAvailabilityDao(AvailabilityDao availabilityDao) {
+        this.availabilityDao = availabilityDao;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    protected static class StockKey {
+
+        protected final Long skuId;
+        protected final Long locationId;
+
+        public StockKey(Long skuId, Long locationId) {
+            this.skuId = skuId;
+            this.locationId = locationId;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((locationId == null) ? 0 : locationId.hashCode());
+            result = prime * result + ((skuId == null) ? 0 : skuId.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof StockKey)) {
+                return false;
+            }
+            StockKey other = (StockKey) obj;
+            return (skuId == null ? other.skuId == null : skuId.equals(other.skuId))
+                    && (locationId == null ? other.locationId == null : locationId.equals(other.locationId));
+        }
+
+    }
+
+    /**
+     * The stock position of a SKU at a location. Guarded by the stripe lock for its key.
+     */
+    protected static class StockCounter {
+
+        protected final boolean unlimited;
+        protected int onHand;
+        protected int reserved;
+        protected int pending;
+        protected int flushing;
+
+        public StockCounter(Integer available) {
+            this.unlimited = available == null;
+            this.onHand = available == null ? 0 : available;
+        }
+
+        public int getAvailable() {
+            return onHand - reserved - pending - flushing;
+        }
+
+        public boolean isIdle() {
+            return reserved == 0 && pending == 0 && flushing == 0;
+        }
+
+    }
+
+    /**
+     * The quantities reserved for an order. Guarded by its own monitor.
+     */
+    protected static class CartReservation {
+
+        protected final Map<StockKey, Integer> quantities = new HashMap<StockKey, Integer>();
+        protected volatile long expiresAt;
+        protected boolean closed;
+
+        public void add(StockKey key, int quantity) {
+            Integer existing = quantities.get(key);
+            quantities.put(key, existing == null ? quantity : existing + quantity);
+        }
+
+        public void renew(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.inventory.service.exception;
+
+import org.broadleafcommerce.core.checkout.service.exception.CheckoutException;
+import org.broadleafcommerce.core.checkout.service.workflow.CheckoutSeed;
+
+/**
+ * Thrown when there is not enough inventory available to reserve the quantity requested for a SKU
+ */
+public class InventoryUnavailableException extends CheckoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    protected Long skuId;
+    protected Integer requestedQuantity;
+    protected Integer availableQuantity;
+
+    public InventoryUnavailableException() {
+        super();
+    }
+
+    public InventoryUnavailableException(String message) {
+        super(message, null);
+    }
+
+    public InventoryUnavailableException(String message, CheckoutSeed seed) {
+        super(message, seed);
+    }
+
+    public InventoryUnavailableException(String message, Long skuId, Integer requestedQuantity, Integer availableQuantity) {
+        super(message, null);
+        this.skuId = skuId;
+        this.requestedQuantity = requestedQuantity;
+        this.availableQuantity = availableQuantity;
+    }
+
+    public Long getSkuId() {
+        return skuId;
+    }
+
+    public Integer getRequestedQuantity() {
+        return requestedQuantity;
+    }
+
+    public Integer getAvailableQuantity() {
+        return availableQuantity;
+    }
+
+}
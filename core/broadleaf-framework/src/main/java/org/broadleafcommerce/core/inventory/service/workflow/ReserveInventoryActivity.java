@@ -0,0 +1,49 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.inventory.service.workflow;
+
+import org.broadleafcommerce.core.checkout.service.workflow.CheckoutContext;
+import org.broadleafcommerce.core.checkout.service.workflow.CheckoutSeed;
+import org.broadleafcommerce.core.inventory.service.InventoryReservationService;
+import org.broadleafcommerce.core.workflow.BaseActivity;
+import org.broadleafcommerce.core.workflow.ConditionalActivity;
+import org.broadleafcommerce.core.workflow.ProcessContext;
+
+import javax.annotation.Resource;
+
+/**
+ * Reserves the inventory for every SKU in the order being checked out, failing the checkout with an
+ * {@link org.broadleafcommerce.core.inventory.service.exception.InventoryUnavailableException} if any of them
+ * are not available. Only executes when inventory reservations are enabled.
+ */
+public class ReserveInventoryActivity extends BaseActivity implements ConditionalActivity {
+
+    @Resource(name = "blInventoryReservationService")
+    protected InventoryReservationService inventoryReservationService;
+
+    @Override
+    public boolean shouldExecute(ProcessContext context) {
+        return inventoryReservationService.isEnabled();
+    }
+
+    public ProcessContext execute(ProcessContext context) throws Exception {
+        CheckoutSeed seed = ((CheckoutContext) context).getSeedData();
+        inventoryReservationService.reserveInventory(seed.getOrder());
+        return context;
+    }
+
+}
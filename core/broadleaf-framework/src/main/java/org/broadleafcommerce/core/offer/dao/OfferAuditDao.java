@@ -18,6 +18,9 @@ package org.broadleafcommerce.core.offer.dao;
 
 import org.broadleafcommerce.core.offer.domain.OfferAudit;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface OfferAuditDao {
     public OfferAudit readAuditById(Long offerAuditId);
     
@@ -28,4 +31,20 @@ public interface OfferAuditDao {
     public OfferAudit create();
     
     public Long countUsesByCustomer(Long customerId, Long offerId);
+
+    /**
+     * Counts the uses of each of the offers by the customer in a single grouped query.
+     *
+     * @param customerId the customer
+     * @param offerIds the offers to count
+     * @return the number of uses keyed by offer id. Offers the customer has not used are absent from the map.
+     */
+    public Map<Long, Long> countUsesByCustomer(Long customerId, Collection<Long> offerIds);
+
+    /**
+     * Persists the new audits together so that they can be written in a single JDBC batch.
+     *
+     * @param offerAudits the audits to insert
+     */
+    public void saveAll(Collection<OfferAudit> offerAudits);
 }
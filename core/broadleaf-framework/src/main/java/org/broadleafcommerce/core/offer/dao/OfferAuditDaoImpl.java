@@ -24,10 +24,15 @@ import org.springframework.stereotype.Repository;
 import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Repository("blOfferAuditDao")
 public class OfferAuditDaoImpl implements OfferAuditDao {
@@ -61,9 +66,9 @@ public class OfferAuditDaoImpl implements OfferAuditDao {
     public Long countUsesByCustomer(Long customerId, Long offerId) {
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        cq.select(cb.count(cq.from(OfferAuditImpl.class)));
-
         Root<OfferAuditImpl> from = cq.from(OfferAuditImpl.class);
+        cq.select(cb.count(from));
+
         Predicate customerIdClause = cb.equal(from.get("customerId"),customerId);
         
         Predicate offerIdClause = cb.equal(from.get("offerId"), offerId);
@@ -73,4 +78,29 @@ public class OfferAuditDaoImpl implements OfferAuditDao {
         return result;
     }
 
+    @SuppressWarnings("unchecked")
+    public Map<Long, Long> countUsesByCustomer(Long customerId, Collection<Long> offerIds) {
+        Map<Long, Long> uses = new HashMap<Long, Long>();
+        if (customerId == null || offerIds == null || offerIds.isEmpty()) {
+            return uses;
+        }
+        Query query = em.createNamedQuery("BC_COUNT_OFFER_USES_BY_CUSTOMER");
+        query.setParameter("customerId", customerId);
+        query.setParameter("offerIds", offerIds);
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            uses.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return uses;
+    }
+
+    public void saveAll(Collection<OfferAudit> offerAudits) {
+        for (OfferAudit offerAudit : offerAudits) {
+            if (offerAudit.getId() == null) {
+                em.persist(offerAudit);
+            } else {
+                em.merge(offerAudit);
+            }
+        }
+    }
+
 }
@@ -33,8 +33,19 @@ public interface OfferDao {
 
     Offer readOfferById(Long offerId);
 
+    /**
+     * Reads the offers with the given ids in a single query. Ids that do not match an offer are ignored and the
+     * order of the result is not defined.
+     *
+     * @param offerIds
+     * @return the offers
+     */
+    List<Offer> readOffersByIds(List<Long> offerIds);
+
     List<Offer> readOffersByAutomaticDeliveryType();
 
+    List<Offer> readUnexpiredOffersByAutomaticDeliveryType();
+
     Offer save(Offer offer);
 
     void delete(Offer offer);
@@ -34,6 +34,8 @@ import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
 import java.util.List;
 
 @Repository("blOfferDao")
@@ -117,4 +119,19 @@ public class OfferDaoImpl implements OfferDao {
         return result;
     }
 
+    public List<Offer> readOffersByIds(List<Long> offerIds) {
+        if (offerIds == null || offerIds.isEmpty()) {
+            return new ArrayList<Offer>();
+        }
+        TypedQuery<Offer> query = em.createNamedQuery("BC_READ_OFFERS_BY_IDS", Offer.class);
+        query.setParameter("offerIds", offerIds);
+        return query.getResultList();
+    }
+
+    public List<Offer> readUnexpiredOffersByAutomaticDeliveryType() {
+        TypedQuery<Offer> query = em.createNamedQuery("BC_READ_UNEXPIRED_OFFERS_BY_AUTOMATIC_DELIVERY_TYPE", Offer.class);
+        query.setParameter("specifiedDate", SystemTime.asDate());
+        return query.getResultList();
+    }
+
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.offer.service;
+
+import org.broadleafcommerce.core.offer.domain.OfferAudit;
+import org.broadleafcommerce.core.order.domain.Order;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and records the per customer usage of offers that limit the number of times a customer may use them.
+ * Usage counts are cached per customer and kept current as uses are recorded, so verifying the offers on an
+ * order does not require a query per offer.
+ */
+public interface OfferAuditService {
+
+    public static final String CACHE_NAME = "blOfferUsage";
+
+    /**
+     * Returns the number of times the customer has used each of the offers.
+     *
+     * @param customerId the customer
+     * @param offerIds the offers to count
+     * @return the number of uses keyed by offer id. Every requested offer is present in the map.
+     */
+    public Map<Long, Long> readUsesByCustomer(Long customerId, Collection<Long> offerIds);
+
+    /**
+     * Returns the number of times the customer has used each of the offers, counted from the audits rather
+     * than the cache. The cached counts of other nodes can trail uses recorded elsewhere in the cluster, so
+     * this is the read to make when enforcing the maximum uses of an offer at checkout.
+     *
+     * @param customerId the customer
+     * @param offerIds the offers to count
+     * @return the number of uses keyed by offer id. Every requested offer is present in the map.
+     */
+    public Map<Long, Long> readCurrentUsesByCustomer(Long customerId, Collection<Long> offerIds);
+
+    /**
+     * Records a use of each offer by the customer on the order. The audits are inserted together and the
+     * cached usage counts of the customer are updated once the surrounding transaction commits.
+     *
+     * @param order the order the offers were applied to
+     * @param offerIds the offers that were applied
+     * @return the audits that were saved
+     */
+    public List<OfferAudit> recordUses(Order order, Collection<Long> offerIds);
+
+    /**
+     * Discards all cached usage counts.
+     */
+    public void clearCache();
+
+}
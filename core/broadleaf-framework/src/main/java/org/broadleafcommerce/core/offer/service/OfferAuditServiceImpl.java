@@ -0,0 +1,312 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.offer.service;
+
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationListener;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.core.offer.dao.OfferAuditDao;
+import org.broadleafcommerce.core.offer.domain.OfferAudit;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default {@link OfferAuditService}. The usage counts of each customer are held in an immutable entry that is
+ * replaced whenever it changes. Offers missing from an entry are counted with a single grouped query and
+ * merged into it.
+ *
+ * Recording a use invalidates the entry of the customer through the {@link CacheInvalidationBus}, so the
+ * other nodes in the cluster re-read the counts, and re-populates the local entry with the incremented counts
+ * once the transaction commits. Entries also expire after {@link #setTimeToLive(long) timeToLive}
+ * milliseconds as a safety net for audits written outside of this service.
+ *
+ * The cached counts decide which limited offers are offered while the cart is priced. Since an entry can trail
+ * uses recorded on another node, checkout enforces the maximum uses of an offer with
+ * {@link #readCurrentUsesByCustomer(Long, Collection)}, which does not consult the cache.
+ */
+@Service("blOfferAuditService")
+@ManagedResource(objectName="org.broadleafcommerce:name=OfferAuditService", description="Offer Audit Service", currencyTimeLimit=15)
+public class OfferAuditServiceImpl implements OfferAuditService, CacheInvalidationListener {
+
+    @Resource(name="blOfferAuditDao")
+    protected OfferAuditDao offerAuditDao;
+
+    @Resource(name="blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
+
+    protected final ConcurrentMap<Long, CustomerUses> usesByCustomer = new ConcurrentHashMap<Long, CustomerUses>();
+
+    /**
+     * The number of milliseconds the usage counts of a customer are cached
+     */
+    protected long timeToLive = 300000L;
+
+    /**
+     * Upper bound on the number of customers whose usage counts are cached. Counts read once the bound is
+     * reached are returned but not cached.
+     */
+    protected int maxCachedCustomers = 10000;
+
+    protected final AtomicLong hitCount = new AtomicLong();
+    protected final AtomicLong missCount = new AtomicLong();
+    protected final AtomicLong recordedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (cacheInvalidationBus != null) {
+            cacheInvalidationBus.addListener(CACHE_NAME, this);
+        }
+    }
+
+    @Override
+    public Map<Long, Long> readUsesByCustomer(Long customerId, Collection<Long> offerIds) {
+        Map<Long, Long> uses = new HashMap<Long, Long>();
+        if (offerIds == null || offerIds.isEmpty()) {
+            return uses;
+        }
+        if (customerId == null) {
+            for (Long offerId : offerIds) {
+                uses.put(offerId, 0L);
+            }
+            return uses;
+        }
+
+        long now = SystemTime.asMillis();
+        CustomerUses cached = usesByCustomer.get(customerId);
+        if (cached != null && cached.isExpired(now, timeToLive)) {
+            usesByCustomer.remove(customerId, cached);
+            cached = null;
+        }
+
+        List<Long> missing = new ArrayList<Long>();
+        for (Long offerId : offerIds) {
+            Long count = cached == null ? null : cached.counts.get(offerId);
+            if (count == null) {
+                missing.add(offerId);
+            } else {
+                uses.put(offerId, count);
+            }
+        }
+        if (missing.isEmpty()) {
+            hitCount.incrementAndGet();
+            return uses;
+        }
+
+        missCount.incrementAndGet();
+        Map<Long, Long> read = offerAuditDao.countUsesByCustomer(customerId, missing);
+        Map<Long, Long> counts = cached == null ? new HashMap<Long, Long>() : new HashMap<Long, Long>(cached.counts);
+        for (Long offerId : missing) {
+            Long count = read.get(offerId);
+            if (count == null) {
+                count = 0L;
+            }
+            uses.put(offerId, count);
+            counts.put(offerId, count);
+        }
+        CustomerUses updated = new CustomerUses(counts, cached == null ? now : cached.created);
+        if (cached == null) {
+            if (usesByCustomer.size() < maxCachedCustomers) {
+                usesByCustomer.putIfAbsent(customerId, updated);
+            }
+        } else {
+            usesByCustomer.replace(customerId, cached, updated);
+        }
+        return uses;
+    }
+
+    @Override
+    public Map<Long, Long> readCurrentUsesByCustomer(Long customerId, Collection<Long> offerIds) {
+        Map<Long, Long> uses = new HashMap<Long, Long>();
+        if (offerIds == null || offerIds.isEmpty()) {
+            return uses;
+        }
+        Map<Long, Long> read = customerId == null ? null : offerAuditDao.countUsesByCustomer(customerId, offerIds);
+        for (Long offerId : offerIds) {
+            Long count = read == null ? null : read.get(offerId);
+            uses.put(offerId, count == null ? 0L : count);
+        }
+        return uses;
+    }
+
+    @Override
+    public List<OfferAudit> recordUses(Order order, Collection<Long> offerIds) {
+        if (order == null || offerIds == null || offerIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Long customerId = order.getCustomer() == null ? null : order.getCustomer().getId();
+        Date redeemedDate = SystemTime.asDate();
+        List<OfferAudit> audits = new ArrayList<OfferAudit>(offerIds.size());
+        for (Long offerId : offerIds) {
+            OfferAudit audit = offerAuditDao.create();
+            audit.setCustomerId(customerId);
+            audit.setOfferId(offerId);
+            audit.setOrderId(order.getId());
+            audit.setRedeemedDate(redeemedDate);
+            audits.add(audit);
+        }
+        offerAuditDao.saveAll(audits);
+        recordedCount.addAndGet(audits.size());
+
+        if (customerId != null) {
+            updateCachedUses(customerId, offerIds);
+        }
+        return audits;
+    }
+
+    /**
+     * Invalidates the cached counts of the customer on every node and, once the transaction commits, replaces
+     * the local entry with the counts it held incremented by the recorded uses. An entry re-read by another
+     * thread before the commit would be missing these uses, which is why it is overwritten rather than kept.
+     */
+    protected void updateCachedUses(final Long customerId, final Collection<Long> offerIds) {
+        final CustomerUses cached = usesByCustomer.get(customerId);
+        if (cacheInvalidationBus != null) {
+            cacheInvalidationBus.invalidate(CACHE_NAME, customerId);
+        } else {
+            usesByCustomer.remove(customerId);
+        }
+        if (cached == null || cached.isExpired(SystemTime.asMillis(), timeToLive)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    usesByCustomer.put(customerId, cached.increment(offerIds));
+                }
+            });
+        } else {
+            usesByCustomer.put(customerId, cached.increment(offerIds));
+        }
+    }
+
+    @Override
+    public void invalidate(String cacheName, Collection<Serializable> keys) {
+        for (Serializable key : keys) {
+            usesByCustomer.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        usesByCustomer.clear();
+    }
+
+    @Override
+    @ManagedOperation(description="Discard all cached offer usage counts")
+    public void clearCache() {
+        usesByCustomer.clear();
+    }
+
+    @ManagedAttribute(description="The number of usage reads served entirely from the cache", currencyTimeLimit=15)
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @ManagedAttribute(description="The number of usage reads that required a query", currencyTimeLimit=15)
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @ManagedAttribute(description="The number of offer uses recorded", currencyTimeLimit=15)
+    public long getRecordedCount() {
+        return recordedCount.get();
+    }
+
+    @ManagedAttribute(description="The number of customers whose usage counts are cached", currencyTimeLimit=15)
+    public int getCachedCustomerCount() {
+        return usesByCustomer.size();
+    }
+
+    @ManagedAttribute(description="The number of milliseconds usage counts are cached", currencyTimeLimit=15)
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    @ManagedAttribute(description="The number of milliseconds usage counts are cached", currencyTimeLimit=15)
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    @ManagedAttribute(description="The maximum number of customers whose usage counts are cached", currencyTimeLimit=15)
+    public int getMaxCachedCustomers() {
+        return maxCachedCustomers;
+    }
+
+    @ManagedAttribute(description="The maximum number of customers whose usage counts are cached", currencyTimeLimit=15)
+    public void setMaxCachedCustomers(int maxCachedCustomers) {
+        this.maxCachedCustomers = maxCachedCustomers;
+    }
+
+    public void setOfferAuditDao(OfferAuditDao offerAuditDao) {
+        this.offerAuditDao = offerAuditDao;
+    }
+
+    /**
+     * The cached usage counts of a single customer. Instances are never modified once cached.
+     */
+    protected static class CustomerUses {
+
+        protected final Map<Long, Long> counts;
+        protected final long created;
+
+        protected CustomerUses(Map<Long, Long> counts, long created) {
+            this.counts = counts;
+            this.created = created;
+        }
+
+        protected boolean isExpired(long now, long timeToLive) {
+            return now - created > timeToLive;
+        }
+
+        /**
+         * @return a copy of these counts with one use added for each of the offers. Offers that were not cached
+         * are left out, since their current count is unknown.
+         */
+        protected CustomerUses increment(Collection<Long> offerIds) {
+            Map<Long, Long> incremented = new HashMap<Long, Long>(counts);
+            for (Long offerId : offerIds) {
+                Long count = incremented.get(offerId);
+                if (count != null) {
+                    incremented.put(offerId, count + 1);
+                }
+            }
+            return new CustomerUses(incremented, created);
+        }
+
+    }
+
+}
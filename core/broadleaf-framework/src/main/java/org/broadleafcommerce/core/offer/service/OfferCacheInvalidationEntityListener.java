@@ -0,0 +1,60 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.offer.service;
+
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.util.SpringAppContext;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferItemCriteria;
+import org.springframework.context.ApplicationContext;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that reports changed offers and offer item criteria to the {@link OfferEligibilityIndex}
+ * of every node through the {@link CacheInvalidationBus}. Entity listeners are instantiated by the persistence
+ * provider, so the bus is looked up from the application context on each event.
+ */
+public class OfferCacheInvalidationEntityListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void invalidateCache(Object entity) {
+        ApplicationContext context = SpringAppContext.getApplicationContext();
+        if (context == null || !context.containsBean("blCacheInvalidationBus")) {
+            return;
+        }
+        CacheInvalidationBus cacheInvalidationBus = (CacheInvalidationBus) context.getBean("blCacheInvalidationBus");
+        Offer offer = null;
+        if (entity instanceof Offer) {
+            offer = (Offer) entity;
+        } else if (entity instanceof OfferItemCriteria) {
+            OfferItemCriteria criteria = (OfferItemCriteria) entity;
+            offer = criteria.getQualifyingOffer() != null ? criteria.getQualifyingOffer() : criteria.getTargetOffer();
+        }
+        if (offer != null && offer.getId() != null) {
+            cacheInvalidationBus.invalidate(OfferEligibilityIndex.CACHE_NAME, offer.getId());
+        } else {
+            cacheInvalidationBus.invalidateAll(OfferEligibilityIndex.CACHE_NAME);
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.offer.service;
+
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.order.domain.Order;
+
+import java.util.List;
+
+/**
+ * Narrows the automatic delivery offers down to those that could possibly apply to an order before any
+ * offer rule is evaluated. The index is built from offer metadata: the active date window and the skus,
+ * products and categories that the item criteria rules require to be present in the order. Offers whose
+ * rules cannot be analyzed are always returned as candidates, so the index never excludes an offer that
+ * could apply.
+ */
+public interface OfferEligibilityIndex {
+
+    /**
+     * The name under which changed offers are reported to the {@link org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus}
+     */
+    public static final String CACHE_NAME = "blOfferEligibilityIndex";
+
+    /**
+     * @param order the order being priced
+     * @return the active automatic delivery offers that could apply to the order
+     */
+    public List<Offer> findCandidateOffers(Order order);
+
+    /**
+     * Schedules the offer to be re-read and re-indexed the next time the index is used. Within a transaction
+     * the refresh is deferred until the transaction commits, while lookups made by the transaction itself
+     * evaluate the offer as it currently stands.
+     *
+     * @param offerId the id of the offer that changed
+     */
+    public void refreshOffer(Long offerId);
+
+    /**
+     * Schedules a full rebuild of the index the next time it is used
+     */
+    public void refreshAll();
+
+}
@@ -0,0 +1,659 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.offer.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationListener;
+import org.broadleafcommerce.common.persistence.Status;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.core.offer.dao.OfferDao;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferItemCriteria;
+import org.broadleafcommerce.core.offer.service.type.OfferDeliveryType;
+import org.broadleafcommerce.core.offer.service.type.OfferType;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Default {@link OfferEligibilityIndex}. The index is an immutable snapshot that is swapped atomically, so
+ * lookups never take a lock. Item criteria rules are analyzed for the id comparisons produced by the admin
+ * rule builder ({@code discreteOrderItem.sku.id == 5} and {@code [1,2] contains discreteOrderItem.product.id})
+ * that are required by every branch of the rule. Each such comparison becomes a requirement that some item in
+ * the order reference one of the ids, and offers are bucketed by their most selective requirement.
+ *
+ * Changed offers are reported through the {@link CacheInvalidationBus} by the
+ * {@link OfferCacheInvalidationEntityListener} and re-read individually on the next lookup. The whole index is
+ * also rebuilt periodically as a safety net for changes made outside of JPA.
+ */
+@Service("blOfferEligibilityIndex")
+@ManagedResource(objectName="org.broadleafcommerce:name=OfferEligibilityIndex", description="Offer Eligibility Index", currencyTimeLimit=15)
+public class OfferEligibilityIndexImpl implements OfferEligibilityIndex, CacheInvalidationListener {
+
+    private static final Log LOG = LogFactory.getLog(OfferEligibilityIndexImpl.class);
+
+    protected static final Pattern STRING_LITERAL = Pattern.compile("\"[^\"]*\"|'[^']*'");
+    protected static final Pattern DISJUNCTION = Pattern.compile("\\|\\||\\bor\\b");
+    protected static final Pattern NEGATION = Pattern.compile("!(?!=)");
+    protected static final Pattern ID_EQUALS = Pattern.compile("discreteOrderItem\\.\\??(sku|product|category)\\.\\??id\\s*==\\s*(\\d+)L?");
+    protected static final Pattern ID_CONTAINS = Pattern.compile("\\[([\\d\\sL,]+)\\]\\s*contains\\s+discreteOrderItem\\.\\??(sku|product|category)\\.\\??id(\\.intValue\\(\\))?");
+
+    @Resource(name="blOfferDao")
+    protected OfferDao offerDao;
+
+    @Resource(name="blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
+
+    protected volatile Snapshot snapshot;
+    protected volatile boolean rebuildRequired = true;
+    protected final Set<Long> dirtyOfferIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    protected final Object refreshLock = new Object();
+
+    /**
+     * The maximum age of the index in milliseconds before it is rebuilt in full
+     */
+    protected long rebuildInterval = 3600000L;
+
+    protected final AtomicLong lookupCount = new AtomicLong();
+    protected final AtomicLong candidateCount = new AtomicLong();
+    protected final AtomicLong rebuildCount = new AtomicLong();
+    protected final AtomicLong offerRefreshCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (cacheInvalidationBus != null) {
+            cacheInvalidationBus.addListener(CACHE_NAME, this);
+        }
+    }
+
+    @Override
+    public List<Offer> findCandidateOffers(Order order) {
+        Snapshot current = getSnapshot();
+        OrderReferences references = new OrderReferences(order);
+        long now = SystemTime.asMillis();
+
+        Set<IndexedOffer> candidates = new LinkedHashSet<IndexedOffer>();
+        Set<Long> changedOfferIds = getTransactionChanges(false);
+        for (IndexedOffer indexedOffer : current.unrestricted) {
+            if (indexedOffer.isActive(now)) {
+                candidates.add(indexedOffer);
+            }
+        }
+        for (ReferenceType type : ReferenceType.values()) {
+            Map<Long, List<IndexedOffer>> buckets = current.buckets.get(type);
+            for (Long id : references.get(type)) {
+                List<IndexedOffer> bucket = buckets.get(id);
+                if (bucket != null) {
+                    for (IndexedOffer indexedOffer : bucket) {
+                        if (indexedOffer.isActive(now) && indexedOffer.isSatisfiedBy(references)) {
+                            candidates.add(indexedOffer);
+                        }
+                    }
+                }
+            }
+        }
+        if (changedOfferIds != null) {
+            addTransactionChanges(candidates, changedOfferIds, references, now);
+        }
+
+        List<Long> offerIds = new ArrayList<Long>(candidates.size());
+        for (IndexedOffer candidate : candidates) {
+            offerIds.add(candidate.offerId);
+        }
+        Map<Long, Offer> offersById = new HashMap<Long, Offer>(offerIds.size());
+        for (Offer offer : offerDao.readOffersByIds(offerIds)) {
+            offersById.put(offer.getId(), offer);
+        }
+        List<Offer> offers = new ArrayList<Offer>(offerIds.size());
+        for (Long offerId : offerIds) {
+            Offer offer = offersById.get(offerId);
+            if (offer != null && !isArchived(offer)) {
+                offers.add(offer);
+            }
+        }
+        lookupCount.incrementAndGet();
+        candidateCount.addAndGet(offers.size());
+        return offers;
+    }
+
+    @Override
+    public void refreshOffer(final Long offerId) {
+        if (offerId == null) {
+            return;
+        }
+        Set<Long> changedOfferIds = getTransactionChanges(true);
+        if (changedOfferIds == null) {
+            dirtyOfferIds.add(offerId);
+        } else if (changedOfferIds.add(offerId)) {
+            runAfterCommit(new Runnable() {
+                @Override
+                public void run() {
+                    dirtyOfferIds.add(offerId);
+                }
+            });
+        }
+    }
+
+    @Override
+    @ManagedOperation(description="Rebuild the index on its next use")
+    public void refreshAll() {
+        rebuildRequired = true;
+    }
+
+    @Override
+    public void invalidate(String cacheName, Collection<Serializable> keys) {
+        for (Serializable key : keys) {
+            if (key instanceof Long) {
+                refreshOffer((Long) key);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                refreshAll();
+            }
+        });
+    }
+
+    /**
+     * Replaces the snapshot's verdict for the offers changed in the current transaction. The snapshot is shared,
+     * so it cannot hold uncommitted state; instead each changed offer is read through the transaction and
+     * evaluated against the order directly.
+     */
+    protected void addTransactionChanges(Set<IndexedOffer> candidates, Set<Long> changedOfferIds, OrderReferences references, long now) {
+        Iterator<IndexedOffer> itr = candidates.iterator();
+        while (itr.hasNext()) {
+            if (changedOfferIds.contains(itr.next().offerId)) {
+                itr.remove();
+            }
+        }
+        for (Long offerId : changedOfferIds) {
+            Offer offer = offerDao.readOfferById(offerId);
+            if (offer != null && OfferDeliveryType.AUTOMATIC.equals(offer.getDeliveryType()) && !isArchived(offer)) {
+                IndexedOffer indexedOffer = buildIndexedOffer(offer);
+                if (indexedOffer.isActive(now) && indexedOffer.isSatisfiedBy(references)) {
+                    candidates.add(indexedOffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param create whether to start tracking changes if the current transaction has none yet
+     * @return the ids of the offers changed in the current transaction, or null outside of a transaction
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<Long> getTransactionChanges(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Set<Long> changedOfferIds = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (changedOfferIds == null && create) {
+            changedOfferIds = new LinkedHashSet<Long>();
+            TransactionSynchronizationManager.bindResource(this, changedOfferIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OfferEligibilityIndexImpl.this);
+                }
+            });
+        }
+        return changedOfferIds;
+    }
+
+    /**
+     * Changes made on this node are reported before their transaction commits. Re-reading the offer at that
+     * point could index the old state, so the refresh is deferred until the commit.
+     */
+    protected void runAfterCommit(final Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+
+    protected Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null || rebuildRequired || SystemTime.asMillis() - current.buildTime > rebuildInterval) {
+            synchronized (refreshLock) {
+                current = snapshot;
+                if (current == null || rebuildRequired || SystemTime.asMillis() - current.buildTime > rebuildInterval) {
+                    current = rebuild();
+                    snapshot = current;
+                }
+            }
+        }
+        if (!dirtyOfferIds.isEmpty()) {
+            synchronized (refreshLock) {
+                current = snapshot;
+                if (!dirtyOfferIds.isEmpty()) {
+                    current = refresh(current);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    protected Snapshot rebuild() {
+        //changes reported while the offers are being read are applied by the next lookup
+        rebuildRequired = false;
+        dirtyOfferIds.clear();
+        List<Offer> offers = offerDao.readUnexpiredOffersByAutomaticDeliveryType();
+        Map<Long, IndexedOffer> indexedOffers = new HashMap<Long, IndexedOffer>(offers.size());
+        for (Offer offer : offers) {
+            if (offer.getId() != null) {
+                indexedOffers.put(offer.getId(), buildIndexedOffer(offer));
+            }
+        }
+        rebuildCount.incrementAndGet();
+        Snapshot rebuilt = new Snapshot(indexedOffers, SystemTime.asMillis());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Rebuilt the offer eligibility index: " + rebuilt.indexedOffers.size() + " offers, " + rebuilt.unrestricted.size() + " without item requirements");
+        }
+        return rebuilt;
+    }
+
+    protected Snapshot refresh(Snapshot current) {
+        Map<Long, IndexedOffer> indexedOffers = new HashMap<Long, IndexedOffer>(current.indexedOffers);
+        long now = SystemTime.asMillis();
+        Iterator<Long> itr = dirtyOfferIds.iterator();
+        while (itr.hasNext()) {
+            Long offerId = itr.next();
+            itr.remove();
+            indexedOffers.remove(offerId);
+            Offer offer = offerDao.readOfferById(offerId);
+            if (offer != null && OfferDeliveryType.AUTOMATIC.equals(offer.getDeliveryType()) && !isArchived(offer) &&
+                    (offer.getEndDate() == null || offer.getEndDate().getTime() > now)) {
+                indexedOffers.put(offerId, buildIndexedOffer(offer));
+            }
+            offerRefreshCount.incrementAndGet();
+        }
+        return new Snapshot(indexedOffers, current.buildTime);
+    }
+
+    protected boolean isArchived(Offer offer) {
+        return offer instanceof Status && Character.valueOf('Y').equals(((Status) offer).getArchived());
+    }
+
+    protected IndexedOffer buildIndexedOffer(Offer offer) {
+        List<ItemRequirement> requirements = new ArrayList<ItemRequirement>();
+        addRequirements(requirements, offer.getQualifyingItemCriteria());
+        if (OfferType.ORDER_ITEM.equals(offer.getType())) {
+            //targets are only required for item offers; order and fulfillment group offers only use qualifiers
+            addRequirements(requirements, offer.getTargetItemCriteria());
+        }
+        return new IndexedOffer(offer.getId(), offer.getStartDate() == null ? Long.MIN_VALUE : offer.getStartDate().getTime(),
+                offer.getEndDate() == null ? Long.MAX_VALUE : offer.getEndDate().getTime(), requirements);
+    }
+
+    protected void addRequirements(List<ItemRequirement> requirements, Collection<OfferItemCriteria> criteria) {
+        if (criteria != null) {
+            for (OfferItemCriteria itemCriteria : criteria) {
+                if (itemCriteria.getOrderItemMatchRule() != null) {
+                    requirements.addAll(parseRequirements(itemCriteria.getOrderItemMatchRule()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts the id comparisons that must hold for the rule to match. Only conjunctions are analyzed: any
+     * disjunction, negation or unbalanced parenthesis makes the rule opaque, in which case no requirement is
+     * returned.
+     */
+    protected List<ItemRequirement> parseRequirements(String rule) {
+        String expression = STRING_LITERAL.matcher(rule).replaceAll("\"\"");
+        if (DISJUNCTION.matcher(expression).find() || NEGATION.matcher(expression).find() || !isBalanced(expression)) {
+            return Collections.emptyList();
+        }
+        List<ItemRequirement> requirements = new ArrayList<ItemRequirement>();
+        addConjunctRequirements(requirements, expression);
+        return requirements;
+    }
+
+    /**
+     * Adds a requirement for each id comparison joined by <code>&&</code> at the top level of the expression.
+     * Parenthesized conjunctions are analyzed recursively; since the rule contains neither a disjunction nor a
+     * negation, each of their terms must hold as well.
+     */
+    protected void addConjunctRequirements(List<ItemRequirement> requirements, String expression) {
+        for (String term : splitConjuncts(stripParentheses(expression.trim()))) {
+            term = stripParentheses(term.trim());
+            Matcher matcher = ID_EQUALS.matcher(term);
+            if (matcher.matches()) {
+                requirements.add(new ItemRequirement(ReferenceType.valueOf(matcher.group(1).toUpperCase()),
+                        Collections.singleton(Long.valueOf(matcher.group(2)))));
+                continue;
+            }
+            matcher = ID_CONTAINS.matcher(term);
+            if (matcher.matches()) {
+                Set<Long> ids = new HashSet<Long>();
+                for (String id : matcher.group(1).split(",")) {
+                    id = id.trim();
+                    if (id.endsWith("L")) {
+                        id = id.substring(0, id.length() - 1);
+                    }
+                    if (id.length() > 0) {
+                        ids.add(Long.valueOf(id));
+                    }
+                }
+                if (!ids.isEmpty()) {
+                    requirements.add(new ItemRequirement(ReferenceType.valueOf(matcher.group(2).toUpperCase()), ids));
+                }
+                continue;
+            }
+            if (splitConjuncts(term).size() > 1) {
+                addConjunctRequirements(requirements, term);
+            }
+        }
+    }
+
+    /**
+     * Splits the expression on the <code>&&</code> operators that are not nested in parentheses or brackets
+     */
+    protected List<String> splitConjuncts(String expression) {
+        List<String> terms = new ArrayList<String>();
+        int depth = 0;
+        int start = 0;
+        for (int j = 0; j < expression.length(); j++) {
+            char c = expression.charAt(j);
+            if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (depth == 0 && c == '&' && j + 1 < expression.length() && expression.charAt(j + 1) == '&') {
+                terms.add(expression.substring(start, j));
+                start = j + 2;
+                j++;
+            }
+        }
+        terms.add(expression.substring(start));
+        return terms;
+    }
+
+    /**
+     * @return whether every parenthesis and bracket in the expression is closed, and closed in order
+     */
+    protected boolean isBalanced(String expression) {
+        int parentheses = 0;
+        int brackets = 0;
+        for (int j = 0; j < expression.length(); j++) {
+            char c = expression.charAt(j);
+            if (c == '(') {
+                parentheses++;
+            } else if (c == ')' && --parentheses < 0) {
+                return false;
+            } else if (c == '[') {
+                brackets++;
+            } else if (c == ']' && --brackets < 0) {
+                return false;
+            }
+        }
+        return parentheses == 0 && brackets == 0;
+    }
+
+    protected String stripParentheses(String term) {
+        while (term.length() > 1 && term.charAt(0) == '(' && term.charAt(term.length() - 1) == ')' && isEnclosed(term)) {
+            term = term.substring(1, term.length() - 1).trim();
+        }
+        return term;
+    }
+
+    /**
+     * @return whether the opening parenthesis of the term is closed by its last character
+     */
+    protected boolean isEnclosed(String term) {
+        int depth = 0;
+        for (int j = 0; j < term.length(); j++) {
+            char c = term.charAt(j);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0 && j < term.length() - 1) {
+                    return false;
+                }
+            }
+        }
+        return depth == 0;
+    }
+
+    @ManagedAttribute(description="The number of offers in the index", currencyTimeLimit=15)
+    public int getIndexedOfferCount() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.indexedOffers.size();
+    }
+
+    @ManagedAttribute(description="The number of indexed offers without item requirements", currencyTimeLimit=15)
+    public int getUnrestrictedOfferCount() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.unrestricted.size();
+    }
+
+    @ManagedAttribute(description="The number of lookups", currencyTimeLimit=15)
+    public long getLookupCount() {
+        return lookupCount.get();
+    }
+
+    @ManagedAttribute(description="The average number of candidate offers returned per lookup", currencyTimeLimit=15)
+    public double getAverageCandidateCount() {
+        long lookups = lookupCount.get();
+        return lookups == 0 ? 0D : (double) candidateCount.get() / lookups;
+    }
+
+    @ManagedAttribute(description="The number of full rebuilds", currencyTimeLimit=15)
+    public long getRebuildCount() {
+        return rebuildCount.get();
+    }
+
+    @ManagedAttribute(description="The number of individual offer refreshes", currencyTimeLimit=15)
+    public long getOfferRefreshCount() {
+        return offerRefreshCount.get();
+    }
+
+    @ManagedAttribute(description="The maximum age of the index in milliseconds before a full rebuild", currencyTimeLimit=15)
+    public long getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    @ManagedAttribute(description="The maximum age of the index in milliseconds before a full rebuild", currencyTimeLimit=15)
+    public void setRebuildInterval(long rebuildInterval) {
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    public OfferDao getOfferDao() {
+        return offerDao;
+    }
+
+    public void setOfferDao(OfferDao offerDao) {
+        this.offerDao = offerDao;
+    }
+
+    protected static enum ReferenceType {
+        SKU, PRODUCT, CATEGORY
+    }
+
+    /**
+     * Requires some item in the order to reference one of the ids
+     */
+    protected static class ItemRequirement {
+
+        protected final ReferenceType type;
+        protected final Set<Long> ids;
+
+        public ItemRequirement(ReferenceType type, Set<Long> ids) {
+            this.type = type;
+            this.ids = ids;
+        }
+
+        public boolean isSatisfiedBy(OrderReferences references) {
+            Set<Long> referenced = references.get(type);
+            Set<Long> smaller = referenced.size() < ids.size() ? referenced : ids;
+            Set<Long> larger = smaller == ids ? referenced : ids;
+            for (Long id : smaller) {
+                if (larger.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    protected static class IndexedOffer {
+
+        protected final Long offerId;
+        protected final long startTime;
+        protected final long endTime;
+        protected final List<ItemRequirement> requirements;
+
+        public IndexedOffer(Long offerId, long startTime, long endTime, List<ItemRequirement> requirements) {
+            this.offerId = offerId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.requirements = requirements;
+        }
+
+        public boolean isActive(long now) {
+            return startTime <= now && endTime > now;
+        }
+
+        public boolean isSatisfiedBy(OrderReferences references) {
+            for (ItemRequirement requirement : requirements) {
+                if (!requirement.isSatisfiedBy(references)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the requirement with the fewest ids, which is used to bucket the offer
+         */
+        public ItemRequirement getMostSelectiveRequirement() {
+            ItemRequirement selective = null;
+            for (ItemRequirement requirement : requirements) {
+                if (selective == null || requirement.ids.size() < selective.ids.size()) {
+                    selective = requirement;
+                }
+            }
+            return selective;
+        }
+
+    }
+
+    protected static class Snapshot {
+
+        protected final Map<Long, IndexedOffer> indexedOffers;
+        protected final List<IndexedOffer> unrestricted = new ArrayList<IndexedOffer>();
+        protected final Map<ReferenceType, Map<Long, List<IndexedOffer>>> buckets = new HashMap<ReferenceType, Map<Long, List<IndexedOffer>>>();
+        protected final long buildTime;
+
+        public Snapshot(Map<Long, IndexedOffer> indexedOffers, long buildTime) {
+            this.indexedOffers = indexedOffers;
+            this.buildTime = buildTime;
+            for (ReferenceType type : ReferenceType.values()) {
+                buckets.put(type, new HashMap<Long, List<IndexedOffer>>());
+            }
+            for (IndexedOffer indexedOffer : indexedOffers.values()) {
+                ItemRequirement requirement = indexedOffer.getMostSelectiveRequirement();
+                if (requirement == null) {
+                    unrestricted.add(indexedOffer);
+                    continue;
+                }
+                Map<Long, List<IndexedOffer>> typeBuckets = buckets.get(requirement.type);
+                for (Long id : requirement.ids) {
+                    List<IndexedOffer> bucket = typeBuckets.get(id);
+                    if (bucket == null) {
+                        bucket = new ArrayList<IndexedOffer>();
+                        typeBuckets.put(id, bucket);
+                    }
+                    bucket.add(indexedOffer);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * The sku, product and category ids referenced by the items of an order
+     */
+    protected static class OrderReferences {
+
+        protected final Map<ReferenceType, Set<Long>> ids = new HashMap<ReferenceType, Set<Long>>();
+
+        public OrderReferences(Order order) {
+            for (ReferenceType type : ReferenceType.values()) {
+                ids.put(type, new HashSet<Long>());
+            }
+            for (DiscreteOrderItem item : order.getDiscreteOrderItems()) {
+                if (item.getSku() != null && item.getSku().getId() != null) {
+                    ids.get(ReferenceType.SKU).add(item.getSku().getId());
+                }
+                if (item.getProduct() != null && item.getProduct().getId() != null) {
+                    ids.get(ReferenceType.PRODUCT).add(item.getProduct().getId());
+                }
+                if (item.getCategory() != null && item.getCategory().getId() != null) {
+                    ids.get(ReferenceType.CATEGORY).add(item.getCategory().getId());
+                }
+            }
+        }
+
+        public Set<Long> get(ReferenceType type) {
+            return ids.get(type);
+        }
+
+    }
+
+}
@@ -151,4 +151,8 @@ public interface OfferService {
     public OrderService getOrderService();
 
     public void setOrderService(OrderService orderService);
+
+    public OfferEligibilityIndex getOfferEligibilityIndex();
+
+    public void setOfferEligibilityIndex(OfferEligibilityIndex offerEligibilityIndex);
 }
@@ -18,7 +18,6 @@ package org.broadleafcommerce.core.offer.service;
 
 import org.broadleafcommerce.common.time.SystemTime;
 import org.broadleafcommerce.core.offer.dao.CustomerOfferDao;
-import org.broadleafcommerce.core.offer.dao.OfferAuditDao;
 import org.broadleafcommerce.core.offer.dao.OfferCodeDao;
 import org.broadleafcommerce.core.offer.dao.OfferDao;
 import org.broadleafcommerce.core.offer.domain.CustomerOffer;
@@ -31,6 +30,7 @@ import org.broadleafcommerce.core.offer.service.discount.domain.PromotableItemFa
 import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrder;
 import org.broadleafcommerce.core.offer.service.processor.FulfillmentGroupOfferProcessor;
 import org.broadleafcommerce.core.offer.service.processor.ItemOfferProcessor;
+import org.broadleafcommerce.core.offer.service.processor.OfferRuleEngine;
 import org.broadleafcommerce.core.offer.service.processor.OrderOfferProcessor;
 import org.broadleafcommerce.core.offer.service.type.OfferType;
 import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
@@ -43,8 +43,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Class OfferServiceImpl.
@@ -59,8 +64,8 @@ public class OfferServiceImpl implements OfferService {
     @Resource(name="blOfferCodeDao")
     protected OfferCodeDao offerCodeDao;
     
-    @Resource(name="blOfferAuditDao")
-    protected OfferAuditDao offerAuditDao;
+    @Resource(name="blOfferAuditService")
+    protected OfferAuditService offerAuditService;
 
     @Resource(name="blOfferDao")
     protected OfferDao offerDao;
@@ -77,6 +82,9 @@ public class OfferServiceImpl implements OfferService {
     @Resource(name="blPromotableItemFactory")
     protected PromotableItemFactory promotableItemFactory;
 
+    @Resource(name="blOfferRuleEngine")
+    protected OfferRuleEngine offerRuleEngine;
+
     @Resource(name = "blOrderItemMergeService")
     protected OrderItemMergeService orderItemMergeService;
 
@@ -86,6 +94,9 @@ public class OfferServiceImpl implements OfferService {
     @Resource(name = "blOrderService")
     protected OrderService orderService;
 
+    @Resource(name = "blOfferEligibilityIndex")
+    protected OfferEligibilityIndex offerEligibilityIndex;
+
     @Override
     public List<Offer> findAllOffers() {
         return offerDao.readAllOffers();
@@ -94,16 +105,36 @@ public class OfferServiceImpl implements OfferService {
     @Override
     @Transactional("blTransactionManager")
     public Offer save(Offer offer) {
-        return offerDao.save(offer);
+        offer = offerDao.save(offer);
+        refreshOfferRules(offer);
+        return offer;
     }
 
     @Override
     @Transactional("blTransactionManager")
     public OfferCode saveOfferCode(OfferCode offerCode) {
         offerCode.setOffer(offerDao.save(offerCode.getOffer()));
+        refreshOfferRules(offerCode.getOffer());
         return offerCodeDao.save(offerCode);
     }
 
+    /**
+     * Discards any previously compiled rules for this offer and compiles the current ones so
+     * that the next pricing call does not pay the compilation cost. The offer is also re-indexed,
+     * which makes it visible to orders priced later in the same transaction.
+     *
+     * @param offer the offer that was saved
+     */
+    protected void refreshOfferRules(Offer offer) {
+        if (offerRuleEngine != null) {
+            offerRuleEngine.invalidateOffer(offer);
+            offerRuleEngine.compileOfferRules(offer);
+        }
+        if (offerEligibilityIndex != null) {
+            offerEligibilityIndex.refreshOffer(offer.getId());
+        }
+    }
+
     /**
      * Creates a list of offers that applies to this order.  All offers that are assigned to the customer,
      * entered during checkout, or has a delivery type of automatic are added to the list.  The same offer
@@ -138,33 +169,74 @@ public class OfferServiceImpl implements OfferService {
     @Override
     public List<Offer> buildOfferListForOrder(Order order) {
         List<Offer> offers = new ArrayList<Offer>();
+        Set<Offer> addedOffers = new HashSet<Offer>();
         List<CustomerOffer> customerOffers = lookupOfferCustomerByCustomer(order.getCustomer());
         for (CustomerOffer customerOffer : customerOffers) {
-            if (!offers.contains(customerOffer.getOffer())) {
+            if (addedOffers.add(customerOffer.getOffer())) {
                 offers.add(customerOffer.getOffer());
             }
         }
         List<OfferCode> orderOfferCodes = order.getAddedOfferCodes();
         orderOfferCodes = removeOutOfDateOfferCodes(orderOfferCodes);
         for (OfferCode orderOfferCode : orderOfferCodes) {
-            if (!offers.contains(orderOfferCode.getOffer())) {
+            if (addedOffers.add(orderOfferCode.getOffer())) {
                 offers.add(orderOfferCode.getOffer());
             }
         }
-        List<Offer> globalOffers = lookupAutomaticDeliveryOffers();
+        List<Offer> globalOffers = lookupAutomaticDeliveryOffers(order);
         for (Offer globalOffer : globalOffers) {
-            if (!offers.contains(globalOffer)) {
+            if (addedOffers.add(globalOffer)) {
                 offers.add(globalOffer);
             }
         }
         
+        removeOffersOverMaxCustomerUses(offers, order.getCustomer());
+
         if (extensionManager != null) {
             extensionManager.applyAdditionalFilters(offers);
         }
+
+        if (offerRuleEngine != null) {
+            offerRuleEngine.compileOfferRules(offers);
+        }
         
         return offers;
     }
 
+    /**
+     * Removes the offers that the customer has already used the maximum number of times. The uses of all of the
+     * limited offers are read together through the cached counts of the {@link OfferAuditService}; checkout
+     * verifies the limits again against the audits themselves.
+     *
+     * @param offers the candidate offers, modified in place
+     * @param customer the customer the order belongs to
+     */
+    protected void removeOffersOverMaxCustomerUses(List<Offer> offers, Customer customer) {
+        if (customer == null || customer.getId() == null) {
+            return;
+        }
+        List<Long> limitedOfferIds = new ArrayList<Long>();
+        for (Offer offer : offers) {
+            if (isLimitedPerCustomer(offer)) {
+                limitedOfferIds.add(offer.getId());
+            }
+        }
+        if (limitedOfferIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> uses = offerAuditService.readUsesByCustomer(customer.getId(), limitedOfferIds);
+        for (Iterator<Offer> itr = offers.iterator(); itr.hasNext();) {
+            Offer offer = itr.next();
+            if (isLimitedPerCustomer(offer) && uses.get(offer.getId()) >= offer.getMaxUsesPerCustomer()) {
+                itr.remove();
+            }
+        }
+    }
+
+    protected boolean isLimitedPerCustomer(Offer offer) {
+        return offer.getId() != null && offer.getMaxUsesPerCustomer() != null && offer.getMaxUsesPerCustomer() > 0;
+    }
+
     /**
      * Private method used to retrieve all offers assigned to this customer.  These offers
      * have a DeliveryType of MANUAL and are programmatically assigned to the customer.
@@ -177,6 +249,21 @@ public class OfferServiceImpl implements OfferService {
         return offerCustomers;
     }
 
+    /**
+     * Retrieves the offers with DeliveryType of AUTOMATIC that could apply to the order. When an
+     * {@link OfferEligibilityIndex} is configured, only the offers whose item requirements are met by
+     * the contents of the order are returned.
+     *
+     * @param order
+     * @return a List of automatic delivery offers
+     */
+    protected List<Offer> lookupAutomaticDeliveryOffers(Order order) {
+        if (offerEligibilityIndex != null) {
+            return offerEligibilityIndex.findCandidateOffers(order);
+        }
+        return lookupAutomaticDeliveryOffers();
+    }
+
     /**
      * Private method used to retrieve all offers with DeliveryType of AUTOMATIC
      *
@@ -324,7 +411,7 @@ public class OfferServiceImpl implements OfferService {
     public boolean verifyMaxCustomerUsageThreshold(Customer customer, Offer offer) {
         if (customer != null && customer.getId() != null && offer != null && offer.getId() != null) {
             if (offer.getMaxUsesPerCustomer() != null && offer.getMaxUsesPerCustomer() > 0) {                
-                Long currentUses = offerAuditDao.countUsesByCustomer(customer.getId(), offer.getId());
+                Long currentUses = offerAuditService.readUsesByCustomer(customer.getId(), Collections.singletonList(offer.getId())).get(offer.getId());
                 if (currentUses >= offer.getMaxUsesPerCustomer()) {
                     return false;
                 }
@@ -353,6 +440,14 @@ public class OfferServiceImpl implements OfferService {
         this.offerCodeDao = offerCodeDao;
     }
 
+    public OfferAuditService getOfferAuditService() {
+        return offerAuditService;
+    }
+
+    public void setOfferAuditService(OfferAuditService offerAuditService) {
+        this.offerAuditService = offerAuditService;
+    }
+
     @Override
     public OfferDao getOfferDao() {
         return offerDao;
@@ -427,4 +522,15 @@ public class OfferServiceImpl implements OfferService {
     public void setOrderService(OrderService orderService) {
         this.orderService = orderService;
     }
+
+    @Override
+    public OfferEligibilityIndex getOfferEligibilityIndex() {
+        return offerEligibilityIndex;
+    }
+
+    @Override
+    public void setOfferEligibilityIndex(OfferEligibilityIndex offerEligibilityIndex) {
+        this.offerEligibilityIndex = offerEligibilityIndex;
+    }
+
 }
@@ -23,6 +23,7 @@ import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
 import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
 import org.broadleafcommerce.common.money.BankersRounding;
 import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.money.MoneyAccumulator;
 import org.broadleafcommerce.core.offer.domain.CandidateFulfillmentGroupOffer;
 import org.broadleafcommerce.core.offer.domain.FulfillmentGroupAdjustment;
 import org.broadleafcommerce.core.offer.domain.Offer;
@@ -89,7 +90,7 @@ public class FulfillmentGroupOfferProcessorImpl extends OrderOfferProcessorImpl
 
     @Override
     public void calculateFulfillmentGroupTotal(PromotableOrder order) {
-        Money totalShipping = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getDelegate().getCurrency());
+        MoneyAccumulator totalShipping = BroadleafCurrencyUtils.getMoneyAccumulator(order.getDelegate().getCurrency());
         for (PromotableFulfillmentGroup fulfillmentGroupMember : order.getFulfillmentGroups()) {
             PromotableFulfillmentGroup fulfillmentGroup = fulfillmentGroupMember;
             if (fulfillmentGroup.getAdjustmentPrice() != null) {
@@ -99,9 +100,9 @@ public class FulfillmentGroupOfferProcessorImpl extends OrderOfferProcessorImpl
             } else {
                 fulfillmentGroup.setShippingPrice(fulfillmentGroup.getRetailShippingPrice());
             }
-            totalShipping = totalShipping.add(fulfillmentGroup.getShippingPrice());
+            totalShipping.add(fulfillmentGroup.getShippingPrice());
         }
-        order.setTotalShipping(totalShipping);
+        order.setTotalShipping(totalShipping.toMoney());
     }
 
     protected boolean couldOfferApplyToFulfillmentGroup(Offer offer, PromotableFulfillmentGroup fulfillmentGroup) {
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.offer.service.processor;
+
+import org.broadleafcommerce.core.offer.domain.Offer;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Compiles and evaluates the MVEL rules attached to an {@link Offer} (order, customer and fulfillment group
+ * match rules as well as the item criteria rules). Rules are compiled ahead of time when offers are
+ * loaded or saved so that evaluation on the request thread is a lock-free lookup of the compiled form.
+ */
+public interface OfferRuleEngine {
+
+    /**
+     * Executes the given MVEL expression against the supplied variables. The expression is compiled
+     * and cached if it has not been seen before.
+     *
+     * @param expression the MVEL rule
+     * @param vars the variables available to the rule
+     * @return the Boolean result of the rule, or false if the rule could not be compiled or executed
+     */
+    public Boolean execute(String expression, Map<String, Object> vars);
+
+    /**
+     * Compiles every rule referenced by the offer (order, customer and fulfillment group match rules and
+     * the qualifying/target item criteria). Offers that have already been compiled are skipped.
+     *
+     * @param offer the offer whose rules should be compiled
+     */
+    public void compileOfferRules(Offer offer);
+
+    /**
+     * Convenience method to compile the rules for each offer in the collection.
+     *
+     * @param offers
+     */
+    public void compileOfferRules(Collection<Offer> offers);
+
+    /**
+     * Discards the compiled rules registered for this offer on every node. Should be called
+     * whenever an offer is changed or removed.
+     *
+     * @param offer the offer that changed
+     */
+    public void invalidateOffer(Offer offer);
+
+    /**
+     * Discards all compiled rules.
+     */
+    public void clearCache();
+
+}
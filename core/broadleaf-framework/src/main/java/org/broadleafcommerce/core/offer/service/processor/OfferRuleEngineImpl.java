@@ -0,0 +1,344 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.offer.service.processor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationListener;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferItemCriteria;
+import org.broadleafcommerce.core.offer.domain.OfferRule;
+import org.broadleafcommerce.core.offer.service.type.OfferType;
+import org.broadleafcommerce.core.order.service.type.FulfillmentType;
+import org.mvel2.MVEL;
+import org.mvel2.ParserContext;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default {@link OfferRuleEngine}. Compiled expressions are held in a {@link ConcurrentMap} keyed by the
+ * expression text, so evaluation never takes a monitor. Because the key is the rule itself, an edited
+ * rule can never be served from a stale compilation. The same expression may be used by several offers, so
+ * each expression counts the registered offers that use it and is only discarded once none of them does.
+ * Expressions evaluated without being registered for an offer are cached while there is room, and are
+ * discarded first when room is needed for the rules of an offer.
+ *
+ * Invalidating an offer is sent through the {@link CacheInvalidationBus}, so that every node releases the
+ * compiled rules of the edited offer.
+ */
+@Service("blOfferRuleEngine")
+@ManagedResource(objectName="org.broadleafcommerce:name=OfferRuleEngine", description="Offer Rule Engine", currencyTimeLimit=15)
+public class OfferRuleEngineImpl implements OfferRuleEngine, CacheInvalidationListener {
+
+    private static final Log LOG = LogFactory.getLog(OfferRuleEngineImpl.class);
+
+    public static final String OFFER_RULE_CACHE = "blOfferRules";
+
+    @Resource(name="blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
+
+    protected final ConcurrentMap<String, Serializable> compiledExpressions = new ConcurrentHashMap<String, Serializable>();
+    protected final ConcurrentMap<Long, Set<String>> offerExpressions = new ConcurrentHashMap<Long, Set<String>>();
+    /**
+     * The number of registered offers using each expression. Guarded, along with changes to offerExpressions,
+     * by registrationLock.
+     */
+    protected final Map<String, Integer> expressionReferences = new HashMap<String, Integer>();
+    protected final Object registrationLock = new Object();
+
+    protected final AtomicLong hitCount = new AtomicLong();
+    protected final AtomicLong missCount = new AtomicLong();
+    protected final AtomicLong compileCount = new AtomicLong();
+    protected final AtomicLong compileFailureCount = new AtomicLong();
+    protected final AtomicLong totalCompileTime = new AtomicLong();
+
+    /**
+     * Upper bound on the number of compiled expressions retained. Once it is reached, expressions that no
+     * registered offer uses are discarded to make room for the rules of an offer. Expressions that still do
+     * not fit are compiled and executed but not cached.
+     */
+    protected int maxCachedExpressions = 10000;
+
+    @PostConstruct
+    public void init() {
+        cacheInvalidationBus.addListener(OFFER_RULE_CACHE, this);
+    }
+
+    @Override
+    public Boolean execute(String expression, Map<String, Object> vars) {
+        try {
+            Serializable exp = compiledExpressions.get(expression);
+            if (exp == null) {
+                missCount.incrementAndGet();
+                exp = compile(expression, compiledExpressions.size() < maxCachedExpressions);
+            } else {
+                hitCount.incrementAndGet();
+            }
+
+            Object test = MVEL.executeExpression(exp, vars);
+
+            return (Boolean) test;
+        } catch (Exception e) {
+            //Unable to execute the MVEL expression for some reason
+            //Return false, but notify about the bad expression through logs
+            LOG.info("Unable to parse and/or execute an mvel expression. Reporting to the logs and returning false for the match expression", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void compileOfferRules(Offer offer) {
+        if (offer == null || (offer.getId() != null && offerExpressions.containsKey(offer.getId()))) {
+            return;
+        }
+        Set<String> expressions = gatherExpressions(offer);
+        synchronized (registrationLock) {
+            if (offer.getId() != null) {
+                if (offerExpressions.containsKey(offer.getId())) {
+                    return;
+                }
+                offerExpressions.put(offer.getId(), expressions);
+                for (String expression : expressions) {
+                    Integer references = expressionReferences.get(expression);
+                    expressionReferences.put(expression, references == null ? 1 : references + 1);
+                }
+            }
+            for (String expression : expressions) {
+                if (!compiledExpressions.containsKey(expression)) {
+                    if (compiledExpressions.size() >= maxCachedExpressions) {
+                        removeUnreferencedExpressions();
+                    }
+                    boolean cache = compiledExpressions.size() < maxCachedExpressions;
+                    if (offer.getId() != null && !cache) {
+                        LOG.warn("Unable to cache the compiled rules of offer (name=" + offer.getName() + ") as " + maxCachedExpressions + " expressions are already in use. Consider raising maxCachedExpressions.");
+                    }
+                    try {
+                        compile(expression, cache);
+                    } catch (Exception e) {
+                        LOG.warn("Unable to compile the mvel expression for offer (name=" + offer.getName() + "). The rule will evaluate to false.", e);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void compileOfferRules(Collection<Offer> offers) {
+        if (offers != null) {
+            for (Offer offer : offers) {
+                compileOfferRules(offer);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateOffer(Offer offer) {
+        if (offer == null || offer.getId() == null) {
+            return;
+        }
+        if (cacheInvalidationBus == null) {
+            releaseOffer(offer.getId());
+        } else {
+            cacheInvalidationBus.invalidate(OFFER_RULE_CACHE, offer.getId());
+        }
+    }
+
+    @Override
+    public void invalidate(String cacheName, Collection<Serializable> keys) {
+        for (Serializable key : keys) {
+            if (key instanceof Long) {
+                releaseOffer((Long) key);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        clearCache();
+    }
+
+    /**
+     * Releases the compiled rules registered for the offer, discarding those that no other registered offer uses
+     */
+    protected void releaseOffer(Long offerId) {
+        synchronized (registrationLock) {
+            Set<String> expressions = offerExpressions.remove(offerId);
+            if (expressions != null) {
+                for (String expression : expressions) {
+                    Integer references = expressionReferences.get(expression);
+                    if (references == null || references <= 1) {
+                        expressionReferences.remove(expression);
+                        compiledExpressions.remove(expression);
+                    } else {
+                        expressionReferences.put(expression, references - 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards the compiled expressions that no registered offer uses. Must be called holding registrationLock.
+     */
+    protected void removeUnreferencedExpressions() {
+        for (Iterator<String> itr = compiledExpressions.keySet().iterator(); itr.hasNext();) {
+            if (!expressionReferences.containsKey(itr.next())) {
+                itr.remove();
+            }
+        }
+    }
+
+    @Override
+    @ManagedOperation(description="Discard all compiled offer rules")
+    public void clearCache() {
+        synchronized (registrationLock) {
+            offerExpressions.clear();
+            expressionReferences.clear();
+            compiledExpressions.clear();
+        }
+    }
+
+    @ManagedOperation(description="Reset the hit, miss and compilation statistics")
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        compileCount.set(0);
+        compileFailureCount.set(0);
+        totalCompileTime.set(0);
+    }
+
+    /**
+     * Compiles the expression with the imports available to offer rules. When two threads miss on the
+     * same expression concurrently both compile, but only the first result is retained.
+     */
+    protected Serializable compile(String expression, boolean cache) {
+        long start = System.nanoTime();
+        Serializable exp;
+        try {
+            ParserContext context = new ParserContext();
+            context.addImport("OfferType", OfferType.class);
+            context.addImport("FulfillmentType", FulfillmentType.class);
+            context.addImport("MVEL", MVEL.class);
+            exp = MVEL.compileExpression(expression, context);
+        } catch (RuntimeException e) {
+            compileFailureCount.incrementAndGet();
+            throw e;
+        } finally {
+            totalCompileTime.addAndGet(System.nanoTime() - start);
+        }
+        compileCount.incrementAndGet();
+        if (cache) {
+            Serializable existing = compiledExpressions.putIfAbsent(expression, exp);
+            if (existing != null) {
+                exp = existing;
+            }
+        }
+        return exp;
+    }
+
+    protected Set<String> gatherExpressions(Offer offer) {
+        Set<String> expressions = new HashSet<String>();
+        addExpression(expressions, offer.getAppliesToOrderRules());
+        addExpression(expressions, offer.getAppliesToCustomerRules());
+        if (offer.getOfferMatchRules() != null) {
+            for (OfferRule rule : offer.getOfferMatchRules().values()) {
+                if (rule != null) {
+                    addExpression(expressions, rule.getMatchRule());
+                }
+            }
+        }
+        addCriteriaExpressions(expressions, offer.getQualifyingItemCriteria());
+        addCriteriaExpressions(expressions, offer.getTargetItemCriteria());
+        return expressions;
+    }
+
+    protected void addCriteriaExpressions(Set<String> expressions, Collection<OfferItemCriteria> criteria) {
+        if (criteria != null) {
+            for (OfferItemCriteria itemCriteria : criteria) {
+                addExpression(expressions, itemCriteria.getOrderItemMatchRule());
+            }
+        }
+    }
+
+    protected void addExpression(Set<String> expressions, String expression) {
+        if (expression != null && expression.trim().length() != 0) {
+            expressions.add(expression);
+        }
+    }
+
+    @ManagedAttribute(description="The number of rule evaluations served from a compiled expression", currencyTimeLimit=15)
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @ManagedAttribute(description="The number of rule evaluations that required a compilation", currencyTimeLimit=15)
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @ManagedAttribute(description="The number of expressions compiled", currencyTimeLimit=15)
+    public long getCompileCount() {
+        return compileCount.get();
+    }
+
+    @ManagedAttribute(description="The number of expressions that failed to compile", currencyTimeLimit=15)
+    public long getCompileFailureCount() {
+        return compileFailureCount.get();
+    }
+
+    @ManagedAttribute(description="The total time spent compiling expressions in milliseconds", currencyTimeLimit=15)
+    public long getTotalCompileTimeMillis() {
+        return totalCompileTime.get() / 1000000L;
+    }
+
+    @ManagedAttribute(description="The number of compiled expressions currently cached", currencyTimeLimit=15)
+    public int getCachedExpressionCount() {
+        return compiledExpressions.size();
+    }
+
+    @ManagedAttribute(description="The number of offers whose rules are currently compiled", currencyTimeLimit=15)
+    public int getCompiledOfferCount() {
+        return offerExpressions.size();
+    }
+
+    @ManagedAttribute(description="The maximum number of compiled expressions retained", currencyTimeLimit=15)
+    public int getMaxCachedExpressions() {
+        return maxCachedExpressions;
+    }
+
+    @ManagedAttribute(description="Changes the maximum number of compiled expressions retained. Expressions already cached are kept; the limit applies to later compilations", currencyTimeLimit=15)
+    public void setMaxCachedExpressions(int maxCachedExpressions) {
+        this.maxCachedExpressions = maxCachedExpressions;
+    }
+
+}
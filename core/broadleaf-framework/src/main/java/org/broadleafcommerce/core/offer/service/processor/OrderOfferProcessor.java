@@ -75,5 +75,9 @@ public interface OrderOfferProcessor extends BaseProcessor {
     public OrderItemMergeService getOrderItemMergeService();
 
     public void setOrderItemMergeService(OrderItemMergeService orderItemMergeService);
+
+    public OfferRuleEngine getOfferRuleEngine();
+
+    public void setOfferRuleEngine(OfferRuleEngine offerRuleEngine);
     
 }
\ No newline at end of file
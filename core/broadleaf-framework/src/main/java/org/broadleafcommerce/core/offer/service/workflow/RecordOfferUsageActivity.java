@@ -16,12 +16,10 @@
 
 package org.broadleafcommerce.core.offer.service.workflow;
 
-import org.broadleafcommerce.common.time.SystemTime;
 import org.broadleafcommerce.core.checkout.service.workflow.CheckoutContext;
 import org.broadleafcommerce.core.checkout.service.workflow.CheckoutSeed;
-import org.broadleafcommerce.core.offer.dao.OfferAuditDao;
 import org.broadleafcommerce.core.offer.domain.Adjustment;
-import org.broadleafcommerce.core.offer.domain.OfferAudit;
+import org.broadleafcommerce.core.offer.service.OfferAuditService;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.domain.OrderItem;
@@ -36,13 +34,14 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * Saves an instance of OfferAudit for each offer in the passed in order.
+ * Saves an instance of OfferAudit for each offer in the passed in order. The audits are inserted
+ * together through the {@link OfferAuditService}, which also keeps the cached usage counts current.
  * Assumes that it is part of a larger transaction context.
  */
 public class RecordOfferUsageActivity extends BaseActivity {
 
-    @Resource(name="blOfferAuditDao")
-    private OfferAuditDao offerAuditDao;
+    @Resource(name="blOfferAuditService")
+    private OfferAuditService offerAuditService;
 
     public ProcessContext execute(ProcessContext context) throws Exception {
         Set<Long> appliedOfferIds = new HashSet<Long>();
@@ -62,25 +61,12 @@ public class RecordOfferUsageActivity extends BaseActivity {
                     addOfferIds(fg.getFulfillmentGroupAdjustments(), appliedOfferIds);
                 }
             }
-            saveOfferIds(appliedOfferIds, order);
+            offerAuditService.recordUses(order, appliedOfferIds);
         }
 
         return context;
     }
     
-    private void saveOfferIds(Set<Long> offerIds, Order order) {
-        for (Long offerId : offerIds) {
-            OfferAudit audit = offerAuditDao.create();
-            if (order.getCustomer() != null) {
-                audit.setCustomerId(order.getCustomer().getId());
-            }
-            audit.setOfferId(offerId);
-            audit.setOrderId(order.getId());
-            audit.setRedeemedDate(SystemTime.asDate());
-            offerAuditDao.save(audit);
-        }
-    }
-        
     private void addOfferIds(List<? extends Adjustment> adjustments, Set<Long> offerIds) {
         if (adjustments != null) {
             for(Adjustment adjustment : adjustments) {
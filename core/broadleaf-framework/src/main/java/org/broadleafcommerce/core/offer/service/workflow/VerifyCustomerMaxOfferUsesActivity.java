@@ -18,8 +18,8 @@ package org.broadleafcommerce.core.offer.service.workflow;
 
 import org.broadleafcommerce.core.checkout.service.workflow.CheckoutContext;
 import org.broadleafcommerce.core.checkout.service.workflow.CheckoutSeed;
-import org.broadleafcommerce.core.offer.dao.OfferAuditDao;
 import org.broadleafcommerce.core.offer.domain.Adjustment;
+import org.broadleafcommerce.core.offer.service.OfferAuditService;
 import org.broadleafcommerce.core.offer.service.exception.OfferMaxUseExceededException;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.Order;
@@ -38,8 +38,8 @@ import java.util.Map;
  */
 public class VerifyCustomerMaxOfferUsesActivity extends BaseActivity {
 
-    @Resource(name="blOfferAuditDao")
-    private OfferAuditDao offerAuditDao;
+    @Resource(name="blOfferAuditService")
+    private OfferAuditService offerAuditService;
 
     public ProcessContext execute(ProcessContext context) throws Exception {
         Map<Long,Long> offerIdToAllowedUsesMap = new HashMap<Long,Long>();
@@ -68,20 +68,20 @@ public class VerifyCustomerMaxOfferUsesActivity extends BaseActivity {
     }
     
     private boolean checkOffers(Map<Long,Long> offerIdToAllowedUsesMap, Order order) {
-        boolean orderVerified = true;    
-    
-        if (order.getCustomer() != null && order.getCustomer().getId() != null) {
+        if (order.getCustomer() != null && order.getCustomer().getId() != null && !offerIdToAllowedUsesMap.isEmpty()) {
             Long customerId = order.getCustomer().getId();
-                        
-            for(Long offerId : offerIdToAllowedUsesMap.keySet()) {
-                Long allowedUses = offerIdToAllowedUsesMap.get(offerId);
-                Long currentUses = offerAuditDao.countUsesByCustomer(customerId, offerId);
-                if (currentUses != null && currentUses >= allowedUses) {
+            // The cached counts may not yet include uses recorded on other nodes, so the limit is checked
+            // against the audits themselves
+            Map<Long, Long> currentUsesMap = offerAuditService.readCurrentUsesByCustomer(customerId, offerIdToAllowedUsesMap.keySet());
+
+            for (Map.Entry<Long, Long> entry : offerIdToAllowedUsesMap.entrySet()) {
+                Long currentUses = currentUsesMap.get(entry.getKey());
+                if (currentUses != null && currentUses >= entry.getValue()) {
                     return false;
                 }
             }
         }
-        return true;                      
+        return true;
     }
         
     private void addOfferIds(List<? extends Adjustment> adjustments, Map<Long, Long> offerIdToAllowedUsesMap) {
@@ -24,6 +24,7 @@ import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
 import org.broadleafcommerce.common.locale.domain.Locale;
 import org.broadleafcommerce.common.locale.domain.LocaleImpl;
 import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.money.MoneyAccumulator;
 import org.broadleafcommerce.common.presentation.AdminPresentation;
 import org.broadleafcommerce.common.presentation.AdminPresentationClass;
 import org.broadleafcommerce.common.presentation.AdminPresentationCollection;
@@ -242,7 +243,7 @@ public class OrderImpl implements Order {
 
     @Override
     public Money calculateOrderItemsFinalPrice(boolean includeNonTaxableItems) {
-        Money calculatedSubTotal = BroadleafCurrencyUtils.getMoney(getCurrency());
+        MoneyAccumulator calculatedSubTotal = BroadleafCurrencyUtils.getMoneyAccumulator(getCurrency());
         for (OrderItem orderItem : orderItems) {
             Money price;
             if (includeNonTaxableItems) {
@@ -251,12 +252,12 @@ public class OrderImpl implements Order {
                 price = orderItem.getTaxablePrice();
             }
             if (orderItem instanceof BundleOrderItem) {
-                calculatedSubTotal = calculatedSubTotal.add(price);
+                calculatedSubTotal.add(price);
             } else {
-                calculatedSubTotal = calculatedSubTotal.add(price.multiply(orderItem.getQuantity()));
+                calculatedSubTotal.add(price, orderItem.getQuantity());
             }
         }
-        return calculatedSubTotal;
+        return calculatedSubTotal.toMoney();
     }
 
     @Override
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.order.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link OrderLockManager} that serializes the work on an order within this JVM. A fair lock is created for an
+ * order the first time it is requested and discarded as soon as no thread holds or waits for it, so the number
+ * of locks retained is bounded by the number of orders being worked on concurrently.
+ *
+ * A thread that cannot acquire the lock within <code>pricing.order.lock.timeout</code> milliseconds proceeds
+ * without it rather than failing the request.
+ */
+@Service("blOrderLockManager")
+@ManagedResource(objectName="org.broadleafcommerce:name=OrderLockManager", description="Order Lock Manager", currencyTimeLimit=15)
+public class InMemoryOrderLockManager implements OrderLockManager {
+
+    private static final Log LOG = LogFactory.getLog(InMemoryOrderLockManager.class);
+
+    @Value("${pricing.order.lock.timeout}")
+    protected long lockTimeout = 10000L;
+
+    protected final ConcurrentMap<Long, OrderLock> locks = new ConcurrentHashMap<Long, OrderLock>();
+
+    protected final AtomicLong acquiredCount = new AtomicLong();
+    protected final AtomicLong contendedCount = new AtomicLong();
+    protected final AtomicLong timeoutCount = new AtomicLong();
+    protected final AtomicLong totalWaitTime = new AtomicLong();
+
+    @Override
+    public Object acquireLock(Order order) {
+        if (order == null || order.getId() == null) {
+            return null;
+        }
+        Long orderId = order.getId();
+        OrderLock lock;
+        do {
+            lock = locks.get(orderId);
+            if (lock == null) {
+                lock = new OrderLock(orderId);
+                OrderLock existing = locks.putIfAbsent(orderId, lock);
+                if (existing != null) {
+                    lock = existing;
+                }
+            }
+        } while (!lock.retain());
+
+        boolean acquired = lock.lock.tryLock();
+        if (!acquired) {
+            contendedCount.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                acquired = lock.lock.tryLock(lockTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                totalWaitTime.addAndGet(System.nanoTime() - start);
+            }
+        }
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            release(lock);
+            LOG.warn("Unable to lock order (" + orderId + ") within " + lockTimeout + "ms. Proceeding without the lock.");
+            return null;
+        }
+        acquiredCount.incrementAndGet();
+        return lock;
+    }
+
+    @Override
+    public void releaseLock(Object lockObject) {
+        if (lockObject == null) {
+            return;
+        }
+        OrderLock lock = (OrderLock) lockObject;
+        lock.lock.unlock();
+        release(lock);
+    }
+
+    protected void release(OrderLock lock) {
+        if (lock.discardIfUnused()) {
+            locks.remove(lock.orderId, lock);
+        }
+    }
+
+    @ManagedAttribute(description="The number of order locks acquired", currencyTimeLimit=15)
+    public long getAcquiredCount() {
+        return acquiredCount.get();
+    }
+
+    @ManagedAttribute(description="The number of order lock requests that had to wait for another thread", currencyTimeLimit=15)
+    public long getContendedCount() {
+        return contendedCount.get();
+    }
+
+    @ManagedAttribute(description="The number of order lock requests that timed out", currencyTimeLimit=15)
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    @ManagedAttribute(description="The total time spent waiting for order locks in milliseconds", currencyTimeLimit=15)
+    public long getTotalWaitTimeMillis() {
+        return totalWaitTime.get() / 1000000L;
+    }
+
+    @ManagedAttribute(description="The number of orders currently locked or waited on", currencyTimeLimit=15)
+    public int getActiveLockCount() {
+        return locks.size();
+    }
+
+    @ManagedAttribute(description="The number of milliseconds to wait for an order lock", currencyTimeLimit=15)
+    public long getLockTimeout() {
+        return lockTimeout;
+    }
+
+    @ManagedAttribute(description="The number of milliseconds to wait for an order lock", currencyTimeLimit=15)
+    public void setLockTimeout(long lockTimeout) {
+        this.lockTimeout = lockTimeout;
+    }
+
+    /**
+     * The lock of a single order along with the number of threads that hold or wait for it. Once that number
+     * drops to zero the lock is discarded and can no longer be retained; a new lock is created for the order
+     * instead.
+     */
+    protected static class OrderLock {
+
+        protected final Long orderId;
+        protected final ReentrantLock lock = new ReentrantLock(true);
+        protected int references;
+        protected boolean discarded;
+
+        protected OrderLock(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        protected synchronized boolean retain() {
+            if (discarded) {
+                return false;
+            }
+            references++;
+            return true;
+        }
+
+        protected synchronized boolean discardIfUnused() {
+            references--;
+            if (references == 0) {
+                discarded = true;
+            }
+            return discarded;
+        }
+
+    }
+
+}
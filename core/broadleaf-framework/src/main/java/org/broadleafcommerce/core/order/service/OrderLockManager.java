@@ -0,0 +1,45 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.order.service;
+
+import org.broadleafcommerce.core.order.domain.Order;
+
+/**
+ * Serializes the work done on a single {@link Order}, so that concurrent requests against the same cart (for
+ * example a burst of add to cart calls) queue behind one another instead of contending for database locks
+ * while the order is priced and saved.
+ */
+public interface OrderLockManager {
+
+    /**
+     * Blocks until the lock for the order is available. Locks are reentrant.
+     *
+     * @param order the order to lock
+     * @return the lock object to pass to {@link #releaseLock(Object)}, or null if the order could not be locked,
+     * either because it has not been persisted or because the lock could not be acquired in time. The caller
+     * may then proceed without holding the lock.
+     */
+    public Object acquireLock(Order order);
+
+    /**
+     * Releases a lock obtained from {@link #acquireLock(Order)}. Passing null is a no-op.
+     *
+     * @param lockObject the lock to release
+     */
+    public void releaseLock(Object lockObject);
+
+}
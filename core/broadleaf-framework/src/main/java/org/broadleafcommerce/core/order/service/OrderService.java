@@ -30,6 +30,7 @@ import org.broadleafcommerce.core.payment.domain.PaymentInfo;
 import org.broadleafcommerce.core.payment.domain.Referenced;
 import org.broadleafcommerce.core.payment.service.type.PaymentInfoType;
 import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.broadleafcommerce.core.pricing.service.workflow.PricingChangeSet;
 import org.broadleafcommerce.core.workflow.WorkflowException;
 import org.broadleafcommerce.profile.core.domain.Customer;
 
@@ -168,6 +169,19 @@ public interface OrderService {
      * @throws PricingException
      */
     public Order save(Order order, Boolean priceOrder) throws PricingException;
+
+    /**
+     * Persists the given order to the database in the same manner as {@link #save(Order, Boolean)}. When
+     * the order is priced, only the parts of the order described by the change set are repriced. A null
+     * change set prices the entire order.
+     * 
+     * @param order
+     * @param priceOrder
+     * @param changeSet
+     * @return the persisted Order, which will be a different instance than the Order passed in
+     * @throws PricingException
+     */
+    public Order save(Order order, Boolean priceOrder, PricingChangeSet changeSet) throws PricingException;
     
     /**
      * Deletes the given order. Note that the default Broadleaf implementation in 
@@ -45,6 +45,7 @@ import org.broadleafcommerce.core.payment.service.SecurePaymentInfoService;
 import org.broadleafcommerce.core.payment.service.type.PaymentInfoType;
 import org.broadleafcommerce.core.pricing.service.PricingService;
 import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.broadleafcommerce.core.pricing.service.workflow.PricingChangeSet;
 import org.broadleafcommerce.core.workflow.SequenceProcessor;
 import org.broadleafcommerce.core.workflow.WorkflowException;
 import org.broadleafcommerce.profile.core.domain.Customer;
@@ -63,6 +64,8 @@ import org.springframework.transaction.support.DefaultTransactionDefinition;
 import javax.annotation.Resource;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author apazzolini
@@ -126,6 +129,16 @@ public class OrderServiceImpl implements OrderService {
 
     @Value("${pricing.retry.wait.interval.for.lock.failure}")
     protected long pricingRetryWaitIntervalForLockFailure = 500L;
+
+    @Value("${pricing.retry.max.wait.interval.for.lock.failure}")
+    protected long pricingRetryMaxWaitIntervalForLockFailure = 5000L;
+
+    @Resource(name = "blOrderLockManager")
+    protected OrderLockManager orderLockManager;
+
+    protected final Random random = new Random();
+    protected final AtomicLong pricingLockFailureCount = new AtomicLong();
+    protected final AtomicLong pricingRetryExhaustedCount = new AtomicLong();
     
     /* Fields */
     protected boolean moveNamedOrderItems = true;
@@ -214,6 +227,28 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Order save(Order order, Boolean priceOrder) throws PricingException {
+        return save(order, priceOrder, null);
+    }
+
+    /**
+     * Saves the order, prices it if requested and saves the priced order. Concurrent saves of the same order are
+     * serialized through the {@link OrderLockManager}, so that requests against the same cart price one after
+     * another rather than contending for database locks. Should pricing still fail to acquire a database lock,
+     * it is retried against the persisted state after an exponentially increasing, jittered wait.
+     */
+    @Override
+    public Order save(Order order, Boolean priceOrder, PricingChangeSet changeSet) throws PricingException {
+        Object lock = orderLockManager == null ? null : orderLockManager.acquireLock(order);
+        try {
+            return saveAndPrice(order, priceOrder, changeSet);
+        } finally {
+            if (lock != null) {
+                orderLockManager.releaseLock(lock);
+            }
+        }
+    }
+
+    protected Order saveAndPrice(Order order, Boolean priceOrder, PricingChangeSet changeSet) throws PricingException {
         //persist the order first
         DefaultTransactionDefinition def = new DefaultTransactionDefinition();
         def.setName("saveOrder");
@@ -234,50 +269,40 @@ public class OrderServiceImpl implements OrderService {
             boolean isValid = false;
             while (!isValid) {
                 try {
-                    order = pricingService.executePricing(order);
+                    order = pricingService.executePricing(order, changeSet);
                     isValid = true;
                 } catch (Exception ex) {
-                    boolean isValidCause = false;
-                    Throwable cause = ex;
-                    while (!isValidCause) {
-                        if (cause.getClass().equals(LockAcquisitionException.class)) {
-                            isValidCause = true;
-                        }
-                        cause = cause.getCause();
-                        if (cause == null) {
-                            break;
+                    if (!isLockFailure(ex)) {
+                        if (ex instanceof PricingException) {
+                            throw (PricingException) ex;
+                        } else {
+                            throw new PricingException(ex);
                         }
                     }
-                    if (isValidCause) {
+                    pricingLockFailureCount.incrementAndGet();
+                    if (retryCount >= pricingRetryCountForLockFailure) {
+                        pricingRetryExhaustedCount.incrementAndGet();
                         if (LOG.isInfoEnabled()) {
-                            LOG.info("Problem acquiring lock during pricing call - attempting to price again.");
+                            LOG.info("Problem acquiring lock during pricing call. Retry limit exceeded at (" + retryCount + "). Throwing exception.");
                         }
-                        isValid = false;
-                        if (retryCount >= pricingRetryCountForLockFailure) {
-                            if (LOG.isInfoEnabled()) {
-                                LOG.info("Problem acquiring lock during pricing call. Retry limit exceeded at (" + retryCount + "). Throwing exception.");
-                            }
-                            if (ex instanceof PricingException) {
-                                throw (PricingException) ex;
-                            } else {
-                                throw new PricingException(ex);
-                            }
-                        } else {
-                            order = findOrderById(order.getId());
-                            retryCount++;
-                        }
-                        try {
-                            Thread.sleep(pricingRetryWaitIntervalForLockFailure);
-                        } catch (Throwable e) {
-                            //do nothing
-                        }
-                    } else {
                         if (ex instanceof PricingException) {
                             throw (PricingException) ex;
                         } else {
                             throw new PricingException(ex);
                         }
                     }
+                    retryCount++;
+                    long waitInterval = getPricingRetryWaitInterval(retryCount);
+                    if (LOG.isInfoEnabled()) {
+                        LOG.info("Problem acquiring lock during pricing call - attempting to price again in " + waitInterval + "ms.");
+                    }
+                    try {
+                        Thread.sleep(waitInterval);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new PricingException("Interrupted while waiting to retry pricing", ex);
+                    }
+                    order = findOrderById(order.getId());
                 }
             }
 
@@ -299,6 +324,41 @@ public class OrderServiceImpl implements OrderService {
         return order;
     }
 
+    protected boolean isLockFailure(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause.getClass().equals(LockAcquisitionException.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the time to wait before the given pricing retry. The wait doubles with each retry, up to
+     * pricingRetryMaxWaitIntervalForLockFailure, and is randomized over the upper half of that range so that
+     * requests that failed together do not retry together.
+     *
+     * @param retryCount the retry about to be made, starting at 1
+     */
+    protected long getPricingRetryWaitInterval(int retryCount) {
+        long interval = pricingRetryWaitIntervalForLockFailure << Math.min(retryCount - 1, 16);
+        if (interval <= 0 || interval > pricingRetryMaxWaitIntervalForLockFailure) {
+            interval = pricingRetryMaxWaitIntervalForLockFailure;
+        }
+        long half = interval / 2;
+        return half + (long) (random.nextDouble() * (interval - half + 1));
+    }
+
+    @ManagedAttribute(description="The number of pricing attempts that failed to acquire a database lock", currencyTimeLimit=15)
+    public long getPricingLockFailureCount() {
+        return pricingLockFailureCount.get();
+    }
+
+    @ManagedAttribute(description="The number of pricing calls that failed after exhausting their retries", currencyTimeLimit=15)
+    public long getPricingRetryExhaustedCount() {
+        return pricingRetryExhaustedCount.get();
+    }
+
     protected void finalizeTransaction(TransactionStatus status, boolean isError) {
         boolean isActive = false;
         try {
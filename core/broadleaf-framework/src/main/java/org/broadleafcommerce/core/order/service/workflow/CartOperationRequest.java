@@ -19,6 +19,7 @@ package org.broadleafcommerce.core.order.service.workflow;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.domain.OrderItem;
 import org.broadleafcommerce.core.order.service.call.OrderItemRequestDTO;
+import org.broadleafcommerce.core.pricing.service.workflow.PricingChangeSet;
 
 /**
  * This class represents the basic context necessary for the execution
@@ -40,6 +41,9 @@ public class CartOperationRequest {
     // Set during the course of the workflow for use in subsequent workflow steps
     protected Integer orderItemQuantityDelta;
     
+    // Set during the course of the workflow to limit repricing to the affected fulfillment groups
+    protected PricingChangeSet pricingChangeSet;
+    
     public CartOperationRequest(Order order, OrderItemRequestDTO itemRequest, boolean priceOrder) {
         setOrder(order);
         setItemRequest(itemRequest);
@@ -85,5 +89,33 @@ public class CartOperationRequest {
     public void setOrderItemQuantityDelta(Integer orderItemQuantityDelta) {
         this.orderItemQuantityDelta = orderItemQuantityDelta;
     }
+
+    /**
+     * @return the changes recorded so far by this operation, or null if none were recorded, in
+     * which case the entire order will be repriced
+     */
+    public PricingChangeSet getPricingChangeSet() {
+        return pricingChangeSet;
+    }
+
+    public void setPricingChangeSet(PricingChangeSet pricingChangeSet) {
+        this.pricingChangeSet = pricingChangeSet;
+    }
+
+    public void markOrderItemChanged(OrderItem orderItem) {
+        markOrderItemChanged(orderItem == null ? null : orderItem.getId());
+    }
+
+    /**
+     * Records that the given order item changed, along with the fulfillment groups that currently contain it
+     * 
+     * @param orderItemId
+     */
+    public void markOrderItemChanged(Long orderItemId) {
+        if (pricingChangeSet == null) {
+            pricingChangeSet = new PricingChangeSet();
+        }
+        pricingChangeSet.markOrderItemChanged(order, orderItemId);
+    }
     
 }
@@ -35,7 +35,7 @@ public class PriceOrderIfNecessaryActivity extends BaseActivity {
         CartOperationRequest request = ((CartOperationContext) context).getSeedData();
         Order order = request.getOrder();
         
-        order = orderService.save(order, request.isPriceOrder());
+        order = orderService.save(order, request.isPriceOrder(), request.getPricingChangeSet());
         request.setOrder(order);
         
         return context;
@@ -33,6 +33,7 @@ public class AddFulfillmentGroupItemActivity extends BaseActivity {
         CartOperationRequest request = ((CartOperationContext) context).getSeedData();
         
         request = fgItemStrategy.onItemAdded(request);
+        request.markOrderItemChanged(request.getAddedOrderItem());
         
         ((CartOperationContext) context).setSeedData(request);
         return context;
@@ -32,6 +32,7 @@ public class RemoveFulfillmentGroupItemActivity extends BaseActivity {
     public ProcessContext execute(ProcessContext context) throws Exception {
         CartOperationRequest request = ((CartOperationContext) context).getSeedData();
         
+        request.markOrderItemChanged(request.getItemRequest().getOrderItemId());
         request = fgItemStrategy.onItemRemoved(request);
         
         ((CartOperationContext) context).setSeedData(request);
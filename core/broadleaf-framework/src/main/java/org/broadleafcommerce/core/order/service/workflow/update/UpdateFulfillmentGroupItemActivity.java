@@ -32,7 +32,10 @@ public class UpdateFulfillmentGroupItemActivity extends BaseActivity {
     public ProcessContext execute(ProcessContext context) throws Exception {
         CartOperationRequest request = ((CartOperationContext) context).getSeedData();
         
+        // The item may move between fulfillment groups, so both its old and new groups are repriced
+        request.markOrderItemChanged(request.getAddedOrderItem());
         request = fgItemStrategy.onItemUpdated(request);
+        request.markOrderItemChanged(request.getAddedOrderItem());
         
         ((CartOperationContext) context).setSeedData(request);
         return context;
@@ -49,6 +49,16 @@ public interface FulfillmentPricingService {
      */
     public FulfillmentGroup calculateCostForFulfillmentGroup(FulfillmentGroup fulfillmentGroup) throws FulfillmentPriceException;
 
+    /**
+     * Calculates the cost of each of the {@link FulfillmentGroup}s as {@link #calculateCostForFulfillmentGroup(FulfillmentGroup)}
+     * would. Implementations may price the groups concurrently, since the cost of one group does not depend on another.
+     *
+     * @param fulfillmentGroups
+     * @return the updated fulfillment groups, in the same order as <b>fulfillmentGroups</b>
+     * @throws FulfillmentPriceException if any of the groups could not be priced
+     */
+    public List<FulfillmentGroup> calculateCostForFulfillmentGroups(List<FulfillmentGroup> fulfillmentGroups) throws FulfillmentPriceException;
+
     /**
      * This provides an estimation for a {@link FulfillmentGroup} with a {@link FulfillmentOption}. The main use case for this method
      * is in a view cart controller that wants to provide estimations for different {@link FulfillmentOption}s before the user
@@ -20,30 +20,107 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.common.vendor.service.exception.FulfillmentPriceException;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.order.domain.BundleOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
 import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.broadleafcommerce.core.order.domain.OrderItem;
+import org.broadleafcommerce.core.order.fulfillment.domain.BandedPriceFulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.BandedWeightFulfillmentOption;
 import org.broadleafcommerce.core.order.service.FulfillmentGroupService;
 import org.broadleafcommerce.core.pricing.service.fulfillment.provider.FulfillmentEstimationResponse;
 import org.broadleafcommerce.core.pricing.service.fulfillment.provider.FulfillmentPricingProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Default {@link FulfillmentPricingService}. When <code>pricing.fulfillment.parallelism</code> is greater than 1,
+ * orders with at least <code>pricing.fulfillment.parallel.threshold</code> fulfillment groups to price have their
+ * groups priced concurrently on a bounded pool. Before the groups are handed to the pool, the associations the
+ * built in providers read (items, order items, skus and the fulfillment option) are initialized on the calling
+ * thread so that no lazy loading happens concurrently in the same persistence context. Providers that read other
+ * lazy associations should only be used with the default parallelism of 1.
+ *
+ * The time spent in each provider is recorded and exposed through JMX.
+ */
 @Service("blFulfillmentPricingService")
+@ManagedResource(objectName="org.broadleafcommerce:name=FulfillmentPricingService", description="Fulfillment Pricing Service", currencyTimeLimit=15)
 public class FulfillmentPricingServiceImpl implements FulfillmentPricingService {
     
     protected static final Log LOG  = LogFactory.getLog(FulfillmentPricingServiceImpl.class);
 
+    @Value("${pricing.fulfillment.parallelism}")
+    protected int parallelism = 1;
+
+    @Value("${pricing.fulfillment.parallel.threshold}")
+    protected int parallelThreshold = 4;
+
+    @Value("${pricing.fulfillment.timeout}")
+    protected long timeout = 30000L;
+
+    protected ThreadPoolExecutor executor;
+
+    protected final ConcurrentMap<String, ProviderStatistics> providerStatistics = new ConcurrentHashMap<String, ProviderStatistics>();
+
     @Resource(name = "blFulfillmentPricingProviders")
     protected List<FulfillmentPricingProvider> providers;
     
     @Resource(name = "blFulfillmentGroupService")
     protected FulfillmentGroupService fulfillmentGroupService;
 
+    @PostConstruct
+    public void init() {
+        if (parallelism > 1) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(parallelism * 16), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "blFulfillmentPricing-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
     @Override
     public FulfillmentGroup calculateCostForFulfillmentGroup(FulfillmentGroup fulfillmentGroup) throws FulfillmentPriceException {
 
@@ -57,7 +134,15 @@ public class FulfillmentPricingServiceImpl implements FulfillmentPricingService
         
         for (FulfillmentPricingProvider provider : providers) {
             if (provider.canCalculateCostForFulfillmentGroup(fulfillmentGroup, fulfillmentGroup.getFulfillmentOption())) {
-                return provider.calculateCostForFulfillmentGroup(fulfillmentGroup);
+                long start = System.nanoTime();
+                boolean failed = true;
+                try {
+                    FulfillmentGroup result = provider.calculateCostForFulfillmentGroup(fulfillmentGroup);
+                    failed = false;
+                    return result;
+                } finally {
+                    getProviderStatistics(provider).record(System.nanoTime() - start, failed);
+                }
             }
         }
 
@@ -66,6 +151,151 @@ public class FulfillmentPricingServiceImpl implements FulfillmentPricingService
                         " and name: " + fulfillmentGroup.getFulfillmentOption().getName());
     }
     
+    @Override
+    public List<FulfillmentGroup> calculateCostForFulfillmentGroups(List<FulfillmentGroup> fulfillmentGroups) throws FulfillmentPriceException {
+        List<FulfillmentGroup> results = new ArrayList<FulfillmentGroup>(fulfillmentGroups.size());
+        if (executor == null || fulfillmentGroups.size() < parallelThreshold) {
+            for (FulfillmentGroup fulfillmentGroup : fulfillmentGroups) {
+                results.add(calculateCostForFulfillmentGroup(fulfillmentGroup));
+            }
+            return results;
+        }
+
+        final BroadleafRequestContext requestContext = BroadleafRequestContext.getBroadleafRequestContext();
+        List<Future<FulfillmentGroup>> futures = new ArrayList<Future<FulfillmentGroup>>(fulfillmentGroups.size());
+        for (FulfillmentGroup fulfillmentGroup : fulfillmentGroups) {
+            initializeForConcurrentPricing(fulfillmentGroup);
+        }
+        try {
+            for (final FulfillmentGroup fulfillmentGroup : fulfillmentGroups) {
+                futures.add(executor.submit(new Callable<FulfillmentGroup>() {
+                    @Override
+                    public FulfillmentGroup call() throws Exception {
+                        BroadleafRequestContext previous = BroadleafRequestContext.getBroadleafRequestContext();
+                        BroadleafRequestContext.setBroadleafRequestContext(requestContext);
+                        try {
+                            return calculateCostForFulfillmentGroup(fulfillmentGroup);
+                        } finally {
+                            BroadleafRequestContext.setBroadleafRequestContext(previous);
+                        }
+                    }
+                }));
+            }
+
+            long deadline = System.currentTimeMillis() + timeout;
+            for (Future<FulfillmentGroup> future : futures) {
+                try {
+                    results.add(future.get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof FulfillmentPriceException) {
+                        throw (FulfillmentPriceException) e.getCause();
+                    }
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new FulfillmentPriceException("Unable to price the fulfillment groups", e.getCause());
+                } catch (TimeoutException e) {
+                    throw new FulfillmentPriceException("The fulfillment groups were not priced within " + timeout + "ms", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new FulfillmentPriceException("Interrupted while pricing the fulfillment groups", e);
+                }
+            }
+            return results;
+        } finally {
+            for (Future<FulfillmentGroup> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Initializes the associations read while pricing the fulfillment group, so that the pricing threads only
+     * read state that is already loaded.
+     */
+    protected void initializeForConcurrentPricing(FulfillmentGroup fulfillmentGroup) {
+        FulfillmentOption option = fulfillmentGroup.getFulfillmentOption();
+        if (option instanceof BandedPriceFulfillmentOption) {
+            ((BandedPriceFulfillmentOption) option).getBands().size();
+        } else if (option instanceof BandedWeightFulfillmentOption) {
+            ((BandedWeightFulfillmentOption) option).getBands().size();
+        }
+        if (fulfillmentGroup.getOrder() != null) {
+            fulfillmentGroup.getOrder().getCurrency();
+        }
+        for (FulfillmentGroupItem fulfillmentGroupItem : fulfillmentGroup.getFulfillmentGroupItems()) {
+            OrderItem orderItem = fulfillmentGroupItem.getOrderItem();
+            Sku sku = null;
+            if (orderItem instanceof DiscreteOrderItem) {
+                sku = ((DiscreteOrderItem) orderItem).getSku();
+            } else if (orderItem instanceof BundleOrderItem) {
+                sku = ((BundleOrderItem) orderItem).getSku();
+            }
+            if (sku != null) {
+                sku.getFulfillmentFlatRates().size();
+                sku.getWeight();
+            }
+        }
+    }
+
+    protected ProviderStatistics getProviderStatistics(FulfillmentPricingProvider provider) {
+        String name = provider.getClass().getName();
+        ProviderStatistics statistics = providerStatistics.get(name);
+        if (statistics == null) {
+            statistics = new ProviderStatistics();
+            ProviderStatistics existing = providerStatistics.putIfAbsent(name, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the number of calls, failures and the average and maximum latency of each provider, keyed by the
+     * provider class
+     */
+    @ManagedAttribute(description="The latency of each fulfillment pricing provider", currencyTimeLimit=15)
+    public Map<String, String> getProviderLatencies() {
+        Map<String, String> latencies = new TreeMap<String, String>();
+        for (Map.Entry<String, ProviderStatistics> entry : providerStatistics.entrySet()) {
+            latencies.put(entry.getKey(), entry.getValue().toString());
+        }
+        return latencies;
+    }
+
+    @ManagedOperation(description="Reset the provider latency statistics")
+    public void resetProviderLatencies() {
+        providerStatistics.clear();
+    }
+
+    @ManagedAttribute(description="The number of threads used to price fulfillment groups concurrently", currencyTimeLimit=15)
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @ManagedAttribute(description="The minimum number of fulfillment groups priced concurrently", currencyTimeLimit=15)
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    @ManagedAttribute(description="The minimum number of fulfillment groups priced concurrently", currencyTimeLimit=15)
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
     @Override
     public FulfillmentEstimationResponse estimateCostForFulfillmentGroup(FulfillmentGroup fulfillmentGroup, Set<FulfillmentOption> options) throws FulfillmentPriceException {
         FulfillmentEstimationResponse response = new FulfillmentEstimationResponse();
@@ -103,4 +333,32 @@ public class FulfillmentPricingServiceImpl implements FulfillmentPricingService
         this.providers = providers;
     }
 
+    protected static class ProviderStatistics {
+
+        protected final AtomicLong count = new AtomicLong();
+        protected final AtomicLong failureCount = new AtomicLong();
+        protected final AtomicLong totalTime = new AtomicLong();
+        protected final AtomicLong maxTime = new AtomicLong();
+
+        protected void record(long nanos, boolean failed) {
+            count.incrementAndGet();
+            if (failed) {
+                failureCount.incrementAndGet();
+            }
+            totalTime.addAndGet(nanos);
+            long max = maxTime.get();
+            while (nanos > max && !maxTime.compareAndSet(max, nanos)) {
+                max = maxTime.get();
+            }
+        }
+
+        @Override
+        public String toString() {
+            long calls = count.get();
+            return String.format("calls: [%s], failures: [%s], average: [%.3fms], max: [%.3fms]", calls, failureCount.get(),
+                    calls == 0 ? 0D : totalTime.get() / 1000000D / calls, maxTime.get() / 1000000D);
+        }
+
+    }
+
 }
@@ -18,9 +18,21 @@ package org.broadleafcommerce.core.pricing.service;
 
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.broadleafcommerce.core.pricing.service.workflow.PricingChangeSet;
 
 public interface PricingService {
 
     public Order executePricing(Order order) throws PricingException;
 
+    /**
+     * Executes the pricing workflow, only repricing the parts of the order described by the change set.
+     * A null change set prices the entire order.
+     * 
+     * @param order
+     * @param changeSet
+     * @return the priced order
+     * @throws PricingException
+     */
+    public Order executePricing(Order order, PricingChangeSet changeSet) throws PricingException;
+
 }
@@ -20,7 +20,9 @@ import javax.annotation.Resource;
 
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.broadleafcommerce.core.pricing.service.workflow.PricingChangeSet;
 import org.broadleafcommerce.core.pricing.service.workflow.PricingContext;
+import org.broadleafcommerce.core.pricing.service.workflow.PricingRequest;
 import org.broadleafcommerce.core.workflow.SequenceProcessor;
 import org.broadleafcommerce.core.workflow.WorkflowException;
 import org.springframework.stereotype.Service;
@@ -32,8 +34,12 @@ public class PricingServiceImpl implements PricingService {
     protected SequenceProcessor pricingWorkflow;
 
     public Order executePricing(Order order) throws PricingException {
+        return executePricing(order, null);
+    }
+
+    public Order executePricing(Order order, PricingChangeSet changeSet) throws PricingException {
         try {
-            PricingContext context = (PricingContext) pricingWorkflow.doActivities(order);
+            PricingContext context = (PricingContext) pricingWorkflow.doActivities(new PricingRequest(order, changeSet));
             Order response = context.getSeedData();
 
             return response;
@@ -37,10 +37,13 @@ import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentWeightBand
 import org.broadleafcommerce.core.order.service.type.FulfillmentBandResultAmountType;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>Used in conjunction with {@link BandedPriceFulfillmentOption} and {@link BandedWeightFulfillmentOption}. 
@@ -51,6 +54,9 @@ import java.util.Set;
  * <p>
  * Note: For {@link BandedWeightFulfillmentOption}, this assumes that all of your weights have the same units
  * </p>
+ * <p>The bands of each option are indexed by their minimum amount the first time the option is priced, so finding
+ * the band for a fulfillment group is a binary search. The index is reused for as long as the option holds the
+ * same collection of bands, which makes it shared by every fulfillment group of a multi-ship order.</p>
  * @author Phillip Verheyden
  * @see {@link BandedPriceFulfillmentOption}, {@link FulfillmentPriceBand}
  */
@@ -58,6 +64,8 @@ public class BandedFulfillmentPricingProvider implements FulfillmentPricingProvi
 
     protected static final Log LOG = LogFactory.getLog(BandedFulfillmentPricingProvider.class);
 
+    protected final ConcurrentMap<Long, BandIndex> bandIndexes = new ConcurrentHashMap<Long, BandIndex>();
+
     @Override
     public boolean canCalculateCostForFulfillmentGroup(FulfillmentGroup fulfillmentGroup, FulfillmentOption option) {
         return (option instanceof BandedPriceFulfillmentOption) || (option instanceof BandedWeightFulfillmentOption);
@@ -74,13 +82,11 @@ public class BandedFulfillmentPricingProvider implements FulfillmentPricingProvi
         }
 
         if (canCalculateCostForFulfillmentGroup(fulfillmentGroup, fulfillmentGroup.getFulfillmentOption())) {
-            //In this case, the estimation logic is the same as calculation logic. Call the estimation service to get the prices.
-            HashSet<FulfillmentOption> options = new HashSet<FulfillmentOption>();
-            options.add(fulfillmentGroup.getFulfillmentOption());
-            FulfillmentEstimationResponse response = estimateCostForFulfillmentGroup(fulfillmentGroup, options);
-            fulfillmentGroup.setSaleShippingPrice(response.getFulfillmentOptionPrices().get(fulfillmentGroup.getFulfillmentOption()));
-            fulfillmentGroup.setRetailShippingPrice(response.getFulfillmentOptionPrices().get(fulfillmentGroup.getFulfillmentOption()));
-            fulfillmentGroup.setShippingPrice(response.getFulfillmentOptionPrices().get(fulfillmentGroup.getFulfillmentOption()));
+            //In this case, the estimation logic is the same as calculation logic.
+            Money price = calculateCostForOption(fulfillmentGroup, fulfillmentGroup.getFulfillmentOption());
+            fulfillmentGroup.setSaleShippingPrice(price);
+            fulfillmentGroup.setRetailShippingPrice(price);
+            fulfillmentGroup.setShippingPrice(price);
 
             return fulfillmentGroup;
         }
@@ -98,132 +104,130 @@ public class BandedFulfillmentPricingProvider implements FulfillmentPricingProvi
 
         for (FulfillmentOption option : options) {
             if (canCalculateCostForFulfillmentGroup(fulfillmentGroup, option)) {
-                
-                List<? extends FulfillmentBand> bands = null;
-                if (option instanceof BandedPriceFulfillmentOption) {
-                    bands = ((BandedPriceFulfillmentOption) option).getBands();
-                } else if (option instanceof BandedWeightFulfillmentOption) {
-                    bands = ((BandedWeightFulfillmentOption) option).getBands();
+                shippingPrices.put(option, calculateCostForOption(fulfillmentGroup, option));
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Calculates the cost of fulfilling the group with the given banded option
+     */
+    protected Money calculateCostForOption(FulfillmentGroup fulfillmentGroup, FulfillmentOption option) {
+        BandIndex index = getBandIndex(option);
+
+        //Calculate the amount that the band will be applied to
+        BigDecimal retailTotal = BigDecimal.ZERO;
+        BigDecimal flatTotal = BigDecimal.ZERO;
+
+        BigDecimal weightTotal = BigDecimal.ZERO;
+        for (FulfillmentGroupItem fulfillmentGroupItem : fulfillmentGroup.getFulfillmentGroupItems()) {
+
+            //If this item has a Sku associated with it which also has a flat rate for this fulfillment option, don't add it to the price
+            //or weight total but instead tack it onto the final rate
+            boolean addToTotal = true;
+            Sku sku = null;
+            if (fulfillmentGroupItem.getOrderItem() instanceof DiscreteOrderItem) {
+                sku = ((DiscreteOrderItem)fulfillmentGroupItem.getOrderItem()).getSku();
+            } else if (fulfillmentGroupItem.getOrderItem() instanceof BundleOrderItem) {
+                sku = ((BundleOrderItem)fulfillmentGroupItem.getOrderItem()).getSku();
+            }
+
+            if (sku != null && option.getUseFlatRates()) {
+                BigDecimal rate = sku.getFulfillmentFlatRates().get(option);
+                if (rate != null) {
+                    addToTotal = false;
+                    flatTotal = flatTotal.add(rate);
                 }
-                
-                if (bands == null || bands.isEmpty()) {
-                    //Something is misconfigured. There are no bands associated with this fulfillment option
-                    throw new IllegalStateException("There were no Fulfillment Price Bands configured for a BandedPriceFulfillmentOption with ID: "
-                            + option.getId());
+            }
+
+            if (addToTotal) {
+                BigDecimal price = (fulfillmentGroupItem.getPrice() != null) ? fulfillmentGroupItem.getPrice().getAmount().multiply(BigDecimal.valueOf(fulfillmentGroupItem.getQuantity())) : null;
+                if (price == null) {
+                    price = fulfillmentGroupItem.getOrderItem().getPrice().getAmount().multiply(BigDecimal.valueOf(fulfillmentGroupItem.getQuantity()));
                 }
+                retailTotal = retailTotal.add(price);
 
-                //Calculate the amount that the band will be applied to
-                BigDecimal retailTotal = BigDecimal.ZERO;
-                BigDecimal flatTotal = BigDecimal.ZERO;
-                
-                BigDecimal weightTotal = BigDecimal.ZERO;
-                for (FulfillmentGroupItem fulfillmentGroupItem : fulfillmentGroup.getFulfillmentGroupItems()) {
-                    
-                    //If this item has a Sku associated with it which also has a flat rate for this fulfillment option, don't add it to the price
-                    //or weight total but instead tack it onto the final rate
-                    boolean addToTotal = true;
-                    Sku sku = null;
-                    if (fulfillmentGroupItem.getOrderItem() instanceof DiscreteOrderItem) {
-                        sku = ((DiscreteOrderItem)fulfillmentGroupItem.getOrderItem()).getSku();
-                    } else if (fulfillmentGroupItem.getOrderItem() instanceof BundleOrderItem) {
-                        sku = ((BundleOrderItem)fulfillmentGroupItem.getOrderItem()).getSku();
-                    }
-
-                    if (sku != null && option.getUseFlatRates()) {                        
-                        BigDecimal rate = sku.getFulfillmentFlatRates().get(option);
-                        if (rate != null) {
-                            addToTotal = false;
-                            flatTotal = flatTotal.add(rate);
-                        }
-                    }
-                    
-                    if (addToTotal) {
-                        BigDecimal price = (fulfillmentGroupItem.getPrice() != null) ? fulfillmentGroupItem.getPrice().getAmount().multiply(BigDecimal.valueOf(fulfillmentGroupItem.getQuantity())) : null;
-                        if (price == null) {
-                            price = fulfillmentGroupItem.getOrderItem().getPrice().getAmount().multiply(BigDecimal.valueOf(fulfillmentGroupItem.getQuantity()));
-                        }
-                        retailTotal = retailTotal.add(price);
-                        
-                        if (sku != null && sku.getWeight() != null && sku.getWeight().getWeight() != null) {
-                            BigDecimal convertedWeight = convertWeight(sku.getWeight().getWeight(), sku.getWeight().getWeightUnitOfMeasure()).multiply(BigDecimal.valueOf(fulfillmentGroupItem.getQuantity()));
-                            weightTotal = weightTotal.add(convertedWeight);
-                        }
-                    }
+                if (index.weightBased && sku != null && sku.getWeight() != null && sku.getWeight().getWeight() != null) {
+                    BigDecimal convertedWeight = convertWeight(sku.getWeight().getWeight(), sku.getWeight().getWeightUnitOfMeasure()).multiply(BigDecimal.valueOf(fulfillmentGroupItem.getQuantity()));
+                    weightTotal = weightTotal.add(convertedWeight);
                 }
-                
-                //Used to keep track of the lowest price when there is are bands that have the same
-                //minimum amount
-                BigDecimal lowestBandFulfillmentPrice = null;
-                //Used to keep track of the amount for the lowest band fulfillment price. Used to compare
-                //if 2 bands are configured for the same minimum amount
-                BigDecimal lowestBandFulfillmentPriceMinimumAmount = BigDecimal.ZERO;
-                for (FulfillmentBand band : bands) {
-                    
-                    BigDecimal bandMinimumAmount = BigDecimal.ZERO;
-                    boolean foundMatch = false;
-                    if (band instanceof FulfillmentPriceBand) {
-                        bandMinimumAmount = ((FulfillmentPriceBand) band).getRetailPriceMinimumAmount();
-                        foundMatch = retailTotal.compareTo(bandMinimumAmount) >= 0;
-                    } else if (band instanceof FulfillmentWeightBand) {
-                        bandMinimumAmount = ((FulfillmentWeightBand) band).getMinimumWeight();
-                        foundMatch = weightTotal.compareTo(bandMinimumAmount) >= 0;
-                    }
-                    
-                    if (foundMatch) {
-                        //So far, we've found a potential match
-                        //Now, determine if this is a percentage or actual amount
-                        FulfillmentBandResultAmountType resultAmountType = band.getResultAmountType();
-                        BigDecimal bandFulfillmentPrice = null;
-                        if (FulfillmentBandResultAmountType.RATE.equals(resultAmountType)) {
-                            bandFulfillmentPrice = band.getResultAmount();
-                        } else if (FulfillmentBandResultAmountType.PERCENTAGE.equals(resultAmountType)) {
-                            //Since this is a percentage, we calculate the result amount based on retailTotal and the band percentage
-                            bandFulfillmentPrice = retailTotal.multiply(band.getResultAmount());
-                        } else {
-                            LOG.warn("Unknown FulfillmentBandResultAmountType: " + resultAmountType.getType() + " Should be RATE or PERCENTAGE. Ignoring.");
-                        }
-                        
-                        if (bandFulfillmentPrice != null) {
-                            
-                            //haven't initialized the lowest price yet so just take on this one
-                            if (lowestBandFulfillmentPrice == null) {
-                                lowestBandFulfillmentPrice = bandFulfillmentPrice;
-                                lowestBandFulfillmentPriceMinimumAmount = bandMinimumAmount;
-                            }
-                            
-                            //If there is a duplicate price band (meaning, 2 price bands are configured with the same miniumum retail price)
-                            //then the lowest fulfillment amount should only be updated if the result of the current band being looked at
-                            //is cheaper
-                            if (lowestBandFulfillmentPriceMinimumAmount.compareTo(bandMinimumAmount) == 0) {
-                                if (bandFulfillmentPrice.compareTo(lowestBandFulfillmentPrice) <= 0) {
-                                    lowestBandFulfillmentPrice = bandFulfillmentPrice;
-                                    lowestBandFulfillmentPriceMinimumAmount = bandMinimumAmount;
-                                }
-                            } else if (bandMinimumAmount.compareTo(lowestBandFulfillmentPriceMinimumAmount) > 0) {
-                                lowestBandFulfillmentPrice = bandFulfillmentPrice;
-                                lowestBandFulfillmentPriceMinimumAmount = bandMinimumAmount;
-                            }
-                            
-                        } else {
-                            throw new IllegalStateException("Bands must have a non-null fulfillment price");
-                        }
-                    }
+            }
+        }
+
+        //The matching band is the one with the highest minimum that the total reaches. If 2 bands are configured
+        //with that minimum, the cheaper of the 2 is used.
+        BigDecimal lowestBandFulfillmentPrice = null;
+        List<FulfillmentBand> matchingBands = index.findBands(index.weightBased ? weightTotal : retailTotal);
+        if (matchingBands != null) {
+            for (FulfillmentBand band : matchingBands) {
+                //Determine if this is a percentage or actual amount
+                FulfillmentBandResultAmountType resultAmountType = band.getResultAmountType();
+                BigDecimal bandFulfillmentPrice = null;
+                if (FulfillmentBandResultAmountType.RATE.equals(resultAmountType)) {
+                    bandFulfillmentPrice = band.getResultAmount();
+                } else if (FulfillmentBandResultAmountType.PERCENTAGE.equals(resultAmountType)) {
+                    //Since this is a percentage, we calculate the result amount based on retailTotal and the band percentage
+                    bandFulfillmentPrice = retailTotal.multiply(band.getResultAmount());
+                } else {
+                    LOG.warn("Unknown FulfillmentBandResultAmountType: " + resultAmountType.getType() + " Should be RATE or PERCENTAGE. Ignoring.");
+                }
+
+                if (bandFulfillmentPrice == null) {
+                    throw new IllegalStateException("Bands must have a non-null fulfillment price");
                 }
-                
-                //If I didn't find a valid band, initialize the fulfillment price to zero
-                if (lowestBandFulfillmentPrice == null) {
-                    lowestBandFulfillmentPrice = BigDecimal.ZERO;
+                if (lowestBandFulfillmentPrice == null || bandFulfillmentPrice.compareTo(lowestBandFulfillmentPrice) <= 0) {
+                    lowestBandFulfillmentPrice = bandFulfillmentPrice;
                 }
-                //add the flat rate amount calculated on the Sku
-                lowestBandFulfillmentPrice = lowestBandFulfillmentPrice.add(flatTotal);
+            }
+        }
+
+        //If I didn't find a valid band, initialize the fulfillment price to zero
+        if (lowestBandFulfillmentPrice == null) {
+            lowestBandFulfillmentPrice = BigDecimal.ZERO;
+        }
+        //add the flat rate amount calculated on the Sku
+        lowestBandFulfillmentPrice = lowestBandFulfillmentPrice.add(flatTotal);
+
+        return BroadleafCurrencyUtils.getMoney(lowestBandFulfillmentPrice, fulfillmentGroup.getOrder().getCurrency());
+    }
 
-                shippingPrices.put(option, BroadleafCurrencyUtils.getMoney(lowestBandFulfillmentPrice, fulfillmentGroup.getOrder().getCurrency()));
+    /**
+     * Returns the index of the bands of the option, building it if the option has not been indexed or if its
+     * bands have been replaced since it was.
+     */
+    protected BandIndex getBandIndex(FulfillmentOption option) {
+        List<? extends FulfillmentBand> bands = null;
+        if (option instanceof BandedPriceFulfillmentOption) {
+            bands = ((BandedPriceFulfillmentOption) option).getBands();
+        } else if (option instanceof BandedWeightFulfillmentOption) {
+            bands = ((BandedWeightFulfillmentOption) option).getBands();
+        }
+
+        if (bands == null || bands.isEmpty()) {
+            //Something is misconfigured. There are no bands associated with this fulfillment option
+            throw new IllegalStateException("There were no Fulfillment Price Bands configured for a BandedPriceFulfillmentOption with ID: "
+                    + option.getId());
+        }
+
+        BandIndex index = option.getId() == null ? null : bandIndexes.get(option.getId());
+        if (index == null || index.source != bands || index.size != bands.size()) {
+            index = new BandIndex(bands, option instanceof BandedWeightFulfillmentOption);
+            if (option.getId() != null) {
+                bandIndexes.put(option.getId(), index);
             }
         }
+        return index;
+    }
 
-        return res;
+    /**
+     * Discards the indexed bands of every option
+     */
+    public void clearBandIndexes() {
+        bandIndexes.clear();
     }
-    
+
     /**
      * Default implementation is to convert everything to pounds for consistent weight types
      * 
@@ -235,4 +239,63 @@ public class BandedFulfillmentPricingProvider implements FulfillmentPricingProvi
         return UnitOfMeasureUtil.findPounds(weight, type);
     }
 
+    /**
+     * The bands of a single option grouped by their minimum amount, in ascending order of the minimum
+     */
+    protected static class BandIndex {
+
+        protected final List<? extends FulfillmentBand> source;
+        protected final int size;
+        protected final boolean weightBased;
+        protected final BigDecimal[] minimums;
+        protected final List<List<FulfillmentBand>> bandsByMinimum;
+
+        protected BandIndex(List<? extends FulfillmentBand> bands, boolean weightBased) {
+            this.source = bands;
+            this.size = bands.size();
+            this.weightBased = weightBased;
+            TreeMap<BigDecimal, List<FulfillmentBand>> grouped = new TreeMap<BigDecimal, List<FulfillmentBand>>();
+            for (FulfillmentBand band : bands) {
+                BigDecimal minimum = null;
+                if (band instanceof FulfillmentPriceBand) {
+                    minimum = ((FulfillmentPriceBand) band).getRetailPriceMinimumAmount();
+                } else if (band instanceof FulfillmentWeightBand) {
+                    minimum = ((FulfillmentWeightBand) band).getMinimumWeight();
+                }
+                if (minimum == null) {
+                    minimum = BigDecimal.ZERO;
+                }
+                List<FulfillmentBand> group = grouped.get(minimum);
+                if (group == null) {
+                    group = new ArrayList<FulfillmentBand>(1);
+                    grouped.put(minimum, group);
+                }
+                group.add(band);
+            }
+            this.minimums = grouped.keySet().toArray(new BigDecimal[grouped.size()]);
+            this.bandsByMinimum = new ArrayList<List<FulfillmentBand>>(grouped.values());
+        }
+
+        /**
+         * @return the bands with the highest minimum that is less than or equal to the total, or null if the total
+         * is below every minimum
+         */
+        protected List<FulfillmentBand> findBands(BigDecimal total) {
+            int low = 0;
+            int high = minimums.length - 1;
+            int match = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (minimums[mid].compareTo(total) <= 0) {
+                    match = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return match < 0 ? null : bandsByMinimum.get(match);
+        }
+
+    }
+
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.pricing.service.module;
+
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.pricing.service.exception.TaxException;
+
+/**
+ * A {@link TaxModule} that is able to calculate the taxes for a single {@link FulfillmentGroup}. This allows
+ * the pricing workflow to re-tax only the fulfillment groups that have changed rather than the entire order.
+ */
+public interface FulfillmentGroupTaxModule extends TaxModule {
+
+    public FulfillmentGroup calculateTaxForFulfillmentGroup(FulfillmentGroup fulfillmentGroup) throws TaxException;
+
+}
@@ -27,8 +27,13 @@ import org.broadleafcommerce.core.pricing.service.exception.TaxException;
 import org.broadleafcommerce.profile.core.domain.Address;
 import org.broadleafcommerce.profile.core.domain.Country;
 import org.broadleafcommerce.profile.core.domain.State;
+import org.springframework.core.io.Resource;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,10 +46,14 @@ import java.util.Map;
  * Utilizes the fulfillment group's address to determine the tax location.
  *
  * Useful for those with very simple tax needs.
+ *
+ * The configured rates are compiled into a {@link TaxRateTable} for items and one for fulfillment groups the
+ * first time they are needed. Large sets of rates can be imported from a file rather than configured as maps
+ * through {@link #setItemTaxRateResource(Resource)} and {@link #setFulfillmentGroupTaxRateResource(Resource)}.
  * 
  * @author jfischer, brian polster
  */
-public class SimpleTaxModule implements TaxModule {
+public class SimpleTaxModule implements FulfillmentGroupTaxModule {
 
     public static final String MODULENAME = "simpleTaxModule";
 
@@ -66,74 +75,182 @@ public class SimpleTaxModule implements TaxModule {
 
     protected boolean taxFees;
 
+    protected Resource itemTaxRateResource;
+    protected Resource fulfillmentGroupTaxRateResource;
+
+    protected volatile TaxRateTable itemTaxRateTable;
+    protected volatile TaxRateTable fulfillmentGroupTaxRateTable;
+
     public Order calculateTaxForOrder(Order order) throws TaxException {
         for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
-            
-            // Set taxes on the fulfillment group items
-            for (FulfillmentGroupItem fgItem : fulfillmentGroup.getFulfillmentGroupItems()) {
-                if (isItemTaxable(fgItem)) {
-                    Double factor = determineItemTaxRate(fulfillmentGroup.getAddress());
-                    if (factor != null && factor.compareTo(0d) != 0) {
-                        TaxDetail tax;
-                        checkDetail: {
-                            for (TaxDetail detail : fgItem.getTaxes()) {
-                                if (detail.getType().equals(TaxType.COMBINED)) {
-                                    tax = detail;
-                                    break checkDetail;
-                                }
-                            }
-                            tax = new TaxDetailImpl();
-                            tax.setType(TaxType.COMBINED);
-                            fgItem.getTaxes().add(tax);
-                        }
-                        tax.setRate(new BigDecimal(factor));
-                        tax.setAmount(fgItem.getPrice().multiply(fgItem.getQuantity()).multiply(factor));
-                    }
+            calculateTaxForFulfillmentGroup(fulfillmentGroup);
+        }
+
+        return order;
+    }
+
+    public FulfillmentGroup calculateTaxForFulfillmentGroup(FulfillmentGroup fulfillmentGroup) throws TaxException {
+        // The rate only depends on the address, so it is determined once for all of the items and fees
+        BigDecimal itemRate = null;
+
+        // Set taxes on the fulfillment group items
+        for (FulfillmentGroupItem fgItem : fulfillmentGroup.getFulfillmentGroupItems()) {
+            if (isItemTaxable(fgItem)) {
+                if (itemRate == null) {
+                    itemRate = resolveItemTaxRate(fulfillmentGroup.getAddress());
+                }
+                if (itemRate.signum() != 0) {
+                    TaxDetail tax = getCombinedTaxDetail(fgItem.getTaxes());
+                    tax.setRate(itemRate);
+                    tax.setAmount(fgItem.getPrice().multiply(fgItem.getQuantity()).multiply(itemRate));
+                }
+            }
+        }
+
+        for (FulfillmentGroupFee fgFee : fulfillmentGroup.getFulfillmentGroupFees()) {
+            if (isFeeTaxable(fgFee)) {
+                if (itemRate == null) {
+                    itemRate = resolveItemTaxRate(fulfillmentGroup.getAddress());
+                }
+                if (itemRate.signum() != 0) {
+                    TaxDetail tax = getCombinedTaxDetail(fgFee.getTaxes());
+                    tax.setRate(itemRate);
+                    tax.setAmount(fgFee.getAmount().multiply(itemRate));
                 }
             }
+        }
 
-            for (FulfillmentGroupFee fgFee : fulfillmentGroup.getFulfillmentGroupFees()) {
-                if (isFeeTaxable(fgFee)) {
-                    Double factor = determineItemTaxRate(fulfillmentGroup.getAddress());
-                    if (factor != null && factor.compareTo(0d) != 0) {
-                        TaxDetail tax;
-                        checkDetail: {
-                            for (TaxDetail detail : fgFee.getTaxes()) {
-                                if (detail.getType().equals(TaxType.COMBINED)) {
-                                    tax = detail;
-                                    break checkDetail;
-                                }
-                            }
-                            tax = new TaxDetailImpl();
-                            tax.setType(TaxType.COMBINED);
-                            fgFee.getTaxes().add(tax);
-                        }
-                        tax.setRate(new BigDecimal(factor));
-                        tax.setAmount(fgFee.getAmount().multiply(factor));
-                    }
+        BigDecimal fulfillmentGroupRate = resolveFulfillmentGroupTaxRate(fulfillmentGroup);
+        if (fulfillmentGroupRate.signum() != 0) {
+            TaxDetail tax = getCombinedTaxDetail(fulfillmentGroup.getTaxes());
+            tax.setRate(fulfillmentGroupRate);
+            tax.setAmount(fulfillmentGroup.getShippingPrice().multiply(fulfillmentGroupRate));
+        }
+
+        return fulfillmentGroup;
+    }
+
+    /**
+     * Returns the {@link TaxType#COMBINED} detail from the list, adding one if it is not present.
+     */
+    protected TaxDetail getCombinedTaxDetail(List<TaxDetail> taxes) {
+        for (TaxDetail detail : taxes) {
+            if (TaxType.COMBINED.equals(detail.getType())) {
+                return detail;
+            }
+        }
+        TaxDetail tax = new TaxDetailImpl();
+        tax.setType(TaxType.COMBINED);
+        taxes.add(tax);
+        return tax;
+    }
+
+    /**
+     * Resolves the tax rate for the items and fees of a fulfillment group shipped to the address.
+     * Called by {@link #calculateTaxForFulfillmentGroup(FulfillmentGroup)}; override to customize the rate.
+     *
+     * Checks the configured rates in order - (postal code, city, state, country) - through the
+     * {@link #getItemTaxRateTable() item tax rate table}.
+     *
+     * @param address
+     * @return the rate, or zero if the items are not taxed. Never null.
+     */
+    protected BigDecimal resolveItemTaxRate(Address address) {
+        return getItemTaxRateTable().resolveRate(address);
+    }
+
+    /**
+     * Resolves the tax rate for the shipping price of the fulfillment group.
+     * Called by {@link #calculateTaxForFulfillmentGroup(FulfillmentGroup)}; override to customize the rate.
+     *
+     * Checks the configured rates in order - (postal code, city, state, country) - through the
+     * {@link #getFulfillmentGroupTaxRateTable() fulfillment group tax rate table}.
+     *
+     * @param fulfillmentGroup
+     * @return the rate, or zero if the shipping price is not taxable. Never null.
+     */
+    protected BigDecimal resolveFulfillmentGroupTaxRate(FulfillmentGroup fulfillmentGroup) {
+        if (fulfillmentGroup.isShippingPriceTaxable() != null && !fulfillmentGroup.isShippingPriceTaxable()) {
+            return BigDecimal.ZERO;
+        }
+        return getFulfillmentGroupTaxRateTable().resolveRate(fulfillmentGroup.getAddress());
+    }
+
+    /**
+     * Returns the table of item tax rates, building it on first use from the item rate maps, the default item
+     * tax rate and the {@link #setItemTaxRateResource(Resource) item tax rate file}. Rates in the file take
+     * precedence over those in the maps.
+     */
+    public TaxRateTable getItemTaxRateTable() {
+        TaxRateTable table = itemTaxRateTable;
+        if (table == null) {
+            synchronized (this) {
+                table = itemTaxRateTable;
+                if (table == null) {
+                    table = buildTaxRateTable(itemPostalCodeTaxRateMap, itemCityTaxRateMap, itemStateTaxRateMap,
+                            itemCountryTaxRateMap, defaultItemTaxRate, itemTaxRateResource);
+                    itemTaxRateTable = table;
                 }
             }
+        }
+        return table;
+    }
 
-            Double factor = determineTaxRateForFulfillmentGroup(fulfillmentGroup);
-            if (factor != null && factor.compareTo(0d) != 0) {
-                TaxDetail tax;
-                checkDetail: {
-                    for (TaxDetail detail : fulfillmentGroup.getTaxes()) {
-                        if (detail.getType().equals(TaxType.COMBINED)) {
-                            tax = detail;
-                            break checkDetail;
-                        }
+    /**
+     * Returns the table of fulfillment group (shipping) tax rates, building it on first use from the fulfillment
+     * group rate maps, the default fulfillment group tax rate and the
+     * {@link #setFulfillmentGroupTaxRateResource(Resource) fulfillment group tax rate file}.
+     */
+    public TaxRateTable getFulfillmentGroupTaxRateTable() {
+        TaxRateTable table = fulfillmentGroupTaxRateTable;
+        if (table == null) {
+            synchronized (this) {
+                table = fulfillmentGroupTaxRateTable;
+                if (table == null) {
+                    table = buildTaxRateTable(fulfillmentGroupPostalCodeTaxRateMap, fulfillmentGroupCityTaxRateMap,
+                            fulfillmentGroupStateTaxRateMap, fulfillmentGroupCountryTaxRateMap, defaultFulfillmentGroupTaxRate,
+                            fulfillmentGroupTaxRateResource);
+                    fulfillmentGroupTaxRateTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    protected TaxRateTable buildTaxRateTable(Map<String, Double> postalCodeRates, Map<String, Double> cityRates,
+            Map<String, Double> stateRates, Map<String, Double> countryRates, Double defaultRate, Resource rateFile) {
+        TaxRateTable.Builder builder = new TaxRateTable.Builder()
+            .addRates(TaxRateTable.Jurisdiction.POSTAL_CODE, postalCodeRates)
+            .addRates(TaxRateTable.Jurisdiction.CITY, cityRates)
+            .addRates(TaxRateTable.Jurisdiction.STATE, stateRates)
+            .addRates(TaxRateTable.Jurisdiction.COUNTRY, countryRates)
+            .setDefaultRate(defaultRate);
+        if (rateFile != null) {
+            Reader reader = null;
+            try {
+                reader = new InputStreamReader(rateFile.getInputStream(), "UTF-8");
+                builder.load(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read the tax rate file " + rateFile.getDescription(), e);
+            } finally {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        //do nothing
                     }
-                    tax = new TaxDetailImpl();
-                    tax.setType(TaxType.COMBINED);
-                    fulfillmentGroup.getTaxes().add(tax);
                 }
-                tax.setRate(new BigDecimal(factor));
-                tax.setAmount(fulfillmentGroup.getShippingPrice().multiply(factor));
             }
         }
+        return builder.build();
+    }
 
-        return order;
+    /**
+     * Discards the tax rate tables so that they are rebuilt from the current configuration on next use.
+     */
+    public synchronized void resetTaxRateTables() {
+        itemTaxRateTable = null;
+        fulfillmentGroupTaxRateTable = null;
     }
 
     public String getName() {
@@ -151,7 +268,13 @@ public class SimpleTaxModule implements TaxModule {
      *
      * @param postalCode
      * @return
+     *
+     * @deprecated the default {@link #resolveItemTaxRate(Address)} and
+     * {@link #resolveFulfillmentGroupTaxRate(FulfillmentGroup)} resolve rates from the {@link TaxRateTable},
+     * which applies the same matching, and no longer call this method. Subclasses that customized the lookup
+     * should override those methods instead.
      */
+    @Deprecated
     public Double lookupPostalCodeRate(Map<String,Double> postalCodeTaxRateMap, String postalCode) {
         if (postalCodeTaxRateMap != null && postalCode != null) {
             return postalCodeTaxRateMap.get(postalCode);
@@ -167,7 +290,13 @@ public class SimpleTaxModule implements TaxModule {
      *
      * @param cityTaxRateMap, city
      * @return
+     *
+     * @deprecated the default {@link #resolveItemTaxRate(Address)} and
+     * {@link #resolveFulfillmentGroupTaxRate(FulfillmentGroup)} resolve rates from the {@link TaxRateTable},
+     * which applies the same matching, and no longer call this method. Subclasses that customized the lookup
+     * should override those methods instead.
      */
+    @Deprecated
     public Double lookupCityRate(Map<String,Double> cityTaxRateMap, String city) {
         if (cityTaxRateMap != null && city != null) {
             city = city.toUpperCase();
@@ -184,7 +313,13 @@ public class SimpleTaxModule implements TaxModule {
      *
      * @param stateTaxRateMap, state
      * @return
+     *
+     * @deprecated the default {@link #resolveItemTaxRate(Address)} and
+     * {@link #resolveFulfillmentGroupTaxRate(FulfillmentGroup)} resolve rates from the {@link TaxRateTable},
+     * which applies the same matching, and no longer call this method. Subclasses that customized the lookup
+     * should override those methods instead.
      */
+    @Deprecated
     public Double lookupStateRate(Map<String,Double> stateTaxRateMap, State state) {
         if (stateTaxRateMap != null && state != null && state.getAbbreviation() != null) {
             String stateAbbr = state.getAbbreviation().toUpperCase();
@@ -207,7 +342,13 @@ public class SimpleTaxModule implements TaxModule {
      *
      * @param countryTaxRateMap, state
      * @return
+     *
+     * @deprecated the default {@link #resolveItemTaxRate(Address)} and
+     * {@link #resolveFulfillmentGroupTaxRate(FulfillmentGroup)} resolve rates from the {@link TaxRateTable},
+     * which applies the same matching, and no longer call this method. Subclasses that customized the lookup
+     * should override those methods instead.
      */
+    @Deprecated
     public Double lookupCountryRate(Map<String,Double> countryTaxRateMap, Country country) {
         if (countryTaxRateMap != null && country != null && country.getAbbreviation() != null) {
             String cntryAbbr = country.getAbbreviation().toUpperCase();
@@ -232,81 +373,33 @@ public class SimpleTaxModule implements TaxModule {
 
 
     /**
-     * Uses the passed in address to determine if the item is taxable.
-     *
-     * Checks the configured maps in order - (postal code, city, state, country)
+     * Uses the passed in address to determine the tax rate for the items and fees of a fulfillment group.
      *
      * @param address
-     * @return
+     * @return the rate
+     *
+     * @deprecated rates are calculated as BigDecimals and this method is no longer called by
+     * {@link #calculateTaxForFulfillmentGroup(FulfillmentGroup)}. Override {@link #resolveItemTaxRate(Address)}
+     * to customize the rate.
      */
+    @Deprecated
     public Double determineItemTaxRate(Address address) {
-        if (address != null) {
-            Double postalCodeRate = lookupPostalCodeRate(itemPostalCodeTaxRateMap, address.getPostalCode());
-            if (postalCodeRate != null) {
-                return postalCodeRate;
-            }
-            Double cityCodeRate = lookupCityRate(itemCityTaxRateMap, address.getCity());
-            if (cityCodeRate != null) {
-                return cityCodeRate;
-            }
-            Double stateCodeRate = lookupStateRate(itemStateTaxRateMap, address.getState());
-            if (stateCodeRate != null) {
-                return stateCodeRate;
-            }
-            Double countryCodeRate = lookupCountryRate(itemCountryTaxRateMap, address.getCountry());
-            if (countryCodeRate != null) {
-                return countryCodeRate;
-            }
-        }
-
-        if (defaultItemTaxRate != null) {
-            return defaultItemTaxRate;
-        } else {
-            return 0d;
-        }
+        return resolveItemTaxRate(address).doubleValue();
     }
 
     /**
-     * Uses the passed in address to determine if the item is taxable.
-     *
-     * Checks the configured maps in order - (postal code, city, state, country)
+     * Uses the fulfillment group's address to determine the tax rate for its shipping price.
      *
      * @param fulfillmentGroup
-     * @return
+     * @return the rate
+     *
+     * @deprecated rates are calculated as BigDecimals and this method is no longer called by
+     * {@link #calculateTaxForFulfillmentGroup(FulfillmentGroup)}. Override
+     * {@link #resolveFulfillmentGroupTaxRate(FulfillmentGroup)} to customize the rate.
      */
+    @Deprecated
     public Double determineTaxRateForFulfillmentGroup(FulfillmentGroup fulfillmentGroup) {
-        boolean isTaxable = true;
-
-        if (fulfillmentGroup.isShippingPriceTaxable() != null) {
-            isTaxable = fulfillmentGroup.isShippingPriceTaxable();
-        }
-
-        if (isTaxable) {
-            Address address = fulfillmentGroup.getAddress();
-            if (address != null) {
-                Double postalCodeRate = lookupPostalCodeRate(fulfillmentGroupPostalCodeTaxRateMap, address.getPostalCode());
-                if (postalCodeRate != null) {
-                    return postalCodeRate;
-                }
-                Double cityCodeRate = lookupCityRate(fulfillmentGroupCityTaxRateMap, address.getCity());
-                if (cityCodeRate != null) {
-                    return cityCodeRate;
-                }
-                Double stateCodeRate = lookupStateRate(fulfillmentGroupStateTaxRateMap, address.getState());
-                if (stateCodeRate != null) {
-                    return stateCodeRate;
-                }
-                Double countryCodeRate = lookupCountryRate(fulfillmentGroupCountryTaxRateMap, address.getCountry());
-                if (countryCodeRate != null) {
-                    return countryCodeRate;
-                }
-            }
-
-            if (defaultFulfillmentGroupTaxRate != null) {
-                return defaultFulfillmentGroupTaxRate;
-            }
-        }
-        return 0d;
+        return resolveFulfillmentGroupTaxRate(fulfillmentGroup).doubleValue();
     }
 
     public Map<String, Double> getItemPostalCodeTaxRateMap() {
@@ -315,6 +408,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setItemPostalCodeTaxRateMap(Map<String, Double> itemPostalCodeTaxRateMap) {
         this.itemPostalCodeTaxRateMap = itemPostalCodeTaxRateMap;
+        itemTaxRateTable = null;
     }
 
     public Map<String, Double> getItemCityTaxRateMap() {
@@ -323,6 +417,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setItemCityTaxRateMap(Map<String, Double> itemCityTaxRateMap) {
         this.itemCityTaxRateMap = itemCityTaxRateMap;
+        itemTaxRateTable = null;
     }
 
     public Map<String, Double> getItemStateTaxRateMap() {
@@ -331,6 +426,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setItemStateTaxRateMap(Map<String, Double> itemStateTaxRateMap) {
         this.itemStateTaxRateMap = itemStateTaxRateMap;
+        itemTaxRateTable = null;
     }
 
     public Map<String, Double> getItemCountryTaxRateMap() {
@@ -339,6 +435,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setItemCountryTaxRateMap(Map<String, Double> itemCountryTaxRateMap) {
         this.itemCountryTaxRateMap = itemCountryTaxRateMap;
+        itemTaxRateTable = null;
     }
 
     public Map<String, Double> getFulfillmentGroupPostalCodeTaxRateMap() {
@@ -347,6 +444,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setFulfillmentGroupPostalCodeTaxRateMap(Map<String, Double> fulfillmentGroupPostalCodeTaxRateMap) {
         this.fulfillmentGroupPostalCodeTaxRateMap = fulfillmentGroupPostalCodeTaxRateMap;
+        fulfillmentGroupTaxRateTable = null;
     }
 
     public Map<String, Double> getFulfillmentGroupCityTaxRateMap() {
@@ -355,6 +453,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setFulfillmentGroupCityTaxRateMap(Map<String, Double> fulfillmentGroupCityTaxRateMap) {
         this.fulfillmentGroupCityTaxRateMap = fulfillmentGroupCityTaxRateMap;
+        fulfillmentGroupTaxRateTable = null;
     }
 
     public Map<String, Double> getFulfillmentGroupStateTaxRateMap() {
@@ -363,6 +462,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setFulfillmentGroupStateTaxRateMap(Map<String, Double> fulfillmentGroupStateTaxRateMap) {
         this.fulfillmentGroupStateTaxRateMap = fulfillmentGroupStateTaxRateMap;
+        fulfillmentGroupTaxRateTable = null;
     }
 
     public Map<String, Double> getFulfillmentGroupCountryTaxRateMap() {
@@ -371,6 +471,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setFulfillmentGroupCountryTaxRateMap(Map<String, Double> fulfillmentGroupCountryTaxRateMap) {
         this.fulfillmentGroupCountryTaxRateMap = fulfillmentGroupCountryTaxRateMap;
+        fulfillmentGroupTaxRateTable = null;
     }
 
     public Double getDefaultItemTaxRate() {
@@ -379,6 +480,7 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setDefaultItemTaxRate(Double defaultItemTaxRate) {
         this.defaultItemTaxRate = defaultItemTaxRate;
+        itemTaxRateTable = null;
     }
 
     public Double getDefaultFulfillmentGroupTaxRate() {
@@ -387,6 +489,32 @@ public class SimpleTaxModule implements TaxModule {
 
     public void setDefaultFulfillmentGroupTaxRate(Double defaultFulfillmentGroupTaxRate) {
         this.defaultFulfillmentGroupTaxRate = defaultFulfillmentGroupTaxRate;
+        fulfillmentGroupTaxRateTable = null;
+    }
+
+    public Resource getItemTaxRateResource() {
+        return itemTaxRateResource;
+    }
+
+    /**
+     * @param itemTaxRateResource a file of item tax rates in the format read by {@link TaxRateTable.Builder#load(Reader)}
+     */
+    public void setItemTaxRateResource(Resource itemTaxRateResource) {
+        this.itemTaxRateResource = itemTaxRateResource;
+        itemTaxRateTable = null;
+    }
+
+    public Resource getFulfillmentGroupTaxRateResource() {
+        return fulfillmentGroupTaxRateResource;
+    }
+
+    /**
+     * @param fulfillmentGroupTaxRateResource a file of shipping tax rates in the format read by
+     * {@link TaxRateTable.Builder#load(Reader)}
+     */
+    public void setFulfillmentGroupTaxRateResource(Resource fulfillmentGroupTaxRateResource) {
+        this.fulfillmentGroupTaxRateResource = fulfillmentGroupTaxRateResource;
+        fulfillmentGroupTaxRateTable = null;
     }
 
     /**
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.pricing.service.module;
+
+import org.broadleafcommerce.profile.core.domain.Address;
+import org.broadleafcommerce.profile.core.domain.Country;
+import org.broadleafcommerce.profile.core.domain.State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable table of tax rates keyed by jurisdiction. An address resolves to the rate of its postal code,
+ * city, state or country, checked in that order, or to the default rate when none of them has a rate. City,
+ * state and country keys are matched without regard to case.
+ *
+ * Rates are held as {@link BigDecimal}s that are created once when the table is built, so resolving a rate
+ * neither allocates nor converts. Tables are built with a {@link Builder}, which accepts rates from maps as
+ * well as from rate files read with {@link Builder#load(Reader)}.
+ */
+public class TaxRateTable {
+
+    public enum Jurisdiction {
+        POSTAL_CODE, CITY, STATE, COUNTRY, DEFAULT
+    }
+
+    protected final Map<String, BigDecimal> postalCodeRates;
+    protected final Map<String, BigDecimal> cityRates;
+    protected final Map<String, BigDecimal> stateRates;
+    protected final Map<String, BigDecimal> countryRates;
+    protected final BigDecimal defaultRate;
+
+    protected TaxRateTable(Builder builder) {
+        postalCodeRates = freeze(builder.postalCodeRates);
+        cityRates = freeze(builder.cityRates);
+        stateRates = freeze(builder.stateRates);
+        countryRates = freeze(builder.countryRates);
+        defaultRate = builder.defaultRate == null ? BigDecimal.ZERO : builder.defaultRate;
+    }
+
+    /**
+     * @param address the address to resolve, may be null
+     * @return the rate for the address, or the default rate if the table holds no rate for it. Never null.
+     */
+    public BigDecimal resolveRate(Address address) {
+        if (address != null) {
+            BigDecimal rate = lookupPostalCodeRate(address.getPostalCode());
+            if (rate == null) {
+                rate = lookupCityRate(address.getCity());
+            }
+            if (rate == null) {
+                rate = lookupStateRate(address.getState());
+            }
+            if (rate == null) {
+                rate = lookupCountryRate(address.getCountry());
+            }
+            if (rate != null) {
+                return rate;
+            }
+        }
+        return defaultRate;
+    }
+
+    public BigDecimal lookupPostalCodeRate(String postalCode) {
+        if (postalCode == null || postalCodeRates.isEmpty()) {
+            return null;
+        }
+        return postalCodeRates.get(postalCode);
+    }
+
+    public BigDecimal lookupCityRate(String city) {
+        if (city == null || cityRates.isEmpty()) {
+            return null;
+        }
+        return cityRates.get(city.toUpperCase());
+    }
+
+    /**
+     * Checks the abbreviation followed by the name of the state.
+     */
+    public BigDecimal lookupStateRate(State state) {
+        if (state == null || state.getAbbreviation() == null || stateRates.isEmpty()) {
+            return null;
+        }
+        BigDecimal rate = stateRates.get(state.getAbbreviation().toUpperCase());
+        if (rate == null && state.getName() != null) {
+            rate = stateRates.get(state.getName().toUpperCase());
+        }
+        return rate;
+    }
+
+    /**
+     * Checks the abbreviation followed by the name of the country.
+     */
+    public BigDecimal lookupCountryRate(Country country) {
+        if (country == null || country.getAbbreviation() == null || countryRates.isEmpty()) {
+            return null;
+        }
+        BigDecimal rate = countryRates.get(country.getAbbreviation().toUpperCase());
+        if (rate == null && country.getName() != null) {
+            rate = countryRates.get(country.getName().toUpperCase());
+        }
+        return rate;
+    }
+
+    public BigDecimal getDefaultRate() {
+        return defaultRate;
+    }
+
+    /**
+     * @return the number of jurisdictions with a rate, not counting the default rate
+     */
+    public int size() {
+        return postalCodeRates.size() + cityRates.size() + stateRates.size() + countryRates.size();
+    }
+
+    protected static Map<String, BigDecimal> freeze(Map<String, BigDecimal> rates) {
+        if (rates.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new HashMap<String, BigDecimal>(rates));
+    }
+
+    public static class Builder {
+
+        protected final Map<String, BigDecimal> postalCodeRates = new HashMap<String, BigDecimal>();
+        protected final Map<String, BigDecimal> cityRates = new HashMap<String, BigDecimal>();
+        protected final Map<String, BigDecimal> stateRates = new HashMap<String, BigDecimal>();
+        protected final Map<String, BigDecimal> countryRates = new HashMap<String, BigDecimal>();
+        protected BigDecimal defaultRate;
+
+        /**
+         * Adds a rate, replacing any rate already added for the same jurisdiction. The key is ignored for
+         * {@link Jurisdiction#DEFAULT}.
+         */
+        public Builder addRate(Jurisdiction jurisdiction, String key, BigDecimal rate) {
+            if (rate == null) {
+                return this;
+            }
+            switch (jurisdiction) {
+                case POSTAL_CODE:
+                    postalCodeRates.put(key, rate);
+                    break;
+                case CITY:
+                    cityRates.put(key.toUpperCase(), rate);
+                    break;
+                case STATE:
+                    stateRates.put(key.toUpperCase(), rate);
+                    break;
+                case COUNTRY:
+                    countryRates.put(key.toUpperCase(), rate);
+                    break;
+                default:
+                    defaultRate = rate;
+            }
+            return this;
+        }
+
+        /**
+         * Adds the rates of a configuration map. The double rates are converted through their decimal string
+         * representation, so a configured rate of 0.05 is held as exactly 0.05.
+         */
+        public Builder addRates(Jurisdiction jurisdiction, Map<String, Double> rates) {
+            if (rates != null) {
+                for (Map.Entry<String, Double> entry : rates.entrySet()) {
+                    if (entry.getKey() != null && entry.getValue() != null) {
+                        addRate(jurisdiction, entry.getKey(), BigDecimal.valueOf(entry.getValue()));
+                    }
+                }
+            }
+            return this;
+        }
+
+        public Builder setDefaultRate(Double rate) {
+            if (rate != null) {
+                defaultRate = BigDecimal.valueOf(rate);
+            }
+            return this;
+        }
+
+        /**
+         * Reads rates from a file with one rate per line in the form {@code jurisdiction,key,rate}, for example
+         * {@code POSTAL_CODE,75240,0.0825} or {@code STATE,TX,0.0625}. The default rate is given as
+         * {@code DEFAULT,,0.05}. Blank lines and lines starting with # are skipped.
+         *
+         * @throws IOException if the file cannot be read
+         * @throws IllegalArgumentException if a line is malformed
+         */
+        public Builder load(Reader reader) throws IOException {
+            BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+            String line;
+            int lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.length() == 0 || line.charAt(0) == '#') {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != 3) {
+                    throw new IllegalArgumentException("Expected jurisdiction,key,rate on line " + lineNumber + " of the tax rate file but found: " + line);
+                }
+                try {
+                    Jurisdiction jurisdiction = Jurisdiction.valueOf(fields[0].trim().toUpperCase());
+                    String key = fields[1].trim();
+                    if (jurisdiction != Jurisdiction.DEFAULT && key.length() == 0) {
+                        throw new IllegalArgumentException("Missing key");
+                    }
+                    addRate(jurisdiction, key, new BigDecimal(fields[2].trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid rate on line " + lineNumber + " of the tax rate file: " + line, e);
+                }
+            }
+            return this;
+        }
+
+        public TaxRateTable build() {
+            return new TaxRateTable(this);
+        }
+
+    }
+
+}
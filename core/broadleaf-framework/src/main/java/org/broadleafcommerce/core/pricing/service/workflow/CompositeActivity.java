@@ -25,7 +25,8 @@ public class CompositeActivity extends BaseActivity {
     private SequenceProcessor workflow;
 
     public ProcessContext execute(ProcessContext context) throws Exception {
-        ProcessContext subContext = workflow.doActivities(((PricingContext) context).getSeedData());
+        PricingContext pricingContext = (PricingContext) context;
+        ProcessContext subContext = workflow.doActivities(new PricingRequest(pricingContext.getSeedData(), pricingContext.getChangeSet()));
         if (subContext.isStopped()) {
             context.stopProcess();
         }
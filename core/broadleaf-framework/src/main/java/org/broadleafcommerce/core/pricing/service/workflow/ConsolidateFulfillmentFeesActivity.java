@@ -36,6 +36,7 @@ import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.service.FulfillmentGroupService;
 import org.broadleafcommerce.core.workflow.BaseActivity;
+import org.broadleafcommerce.core.workflow.ConditionalActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.mvel2.MVEL;
 import org.mvel2.ParserContext;
@@ -44,7 +45,7 @@ import org.mvel2.ParserContext;
  * 
  * @author Phillip Verheyden
  */
-public class ConsolidateFulfillmentFeesActivity extends BaseActivity {
+public class ConsolidateFulfillmentFeesActivity extends BaseActivity implements ConditionalActivity {
     
     @SuppressWarnings("unchecked")
     protected static final Map EXPRESSION_CACHE = Collections.synchronizedMap(new LRUMap(1000));
@@ -52,11 +53,20 @@ public class ConsolidateFulfillmentFeesActivity extends BaseActivity {
     @Resource(name = "blFulfillmentGroupService")
     protected FulfillmentGroupService fulfillmentGroupService;
 
+    @Override
+    public boolean shouldExecute(ProcessContext context) {
+        return ((PricingContext) context).getChangeSet().isAnyFulfillmentGroupChanged();
+    }
+
     @Override
     public ProcessContext execute(ProcessContext context) throws Exception {
         Order order = ((PricingContext) context).getSeedData();
+        PricingChangeSet changeSet = ((PricingContext) context).getChangeSet();
         
         for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
+            if (!changeSet.isFulfillmentGroupChanged(fulfillmentGroup)) {
+                continue;
+            }
             //create and associate all the Fulfillment Fees
             for (FulfillmentGroupItem item : fulfillmentGroup.getFulfillmentGroupItems()) {
                 List<SkuFee> fees = null;
@@ -18,6 +18,7 @@ package org.broadleafcommerce.core.pricing.service.workflow;
 
 import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
 import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.money.MoneyAccumulator;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
 import org.broadleafcommerce.core.order.domain.Order;
@@ -25,11 +26,11 @@ import org.broadleafcommerce.core.order.domain.OrderItem;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 
-import java.math.BigDecimal;
-
 /**
  * Called during the pricing workflow to set the merchandise total for each FulfillmentGroup
- * in an Order. This activity should come before any activity dealing with pricing FulfillmentGroups
+ * in an Order. This activity should come before any activity dealing with pricing FulfillmentGroups.
+ * Any FulfillmentGroup whose merchandise total differs from its previous value is marked as changed
+ * in the {@link PricingChangeSet} so that it is repriced by the subsequent activities.
  * 
  * @author Phillip Verheyden
  * @see {@link FulfillmentGroup#setMerchandiseTotal(Money)}, {@link FulfillmentGroup#getMerchandiseTotal()}
@@ -39,12 +40,19 @@ public class FulfillmentGroupMerchandiseTotalActivity extends BaseActivity {
     @Override
     public ProcessContext execute(ProcessContext context) throws Exception {
         Order order = ((PricingContext) context).getSeedData();
+        PricingChangeSet changeSet = ((PricingContext) context).getChangeSet();
 
+        MoneyAccumulator accumulator = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
         for(FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
-            Money merchandiseTotal = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, fulfillmentGroup.getOrder().getCurrency());
+            accumulator.reset();
             for(FulfillmentGroupItem fulfillmentGroupItem : fulfillmentGroup.getFulfillmentGroupItems()) {
                 OrderItem item = fulfillmentGroupItem.getOrderItem();
-                merchandiseTotal = merchandiseTotal.add(item.getPrice().multiply(item.getQuantity()));
+                accumulator.add(item.getPrice(), item.getQuantity());
+            }
+            Money merchandiseTotal = accumulator.toMoney();
+            Money previousTotal = fulfillmentGroup.getMerchandiseTotal();
+            if (previousTotal == null || merchandiseTotal.compareTo(previousTotal) != 0) {
+                changeSet.markFulfillmentGroupChanged(fulfillmentGroup);
             }
             fulfillmentGroup.setMerchandiseTotal(merchandiseTotal);
         }
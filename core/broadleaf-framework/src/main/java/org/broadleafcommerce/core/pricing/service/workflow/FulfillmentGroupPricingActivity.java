@@ -17,26 +17,32 @@
 package org.broadleafcommerce.core.pricing.service.workflow;
 
 import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
-import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.money.MoneyAccumulator;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.pricing.service.FulfillmentPricingService;
 import org.broadleafcommerce.core.workflow.BaseActivity;
+import org.broadleafcommerce.core.workflow.ConditionalActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 
 import javax.annotation.Resource;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * Called during the pricing workflow to compute all of the fulfillment costs
  * for all of the FulfillmentGroups on an Order and updates Order with the
- * total price of all of the FufillmentGroups
+ * total price of all of the FufillmentGroups. Only the FulfillmentGroups marked as changed in the
+ * {@link PricingChangeSet} are recalculated; the others keep their previously calculated costs. The changed
+ * FulfillmentGroups are handed to the {@link FulfillmentPricingService} together so that they can be priced
+ * concurrently.
  * 
  * @author Phillip Verheyden
  * @see {@link FulfillmentGroup}, {@link Order}
  */
-public class FulfillmentGroupPricingActivity extends BaseActivity {
+public class FulfillmentGroupPricingActivity extends BaseActivity implements ConditionalActivity {
 
     @Resource(name = "blFulfillmentPricingService")
     private FulfillmentPricingService fulfillmentPricingService;
@@ -45,9 +51,15 @@ public class FulfillmentGroupPricingActivity extends BaseActivity {
         this.fulfillmentPricingService = fulfillmentPricingService;
     }
 
+    @Override
+    public boolean shouldExecute(ProcessContext context) {
+        return ((PricingContext) context).getChangeSet().isAnyFulfillmentGroupChanged();
+    }
+
     @Override
     public ProcessContext execute(ProcessContext context) throws Exception {
         Order order = ((PricingContext)context).getSeedData();
+        PricingChangeSet changeSet = ((PricingContext) context).getChangeSet();
 
         /*
          * 1. Get FGs from Order
@@ -55,16 +67,24 @@ public class FulfillmentGroupPricingActivity extends BaseActivity {
          * 3. add FG back to order
          */
 
-        Money totalShipping = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
+        List<FulfillmentGroup> changedGroups = new ArrayList<FulfillmentGroup>();
+        for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
+            if (fulfillmentGroup != null && changeSet.isFulfillmentGroupChanged(fulfillmentGroup)) {
+                changedGroups.add(fulfillmentGroup);
+            }
+        }
+        Iterator<FulfillmentGroup> pricedGroups = fulfillmentPricingService.calculateCostForFulfillmentGroups(changedGroups).iterator();
+
+        MoneyAccumulator totalShipping = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
         for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
             if (fulfillmentGroup != null) {
-                fulfillmentGroup = fulfillmentPricingService.calculateCostForFulfillmentGroup(fulfillmentGroup);
-                if (fulfillmentGroup.getShippingPrice() != null) {
-                    totalShipping = totalShipping.add(fulfillmentGroup.getShippingPrice());
+                if (changeSet.isFulfillmentGroupChanged(fulfillmentGroup)) {
+                    fulfillmentGroup = pricedGroups.next();
                 }
+                totalShipping.add(fulfillmentGroup.getShippingPrice());
             }
         }
-        order.setTotalShipping(totalShipping);
+        order.setTotalShipping(totalShipping.toMoney());
         context.setSeedData(order);
         return context;
     }
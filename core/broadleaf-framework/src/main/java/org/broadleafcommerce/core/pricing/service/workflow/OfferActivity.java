@@ -24,13 +24,24 @@ import org.broadleafcommerce.core.offer.domain.Offer;
 import org.broadleafcommerce.core.offer.service.OfferService;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.workflow.BaseActivity;
+import org.broadleafcommerce.core.workflow.ConditionalActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 
-public class OfferActivity extends BaseActivity {
+public class OfferActivity extends BaseActivity implements ConditionalActivity {
 
     @Resource(name="blOfferService")
     private OfferService offerService;
 
+    /**
+     * Offers are reviewed whenever anything that can affect their qualification has changed
+     */
+    @Override
+    public boolean shouldExecute(ProcessContext context) {
+        PricingChangeSet changeSet = ((PricingContext) context).getChangeSet();
+        return changeSet.isOrderItemsChanged() || changeSet.isOfferCodesChanged() || changeSet.isCustomerChanged()
+                || changeSet.isAnyFulfillmentGroupChanged();
+    }
+
     public ProcessContext execute(ProcessContext context) throws Exception {
         Order order = ((PricingContext)context).getSeedData();
         List<Offer> offers = offerService.buildOfferListForOrder(order);
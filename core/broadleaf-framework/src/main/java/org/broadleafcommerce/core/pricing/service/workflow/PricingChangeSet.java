@@ -0,0 +1,161 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.pricing.service.workflow;
+
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderItem;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Describes what has changed on an {@link Order} since it was last priced. Activities in the pricing
+ * workflow consult the change set (see {@link org.broadleafcommerce.core.workflow.ConditionalActivity#shouldExecute})
+ * to skip work whose inputs are unchanged, and fulfillment group activities only reprice the
+ * groups that have been marked.
+ * 
+ * A change set is cumulative: activities may mark additional fulfillment groups as changed when
+ * their own output differs from what was previously persisted (for instance, a new merchandise
+ * total) so that downstream activities pick them up. When in doubt, callers should use
+ * {@link #full()}, which is what the pricing workflow assumes when no change set is supplied.
+ */
+public class PricingChangeSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected boolean orderItemsChanged;
+    protected boolean offerCodesChanged;
+    protected boolean customerChanged;
+    protected boolean allFulfillmentGroupsChanged;
+    protected Set<Long> fulfillmentGroupIds = new HashSet<Long>();
+
+    /**
+     * @return a change set that marks everything on the order as changed
+     */
+    public static PricingChangeSet full() {
+        PricingChangeSet changeSet = new PricingChangeSet();
+        changeSet.orderItemsChanged = true;
+        changeSet.offerCodesChanged = true;
+        changeSet.customerChanged = true;
+        changeSet.allFulfillmentGroupsChanged = true;
+        return changeSet;
+    }
+
+    public boolean isFull() {
+        return orderItemsChanged && offerCodesChanged && customerChanged && allFulfillmentGroupsChanged;
+    }
+
+    public boolean isEmpty() {
+        return !orderItemsChanged && !offerCodesChanged && !customerChanged && !isAnyFulfillmentGroupChanged();
+    }
+
+    public boolean isOrderItemsChanged() {
+        return orderItemsChanged;
+    }
+
+    public void markOrderItemsChanged() {
+        orderItemsChanged = true;
+    }
+
+    public boolean isOfferCodesChanged() {
+        return offerCodesChanged;
+    }
+
+    public void markOfferCodesChanged() {
+        offerCodesChanged = true;
+    }
+
+    public boolean isCustomerChanged() {
+        return customerChanged;
+    }
+
+    public void markCustomerChanged() {
+        customerChanged = true;
+    }
+
+    public boolean isAllFulfillmentGroupsChanged() {
+        return allFulfillmentGroupsChanged;
+    }
+
+    public void markAllFulfillmentGroupsChanged() {
+        allFulfillmentGroupsChanged = true;
+    }
+
+    /**
+     * Marks the given fulfillment group as changed. A group that has not been persisted yet cannot be
+     * tracked by id, so every group is considered changed in that case.
+     * 
+     * @param fulfillmentGroup
+     */
+    public void markFulfillmentGroupChanged(FulfillmentGroup fulfillmentGroup) {
+        if (fulfillmentGroup == null || fulfillmentGroup.getId() == null) {
+            allFulfillmentGroupsChanged = true;
+        } else {
+            fulfillmentGroupIds.add(fulfillmentGroup.getId());
+        }
+    }
+
+    /**
+     * Marks the order items as changed along with every fulfillment group on the order that currently
+     * contains the given order item. If no group can be found for the item, every group is
+     * considered changed.
+     * 
+     * @param order
+     * @param orderItemId
+     */
+    public void markOrderItemChanged(Order order, Long orderItemId) {
+        orderItemsChanged = true;
+        boolean found = false;
+        if (orderItemId != null && order != null && order.getFulfillmentGroups() != null) {
+            for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
+                for (FulfillmentGroupItem fgItem : fulfillmentGroup.getFulfillmentGroupItems()) {
+                    OrderItem orderItem = fgItem.getOrderItem();
+                    if (orderItem != null && orderItemId.equals(orderItem.getId())) {
+                        markFulfillmentGroupChanged(fulfillmentGroup);
+                        found = true;
+                        break;
+                    }
+                }
+            }
+        }
+        if (!found) {
+            allFulfillmentGroupsChanged = true;
+        }
+    }
+
+    public boolean isFulfillmentGroupChanged(FulfillmentGroup fulfillmentGroup) {
+        if (allFulfillmentGroupsChanged || fulfillmentGroup == null || fulfillmentGroup.getId() == null) {
+            return true;
+        }
+        return fulfillmentGroupIds.contains(fulfillmentGroup.getId());
+    }
+
+    public boolean isAnyFulfillmentGroupChanged() {
+        return allFulfillmentGroupsChanged || !fulfillmentGroupIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "PricingChangeSet [orderItemsChanged=" + orderItemsChanged + ", offerCodesChanged=" + offerCodesChanged
+                + ", customerChanged=" + customerChanged + ", allFulfillmentGroupsChanged=" + allFulfillmentGroupsChanged
+                + ", fulfillmentGroupIds=" + fulfillmentGroupIds + "]";
+    }
+
+}
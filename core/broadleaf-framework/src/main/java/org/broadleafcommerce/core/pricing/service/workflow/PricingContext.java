@@ -24,6 +24,7 @@ public class PricingContext implements ProcessContext {
 
     private boolean stopEntireProcess = false;
     private Order seedData;
+    private PricingChangeSet changeSet = PricingChangeSet.full();
 
     public void setSeedData(Object seedObject) {
         seedData = (Order)seedObject;
@@ -42,4 +43,16 @@ public class PricingContext implements ProcessContext {
         return seedData;
     }
 
+    /**
+     * @return what has changed on the order since it was last priced. Never null; the entire
+     * order is considered changed unless a narrower change set was supplied
+     */
+    public PricingChangeSet getChangeSet() {
+        return changeSet;
+    }
+
+    public void setChangeSet(PricingChangeSet changeSet) {
+        this.changeSet = changeSet == null ? PricingChangeSet.full() : changeSet;
+    }
+
 }
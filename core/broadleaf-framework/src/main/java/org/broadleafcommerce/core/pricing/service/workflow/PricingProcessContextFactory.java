@@ -24,12 +24,17 @@ import org.broadleafcommerce.core.workflow.WorkflowException;
 public class PricingProcessContextFactory implements ProcessContextFactory {
 
     public ProcessContext createContext(Object seedData) throws WorkflowException {
+        PricingContext context = new PricingContext();
+        if (seedData instanceof PricingRequest) {
+            context.setSeedData(((PricingRequest) seedData).getOrder());
+            context.setChangeSet(((PricingRequest) seedData).getChangeSet());
+            return context;
+        }
         if(!(seedData instanceof Order)){
             throw new WorkflowException("Seed data instance is incorrect. " +
                     "Required class is "+Order.class.getName()+" " +
                     "but found class: "+seedData.getClass().getName());
         }
-        PricingContext context = new PricingContext();
         context.setSeedData(seedData);
 
         return context;
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.pricing.service.workflow;
+
+import org.broadleafcommerce.core.order.domain.Order;
+
+/**
+ * Seed data for the pricing workflow when only part of an {@link Order} needs to be repriced.
+ * The workflow may also be seeded with the {@link Order} alone, in which case the entire order is priced.
+ */
+public class PricingRequest {
+
+    protected Order order;
+    protected PricingChangeSet changeSet;
+
+    public PricingRequest(Order order, PricingChangeSet changeSet) {
+        this.order = order;
+        this.changeSet = changeSet;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        this.order = order;
+    }
+
+    public PricingChangeSet getChangeSet() {
+        return changeSet;
+    }
+
+    public void setChangeSet(PricingChangeSet changeSet) {
+        this.changeSet = changeSet;
+    }
+
+}
@@ -16,21 +16,54 @@
 
 package org.broadleafcommerce.core.pricing.service.workflow;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import javax.annotation.Resource;
 
+import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.core.offer.service.ShippingOfferService;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.workflow.BaseActivity;
+import org.broadleafcommerce.core.workflow.ConditionalActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 
-public class ShippingOfferActivity extends BaseActivity {
+/**
+ * Applies the fulfillment group offers to the order. Because these offers may qualify on the order as a
+ * whole, they are reviewed for every FulfillmentGroup; any FulfillmentGroup whose shipping price changes
+ * as a result is marked in the {@link PricingChangeSet} so that it is re-taxed.
+ */
+public class ShippingOfferActivity extends BaseActivity implements ConditionalActivity {
 
     @Resource(name="blShippingOfferService")
     private ShippingOfferService shippingOfferService;
 
+    @Override
+    public boolean shouldExecute(ProcessContext context) {
+        PricingChangeSet changeSet = ((PricingContext) context).getChangeSet();
+        return changeSet.isOrderItemsChanged() || changeSet.isOfferCodesChanged() || changeSet.isCustomerChanged()
+                || changeSet.isAnyFulfillmentGroupChanged();
+    }
+
     public ProcessContext execute(ProcessContext context) throws Exception {
         Order order = ((PricingContext)context).getSeedData();
+        PricingChangeSet changeSet = ((PricingContext) context).getChangeSet();
+        Map<FulfillmentGroup, Money> shippingPrices = new IdentityHashMap<FulfillmentGroup, Money>();
+        if (!changeSet.isAllFulfillmentGroupsChanged()) {
+            for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
+                shippingPrices.put(fulfillmentGroup, fulfillmentGroup.getShippingPrice());
+            }
+        }
+
         shippingOfferService.reviewOffers(order);
+
+        for (Map.Entry<FulfillmentGroup, Money> entry : shippingPrices.entrySet()) {
+            Money shippingPrice = entry.getKey().getShippingPrice();
+            if (shippingPrice == null || entry.getValue() == null ? shippingPrice != entry.getValue() : shippingPrice.compareTo(entry.getValue()) != 0) {
+                changeSet.markFulfillmentGroupChanged(entry.getKey());
+            }
+        }
         context.setSeedData(order);
 
         return context;
@@ -16,18 +16,39 @@
 
 package org.broadleafcommerce.core.pricing.service.workflow;
 
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.pricing.service.module.FulfillmentGroupTaxModule;
 import org.broadleafcommerce.core.pricing.service.module.TaxModule;
 import org.broadleafcommerce.core.workflow.BaseActivity;
+import org.broadleafcommerce.core.workflow.ConditionalActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 
-public class TaxActivity extends BaseActivity {
+/**
+ * Calculates the taxes for the order. When only some of the FulfillmentGroups have changed and the configured
+ * module is a {@link FulfillmentGroupTaxModule}, only those FulfillmentGroups are re-taxed.
+ */
+public class TaxActivity extends BaseActivity implements ConditionalActivity {
 
     private TaxModule taxModule;
 
+    @Override
+    public boolean shouldExecute(ProcessContext context) {
+        return ((PricingContext) context).getChangeSet().isAnyFulfillmentGroupChanged();
+    }
+
     public ProcessContext execute(ProcessContext context) throws Exception {
         Order order = ((PricingContext)context).getSeedData();
-        order = taxModule.calculateTaxForOrder(order);
+        PricingChangeSet changeSet = ((PricingContext) context).getChangeSet();
+        if (changeSet.isAllFulfillmentGroupsChanged() || !(taxModule instanceof FulfillmentGroupTaxModule)) {
+            order = taxModule.calculateTaxForOrder(order);
+        } else {
+            for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
+                if (changeSet.isFulfillmentGroupChanged(fulfillmentGroup)) {
+                    ((FulfillmentGroupTaxModule) taxModule).calculateTaxForFulfillmentGroup(fulfillmentGroup);
+                }
+            }
+        }
 
         context.setSeedData(order);
         return context;
@@ -17,7 +17,7 @@
 package org.broadleafcommerce.core.pricing.service.workflow;
 
 import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
-import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.money.MoneyAccumulator;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroupFee;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
@@ -26,8 +26,6 @@ import org.broadleafcommerce.core.order.domain.TaxDetail;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 
-import java.math.BigDecimal;
-
 /**
  * The TotalActivity is responsible for calculating and setting totals for a given order.
  * It must set the sum of the the taxes in the appropriate places as well as fulfillment
@@ -44,91 +42,92 @@ public class TotalActivity extends BaseActivity {
         
         setTaxSums(order);
         
-        Money total = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
-        total = total.add(order.getSubTotal());
-        total = total.subtract(order.getOrderAdjustmentsValue());
-        total = total.add(order.getTotalShipping());
+        MoneyAccumulator total = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
+        total.add(order.getSubTotal());
+        total.subtract(order.getOrderAdjustmentsValue());
+        total.add(order.getTotalShipping());
         // There may not be any taxes on the order
-        if (order.getTotalTax() != null) {
-            total = total.add(order.getTotalTax());
-        }
+        total.add(order.getTotalTax());
 
-        Money fees = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
+        MoneyAccumulator fgTotal = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
         for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
-            Money fgTotal = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
-            fgTotal = fgTotal.add(fulfillmentGroup.getMerchandiseTotal());
-            fgTotal = fgTotal.add(fulfillmentGroup.getShippingPrice());
-            fgTotal = fgTotal.add(fulfillmentGroup.getTotalTax());
+            fgTotal.reset();
+            fgTotal.add(fulfillmentGroup.getMerchandiseTotal());
+            fgTotal.add(fulfillmentGroup.getShippingPrice());
+            fgTotal.add(fulfillmentGroup.getTotalTax());
             
             for (FulfillmentGroupFee fulfillmentGroupFee : fulfillmentGroup.getFulfillmentGroupFees()) {
-                fgTotal = fgTotal.add(fulfillmentGroupFee.getAmount());
-                fees = fees.add(fulfillmentGroupFee.getAmount());
+                fgTotal.add(fulfillmentGroupFee.getAmount());
+                total.add(fulfillmentGroupFee.getAmount());
             }
             
-            fulfillmentGroup.setTotal(fgTotal);
+            fulfillmentGroup.setTotal(fgTotal.toMoney());
         }
 
-        total = total.add(fees);
-        order.setTotal(total);
+        order.setTotal(total.toMoney());
         
         context.setSeedData(order);
         return context;
     }
     
     protected void setTaxSums(Order order) {
-        Money orderTotalTax = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
+        MoneyAccumulator orderTotalTax = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
+        MoneyAccumulator fgTotalFgTax = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
+        MoneyAccumulator fgTotalItemTax = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
+        MoneyAccumulator fgTotalFeeTax = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
+        MoneyAccumulator fgTotalTax = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
+        MoneyAccumulator detailTotalTax = BroadleafCurrencyUtils.getMoneyAccumulator(order.getCurrency());
         
         for (FulfillmentGroup fg : order.getFulfillmentGroups()) {
-            Money fgTotalFgTax = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
-            Money fgTotalItemTax = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
-            Money fgTotalFeeTax = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
+            fgTotalFgTax.reset();
+            fgTotalItemTax.reset();
+            fgTotalFeeTax.reset();
             
             // Add in all FG specific taxes (such as shipping tax)
             if (fg.getTaxes() != null) {
                 for (TaxDetail tax : fg.getTaxes()) {
-                    fgTotalFgTax = fgTotalFgTax.add(tax.getAmount());
+                    fgTotalFgTax.add(tax.getAmount());
                 }
             }
             
             for (FulfillmentGroupItem item : fg.getFulfillmentGroupItems()) {
-                Money itemTotalTax = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
+                detailTotalTax.reset();
                 
                 // Add in all taxes for this item
                 if (item.getTaxes() != null) {
                     for (TaxDetail tax : item.getTaxes()) {
-                        itemTotalTax = itemTotalTax.add(tax.getAmount());
+                        detailTotalTax.add(tax.getAmount());
                     }
                 }
                 
-                item.setTotalTax(itemTotalTax);
-                fgTotalItemTax = fgTotalItemTax.add(itemTotalTax);
+                item.setTotalTax(detailTotalTax.toMoney());
+                fgTotalItemTax.add(detailTotalTax);
             }
             
             for (FulfillmentGroupFee fee : fg.getFulfillmentGroupFees()) {
-                Money feeTotalTax = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency());
+                detailTotalTax.reset();
                 
                 // Add in all taxes for this fee
                 if (fee.getTaxes() != null) {
                     for (TaxDetail tax : fee.getTaxes()) {
-                        feeTotalTax = feeTotalTax.add(tax.getAmount());
+                        detailTotalTax.add(tax.getAmount());
                     }
                 }
                 
-                fee.setTotalTax(feeTotalTax);
-                fgTotalFeeTax = fgTotalFeeTax.add(feeTotalTax);
+                fee.setTotalTax(detailTotalTax.toMoney());
+                fgTotalFeeTax.add(detailTotalTax);
             }
             
-            Money fgTotalTax = BroadleafCurrencyUtils.getMoney(BigDecimal.ZERO, order.getCurrency()).add(fgTotalFgTax).add(fgTotalItemTax).add(fgTotalFeeTax);
-            
             // Set the fulfillment group tax sums
-            fg.setTotalFulfillmentGroupTax(fgTotalFgTax);
-            fg.setTotalItemTax(fgTotalItemTax);
-            fg.setTotalFeeTax(fgTotalFeeTax);
-            fg.setTotalTax(fgTotalTax);
+            fg.setTotalFulfillmentGroupTax(fgTotalFgTax.toMoney());
+            fg.setTotalItemTax(fgTotalItemTax.toMoney());
+            fg.setTotalFeeTax(fgTotalFeeTax.toMoney());
+            fgTotalTax.reset().add(fgTotalFgTax).add(fgTotalItemTax).add(fgTotalFeeTax);
+            fg.setTotalTax(fgTotalTax.toMoney());
             
-            orderTotalTax = orderTotalTax.add(fgTotalTax);
+            orderTotalTax.add(fgTotalTax);
         }
         
-        order.setTotalTax(orderTotalTax);
+        order.setTotalTax(orderTotalTax.toMoney());
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.dao;
+
+import org.broadleafcommerce.core.search.domain.SearchIndexChange;
+import org.broadleafcommerce.core.search.domain.SearchIndexChangeType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DAO for the queue of catalog changes that have not yet been applied to the Solr index.
+ */
+public interface SearchIndexChangeDao {
+
+    /**
+     * @return a new, unsaved SearchIndexChange
+     */
+    public SearchIndexChange create();
+
+    public SearchIndexChange save(SearchIndexChange change);
+
+    /**
+     * Saves the given changes in the current transaction as it commits, after the persistence context has been
+     * flushed. Changes recorded by entity listeners during that final flush are therefore included: the map is
+     * only read at that point and may be added to until then.
+     * 
+     * @param changes the ids of the changed entities, by entity type
+     */
+    public void saveBeforeCommit(Map<SearchIndexChangeType, Set<Long>> changes);
+
+    /**
+     * Reads the oldest queued changes, in the order they were recorded.
+     * 
+     * @param limit the maximum number of changes to return
+     * @return the oldest queued changes
+     */
+    public List<SearchIndexChange> readOldestChanges(int limit);
+
+    /**
+     * Removes the given changes from the queue, typically after they have been applied to the index.
+     * 
+     * @param changes
+     */
+    public void delete(List<SearchIndexChange> changes);
+
+    /**
+     * @return the number of changes waiting to be applied
+     */
+    public Long readCountChanges();
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.dao;
+
+import org.broadleafcommerce.common.persistence.EntityConfiguration;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.core.search.domain.SearchIndexChange;
+import org.broadleafcommerce.core.search.domain.SearchIndexChangeImpl;
+import org.broadleafcommerce.core.search.domain.SearchIndexChangeType;
+import org.hibernate.StatelessSession;
+import org.hibernate.action.BeforeTransactionCompletionProcess;
+import org.hibernate.ejb.HibernateEntityManager;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.event.EventSource;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+@Repository("blSearchIndexChangeDao")
+public class SearchIndexChangeDaoImpl implements SearchIndexChangeDao {
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Resource(name="blEntityConfiguration")
+    protected EntityConfiguration entityConfiguration;
+
+    @Override
+    public SearchIndexChange create() {
+        return (SearchIndexChange) entityConfiguration.createEntityInstance(SearchIndexChange.class.getName());
+    }
+
+    @Override
+    public SearchIndexChange save(SearchIndexChange change) {
+        return em.merge(change);
+    }
+
+    /**
+     * The changes are inserted through a stateless session on the connection of the committing session, since
+     * that session has already been flushed and will not flush again.
+     */
+    @Override
+    public void saveBeforeCommit(final Map<SearchIndexChangeType, Set<Long>> changes) {
+        EventSource session = (EventSource) ((HibernateEntityManager) em).getSession();
+        session.getActionQueue().registerProcess(new BeforeTransactionCompletionProcess() {
+            @Override
+            public void doBeforeTransactionCompletion(SessionImplementor session) {
+                StatelessSession statelessSession = session.getFactory().openStatelessSession(session.connection());
+                try {
+                    Date now = SystemTime.asDate();
+                    for (Entry<SearchIndexChangeType, Set<Long>> entry : changes.entrySet()) {
+                        for (Long entityId : entry.getValue()) {
+                            SearchIndexChange change = create();
+                            change.setEntityType(entry.getKey());
+                            change.setEntityId(entityId);
+                            change.setDateCreated(now);
+                            statelessSession.insert(change);
+                        }
+                    }
+                    // Inserts may be held in a JDBC batch, which a stateless session does not execute on close
+                    ((SessionImplementor) statelessSession).getBatcher().executeBatch();
+                } finally {
+                    statelessSession.close();
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<SearchIndexChange> readOldestChanges(int limit) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<SearchIndexChange> criteria = builder.createQuery(SearchIndexChange.class);
+
+        Root<SearchIndexChangeImpl> root = criteria.from(SearchIndexChangeImpl.class);
+
+        criteria.select(root);
+        criteria.orderBy(builder.asc(root.get("id")));
+
+        return em.createQuery(criteria).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public void delete(List<SearchIndexChange> changes) {
+        for (SearchIndexChange change : changes) {
+            if (!em.contains(change)) {
+                change = em.find(SearchIndexChangeImpl.class, change.getId());
+            }
+            if (change != null) {
+                em.remove(change);
+            }
+        }
+    }
+
+    @Override
+    public Long readCountChanges() {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+
+        Root<SearchIndexChangeImpl> root = criteria.from(SearchIndexChangeImpl.class);
+        criteria.select(builder.count(root));
+
+        return em.createQuery(criteria).getSingleResult();
+    }
+
+}
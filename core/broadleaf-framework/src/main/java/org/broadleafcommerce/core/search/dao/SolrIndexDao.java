@@ -0,0 +1,54 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.dao;
+
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.solr.ProductIndexRow;
+
+import java.util.List;
+
+/**
+ * Reads the data needed to build Solr documents as flat column projections rather than as {@code Product}
+ * entities. Only fields that map to a basic column on the product, its default sku or a named product
+ * attribute can be projected; see {@link #isProjectable(Field)}.
+ */
+public interface SolrIndexDao {
+
+    /**
+     * @param field
+     * @return whether the value of this field can be read by {@link #readProductIndexRows(List, List)}
+     */
+    public boolean isProjectable(Field field);
+
+    /**
+     * Reads a row for each of the given products with the values of the given fields and the ids of the
+     * categories each product is directly assigned to. Rows are returned in the order of the given ids;
+     * products that do not exist are omitted.
+     * 
+     * @param productIds
+     * @param fields the fields to read, all of which must be {@link #isProjectable(Field) projectable}
+     * @return the rows for the given products
+     */
+    public List<ProductIndexRow> readProductIndexRows(List<Long> productIds, List<Field> fields);
+
+    /**
+     * @param categoryId
+     * @return the ids of the products assigned to the category, in display order
+     */
+    public List<Long> readProductIdsByCategory(Long categoryId);
+
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.dao;
+
+import org.apache.commons.lang3.StringUtils;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.persistence.EntityConfiguration;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXrefImpl;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.solr.ProductIndexRow;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+
+import java.beans.PropertyDescriptor;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository("blSolrIndexDao")
+public class SolrIndexDaoImpl implements SolrIndexDao {
+
+    protected static final String PRODUCT_ATTRIBUTES_PREFIX = "productAttributes.";
+    protected static final String DEFAULT_SKU_PREFIX = "defaultSku.";
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Resource(name="blEntityConfiguration")
+    protected EntityConfiguration entityConfiguration;
+
+    @Override
+    public boolean isProjectable(Field field) {
+        String propertyName = field.getPropertyName();
+        if (propertyName.startsWith(PRODUCT_ATTRIBUTES_PREFIX)) {
+            return propertyName.indexOf('.', PRODUCT_ATTRIBUTES_PREFIX.length()) < 0;
+        }
+        return resolveColumn(propertyName) != null;
+    }
+
+    @Override
+    public List<ProductIndexRow> readProductIndexRows(List<Long> productIds, List<Field> fields) {
+        Map<Long, ProductIndexRow> rows = new LinkedHashMap<Long, ProductIndexRow>();
+        if (productIds.isEmpty()) {
+            return new ArrayList<ProductIndexRow>();
+        }
+
+        List<String> columnProperties = new ArrayList<String>();
+        Map<String, String> attributeProperties = new HashMap<String, String>();
+        for (Field field : fields) {
+            String propertyName = field.getPropertyName();
+            if (propertyName.startsWith(PRODUCT_ATTRIBUTES_PREFIX)) {
+                attributeProperties.put(propertyName.substring(PRODUCT_ATTRIBUTES_PREFIX.length()), propertyName);
+            } else if (!columnProperties.contains(propertyName)) {
+                columnProperties.add(propertyName);
+            }
+        }
+
+        readColumns(productIds, columnProperties, rows);
+        if (!attributeProperties.isEmpty()) {
+            readAttributes(productIds, attributeProperties, rows);
+        }
+        readExplicitCategories(productIds, rows);
+
+        return new ArrayList<ProductIndexRow>(rows.values());
+    }
+
+    /**
+     * Reads the product id and each of the column properties in a single query against the product joined to its
+     * default sku, creating a row per product.
+     */
+    protected void readColumns(List<Long> productIds, List<String> columnProperties, Map<Long, ProductIndexRow> rows) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteria = builder.createTupleQuery();
+
+        Root<?> product = criteria.from(getProductClass());
+        Join<?, ?> sku = product.join("defaultSku", JoinType.LEFT);
+
+        List<Selection<?>> selections = new ArrayList<Selection<?>>();
+        selections.add(product.get("id"));
+        List<ProjectedColumn> columns = new ArrayList<ProjectedColumn>();
+        for (String propertyName : columnProperties) {
+            ProjectedColumn column = resolveColumn(propertyName);
+            From<?, ?> from = column.onDefaultSku ? sku : product;
+            selections.add(from.get(column.attributeName));
+            columns.add(column);
+        }
+
+        criteria.multiselect(selections);
+        criteria.where(product.get("id").in(productIds));
+
+        Map<Long, Tuple> tuples = new HashMap<Long, Tuple>();
+        for (Tuple tuple : em.createQuery(criteria).getResultList()) {
+            tuples.put((Long) tuple.get(0), tuple);
+        }
+
+        for (Long productId : productIds) {
+            Tuple tuple = tuples.get(productId);
+            if (tuple == null) {
+                continue;
+            }
+            ProductIndexRow row = new ProductIndexRow(productId);
+            row.setCurrency(resolveCurrency(row));
+            for (int i = 0; i < columns.size(); i++) {
+                ProjectedColumn column = columns.get(i);
+                Object value = tuple.get(i + 1);
+                if (column.money && value != null) {
+                    value = new Money((BigDecimal) value, row.getCurrency());
+                }
+                row.getPropertyValues().put(column.propertyName, value);
+            }
+            rows.put(productId, row);
+        }
+    }
+
+    /**
+     * Skus do not persist a currency, so their prices are in the currency resolved for the current thread, the same
+     * as {@link org.broadleafcommerce.core.catalog.domain.SkuImpl#getRetailPrice()}. Override to price products
+     * in a different currency.
+     *
+     * @param row the row being read, whose property values are not populated yet
+     * @return the currency of the product's prices
+     */
+    protected Currency resolveCurrency(ProductIndexRow row) {
+        return Money.defaultCurrency();
+    }
+
+    protected void readAttributes(List<Long> productIds, Map<String, String> attributeProperties, Map<Long, ProductIndexRow> rows) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteria = builder.createTupleQuery();
+
+        Root<?> attribute = criteria.from(entityConfiguration.lookupEntityClass(ProductAttribute.class.getName()));
+        Path<Object> productId = attribute.get("product").get("id");
+        criteria.multiselect(productId, attribute.get("name"), attribute.get("value"));
+        criteria.where(
+            productId.in(productIds),
+            attribute.get("name").in(attributeProperties.keySet())
+        );
+
+        for (Tuple tuple : em.createQuery(criteria).getResultList()) {
+            ProductIndexRow row = rows.get(tuple.get(0));
+            if (row != null) {
+                row.getPropertyValues().put(attributeProperties.get(tuple.get(1)), tuple.get(2));
+            }
+        }
+    }
+
+    protected void readExplicitCategories(List<Long> productIds, Map<Long, ProductIndexRow> rows) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteria = builder.createTupleQuery();
+
+        Root<CategoryProductXrefImpl> xref = criteria.from(CategoryProductXrefImpl.class);
+        Path<Object> productId = xref.get("categoryProductXref").get("product").get("id");
+        criteria.multiselect(productId, xref.get("categoryProductXref").get("category").get("id"));
+        criteria.where(productId.in(productIds));
+
+        for (Tuple tuple : em.createQuery(criteria).getResultList()) {
+            ProductIndexRow row = rows.get(tuple.get(0));
+            if (row != null) {
+                row.getExplicitCategoryIds().add((Long) tuple.get(1));
+            }
+        }
+    }
+
+    @Override
+    public List<Long> readProductIdsByCategory(Long categoryId) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+
+        Root<CategoryProductXrefImpl> xref = criteria.from(CategoryProductXrefImpl.class);
+        criteria.select(xref.get("categoryProductXref").get("product").get("id").as(Long.class));
+        criteria.where(builder.equal(xref.get("categoryProductXref").get("category").get("id"), categoryId));
+        criteria.orderBy(builder.asc(xref.get("displayOrder")));
+
+        return em.createQuery(criteria).getResultList();
+    }
+
+    /**
+     * Maps a product property to a basic column. Properties that the product entity does not persist itself are
+     * looked up on the default sku, which mirrors the product getters that delegate to {@link Product#getDefaultSku()}.
+     * 
+     * @param propertyName
+     * @return the column, or null if the property cannot be read as a single column
+     */
+    protected ProjectedColumn resolveColumn(String propertyName) {
+        if (propertyName.startsWith(DEFAULT_SKU_PREFIX)) {
+            return resolveColumn(getSkuClass(), Sku.class, propertyName.substring(DEFAULT_SKU_PREFIX.length()), propertyName, true);
+        }
+        ProjectedColumn column = resolveColumn(getProductClass(), Product.class, propertyName, propertyName, false);
+        if (column == null) {
+            column = resolveColumn(getSkuClass(), Sku.class, propertyName, propertyName, true);
+        }
+        return column;
+    }
+
+    protected ProjectedColumn resolveColumn(Class<?> entityClass, Class<?> entityInterface, String attributeName,
+            String propertyName, boolean onDefaultSku) {
+        if (StringUtils.contains(attributeName, '.')) {
+            return null;
+        }
+        EntityType<?> entityType = em.getMetamodel().entity(entityClass);
+        Attribute<?, ?> attribute;
+        try {
+            attribute = entityType.getAttribute(attributeName);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (attribute.getPersistentAttributeType() != PersistentAttributeType.BASIC) {
+            return null;
+        }
+        PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(entityInterface, attributeName);
+        if (descriptor == null || descriptor.getReadMethod() == null) {
+            return null;
+        }
+
+        ProjectedColumn column = new ProjectedColumn();
+        column.propertyName = propertyName;
+        column.attributeName = attributeName;
+        column.onDefaultSku = onDefaultSku;
+        column.money = Money.class.equals(descriptor.getPropertyType()) && BigDecimal.class.equals(attribute.getJavaType());
+        return column;
+    }
+
+    protected Class<?> getProductClass() {
+        return entityConfiguration.lookupEntityClass(Product.class.getName());
+    }
+
+    protected Class<?> getSkuClass() {
+        return entityConfiguration.lookupEntityClass(Sku.class.getName());
+    }
+
+    protected static class ProjectedColumn {
+        protected String propertyName;
+        protected String attributeName;
+        protected boolean onDefaultSku;
+        protected boolean money;
+    }
+
+}
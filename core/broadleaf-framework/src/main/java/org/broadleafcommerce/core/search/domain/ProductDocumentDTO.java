@@ -0,0 +1,57 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A lightweight product search hit built from the fields stored in the Solr index, without reading the
+ * product from the database.
+ * 
+ * @see ProductSearchCriteria#setReadProducts(boolean)
+ */
+public class ProductDocumentDTO {
+
+    protected Long id;
+
+    protected Map<String, Object> fieldValues = new HashMap<String, Object>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the stored values of this document, keyed by Solr field name
+     */
+    public Map<String, Object> getFieldValues() {
+        return fieldValues;
+    }
+
+    public void setFieldValues(Map<String, Object> fieldValues) {
+        this.fieldValues = fieldValues;
+    }
+
+    public Object getFieldValue(String solrFieldName) {
+        return fieldValues.get(solrFieldName);
+    }
+
+}
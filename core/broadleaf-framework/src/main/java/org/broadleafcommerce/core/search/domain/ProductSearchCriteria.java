@@ -16,6 +16,7 @@
 
 package org.broadleafcommerce.core.search.domain;
 
+import java.util.List;
 import java.util.Map;
 
 
@@ -35,6 +36,8 @@ public class ProductSearchCriteria {
     protected Integer pageSize;
     protected String sortQuery;
     protected Map<String, String[]> filterCriteria;
+    protected boolean readProducts = true;
+    protected List<String> resultFields;
     
     public Integer getPage() {
         return page;
@@ -68,4 +71,39 @@ public class ProductSearchCriteria {
         this.filterCriteria = filterCriteria;
     }
     
+
+    /**
+     * @return whether the search should read the matching products from the database. Defaults to true.
+     */
+    public boolean isReadProducts() {
+        return readProducts;
+    }
+
+    /**
+     * When set to false, the search result holds {@link ProductDocumentDTO}s built from the stored Solr fields
+     * instead of Product instances, and the database is not queried.
+     * 
+     * @param readProducts
+     */
+    public void setReadProducts(boolean readProducts) {
+        this.readProducts = readProducts;
+    }
+
+    /**
+     * @return the stored Solr fields to return in each {@link ProductDocumentDTO}
+     */
+    public List<String> getResultFields() {
+        return resultFields;
+    }
+
+    /**
+     * Sets the stored Solr fields to return when products are not read. If no fields are given, every stored
+     * field is returned.
+     * 
+     * @param resultFields
+     */
+    public void setResultFields(List<String> resultFields) {
+        this.resultFields = resultFields;
+    }
+
 }
@@ -28,6 +28,7 @@ import java.util.List;
 public class ProductSearchResult {
     
     protected List<Product> products;
+    protected List<ProductDocumentDTO> productDocuments;
     protected List<SearchFacetDTO> facets;
     
     protected Integer totalResults;
@@ -42,6 +43,18 @@ public class ProductSearchResult {
         this.products = products;
     }
 
+    /**
+     * @return the matching products as stored in the index, when the search did not read products
+     * @see ProductSearchCriteria#setReadProducts(boolean)
+     */
+    public List<ProductDocumentDTO> getProductDocuments() {
+        return productDocuments;
+    }
+
+    public void setProductDocuments(List<ProductDocumentDTO> productDocuments) {
+        this.productDocuments = productDocuments;
+    }
+
     public List<SearchFacetDTO> getFacets() {
         return facets;
     }
@@ -75,7 +88,7 @@ public class ProductSearchResult {
     }
     
     public Integer getStartResult() {
-        return (products == null || products.size() == 0) ? 0 : ((page - 1) * pageSize) + 1;
+        return getResultCount() == 0 ? 0 : ((page - 1) * pageSize) + 1;
     }
     
     public Integer getEndResult() {
@@ -83,7 +96,14 @@ public class ProductSearchResult {
     }
     
     public Integer getTotalPages() {
-        return (products == null || products.size() == 0) ? 1 : (int) Math.ceil(totalResults * 1.0 / pageSize);
+        return getResultCount() == 0 ? 1 : (int) Math.ceil(totalResults * 1.0 / pageSize);
+    }
+
+    protected int getResultCount() {
+        if (products != null) {
+            return products.size();
+        }
+        return productDocuments == null ? 0 : productDocuments.size();
     }
 
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A catalog entity that has changed since it was last written to the Solr index. Changes are recorded when
+ * the transaction that modified the entity commits and are removed once they have been applied to the index.
+ * 
+ * @see org.broadleafcommerce.core.search.service.solr.SolrIndexChangeService
+ */
+public interface SearchIndexChange extends Serializable {
+
+    public Long getId();
+
+    public void setId(Long id);
+
+    /**
+     * @return the kind of entity that changed
+     */
+    public SearchIndexChangeType getEntityType();
+
+    public void setEntityType(SearchIndexChangeType entityType);
+
+    /**
+     * @return the primary key of the entity that changed
+     */
+    public Long getEntityId();
+
+    public void setEntityId(Long entityId);
+
+    public Date getDateCreated();
+
+    public void setDateCreated(Date dateCreated);
+
+}
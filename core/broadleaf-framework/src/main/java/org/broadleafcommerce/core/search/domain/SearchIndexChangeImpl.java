@@ -0,0 +1,97 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Inheritance;
+import javax.persistence.InheritanceType;
+import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import java.util.Date;
+
+@Entity
+@Inheritance(strategy = InheritanceType.JOINED)
+@Table(name = "BLC_SEARCH_INDEX_CHANGE")
+public class SearchIndexChangeImpl implements SearchIndexChange {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(generator = "SearchIndexChangeId", strategy = GenerationType.TABLE)
+    @TableGenerator(name = "SearchIndexChangeId", table = "SEQUENCE_GENERATOR", pkColumnName = "ID_NAME", valueColumnName = "ID_VAL", pkColumnValue = "SearchIndexChangeImpl", allocationSize = 50)
+    @Column(name = "SEARCH_INDEX_CHANGE_ID")
+    protected Long id;
+
+    // This is a broadleaf enumeration
+    @Column(name = "ENTITY_TYPE", nullable = false)
+    protected String entityType;
+
+    @Column(name = "ENTITY_ID", nullable = false)
+    protected Long entityId;
+
+    @Column(name = "DATE_CREATED")
+    @Temporal(TemporalType.TIMESTAMP)
+    protected Date dateCreated;
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    @Override
+    public SearchIndexChangeType getEntityType() {
+        return SearchIndexChangeType.getInstance(entityType);
+    }
+
+    @Override
+    public void setEntityType(SearchIndexChangeType entityType) {
+        this.entityType = entityType.getType();
+    }
+
+    @Override
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    @Override
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    @Override
+    public Date getDateCreated() {
+        return dateCreated;
+    }
+
+    @Override
+    public void setDateCreated(Date dateCreated) {
+        this.dateCreated = dateCreated;
+    }
+
+}
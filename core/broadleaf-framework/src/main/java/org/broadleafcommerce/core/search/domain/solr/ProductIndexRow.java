@@ -0,0 +1,72 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.domain.solr;
+
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A flat projection of the product data needed to build a Solr document. Values are keyed by the
+ * {@link org.broadleafcommerce.core.search.domain.Field#getPropertyName()} they were read for, so building a
+ * document from a row never touches a Hibernate entity.
+ * 
+ * @see org.broadleafcommerce.core.search.dao.SolrIndexDao#readProductIndexRows(List, List)
+ */
+public class ProductIndexRow {
+
+    protected Long id;
+    protected Map<String, Object> propertyValues = new HashMap<String, Object>();
+    protected List<Long> explicitCategoryIds = new ArrayList<Long>();
+    protected Currency currency;
+
+    public ProductIndexRow(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the value of each projected field, keyed by property name
+     */
+    public Map<String, Object> getPropertyValues() {
+        return propertyValues;
+    }
+
+    /**
+     * @return the ids of the categories this product is directly assigned to
+     */
+    public List<Long> getExplicitCategoryIds() {
+        return explicitCategoryIds;
+    }
+
+    /**
+     * @return the currency of the default sku's prices, which is used for every projected price of this product
+     */
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+}
@@ -0,0 +1,567 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.search.service.memory;
+
+import org.apache.commons.lang.StringUtils;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.solr.ProductIndexRow;
+import org.broadleafcommerce.core.search.service.solr.SolrIndexCategoryCache;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A columnar, in-memory index of the active products. Each product is assigned a dense document number in the
+ * order it was added. Every indexed field is held as a dictionary encoded column: the distinct values of the field,
+ * the code of each document's value, and a {@link BitSet} of the documents holding each value. The products in
+ * each category, explicitly and through the category hierarchy, are held as bitsets as well, so filtering and facet
+ * counting are bitwise operations over document numbers.
+ *
+ * <p>Updating a product clears its document from the set of live documents and appends a new document; the old
+ * document is reclaimed on the next full build. Instances are not thread safe while they are being modified. The
+ * {@link InMemorySearchServiceImpl} only ever modifies a {@link #copy()} and publishes it once it is complete, so a
+ * published index is never modified.</p>
+ */
+public class InMemoryProductIndex {
+
+    public static final String RANGE_PREFIX = "range[";
+
+    protected final Map<String, Field> fieldsByAbbreviation = new HashMap<String, Field>();
+    protected final List<String> searchableProperties = new ArrayList<String>();
+    protected final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+
+    protected long[] productIds = new long[64];
+    protected String[] searchText = new String[64];
+    protected int documentCount;
+    protected final Map<Long, Integer> documents = new HashMap<Long, Integer>();
+    protected final BitSet live = new BitSet();
+
+    protected final Map<Long, BitSet> explicitCategories = new HashMap<Long, BitSet>();
+    protected final Map<Long, BitSet> categories = new HashMap<Long, BitSet>();
+    protected final Map<Long, Map<Integer, Integer>> categoryPositions = new HashMap<Long, Map<Integer, Integer>>();
+
+    /**
+     * @param fields the product fields to index. Every field must be readable by
+     * {@link org.broadleafcommerce.core.search.dao.SolrIndexDao#readProductIndexRows(List, List)}.
+     */
+    public InMemoryProductIndex(List<Field> fields) {
+        for (Field field : fields) {
+            fieldsByAbbreviation.put(field.getAbbreviation(), field);
+            if (!columns.containsKey(field.getPropertyName())) {
+                columns.put(field.getPropertyName(), new Column());
+                if (Boolean.TRUE.equals(field.getSearchable())) {
+                    searchableProperties.add(field.getPropertyName());
+                }
+            }
+        }
+    }
+
+    protected InMemoryProductIndex(InMemoryProductIndex other) {
+        fieldsByAbbreviation.putAll(other.fieldsByAbbreviation);
+        searchableProperties.addAll(other.searchableProperties);
+        for (Entry<String, Column> entry : other.columns.entrySet()) {
+            columns.put(entry.getKey(), entry.getValue().copy());
+        }
+        productIds = other.productIds.clone();
+        searchText = other.searchText.clone();
+        documentCount = other.documentCount;
+        documents.putAll(other.documents);
+        live.or(other.live);
+        copyBitSets(other.explicitCategories, explicitCategories);
+        copyBitSets(other.categories, categories);
+        for (Entry<Long, Map<Integer, Integer>> entry : other.categoryPositions.entrySet()) {
+            categoryPositions.put(entry.getKey(), new HashMap<Integer, Integer>(entry.getValue()));
+        }
+    }
+
+    /**
+     * @return a deep copy of this index that may be modified without affecting this one
+     */
+    public InMemoryProductIndex copy() {
+        return new InMemoryProductIndex(this);
+    }
+
+    /**
+     * Adds the product held by the row, replacing any previous document for the same product.
+     *
+     * @param row the projected values of the product
+     * @param categoryCache the category hierarchy and product positions
+     */
+    public void add(ProductIndexRow row, SolrIndexCategoryCache categoryCache) {
+        remove(row.getId());
+
+        int doc = documentCount++;
+        if (doc == productIds.length) {
+            productIds = Arrays.copyOf(productIds, doc * 2);
+            searchText = Arrays.copyOf(searchText, doc * 2);
+        }
+        productIds[doc] = row.getId();
+        documents.put(row.getId(), doc);
+        live.set(doc);
+
+        StringBuilder text = new StringBuilder();
+        for (Entry<String, Column> entry : columns.entrySet()) {
+            Object value = row.getPropertyValues().get(entry.getKey());
+            entry.getValue().set(doc, value);
+            if (value != null && searchableProperties.contains(entry.getKey())) {
+                text.append(value.toString().toLowerCase()).append(' ');
+            }
+        }
+        searchText[doc] = text.toString();
+
+        for (Long categoryId : row.getExplicitCategoryIds()) {
+            getBitSet(explicitCategories, categoryId).set(doc);
+            for (Long hierarchyId : categoryCache.getFullCategoryHierarchy(categoryId)) {
+                getBitSet(categories, hierarchyId).set(doc);
+            }
+            int position = categoryCache.getProductPosition(categoryId, row.getId());
+            if (position >= 0) {
+                Map<Integer, Integer> positions = categoryPositions.get(categoryId);
+                if (positions == null) {
+                    positions = new HashMap<Integer, Integer>();
+                    categoryPositions.put(categoryId, positions);
+                }
+                positions.put(doc, position);
+            }
+        }
+    }
+
+    /**
+     * Removes the product from the index, if present.
+     *
+     * @param productId
+     */
+    public void remove(Long productId) {
+        Integer doc = documents.remove(productId);
+        if (doc != null) {
+            live.clear(doc);
+            searchText[doc] = null;
+        }
+    }
+
+    /**
+     * @return the number of products in the index
+     */
+    public int size() {
+        return live.cardinality();
+    }
+
+    /**
+     * @return the number of documents that belong to removed or replaced products
+     */
+    public int getDeletedCount() {
+        return documentCount - documents.size();
+    }
+
+    /**
+     * @param abbreviation
+     * @return the indexed field with the given url abbreviation, or null
+     */
+    public Field getField(String abbreviation) {
+        return fieldsByAbbreviation.get(abbreviation);
+    }
+
+    /**
+     * @return the documents of every product in the index
+     */
+    public BitSet matchAll() {
+        return (BitSet) live.clone();
+    }
+
+    /**
+     * @param categoryId
+     * @param explicit whether to exclude products that are only in a descendant of the category
+     * @return the documents of the products in the category
+     */
+    public BitSet matchCategory(Long categoryId, boolean explicit) {
+        BitSet result = new BitSet();
+        BitSet docs = (explicit ? explicitCategories : categories).get(categoryId);
+        if (docs != null) {
+            result.or(docs);
+            result.and(live);
+        }
+        return result;
+    }
+
+    /**
+     * @param query
+     * @return the documents whose searchable fields contain every whitespace separated term of the query,
+     * ignoring case
+     */
+    public BitSet matchText(String query) {
+        String[] terms = StringUtils.split(StringUtils.remove(query, '"').toLowerCase());
+        BitSet result = new BitSet();
+        if (terms == null || terms.length == 0) {
+            return result;
+        }
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            boolean matches = true;
+            for (int i = 0; matches && i < terms.length; i++) {
+                matches = searchText[doc].contains(terms[i]);
+            }
+            if (matches) {
+                result.set(doc);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Selects the documents whose value for the property matches any of the selected values. A selected value is
+     * either matched exactly against the string form of the indexed value, or is a range of the form
+     * <code>range[min:max]</code>, inclusive of both ends, where a max of <code>null</code> is unbounded. Ranges
+     * that cannot be parsed are ignored.
+     *
+     * @param propertyName
+     * @param selectedValues
+     * @return the matching documents
+     */
+    public BitSet matchValues(String propertyName, String[] selectedValues) {
+        BitSet result = new BitSet();
+        Column column = columns.get(propertyName);
+        if (column == null) {
+            return result;
+        }
+        for (String selectedValue : selectedValues) {
+            if (selectedValue.startsWith(RANGE_PREFIX)) {
+                BigDecimal[] range = parseRange(selectedValue);
+                if (range == null) {
+                    continue;
+                }
+                for (int code = 0; code < column.dictionary.size(); code++) {
+                    if (isInRange(column.dictionary.get(code), range[0], range[1])) {
+                        result.or(column.postings.get(code));
+                    }
+                }
+            } else {
+                Integer code = column.codes.get(selectedValue);
+                if (code != null) {
+                    result.or(column.postings.get(code));
+                }
+            }
+        }
+        result.and(live);
+        return result;
+    }
+
+    /**
+     * @param selectedValue a value of the form <code>range[min:max]</code>
+     * @return the min and max of the range, the max being null when unbounded, or null if the range is malformed
+     */
+    protected BigDecimal[] parseRange(String selectedValue) {
+        int end = selectedValue.indexOf(']');
+        if (end < RANGE_PREFIX.length()) {
+            return null;
+        }
+        String[] range = StringUtils.splitPreserveAllTokens(selectedValue.substring(RANGE_PREFIX.length(), end), ':');
+        if (range.length == 0 || range.length > 2) {
+            return null;
+        }
+        try {
+            BigDecimal min = new BigDecimal(range[0]);
+            BigDecimal max = range.length < 2 || "null".equals(range[1]) ? null : new BigDecimal(range[1]);
+            return new BigDecimal[] {min, max};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param propertyName
+     * @param docs
+     * @return the number of the given documents holding each value of the property, in value order. Values held
+     * by none of the documents are omitted.
+     */
+    public Map<Object, Integer> countValues(String propertyName, BitSet docs) {
+        Map<Object, Integer> result = new LinkedHashMap<Object, Integer>();
+        Column column = columns.get(propertyName);
+        if (column == null) {
+            return result;
+        }
+        int[] counts = countCodes(column, docs);
+        for (Integer code : column.getSortedCodes()) {
+            if (counts[code] > 0) {
+                result.put(column.dictionary.get(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param propertyName
+     * @param docs
+     * @param min the inclusive lower bound
+     * @param max the inclusive upper bound, or null for no bound
+     * @return the number of the given documents whose value of the property is within the range
+     */
+    public int countRange(String propertyName, BitSet docs, BigDecimal min, BigDecimal max) {
+        Column column = columns.get(propertyName);
+        if (column == null) {
+            return 0;
+        }
+        int[] counts = countCodes(column, docs);
+        int count = 0;
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0 && isInRange(column.dictionary.get(code), min, max)) {
+                count += counts[code];
+            }
+        }
+        return count;
+    }
+
+    protected int[] countCodes(Column column, BitSet docs) {
+        int[] counts = new int[column.dictionary.size()];
+        for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+            int code = column.getCode(doc);
+            if (code >= 0) {
+                counts[code]++;
+            }
+        }
+        return counts;
+    }
+
+    protected boolean isInRange(Object value, BigDecimal min, BigDecimal max) {
+        BigDecimal number = toBigDecimal(value);
+        return number != null && number.compareTo(min) >= 0 && (max == null || number.compareTo(max) <= 0);
+    }
+
+    protected BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Orders the given documents and returns the ids of the requested page of products. Documents are ordered by
+     * each sort in turn, then by their position in the given category, then in the order they were indexed.
+     * Documents without a value for a sort, or without a position, are ordered last.
+     *
+     * @param docs
+     * @param sorts the sorts to apply, in order of precedence
+     * @param positionCategoryId the category whose product positions should be used, or null
+     * @param offset the number of leading documents to skip
+     * @param limit the maximum number of product ids to return
+     * @return the product ids
+     */
+    public List<Long> sort(BitSet docs, final List<Sort> sorts, Long positionCategoryId, int offset, int limit) {
+        Integer[] ordered = new Integer[docs.cardinality()];
+        int i = 0;
+        for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+            ordered[i++] = doc;
+        }
+
+        final Map<Integer, Integer> positions = positionCategoryId == null ? null : categoryPositions.get(positionCategoryId);
+        if (!sorts.isEmpty() || positions != null) {
+            Arrays.sort(ordered, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer doc1, Integer doc2) {
+                    for (Sort sort : sorts) {
+                        Column column = columns.get(sort.getPropertyName());
+                        if (column != null) {
+                            int result = compareValues(column, column.getCode(doc1), column.getCode(doc2), sort.isDescending());
+                            if (result != 0) {
+                                return result;
+                            }
+                        }
+                    }
+                    if (positions != null) {
+                        return compareNullsLast(positions.get(doc1), positions.get(doc2), false);
+                    }
+                    return 0;
+                }
+            });
+        }
+
+        List<Long> result = new ArrayList<Long>();
+        for (i = offset; i < ordered.length && result.size() < limit; i++) {
+            result.add(productIds[ordered[i]]);
+        }
+        return result;
+    }
+
+    protected int compareValues(Column column, int code1, int code2, boolean descending) {
+        if (code1 == code2) {
+            return 0;
+        }
+        return compareNullsLast(code1 < 0 ? null : column.dictionary.get(code1), code2 < 0 ? null : column.dictionary.get(code2), descending);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected static int compareNullsLast(Object value1, Object value2, boolean descending) {
+        if (value1 == null || value2 == null) {
+            return value1 == null ? (value2 == null ? 0 : 1) : -1;
+        }
+        int result;
+        if (value1 instanceof Comparable && value1.getClass().equals(value2.getClass())) {
+            result = ((Comparable) value1).compareTo(value2);
+        } else {
+            result = value1.toString().compareTo(value2.toString());
+        }
+        return descending ? -result : result;
+    }
+
+    /**
+     * @param productId
+     * @return the indexed values of the product keyed by property name, or null if the product is not indexed
+     */
+    public Map<String, Object> getValues(Long productId) {
+        Integer doc = documents.get(productId);
+        if (doc == null) {
+            return null;
+        }
+        Map<String, Object> values = new HashMap<String, Object>();
+        for (Entry<String, Column> entry : columns.entrySet()) {
+            int code = entry.getValue().getCode(doc);
+            if (code >= 0) {
+                values.put(entry.getKey(), entry.getValue().dictionary.get(code));
+            }
+        }
+        return values;
+    }
+
+    protected BitSet getBitSet(Map<Long, BitSet> bitSets, Long key) {
+        BitSet bitSet = bitSets.get(key);
+        if (bitSet == null) {
+            bitSet = new BitSet();
+            bitSets.put(key, bitSet);
+        }
+        return bitSet;
+    }
+
+    protected void copyBitSets(Map<Long, BitSet> source, Map<Long, BitSet> target) {
+        for (Entry<Long, BitSet> entry : source.entrySet()) {
+            target.put(entry.getKey(), (BitSet) entry.getValue().clone());
+        }
+    }
+
+    /**
+     * A single sort clause, by indexed property.
+     */
+    public static class Sort {
+
+        protected final String propertyName;
+        protected final boolean descending;
+
+        public Sort(String propertyName, boolean descending) {
+            this.propertyName = propertyName;
+            this.descending = descending;
+        }
+
+        public String getPropertyName() {
+            return propertyName;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+
+    }
+
+    /**
+     * The dictionary encoded values of a single property. Values are keyed by their string form, so that two values
+     * that would be indexed as the same Solr term share a code.
+     */
+    protected static class Column {
+
+        protected final List<Object> dictionary = new ArrayList<Object>();
+        protected final Map<String, Integer> codes = new HashMap<String, Integer>();
+        protected final List<BitSet> postings = new ArrayList<BitSet>();
+        protected int[] docCodes = new int[0];
+        protected volatile List<Integer> sortedCodes;
+
+        public int getCode(int doc) {
+            return doc < docCodes.length ? docCodes[doc] : -1;
+        }
+
+        public void set(int doc, Object value) {
+            if (doc >= docCodes.length) {
+                int length = docCodes.length;
+                docCodes = Arrays.copyOf(docCodes, Math.max(64, Math.max(doc + 1, length * 2)));
+                Arrays.fill(docCodes, length, docCodes.length, -1);
+            }
+            if (value == null) {
+                docCodes[doc] = -1;
+                return;
+            }
+            String key = value.toString();
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(key, code);
+                postings.add(new BitSet());
+                sortedCodes = null;
+            }
+            docCodes[doc] = code;
+            postings.get(code).set(doc);
+        }
+
+        /**
+         * @return the codes of this column ordered by their value
+         */
+        public List<Integer> getSortedCodes() {
+            List<Integer> result = sortedCodes;
+            if (result == null) {
+                result = new ArrayList<Integer>(dictionary.size());
+                for (int code = 0; code < dictionary.size(); code++) {
+                    result.add(code);
+                }
+                Collections.sort(result, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer code1, Integer code2) {
+                        return compareNullsLast(dictionary.get(code1), dictionary.get(code2), false);
+                    }
+                });
+                result = Collections.unmodifiableList(result);
+                sortedCodes = result;
+            }
+            return result;
+        }
+
+        public Column copy() {
+            Column copy = new Column();
+            copy.dictionary.addAll(dictionary);
+            copy.codes.putAll(codes);
+            for (BitSet posting : postings) {
+                copy.postings.add((BitSet) posting.clone());
+            }
+            copy.docCodes = docCodes.clone();
+            copy.sortedCodes = sortedCodes;
+            return copy;
+        }
+
+    }
+
+}
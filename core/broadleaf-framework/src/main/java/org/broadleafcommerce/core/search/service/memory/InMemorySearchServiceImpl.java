@@ -0,0 +1,680 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.search.service.memory;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationBus;
+import org.broadleafcommerce.common.cache.invalidation.CacheInvalidationListener;
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.dao.ProductDao;
+import org.broadleafcommerce.core.catalog.dao.SkuDao;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.service.CatalogBatchLoadingService;
+import org.broadleafcommerce.core.catalog.service.CatalogCacheEvictionListener;
+import org.broadleafcommerce.core.catalog.service.CatalogPrefetchPlan;
+import org.broadleafcommerce.core.catalog.service.CategoryTreeService;
+import org.broadleafcommerce.core.search.dao.FieldDao;
+import org.broadleafcommerce.core.search.dao.SearchFacetDao;
+import org.broadleafcommerce.core.search.dao.SolrIndexDao;
+import org.broadleafcommerce.core.search.domain.CategorySearchFacet;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.ProductDocumentDTO;
+import org.broadleafcommerce.core.search.domain.ProductSearchCriteria;
+import org.broadleafcommerce.core.search.domain.ProductSearchResult;
+import org.broadleafcommerce.core.search.domain.RequiredFacet;
+import org.broadleafcommerce.core.search.domain.SearchFacet;
+import org.broadleafcommerce.core.search.domain.SearchFacetDTO;
+import org.broadleafcommerce.core.search.domain.SearchFacetRange;
+import org.broadleafcommerce.core.search.domain.SearchFacetResultDTO;
+import org.broadleafcommerce.core.search.domain.solr.ProductIndexRow;
+import org.broadleafcommerce.core.search.service.SearchService;
+import org.broadleafcommerce.core.search.service.solr.SolrIndexCategoryCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link SearchService} that answers searches from an {@link InMemoryProductIndex} of the active products rather
+ * than from Solr or from per request database queries. Filtering, sorting, paging and facet counts are computed
+ * entirely in memory; only the products on the requested page are read from the database, and not even those when
+ * {@link ProductSearchCriteria#isReadProducts()} is false.
+ *
+ * <p>The index is built from the same column projections as a Solr rebuild, so every product field must be
+ * projectable by the {@link SolrIndexDao}; fields that are not are left out of the index. Products, skus and
+ * categories that change on any node are reported through the {@link CacheInvalidationBus}. Changed products are
+ * re-read every <code>search.memory.refresh.interval</code> milliseconds, while a changed category, or a large
+ * number of replaced documents, causes a full rebuild. The whole index is also rebuilt every
+ * <code>search.memory.rebuild.interval</code> milliseconds so that products entering or leaving their active
+ * dates are picked up.</p>
+ *
+ * <p>This service is not registered by default. To use it, declare it as the <code>blSearchService</code> bean.</p>
+ */
+@ManagedResource(objectName="org.broadleafcommerce:name=InMemorySearchService", description="In Memory Search Service", currencyTimeLimit=15)
+public class InMemorySearchServiceImpl implements SearchService, CacheInvalidationListener {
+
+    private static final Log LOG = LogFactory.getLog(InMemorySearchServiceImpl.class);
+
+    @Resource(name = "blProductDao")
+    protected ProductDao productDao;
+
+    @Resource(name = "blCatalogBatchLoadingService")
+    protected CatalogBatchLoadingService catalogBatchLoadingService;
+
+    @Resource(name = "blSkuDao")
+    protected SkuDao skuDao;
+
+    @Resource(name = "blFieldDao")
+    protected FieldDao fieldDao;
+
+    @Resource(name = "blSearchFacetDao")
+    protected SearchFacetDao searchFacetDao;
+
+    @Resource(name = "blSolrIndexDao")
+    protected SolrIndexDao solrIndexDao;
+
+    @Resource(name = "blCategoryTreeService")
+    protected CategoryTreeService categoryTreeService;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @Resource(name = "blCacheInvalidationBus")
+    protected CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${search.memory.refresh.interval}")
+    protected long refreshInterval = 10000;
+
+    @Value("${search.memory.rebuild.interval}")
+    protected long rebuildInterval = 3600000;
+
+    @Value("${search.memory.pageSize}")
+    protected int pageSize = 500;
+
+    protected volatile InMemoryProductIndex index;
+    protected ScheduledExecutorService scheduler;
+
+    protected final Set<Long> changedProductIds = new HashSet<Long>();
+    protected final Set<Long> changedSkuIds = new HashSet<Long>();
+    protected volatile boolean rebuildRequired;
+
+    protected final AtomicLong searchCount = new AtomicLong();
+    protected final AtomicLong totalSearchTime = new AtomicLong();
+    protected final AtomicLong rebuildCount = new AtomicLong();
+    protected final AtomicLong refreshCount = new AtomicLong();
+    protected final AtomicLong refreshedProductCount = new AtomicLong();
+    protected volatile long lastRebuildTime;
+    protected volatile Date lastRebuildDate;
+
+    @PostConstruct
+    public void init() {
+        cacheInvalidationBus.addListener(CatalogCacheEvictionListener.CATALOG_CACHE, this);
+        if (refreshInterval <= 0 && rebuildInterval <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "blInMemorySearchIndexer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (refreshInterval > 0) {
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refreshIndex();
+                    } catch (Exception e) {
+                        LOG.error("Unable to apply catalog changes to the in memory search index. They will be retried.", e);
+                    }
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        }
+        if (rebuildInterval > 0) {
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rebuildIndex();
+                    } catch (Exception e) {
+                        LOG.error("Unable to rebuild the in memory search index", e);
+                    }
+                }
+            }, rebuildInterval, rebuildInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    @ManagedOperation(description="Rebuild the in memory search index")
+    public synchronized void rebuildIndex() throws ServiceException {
+        long start = System.currentTimeMillis();
+        synchronized (changedProductIds) {
+            changedProductIds.clear();
+            changedSkuIds.clear();
+            rebuildRequired = false;
+        }
+
+        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+        def.setName("buildInMemorySearchIndex");
+        def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        def.setReadOnly(true);
+        TransactionStatus status = transactionManager.getTransaction(def);
+        InMemoryProductIndex newIndex;
+        try {
+            List<Field> fields = readIndexedFields();
+            SolrIndexCategoryCache categoryCache = new SolrIndexCategoryCache(categoryTreeService.getCategoryTree(), solrIndexDao);
+            newIndex = new InMemoryProductIndex(fields);
+
+            Date currentDate = SystemTime.asDate();
+            Long lastId = null;
+            while (true) {
+                List<Long> productIds = productDao.readAllActiveProductIds(lastId, pageSize, currentDate);
+                if (productIds.isEmpty()) {
+                    break;
+                }
+                lastId = productIds.get(productIds.size() - 1);
+                for (ProductIndexRow row : solrIndexDao.readProductIndexRows(productIds, fields)) {
+                    newIndex.add(row, categoryCache);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new ServiceException("Could not rebuild the in memory search index", e);
+        } finally {
+            transactionManager.rollback(status);
+        }
+
+        index = newIndex;
+        rebuildCount.incrementAndGet();
+        lastRebuildTime = System.currentTimeMillis() - start;
+        lastRebuildDate = SystemTime.asDate();
+        LOG.info("Built the in memory search index of " + newIndex.size() + " products in " + lastRebuildTime + "ms");
+    }
+
+    /**
+     * Applies the catalog changes reported since the last refresh to a copy of the index and publishes the copy.
+     * Falls back to a full rebuild when a category changed or when most documents in the index have been replaced.
+     *
+     * @throws ServiceException
+     */
+    @ManagedOperation(description="Apply the reported catalog changes to the in memory search index")
+    public synchronized void refreshIndex() throws ServiceException {
+        Set<Long> productIds;
+        Set<Long> skuIds;
+        synchronized (changedProductIds) {
+            if (index == null || rebuildRequired) {
+                productIds = null;
+                skuIds = null;
+            } else {
+                productIds = new HashSet<Long>(changedProductIds);
+                skuIds = new HashSet<Long>(changedSkuIds);
+                changedProductIds.clear();
+                changedSkuIds.clear();
+            }
+        }
+        if (productIds == null || index.getDeletedCount() > index.size()) {
+            rebuildIndex();
+            return;
+        }
+        if (productIds.isEmpty() && skuIds.isEmpty()) {
+            return;
+        }
+
+        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+        def.setName("refreshInMemorySearchIndex");
+        def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        def.setReadOnly(true);
+        TransactionStatus status = transactionManager.getTransaction(def);
+        InMemoryProductIndex newIndex = index.copy();
+        try {
+            for (Long skuId : skuIds) {
+                Sku sku = skuDao.readSkuById(skuId);
+                if (sku != null && sku.getProduct() != null) {
+                    productIds.add(sku.getProduct().getId());
+                }
+            }
+
+            List<Field> fields = readIndexedFields();
+            SolrIndexCategoryCache categoryCache = new SolrIndexCategoryCache(categoryTreeService.getCategoryTree(), solrIndexDao);
+            List<Long> ids = new ArrayList<Long>(productIds);
+            for (int i = 0; i < ids.size(); i += pageSize) {
+                List<Long> page = ids.subList(i, Math.min(i + pageSize, ids.size()));
+                List<Long> activeIds = new ArrayList<Long>(page.size());
+                for (Product product : productDao.readProductsByIds(page)) {
+                    if (product.isActive()) {
+                        activeIds.add(product.getId());
+                    }
+                }
+                // Removing every changed product first also covers the ones that are no longer active
+                for (Long productId : page) {
+                    newIndex.remove(productId);
+                }
+                for (ProductIndexRow row : solrIndexDao.readProductIndexRows(activeIds, fields)) {
+                    newIndex.add(row, categoryCache);
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (changedProductIds) {
+                changedProductIds.addAll(productIds);
+                changedSkuIds.addAll(skuIds);
+            }
+            throw new ServiceException("Could not refresh the in memory search index", e);
+        } finally {
+            transactionManager.rollback(status);
+        }
+
+        index = newIndex;
+        refreshCount.incrementAndGet();
+        refreshedProductCount.addAndGet(productIds.size());
+    }
+
+    /**
+     * @return the product fields to index, leaving out any that cannot be read as a column projection
+     */
+    protected List<Field> readIndexedFields() {
+        List<Field> fields = new ArrayList<Field>();
+        for (Field field : fieldDao.readAllProductFields()) {
+            if (solrIndexDao.isProjectable(field)) {
+                fields.add(field);
+            } else {
+                LOG.warn("Field " + field.getQualifiedFieldName() + " cannot be projected and is not available to in memory searches");
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * @return the current index, building it on the calling thread if it has not been built yet
+     */
+    protected InMemoryProductIndex getIndex() throws ServiceException {
+        InMemoryProductIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                if (index == null) {
+                    rebuildIndex();
+                }
+                result = index;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void invalidate(String cacheName, Collection<Serializable> keys) {
+        synchronized (changedProductIds) {
+            for (Serializable key : keys) {
+                CatalogCacheEvictionListener.EntityKey entityKey = (CatalogCacheEvictionListener.EntityKey) key;
+                Class<?> entityClass;
+                try {
+                    entityClass = Class.forName(entityKey.getEntityClass());
+                } catch (ClassNotFoundException e) {
+                    rebuildRequired = true;
+                    continue;
+                }
+                if (Product.class.isAssignableFrom(entityClass)) {
+                    changedProductIds.add(entityKey.getId());
+                } else if (Sku.class.isAssignableFrom(entityClass)) {
+                    changedSkuIds.add(entityKey.getId());
+                } else if (Category.class.isAssignableFrom(entityClass)) {
+                    // The category hierarchy is part of every document below the category
+                    rebuildRequired = true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        rebuildRequired = true;
+    }
+
+    @Override
+    public ProductSearchResult findProductsByCategory(Category category, ProductSearchCriteria searchCriteria)
+            throws ServiceException {
+        InMemoryProductIndex current = getIndex();
+        return findProducts(current, current.matchCategory(category.getId(), false), getCategoryFacets(category),
+                searchCriteria, category.getId());
+    }
+
+    @Override
+    public ProductSearchResult findExplicitProductsByCategory(Category category, ProductSearchCriteria searchCriteria)
+            throws ServiceException {
+        InMemoryProductIndex current = getIndex();
+        return findProducts(current, current.matchCategory(category.getId(), true), getCategoryFacets(category),
+                searchCriteria, category.getId());
+    }
+
+    @Override
+    public ProductSearchResult findProductsByQuery(String query, ProductSearchCriteria searchCriteria)
+            throws ServiceException {
+        InMemoryProductIndex current = getIndex();
+        return findProducts(current, current.matchText(query), getSearchFacets(), searchCriteria, null);
+    }
+
+    @Override
+    public ProductSearchResult findProductsByCategoryAndQuery(Category category, String query,
+            ProductSearchCriteria searchCriteria) throws ServiceException {
+        InMemoryProductIndex current = getIndex();
+        BitSet docs = current.matchCategory(category.getId(), false);
+        docs.and(current.matchText(query));
+        return findProducts(current, docs, getSearchFacets(), searchCriteria, null);
+    }
+
+    /**
+     * Restricts the given documents by the active facet filters, counts the facet values and builds the requested
+     * page of results. The counts of an active facet apply every filter except the facet's own, so that the other
+     * values of the facet remain selectable while still reflecting the selections made in the other facets.
+     *
+     * @param index
+     * @param docs the documents matching the category and/or query
+     * @param facets
+     * @param searchCriteria
+     * @param positionCategoryId the category whose product order to sort by when no sort is requested, or null
+     * @return the result of the search
+     */
+    protected ProductSearchResult findProducts(InMemoryProductIndex index, BitSet docs, List<SearchFacetDTO> facets,
+            ProductSearchCriteria searchCriteria, Long positionCategoryId) {
+        long start = System.nanoTime();
+
+        Map<String, BitSet> filters = new HashMap<String, BitSet>();
+        BitSet filtered = (BitSet) docs.clone();
+        if (searchCriteria.getFilterCriteria() != null) {
+            for (Entry<String, String[]> entry : searchCriteria.getFilterCriteria().entrySet()) {
+                Field field = index.getField(entry.getKey());
+                if (field == null) {
+                    continue;
+                }
+                for (SearchFacetDTO facet : facets) {
+                    if (entry.getKey().equals(facet.getFacet().getField().getAbbreviation())) {
+                        facet.setActive(true);
+                    }
+                }
+                BitSet matches = index.matchValues(field.getPropertyName(), entry.getValue());
+                filters.put(entry.getKey(), matches);
+                filtered.and(matches);
+            }
+        }
+
+        for (SearchFacetDTO facet : facets) {
+            setFacetResults(index, facet, facet.isActive() ? applyOtherFilters(docs, filters, facet) : filtered);
+        }
+
+        int total = filtered.cardinality();
+        int page = searchCriteria.getPage() == null ? 1 : searchCriteria.getPage();
+        int size = searchCriteria.getPageSize() == null ? Math.max(total, 1) : searchCriteria.getPageSize();
+        List<Long> productIds = index.sort(filtered, getSorts(index, searchCriteria), positionCategoryId, (page - 1) * size, size);
+
+        ProductSearchResult result = new ProductSearchResult();
+        result.setFacets(facets);
+        if (searchCriteria.isReadProducts()) {
+            result.setProducts(catalogBatchLoadingService.readProductsByIds(productIds, CatalogPrefetchPlan.LISTING_TILE));
+        } else {
+            result.setProductDocuments(getProductDocuments(index, productIds, searchCriteria));
+        }
+        result.setTotalResults(total);
+        result.setPage(page);
+        result.setPageSize(size);
+
+        searchCount.incrementAndGet();
+        totalSearchTime.addAndGet(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * @return the documents restricted by every filter except the one on the field of the given facet
+     */
+    protected BitSet applyOtherFilters(BitSet docs, Map<String, BitSet> filters, SearchFacetDTO facet) {
+        BitSet result = (BitSet) docs.clone();
+        String abbreviation = facet.getFacet().getField().getAbbreviation();
+        for (Entry<String, BitSet> filter : filters.entrySet()) {
+            if (!filter.getKey().equals(abbreviation)) {
+                result.and(filter.getValue());
+            }
+        }
+        return result;
+    }
+
+    protected void setFacetResults(InMemoryProductIndex index, SearchFacetDTO facet, BitSet docs) {
+        String propertyName = facet.getFacet().getField().getPropertyName();
+        List<SearchFacetRange> ranges = facet.getFacet().getSearchFacetRanges();
+        if (ranges != null && !ranges.isEmpty()) {
+            for (SearchFacetRange range : ranges) {
+                SearchFacetResultDTO resultDTO = new SearchFacetResultDTO();
+                resultDTO.setFacet(facet.getFacet());
+                resultDTO.setMinValue(range.getMinValue());
+                resultDTO.setMaxValue(range.getMaxValue());
+                resultDTO.setQuantity(index.countRange(propertyName, docs, range.getMinValue(), range.getMaxValue()));
+                facet.getFacetValues().add(resultDTO);
+            }
+            Collections.sort(facet.getFacetValues(), new Comparator<SearchFacetResultDTO>() {
+                @Override
+                public int compare(SearchFacetResultDTO o1, SearchFacetResultDTO o2) {
+                    return o1.getMinValue().compareTo(o2.getMinValue());
+                }
+            });
+        } else {
+            for (Entry<Object, Integer> entry : index.countValues(propertyName, docs).entrySet()) {
+                SearchFacetResultDTO resultDTO = new SearchFacetResultDTO();
+                resultDTO.setFacet(facet.getFacet());
+                resultDTO.setValue(entry.getKey().toString());
+                resultDTO.setQuantity(entry.getValue());
+                facet.getFacetValues().add(resultDTO);
+            }
+        }
+    }
+
+    /**
+     * Parses the sort query, made up of comma separated pairs of field abbreviation and direction, into the sorts
+     * understood by the index. Unknown fields are ignored.
+     */
+    protected List<InMemoryProductIndex.Sort> getSorts(InMemoryProductIndex index, ProductSearchCriteria searchCriteria) {
+        List<InMemoryProductIndex.Sort> sorts = new ArrayList<InMemoryProductIndex.Sort>();
+        if (StringUtils.isNotBlank(searchCriteria.getSortQuery())) {
+            for (String sortQuery : searchCriteria.getSortQuery().split(",")) {
+                String[] sort = sortQuery.trim().split(" ");
+                Field field = index.getField(sort[0]);
+                if (field != null) {
+                    sorts.add(new InMemoryProductIndex.Sort(field.getPropertyName(), sort.length > 1 && "desc".equals(sort[1])));
+                }
+            }
+        }
+        return sorts;
+    }
+
+    /**
+     * Builds a lightweight DTO for each product from its indexed values, keyed by property name.
+     */
+    protected List<ProductDocumentDTO> getProductDocuments(InMemoryProductIndex index, List<Long> productIds,
+            ProductSearchCriteria searchCriteria) {
+        List<ProductDocumentDTO> documents = new ArrayList<ProductDocumentDTO>(productIds.size());
+        for (Long productId : productIds) {
+            ProductDocumentDTO document = new ProductDocumentDTO();
+            document.setId(productId);
+            Map<String, Object> values = index.getValues(productId);
+            if (CollectionUtils.isNotEmpty(searchCriteria.getResultFields())) {
+                values.keySet().retainAll(searchCriteria.getResultFields());
+            }
+            document.getFieldValues().putAll(values);
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    @Override
+    public List<SearchFacetDTO> getSearchFacets() {
+        return buildSearchFacetDTOs(searchFacetDao.readAllSearchFacets());
+    }
+
+    @Override
+    public List<SearchFacetDTO> getCategoryFacets(Category category) {
+        List<SearchFacet> searchFacets = new ArrayList<SearchFacet>();
+        for (CategorySearchFacet categorySearchFacet : category.getCumulativeSearchFacets()) {
+            searchFacets.add(categorySearchFacet.getSearchFacet());
+        }
+        return buildSearchFacetDTOs(searchFacets);
+    }
+
+    /**
+     * Create the wrapper DTO around the SearchFacet
+     *
+     * @param searchFacets
+     * @return the wrapper DTO
+     */
+    protected List<SearchFacetDTO> buildSearchFacetDTOs(List<SearchFacet> searchFacets) {
+        List<SearchFacetDTO> facets = new ArrayList<SearchFacetDTO>();
+        Map<String, String[]> requestParameters = BroadleafRequestContext.getRequestParameterMap();
+
+        for (SearchFacet facet : searchFacets) {
+            if (facetIsAvailable(facet, requestParameters)) {
+                SearchFacetDTO dto = new SearchFacetDTO();
+                dto.setFacet(facet);
+                dto.setShowQuantity(true);
+                facets.add(dto);
+            }
+        }
+
+        return facets;
+    }
+
+    /**
+     * Checks to see if the requiredFacets condition for a given facet is met.
+     *
+     * @param facet
+     * @param params
+     * @return whether or not the facet parameter is available
+     */
+    protected boolean facetIsAvailable(SearchFacet facet, Map<String, String[]> params) {
+        if (CollectionUtils.isEmpty(facet.getRequiredFacets())) {
+            return true;
+        }
+        if (MapUtils.isEmpty(params)) {
+            return false;
+        }
+
+        int requiredMatches = facet.getRequiresAllDependentFacets() ? facet.getRequiredFacets().size() : 1;
+        int matchesSoFar = 0;
+        for (RequiredFacet requiredFacet : facet.getRequiredFacets()) {
+            if (requiredMatches == matchesSoFar) {
+                return true;
+            }
+            if (params.containsKey(requiredFacet.getRequiredFacet().getField().getAbbreviation())) {
+                matchesSoFar++;
+            }
+        }
+        return requiredMatches == matchesSoFar;
+    }
+
+    @ManagedAttribute(description="The number of products in the index", currencyTimeLimit=15)
+    public int getIndexedProductCount() {
+        InMemoryProductIndex current = index;
+        return current == null ? 0 : current.size();
+    }
+
+    @ManagedAttribute(description="The number of index documents belonging to replaced or removed products", currencyTimeLimit=15)
+    public int getDeletedDocumentCount() {
+        InMemoryProductIndex current = index;
+        return current == null ? 0 : current.getDeletedCount();
+    }
+
+    @ManagedAttribute(description="The number of searches answered", currencyTimeLimit=15)
+    public long getSearchCount() {
+        return searchCount.get();
+    }
+
+    @ManagedAttribute(description="The average time to answer a search, excluding reading products, in microseconds", currencyTimeLimit=15)
+    public long getAverageSearchTimeMicros() {
+        long count = searchCount.get();
+        return count == 0 ? 0L : totalSearchTime.get() / count / 1000L;
+    }
+
+    @ManagedAttribute(description="The number of full index builds", currencyTimeLimit=15)
+    public long getRebuildCount() {
+        return rebuildCount.get();
+    }
+
+    @ManagedAttribute(description="The time taken by the last full index build in milliseconds", currencyTimeLimit=15)
+    public long getLastRebuildTime() {
+        return lastRebuildTime;
+    }
+
+    @ManagedAttribute(description="When the index was last fully built", currencyTimeLimit=15)
+    public Date getLastRebuildDate() {
+        return lastRebuildDate;
+    }
+
+    @ManagedAttribute(description="The number of incremental index refreshes", currencyTimeLimit=15)
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    @ManagedAttribute(description="The number of products re-read by incremental refreshes", currencyTimeLimit=15)
+    public long getRefreshedProductCount() {
+        return refreshedProductCount.get();
+    }
+
+    @ManagedAttribute(description="The number of changed products and skus waiting for the next refresh", currencyTimeLimit=15)
+    public int getPendingChangeCount() {
+        synchronized (changedProductIds) {
+            return changedProductIds.size() + changedSkuIds.size();
+        }
+    }
+
+}
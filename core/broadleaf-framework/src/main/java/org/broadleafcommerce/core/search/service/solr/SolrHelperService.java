@@ -132,6 +132,12 @@ public interface SolrHelperService {
      */
     public String getCategorySortFieldName(Category category);
 
+    /**
+     * @param categoryId
+     * @return the default sort field name for the category with this id
+     */
+    public String getCategorySortFieldName(Long categoryId);
+
     /**
      * Determines if there is a locale prefix that needs to be applied to the given field for this particular request.
      * By default, a locale prefix is not applicable for category, explicitCategory, or fields that have type Price.
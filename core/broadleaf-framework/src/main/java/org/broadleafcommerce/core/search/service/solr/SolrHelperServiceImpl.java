@@ -183,9 +183,14 @@ public class SolrHelperServiceImpl implements SolrHelperService {
 
     @Override
     public String getCategorySortFieldName(Category category) {
+        return getCategorySortFieldName(category.getId());
+    }
+
+    @Override
+    public String getCategorySortFieldName(Long categoryId) {
         return new StringBuilder()
                 .append(getCategoryFieldName())
-                .append("_").append(category.getId()).append("_").append("sort_i")
+                .append("_").append(categoryId).append("_").append("sort_i")
                 .toString();
     }
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.broadleafcommerce.core.catalog.service.CategoryTree;
+import org.broadleafcommerce.core.search.dao.SolrIndexDao;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The category data shared by every document built during a single projection based index rebuild: the full
+ * category hierarchy of each category and the position of each product within its categories. Hierarchies come from
+ * the {@link CategoryTree} snapshot current when the rebuild started, so every document sees the same tree; product
+ * positions are read per category the first time they are needed. Instances are safe to share between document
+ * builders.
+ */
+public class SolrIndexCategoryCache {
+
+    protected final CategoryTree categoryTree;
+    protected final SolrIndexDao solrIndexDao;
+    protected final ConcurrentMap<Long, ProductPositions> productPositions = new ConcurrentHashMap<Long, ProductPositions>();
+
+    public SolrIndexCategoryCache(CategoryTree categoryTree, SolrIndexDao solrIndexDao) {
+        this.categoryTree = categoryTree;
+        this.solrIndexDao = solrIndexDao;
+    }
+
+    /**
+     * @param categoryId
+     * @return the ids of the category and all of its ancestors
+     * @see CategoryTree#getFullHierarchy(Long)
+     */
+    public List<Long> getFullCategoryHierarchy(Long categoryId) {
+        return categoryTree.getFullHierarchy(categoryId);
+    }
+
+    /**
+     * @param categoryId
+     * @param productId
+     * @return the index of the product in the category's product list, or -1 if it is not in the category
+     */
+    public int getProductPosition(Long categoryId, Long productId) {
+        ProductPositions positions = productPositions.get(categoryId);
+        if (positions == null) {
+            positions = new ProductPositions(solrIndexDao.readProductIdsByCategory(categoryId));
+            ProductPositions existing = productPositions.putIfAbsent(categoryId, positions);
+            if (existing != null) {
+                positions = existing;
+            }
+        }
+        return positions.indexOf(productId);
+    }
+
+    /**
+     * The positions of the products in a category, held as parallel primitive arrays sorted by product id so that
+     * large categories stay compact.
+     */
+    protected static class ProductPositions {
+
+        protected final long[] productIds;
+        protected final int[] positions;
+
+        public ProductPositions(final List<Long> orderedProductIds) {
+            int size = orderedProductIds.size();
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // A stable sort keeps duplicate product ids in list order
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return orderedProductIds.get(o1).compareTo(orderedProductIds.get(o2));
+                }
+            });
+            productIds = new long[size];
+            positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                productIds[i] = orderedProductIds.get(order[i]);
+                positions[i] = order[i];
+            }
+        }
+
+        public int indexOf(Long productId) {
+            int index = Arrays.binarySearch(productIds, productId);
+            if (index < 0) {
+                return -1;
+            }
+            // List.indexOf reports the first occurrence
+            while (index > 0 && productIds[index - 1] == productId) {
+                index--;
+            }
+            return positions[index];
+        }
+
+    }
+
+}
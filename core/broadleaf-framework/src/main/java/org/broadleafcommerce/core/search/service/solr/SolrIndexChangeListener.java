@@ -0,0 +1,47 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.broadleafcommerce.common.util.SpringAppContext;
+import org.springframework.context.ApplicationContext;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that forwards changes to indexed catalog entities to the {@link SolrIndexChangeService}.
+ * Entity listeners are instantiated by the persistence provider, so the service is looked up from the
+ * application context on each event.
+ */
+public class SolrIndexChangeListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void recordChange(Object entity) {
+        ApplicationContext context = SpringAppContext.getApplicationContext();
+        if (context == null || !context.containsBean("blSolrIndexChangeService")) {
+            return;
+        }
+        SolrIndexChangeService changeService = (SolrIndexChangeService) context.getBean("blSolrIndexChangeService");
+        if (changeService.isEnabled()) {
+            changeService.recordChange(entity);
+        }
+    }
+
+}
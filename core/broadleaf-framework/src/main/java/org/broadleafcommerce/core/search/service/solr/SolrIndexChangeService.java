@@ -0,0 +1,63 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.core.search.domain.SearchIndexChangeType;
+
+import java.util.Collection;
+
+/**
+ * Keeps the active Solr index current between full rebuilds. Changes to products, skus, categories and their
+ * related entities are captured by {@link SolrIndexChangeListener} into a durable queue that is written by the
+ * modifying transaction, and are periodically coalesced into per-product updates through
+ * {@link SolrIndexService#updateIndex(Collection)}.
+ */
+public interface SolrIndexChangeService {
+
+    /**
+     * @return whether catalog changes are being captured and applied to the index
+     */
+    public boolean isEnabled();
+
+    /**
+     * Registers a change to the given entity. The change is queued in the current transaction as it commits,
+     * so it is discarded if the transaction rolls back. Outside of a transaction, the change is queued
+     * immediately. Entities that do not affect the index are ignored.
+     * 
+     * @param entity the product, sku, category or related entity that was persisted, updated or removed
+     */
+    public void recordChange(Object entity);
+
+    /**
+     * Queues changes to the given entities in a new transaction.
+     * 
+     * @param entityType
+     * @param entityIds
+     */
+    public void recordChanges(SearchIndexChangeType entityType, Collection<Long> entityIds);
+
+    /**
+     * Applies the oldest queued changes to the active index and removes them from the queue. Changes that
+     * could not be applied are left in the queue and retried on the next run.
+     * 
+     * @return the number of queued changes that were applied
+     * @throws ServiceException
+     */
+    public int applyChanges() throws ServiceException;
+
+}
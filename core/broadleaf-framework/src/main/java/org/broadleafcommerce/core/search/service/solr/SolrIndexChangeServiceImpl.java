@@ -0,0 +1,350 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.core.catalog.dao.SkuDao;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.service.CategoryTreeService;
+import org.broadleafcommerce.core.search.dao.SearchIndexChangeDao;
+import org.broadleafcommerce.core.search.domain.SearchIndexChange;
+import org.broadleafcommerce.core.search.domain.SearchIndexChangeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default {@link SolrIndexChangeService}. Delta indexing is off unless <code>solr.index.delta.enabled</code> is
+ * set; when it is on, a single background thread applies up to <code>solr.index.delta.batchSize</code> queued
+ * changes every <code>solr.index.delta.interval</code> milliseconds. In a cluster, enable it on the nodes that
+ * should capture changes, but only let one of them apply the queue by setting
+ * <code>solr.index.delta.interval</code> to 0 on the others.
+ */
+@Service("blSolrIndexChangeService")
+@ManagedResource(objectName="org.broadleafcommerce:name=SolrIndexChangeService", description="Solr Delta Index Service", currencyTimeLimit=15)
+public class SolrIndexChangeServiceImpl implements SolrIndexChangeService {
+
+    private static final Log LOG = LogFactory.getLog(SolrIndexChangeServiceImpl.class);
+
+    @Value("${solr.index.delta.enabled}")
+    protected boolean enabled = false;
+
+    @Value("${solr.index.delta.interval}")
+    protected long interval = 10000;
+
+    @Value("${solr.index.delta.batchSize}")
+    protected int batchSize = 500;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @Resource(name = "blSearchIndexChangeDao")
+    protected SearchIndexChangeDao searchIndexChangeDao;
+
+    @Resource(name = "blSolrIndexService")
+    protected SolrIndexService solrIndexService;
+
+    @Resource(name = "blSkuDao")
+    protected SkuDao skuDao;
+
+    @Resource(name = "blCategoryTreeService")
+    protected CategoryTreeService categoryTreeService;
+
+    protected ScheduledExecutorService scheduler;
+
+    protected final AtomicLong appliedChangeCount = new AtomicLong();
+    protected final AtomicLong updatedProductCount = new AtomicLong();
+    protected final AtomicLong failureCount = new AtomicLong();
+    protected volatile Date lastAppliedDate;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || interval <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "blSolrIndexChangeApplier");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    applyChanges();
+                } catch (Exception e) {
+                    LOG.error("Unable to apply the queued changes to the solr index. They will be retried.", e);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description="Whether catalog changes are captured for delta indexing", currencyTimeLimit=15)
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void recordChange(Object entity) {
+        if (!enabled) {
+            return;
+        }
+
+        SearchIndexChangeType entityType = null;
+        Long entityId = null;
+        if (entity instanceof Product) {
+            entityType = SearchIndexChangeType.PRODUCT;
+            entityId = ((Product) entity).getId();
+        } else if (entity instanceof Sku) {
+            // The sku's product is recorded now, since a removed sku can no longer be resolved to it later
+            Product product = ((Sku) entity).getProduct();
+            if (product == null) {
+                entityType = SearchIndexChangeType.SKU;
+                entityId = ((Sku) entity).getId();
+            } else {
+                entityType = SearchIndexChangeType.PRODUCT;
+                entityId = product.getId();
+            }
+        } else if (entity instanceof Category) {
+            entityType = SearchIndexChangeType.CATEGORY;
+            entityId = ((Category) entity).getId();
+        } else if (entity instanceof ProductAttribute) {
+            Product product = ((ProductAttribute) entity).getProduct();
+            entityType = SearchIndexChangeType.PRODUCT;
+            entityId = product == null ? null : product.getId();
+        }
+        if (entityId == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            recordChanges(entityType, Collections.singleton(entityId));
+            return;
+        }
+
+        PendingChanges pendingChanges = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pendingChanges == null) {
+            pendingChanges = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pendingChanges);
+            TransactionSynchronizationManager.registerSynchronization(pendingChanges);
+            searchIndexChangeDao.saveBeforeCommit(pendingChanges.changes);
+        }
+        pendingChanges.add(entityType, entityId);
+    }
+
+    @Override
+    public void recordChanges(SearchIndexChangeType entityType, Collection<Long> entityIds) {
+        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+        def.setName("recordSearchIndexChanges");
+        def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        TransactionStatus status = transactionManager.getTransaction(def);
+        try {
+            Date now = SystemTime.asDate();
+            for (Long entityId : entityIds) {
+                SearchIndexChange change = searchIndexChangeDao.create();
+                change.setEntityType(entityType);
+                change.setEntityId(entityId);
+                change.setDateCreated(now);
+                searchIndexChangeDao.save(change);
+            }
+        } catch (RuntimeException e) {
+            transactionManager.rollback(status);
+            throw e;
+        }
+        transactionManager.commit(status);
+    }
+
+    @Override
+    @ManagedOperation(description="Apply the oldest queued changes to the solr index")
+    public synchronized int applyChanges() throws ServiceException {
+        if (SolrContext.getServer() == null) {
+            return 0;
+        }
+
+        List<SearchIndexChange> changes;
+        Set<Long> productIds;
+        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+        def.setName("readSearchIndexChanges");
+        def.setReadOnly(true);
+        TransactionStatus status = transactionManager.getTransaction(def);
+        try {
+            changes = searchIndexChangeDao.readOldestChanges(batchSize);
+            productIds = resolveProductIds(changes);
+        } finally {
+            transactionManager.rollback(status);
+        }
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            solrIndexService.updateIndex(productIds);
+        } catch (ServiceException e) {
+            failureCount.incrementAndGet();
+            throw e;
+        } catch (RuntimeException e) {
+            failureCount.incrementAndGet();
+            throw e;
+        }
+
+        def = new DefaultTransactionDefinition();
+        def.setName("deleteSearchIndexChanges");
+        status = transactionManager.getTransaction(def);
+        try {
+            searchIndexChangeDao.delete(changes);
+        } catch (RuntimeException e) {
+            transactionManager.rollback(status);
+            throw e;
+        }
+        transactionManager.commit(status);
+
+        appliedChangeCount.addAndGet(changes.size());
+        updatedProductCount.addAndGet(productIds.size());
+        lastAppliedDate = SystemTime.asDate();
+        LOG.debug(String.format("Applied %s queued changes to %s products in the solr index", changes.size(), productIds.size()));
+
+        return changes.size();
+    }
+
+    /**
+     * Coalesces the changes into the set of products whose documents need to be rebuilt. A sku change affects
+     * the product it belongs to, and a category change affects every product in the category and in each of its
+     * descendant categories, since the category hierarchy is part of each product's document.
+     * 
+     * @param changes
+     * @return the ids of the affected products
+     */
+    protected Set<Long> resolveProductIds(List<SearchIndexChange> changes) {
+        Set<Long> productIds = new LinkedHashSet<Long>();
+        for (SearchIndexChange change : changes) {
+            SearchIndexChangeType entityType = change.getEntityType();
+            if (SearchIndexChangeType.PRODUCT.equals(entityType)) {
+                productIds.add(change.getEntityId());
+            } else if (SearchIndexChangeType.SKU.equals(entityType)) {
+                Sku sku = skuDao.readSkuById(change.getEntityId());
+                if (sku != null && sku.getProduct() != null) {
+                    productIds.add(sku.getProduct().getId());
+                }
+            } else if (SearchIndexChangeType.CATEGORY.equals(entityType)) {
+                productIds.addAll(categoryTreeService.findProductIdsInSubtree(change.getEntityId()));
+            }
+        }
+        return productIds;
+    }
+
+    @ManagedAttribute(description="The number of queued changes waiting to be applied", currencyTimeLimit=15)
+    public long getPendingChangeCount() {
+        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+        def.setReadOnly(true);
+        TransactionStatus status = transactionManager.getTransaction(def);
+        try {
+            return searchIndexChangeDao.readCountChanges();
+        } finally {
+            transactionManager.rollback(status);
+        }
+    }
+
+    @ManagedAttribute(description="The number of queued changes applied to the index", currencyTimeLimit=15)
+    public long getAppliedChangeCount() {
+        return appliedChangeCount.get();
+    }
+
+    @ManagedAttribute(description="The number of product documents updated in the index", currencyTimeLimit=15)
+    public long getUpdatedProductCount() {
+        return updatedProductCount.get();
+    }
+
+    @ManagedAttribute(description="The number of runs that failed to update the index", currencyTimeLimit=15)
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    @ManagedAttribute(description="When queued changes were last applied to the index", currencyTimeLimit=15)
+    public Date getLastAppliedDate() {
+        return lastAppliedDate;
+    }
+
+    /**
+     * Collects the changes made during a single transaction. They are saved in that transaction by
+     * {@link SearchIndexChangeDao#saveBeforeCommit(Map)}, so a change is queued if and only if the
+     * transaction that made it commits.
+     */
+    protected class PendingChanges extends TransactionSynchronizationAdapter {
+
+        protected final Map<SearchIndexChangeType, Set<Long>> changes = new HashMap<SearchIndexChangeType, Set<Long>>();
+
+        public void add(SearchIndexChangeType entityType, Long entityId) {
+            Set<Long> entityIds = changes.get(entityType);
+            if (entityIds == null) {
+                entityIds = new LinkedHashSet<Long>();
+                changes.put(entityType, entityIds);
+            }
+            entityIds.add(entityId);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(SolrIndexChangeServiceImpl.this);
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.service.solr;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the progress of a single index rebuild. The counters are updated concurrently by the reader,
+ * document builder and writer stages of {@link SolrIndexServiceImpl#rebuildIndex()}.
+ */
+public class SolrIndexProgress {
+
+    protected final long totalProducts;
+    protected final long startTime = System.currentTimeMillis();
+    protected final AtomicLong productsRead = new AtomicLong();
+    protected final AtomicLong documentsBuilt = new AtomicLong();
+    protected final AtomicLong documentsWritten = new AtomicLong();
+
+    public SolrIndexProgress(long totalProducts) {
+        this.totalProducts = totalProducts;
+    }
+
+    public long getTotalProducts() {
+        return totalProducts;
+    }
+
+    public long getProductsRead() {
+        return productsRead.get();
+    }
+
+    public long addProductsRead(int count) {
+        return productsRead.addAndGet(count);
+    }
+
+    public long getDocumentsBuilt() {
+        return documentsBuilt.get();
+    }
+
+    public long addDocumentsBuilt(int count) {
+        return documentsBuilt.addAndGet(count);
+    }
+
+    public long getDocumentsWritten() {
+        return documentsWritten.get();
+    }
+
+    public long addDocumentsWritten(int count) {
+        return documentsWritten.addAndGet(count);
+    }
+
+    public long getElapsedTime() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * @return the number of documents written to Solr per second since the rebuild started
+     */
+    public double getThroughput() {
+        long elapsed = getElapsedTime();
+        return elapsed == 0 ? 0D : documentsWritten.get() * 1000D / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("read: [%s/%s], built: [%s], written: [%s], elapsed: [%sms], throughput: [%.1f docs/s]",
+                getProductsRead(), totalProducts, getDocumentsBuilt(), getDocumentsWritten(), getElapsedTime(), getThroughput());
+    }
+
+}
@@ -19,6 +19,7 @@ package org.broadleafcommerce.core.search.service.solr;
 import org.broadleafcommerce.common.exception.ServiceException;
 
 import java.io.IOException;
+import java.util.Collection;
 
 /**
  * @author Andre Azzolini (apazzolini)
@@ -33,4 +34,14 @@ public interface SolrIndexService {
      */
     public void rebuildIndex() throws ServiceException, IOException;
 
+    /**
+     * Brings the documents for the given products in the active index up to date without a rebuild. Active
+     * products are re-indexed and products that are no longer active (or no longer exist) are removed.
+     * The index is committed once, after every product has been processed.
+     * 
+     * @param productIds
+     * @throws ServiceException
+     */
+    public void updateIndex(Collection<Long> productIds) throws ServiceException;
+
 }
\ No newline at end of file
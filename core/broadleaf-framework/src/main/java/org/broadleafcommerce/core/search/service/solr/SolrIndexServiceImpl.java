@@ -30,15 +30,22 @@ import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.core.catalog.dao.ProductDao;
 import org.broadleafcommerce.core.catalog.domain.Category;
 import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.service.CategoryTreeService;
 import org.broadleafcommerce.core.catalog.service.dynamic.DynamicSkuPricingService;
 import org.broadleafcommerce.core.catalog.service.dynamic.SkuPricingConsiderationContext;
 import org.broadleafcommerce.core.search.dao.FieldDao;
+import org.broadleafcommerce.core.search.dao.SolrIndexDao;
 import org.broadleafcommerce.core.search.domain.Field;
 import org.broadleafcommerce.core.search.domain.solr.FieldType;
+import org.broadleafcommerce.core.search.domain.solr.ProductIndexRow;
 import org.broadleafcommerce.core.util.StopWatch;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import javax.annotation.Resource;
 
@@ -46,12 +53,23 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -66,12 +84,36 @@ public class SolrIndexServiceImpl implements SolrIndexService {
     @Value("${solr.index.product.pageSize}")
     protected int pageSize;
 
+    @Value("${solr.index.builder.threads}")
+    protected int builderThreads = 1;
+
+    @Value("${solr.index.builder.queueSize}")
+    protected int builderQueueSize = 2;
+
+    @Value("${solr.index.writer.queueSize}")
+    protected int writerQueueSize = 4;
+
+    @Value("${solr.index.progress.interval}")
+    protected long progressReportInterval = 10000;
+
+    @Value("${solr.index.projection.enabled}")
+    protected boolean useProjection = false;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
     @Resource(name = "blProductDao")
     protected ProductDao productDao;
 
     @Resource(name = "blFieldDao")
     protected FieldDao fieldDao;
 
+    @Resource(name = "blSolrIndexDao")
+    protected SolrIndexDao solrIndexDao;
+
+    @Resource(name = "blCategoryTreeService")
+    protected CategoryTreeService categoryTreeService;
+
     @Resource(name = "blLocaleService")
     protected LocaleService localeService;
 
@@ -100,13 +142,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         try {
             Long numProducts = productDao.readCountAllActiveProducts(SystemTime.asDate());
             LOG.debug("There are " + numProducts + " total products");
-            int page = 0;
-            while ((page * pageSize) < numProducts) {
-                buildIncrementalIndex(page, pageSize);
-                page++;
-            }
-        } catch (ServiceException e) {
-            throw e;
+            executeIndexPipeline(new SolrIndexProgress(numProducts));
         } finally {
             // Restore the current context, regardless of whether an exception happened or not
             BroadleafRequestContext.setBroadleafRequestContext(savedContext);
@@ -125,6 +161,306 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         LOG.info(String.format("Finished building index in %s", s.toLapString()));
     }
 
+    @Override
+    @SuppressWarnings("rawtypes")
+    @Transactional(value = "blTransactionManager", readOnly = true)
+    public void updateIndex(Collection<Long> productIds) throws ServiceException {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        LOG.debug("Updating the solr index for " + productIds.size() + " products");
+        StopWatch s = new StopWatch();
+
+        BroadleafRequestContext savedContext = BroadleafRequestContext.getBroadleafRequestContext();
+        HashMap savedPricing = SkuPricingConsiderationContext.getSkuPricingConsiderationContext();
+        DynamicSkuPricingService savedPricingService = SkuPricingConsiderationContext.getSkuPricingService();
+        try {
+            List<Field> fields = fieldDao.readAllProductFields();
+            List<Locale> locales = getAllLocales();
+
+            List<Long> ids = new ArrayList<Long>(productIds);
+            for (int i = 0; i < ids.size(); i += pageSize) {
+                List<Long> page = ids.subList(i, Math.min(i + pageSize, ids.size()));
+
+                List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(page.size());
+                List<Product> products = productDao.readProductsByIds(page);
+                if (products != null) {
+                    for (Product product : products) {
+                        if (product.isActive()) {
+                            documents.add(buildDocument(product, fields, locales));
+                        }
+                    }
+                }
+
+                // Removing every requested product first also covers the ones that are no longer active
+                SolrContext.getServer().deleteByQuery(buildDeleteQuery(page));
+                if (!documents.isEmpty()) {
+                    SolrContext.getServer().add(documents);
+                }
+            }
+
+            SolrContext.getServer().commit();
+        } catch (SolrServerException e) {
+            throw new ServiceException("Could not update index", e);
+        } catch (IOException e) {
+            throw new ServiceException("Could not update index", e);
+        } finally {
+            BroadleafRequestContext.setBroadleafRequestContext(savedContext);
+            SkuPricingConsiderationContext.setSkuPricingConsiderationContext(savedPricing);
+            SkuPricingConsiderationContext.setSkuPricingService(savedPricingService);
+        }
+
+        LOG.debug(String.format("Updated the solr index for %s products in %s", productIds.size(), s.toLapString()));
+    }
+
+    /**
+     * @param productIds
+     * @return a query matching the documents for the given products in the current namespace
+     */
+    protected String buildDeleteQuery(List<Long> productIds) {
+        return shs.getNamespaceFieldName() + ":" + shs.getCurrentNamespace() + " AND " +
+                shs.getIdFieldName() + ":(" + StringUtils.join(productIds, " OR ") + ")";
+    }
+
+    /**
+     * Populates the reindex core through three stages:
+     * 
+     * <ol>
+     * <li>The calling thread reads pages of active product ids by key and hands each page to a document builder.</li>
+     * <li>A pool of {@link #builderThreads} document builders each load their page of products in their own
+     * transaction and convert them to {@link SolrInputDocument}s.</li>
+     * <li>A single writer adds the built documents to the reindex core. The core is committed once, after the
+     * last document has been written.</li>
+     * </ol>
+     * 
+     * The reader blocks once {@link #builderQueueSize} pages are waiting to be built, and builders block once
+     * {@link #writerQueueSize} batches are waiting to be written, so memory use is bounded regardless of catalog size.
+     * 
+     * @param progress
+     * @throws ServiceException
+     */
+    protected void executeIndexPipeline(final SolrIndexProgress progress) throws ServiceException {
+        // The fields and locales are read once and shared by every builder
+        final List<Field> fields = fieldDao.readAllProductFields();
+        for (Field field : fields) {
+            field.getSearchableFieldTypes();
+        }
+        final List<Locale> locales = getAllLocales();
+        shs.getDefaultLocale();
+        final SolrIndexCategoryCache categoryCache = canUseProjection(fields) ? new SolrIndexCategoryCache(categoryTreeService.getCategoryTree(), solrIndexDao) : null;
+        LOG.debug("Building documents from " + (categoryCache == null ? "product entities" : "column projections"));
+
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final BlockingQueue<List<SolrInputDocument>> writeQueue = new ArrayBlockingQueue<List<SolrInputDocument>>(writerQueueSize);
+        final Semaphore pendingPages = new Semaphore(builderThreads + builderQueueSize);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeDocuments(writeQueue, progress, failure);
+            }
+        }, "blSolrIndexWriter");
+        writer.start();
+
+        ExecutorService builders = Executors.newFixedThreadPool(builderThreads, new ThreadFactory() {
+            protected final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "blSolrIndexBuilder-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            Date currentDate = SystemTime.asDate();
+            Long lastId = null;
+            while (failure.get() == null) {
+                final List<Long> productIds = productDao.readAllActiveProductIds(lastId, pageSize, currentDate);
+                if (productIds.isEmpty()) {
+                    break;
+                }
+                lastId = productIds.get(productIds.size() - 1);
+                progress.addProductsRead(productIds.size());
+
+                pendingPages.acquire();
+                builders.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (failure.get() == null) {
+                                List<SolrInputDocument> documents = buildDocuments(productIds, fields, locales, categoryCache);
+                                if (!documents.isEmpty()) {
+                                    progress.addDocumentsBuilt(documents.size());
+                                    writeQueue.put(documents);
+                                }
+                            }
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            pendingPages.release();
+                        }
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } finally {
+            builders.shutdown();
+            try {
+                while (!builders.awaitTermination(1, TimeUnit.SECONDS)) {
+                    LOG.debug("Waiting for document builders - " + progress);
+                }
+                writeQueue.put(Collections.<SolrInputDocument>emptyList());
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                builders.shutdownNow();
+                writer.interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        if (failure.get() != null) {
+            throw new ServiceException("Could not rebuild index", failure.get());
+        }
+
+        try {
+            SolrContext.getReindexServer().commit();
+        } catch (SolrServerException e) {
+            throw new ServiceException("Could not rebuild index", e);
+        } catch (IOException e) {
+            throw new ServiceException("Could not rebuild index", e);
+        }
+
+        LOG.info("Populated the reindex core - " + progress);
+    }
+
+    /**
+     * Whether documents can be built from {@link ProductIndexRow}s rather than from product entities. This requires
+     * <code>solr.index.projection.enabled</code>, every field to be projectable and untranslated, and no extension
+     * listeners that contribute price values, since those are handed the product entity. Projected values are read
+     * once for the default locale, so translatable fields need the entity to be read for each locale.
+     * 
+     * @param fields
+     * @return whether the rebuild should read column projections
+     */
+    protected boolean canUseProjection(List<Field> fields) {
+        if (!useProjection) {
+            return false;
+        }
+        for (Field field : fields) {
+            if (!solrIndexDao.isProjectable(field)) {
+                LOG.info("Field " + field.getQualifiedFieldName() + " cannot be projected. Building documents from product entities.");
+                return false;
+            }
+            if (field.getTranslatable()) {
+                LOG.info("Field " + field.getQualifiedFieldName() + " is translatable. Building documents from product entities.");
+                return false;
+            }
+            if (hasPriceFieldType(field) && extensionManager instanceof SolrSearchServiceExtensionManager
+                    && !((SolrSearchServiceExtensionManager) extensionManager).getListeners().isEmpty()) {
+                LOG.info("Price field " + field.getQualifiedFieldName() + " has extension listeners. Building documents from product entities.");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected boolean hasPriceFieldType(Field field) {
+        return FieldType.PRICE.equals(field.getFacetFieldType()) ||
+                (field.getSearchableFieldTypes() != null && field.getSearchableFieldTypes().contains(FieldType.PRICE));
+    }
+
+    /**
+     * Reads the given products in a new, read-only transaction on the current thread and builds their documents.
+     * When a category cache is given the products are read as column projections, otherwise as entities. The
+     * thread local contexts modified while building documents are cleared before returning.
+     * 
+     * @param productIds
+     * @param fields
+     * @param locales
+     * @param categoryCache the category data for projection based builds, or null to build from entities
+     * @return the documents for the given products
+     */
+    protected List<SolrInputDocument> buildDocuments(List<Long> productIds, List<Field> fields, List<Locale> locales,
+            SolrIndexCategoryCache categoryCache) {
+        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+        def.setName("buildSolrDocuments");
+        def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        def.setReadOnly(true);
+
+        TransactionStatus status = transactionManager.getTransaction(def);
+        try {
+            List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(productIds.size());
+            if (categoryCache != null) {
+                for (ProductIndexRow row : solrIndexDao.readProductIndexRows(productIds, fields)) {
+                    documents.add(buildDocument(row, fields, locales, categoryCache));
+                }
+            } else {
+                List<Product> products = productDao.readProductsByIds(productIds);
+                if (products != null) {
+                    for (Product product : products) {
+                        documents.add(buildDocument(product, fields, locales));
+                    }
+                }
+            }
+
+            if (LOG.isTraceEnabled()) {
+                for (SolrInputDocument document : documents) {
+                    LOG.trace(document);
+                }
+            }
+
+            return documents;
+        } finally {
+            transactionManager.rollback(status);
+            BroadleafRequestContext.setBroadleafRequestContext(null);
+            SkuPricingConsiderationContext.setSkuPricingConsiderationContext(null);
+            SkuPricingConsiderationContext.setSkuPricingService(null);
+        }
+    }
+
+    /**
+     * Drains the write queue, adding each batch of documents to the reindex core without committing. An empty
+     * batch marks the end of the queue. If a failure has been recorded, remaining batches are discarded so
+     * that builders blocked on the queue can finish.
+     * 
+     * @param writeQueue
+     * @param progress
+     * @param failure
+     */
+    protected void writeDocuments(BlockingQueue<List<SolrInputDocument>> writeQueue, SolrIndexProgress progress,
+            AtomicReference<Exception> failure) {
+        long nextReport = progressReportInterval;
+        try {
+            while (true) {
+                List<SolrInputDocument> documents = writeQueue.take();
+                if (documents.isEmpty()) {
+                    break;
+                }
+                if (failure.get() != null) {
+                    continue;
+                }
+                try {
+                    SolrContext.getReindexServer().add(documents);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                    continue;
+                }
+                if (progress.addDocumentsWritten(documents.size()) >= nextReport) {
+                    LOG.info("Rebuilding the solr index - " + progress);
+                    nextReport += progressReportInterval;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+    }
+
     protected void deleteAllDocuments() throws ServiceException {
         try {
             String deleteQuery = shs.getNamespaceFieldName() + ":" + shs.getCurrentNamespace();
@@ -136,6 +472,13 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         }
     }
 
+    /**
+     * Builds and commits the documents for a single offset-based page of products.
+     * 
+     * @deprecated {@link #rebuildIndex()} now pages by product id and builds documents in parallel. See
+     * {@link #executeIndexPipeline(SolrIndexProgress)}.
+     */
+    @Deprecated
     protected void buildIncrementalIndex(int page, int pageSize) throws ServiceException {
         LOG.trace(String.format("Building index - page: [%s], pageSize: [%s]", page, pageSize));
         StopWatch s = new StopWatch();
@@ -215,8 +558,41 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         SolrInputDocument document = new SolrInputDocument();
 
         attachBasicDocumentFields(product, document);
+        attachFieldValues(product, product.getId(), document, fields, locales);
+
+        return document;
+    }
+
+    /**
+     * Builds the same document as {@link #buildDocument(Product, List, List)} from a projected row.
+     * 
+     * @param row
+     * @param fields
+     * @param locales
+     * @param categoryCache
+     * @return the document
+     */
+    protected SolrInputDocument buildDocument(ProductIndexRow row, List<Field> fields, List<Locale> locales,
+            SolrIndexCategoryCache categoryCache) {
+        SolrInputDocument document = new SolrInputDocument();
 
-        // Add data-driven user specified searchable fields
+        attachBasicDocumentFields(row, document, categoryCache);
+        attachFieldValues(row, row.getId(), document, fields, locales);
+
+        return document;
+    }
+
+    /**
+     * Adds the data-driven, user specified searchable and facet fields to the document.
+     * 
+     * @param source the {@link Product} or {@link ProductIndexRow} to read values from
+     * @param productId
+     * @param document
+     * @param fields
+     * @param locales
+     */
+    protected void attachFieldValues(Object source, Long productId, SolrInputDocument document, List<Field> fields,
+            List<Locale> locales) {
         List<String> addedProperties = new ArrayList<String>();
         Map<String, List<String>> copyFieldValues = new HashMap<String, List<String>>();
 
@@ -225,7 +601,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
                 // Index the searchable fields
                 if (field.getSearchable()) {
                     for (FieldType sft : field.getSearchableFieldTypes()) {
-                        Map<String, Object> propertyValues = getPropertyValues(product, field, sft, locales);
+                        Map<String, Object> propertyValues = getPropertyValues(source, field, sft, locales);
 
                         // Build out the field for every prefix
                         for (Entry<String, Object> entry : propertyValues.entrySet()) {
@@ -256,7 +632,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
                 // Index the faceted field type as well
                 FieldType facetType = field.getFacetFieldType();
                 if (facetType != null) {
-                    Map<String, Object> propertyValues = getPropertyValues(product, field, facetType, locales);
+                    Map<String, Object> propertyValues = getPropertyValues(source, field, facetType, locales);
 
                     // Build out the field for every prefix
                     for (Entry<String, Object> entry : propertyValues.entrySet()) {
@@ -276,15 +652,13 @@ public class SolrIndexServiceImpl implements SolrIndexService {
                 }
             } catch (Exception e) {
                 LOG.trace("Could not get value for property[" + field.getQualifiedFieldName() + "] for product id["
-                        + product.getId() + "]");
+                        + productId + "]");
             }
         }
 
         for (Entry<String, List<String>> entry : copyFieldValues.entrySet()) {
             document.addField(shs.getSearchableFieldName(entry.getKey()), StringUtils.join(entry.getValue(), " "));
         }
-
-        return document;
     }
 
     /**
@@ -308,12 +682,35 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         }
 
         // This is the entire tree of every category defined on the product
-        Set<Category> fullCategoryHierarchy = new HashSet<Category>();
+        Set<Long> fullCategoryHierarchy = new LinkedHashSet<Long>();
         for (Category category : product.getAllParentCategories()) {
-            fullCategoryHierarchy.addAll(category.buildFullCategoryHierarchy(null));
+            fullCategoryHierarchy.addAll(categoryTreeService.getFullHierarchy(category.getId()));
         }
-        for (Category category : fullCategoryHierarchy) {
-            document.addField(shs.getCategoryFieldName(), category.getId());
+        for (Long categoryId : fullCategoryHierarchy) {
+            document.addField(shs.getCategoryFieldName(), categoryId);
+        }
+    }
+
+    /**
+     * Adds the ID, category, and explicitCategory fields for a projected product to the document
+     * 
+     * @param row
+     * @param document
+     * @param categoryCache
+     */
+    protected void attachBasicDocumentFields(ProductIndexRow row, SolrInputDocument document,
+            SolrIndexCategoryCache categoryCache) {
+        document.addField(shs.getNamespaceFieldName(), shs.getCurrentNamespace());
+        document.addField(shs.getIdFieldName(), row.getId());
+
+        Set<Long> fullCategoryHierarchy = new LinkedHashSet<Long>();
+        for (Long categoryId : row.getExplicitCategoryIds()) {
+            document.addField(shs.getExplicitCategoryFieldName(), categoryId);
+            document.addField(shs.getCategorySortFieldName(categoryId), categoryCache.getProductPosition(categoryId, row.getId()));
+            fullCategoryHierarchy.addAll(categoryCache.getFullCategoryHierarchy(categoryId));
+        }
+        for (Long categoryId : fullCategoryHierarchy) {
+            document.addField(shs.getCategoryFieldName(), categoryId);
         }
     }
 
@@ -374,6 +771,47 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         return values;
     }
 
+    /**
+     * Reads the property values from either a product entity or a projected row.
+     * 
+     * @see #getPropertyValues(Product, Field, FieldType, List)
+     * @see #getPropertyValues(ProductIndexRow, Field, FieldType, List)
+     */
+    protected Map<String, Object> getPropertyValues(Object source, Field field, FieldType fieldType,
+            List<Locale> locales) throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+        if (source instanceof ProductIndexRow) {
+            return getPropertyValues((ProductIndexRow) source, field, fieldType, locales);
+        }
+        return getPropertyValues((Product) source, field, fieldType, locales);
+    }
+
+    /**
+     * Returns the same map of prefix to value as {@link #getPropertyValues(Product, Field, FieldType, List)} using
+     * the value projected for this field. Only untranslated fields are projected, so every locale receives the same
+     * value, and prices are in the {@link ProductIndexRow#getCurrency() currency} read with the row.
+     * 
+     * @param row
+     * @param field
+     * @param fieldType
+     * @param locales
+     * @return the value of the property
+     */
+    protected Map<String, Object> getPropertyValues(ProductIndexRow row, Field field, FieldType fieldType,
+            List<Locale> locales) {
+        Object propertyValue = row.getPropertyValues().get(field.getPropertyName());
+        Map<String, Object> values = new HashMap<String, Object>();
+
+        if (fieldType.equals(FieldType.PRICE)) {
+            values.put("", propertyValue);
+        } else {
+            for (Locale locale : locales) {
+                values.put(locale.getLocaleCode(), propertyValue);
+            }
+        }
+
+        return values;
+    }
+
     /**
      * Converts a propertyName to one that is able to reference inside a map. For example, consider the property
      * in Product that references a List<ProductAttribute>, "productAttributes". Also consider the utility method
@@ -39,10 +39,13 @@ import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.core.catalog.dao.ProductDao;
 import org.broadleafcommerce.core.catalog.domain.Category;
 import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.service.CatalogBatchLoadingService;
+import org.broadleafcommerce.core.catalog.service.CatalogPrefetchPlan;
 import org.broadleafcommerce.core.search.dao.FieldDao;
 import org.broadleafcommerce.core.search.dao.SearchFacetDao;
 import org.broadleafcommerce.core.search.domain.CategorySearchFacet;
 import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.ProductDocumentDTO;
 import org.broadleafcommerce.core.search.domain.ProductSearchCriteria;
 import org.broadleafcommerce.core.search.domain.ProductSearchResult;
 import org.broadleafcommerce.core.search.domain.RequiredFacet;
@@ -89,6 +92,9 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
     @Resource(name = "blProductDao")
     protected ProductDao productDao;
 
+    @Resource(name = "blCatalogBatchLoadingService")
+    protected CatalogBatchLoadingService catalogBatchLoadingService;
+
     @Resource(name = "blFieldDao")
     protected FieldDao fieldDao;
 
@@ -266,7 +272,7 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
         // Build the basic query
         SolrQuery solrQuery = new SolrQuery()
                 .setQuery(qualifiedSolrQuery)
-                .setFields(shs.getIdFieldName())
+                .setFields(getResultFields(searchCriteria))
                 .setRows(searchCriteria.getPageSize())
                 .setFilterQueries(shs.getNamespaceFieldName() + ":" + shs.getCurrentNamespace())
                 .setStart((searchCriteria.getPage() - 1) * searchCriteria.getPageSize());
@@ -303,12 +309,15 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
         setFacetResults(namedFacetMap, response);
         sortFacetResults(namedFacetMap);
 
-        // Get the products
-        List<Product> products = getProducts(response);
-
         ProductSearchResult result = new ProductSearchResult();
         result.setFacets(facets);
-        result.setProducts(products);
+
+        // Get the products, or just their stored fields if the caller does not need the entities
+        if (searchCriteria.isReadProducts()) {
+            result.setProducts(getProducts(response));
+        } else {
+            result.setProductDocuments(getProductDocuments(response));
+        }
         setPagingAttributes(result, response, searchCriteria);
         return result;
     }
@@ -520,7 +529,8 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
     /**
      * Given a list of product IDs from solr, this method will look up the IDs via the productDao and build out
      * actual Product instances. It will return a Products that is sorted by the order of the IDs in the passed
-     * in list.
+     * in list. The associations rendered by a product tile are prefetched through the
+     * {@link CatalogPrefetchPlan#LISTING_TILE} plan.
      * 
      * @param response
      * @return the actual Product instances as a result of the search
@@ -532,18 +542,48 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
             productIds.add((Long) doc.getFieldValue(shs.getIdFieldName()));
         }
 
-        List<Product> products = productDao.readProductsByIds(productIds);
+        // The products are returned in the order of the productIds list to maintain sortability in the UI
+        return catalogBatchLoadingService.readProductsByIds(productIds, CatalogPrefetchPlan.LISTING_TILE);
+    }
 
-        // We have to sort the products list by the order of the productIds list to maintain sortability in the UI
-        if (products != null) {
-            Collections.sort(products, new Comparator<Product>() {
-                public int compare(Product o1, Product o2) {
-                    return new Integer(productIds.indexOf(o1.getId())).compareTo(productIds.indexOf(o2.getId()));
-                }
-            });
+    /**
+     * Builds a lightweight DTO for each returned document from its stored fields, preserving the order of the
+     * results. No products are read from the database.
+     * 
+     * @param response
+     * @return the stored fields of the matching products
+     */
+    protected List<ProductDocumentDTO> getProductDocuments(QueryResponse response) {
+        SolrDocumentList docs = response.getResults();
+        List<ProductDocumentDTO> documents = new ArrayList<ProductDocumentDTO>(docs.size());
+        for (SolrDocument doc : docs) {
+            ProductDocumentDTO document = new ProductDocumentDTO();
+            document.setId((Long) doc.getFieldValue(shs.getIdFieldName()));
+            for (String fieldName : doc.getFieldNames()) {
+                document.getFieldValues().put(fieldName, doc.getFieldValue(fieldName));
+            }
+            documents.add(document);
         }
+        return documents;
+    }
 
-        return products;
+    /**
+     * @param searchCriteria
+     * @return the fields Solr should return for each matching document. Only the id is needed when products
+     * are read from the database.
+     */
+    protected String[] getResultFields(ProductSearchCriteria searchCriteria) {
+        if (searchCriteria.isReadProducts()) {
+            return new String[] { shs.getIdFieldName() };
+        }
+        if (CollectionUtils.isEmpty(searchCriteria.getResultFields())) {
+            return new String[] { "*" };
+        }
+        List<String> fields = new ArrayList<String>(searchCriteria.getResultFields());
+        if (!fields.contains(shs.getIdFieldName())) {
+            fields.add(shs.getIdFieldName());
+        }
+        return fields.toArray(new String[fields.size()]);
     }
 
     /**
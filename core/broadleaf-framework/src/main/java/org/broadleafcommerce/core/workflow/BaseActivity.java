@@ -16,10 +16,13 @@
 
 package org.broadleafcommerce.core.workflow;
 
+import java.util.List;
+
 public abstract class BaseActivity implements Activity {
     
     private ErrorHandler errorHandler;
     private String beanName;
+    private List<String> dependsOn;
 
 
 
@@ -44,4 +47,17 @@ public abstract class BaseActivity implements Activity {
     public String getBeanName() {
         return beanName;
     }
+
+    /**
+     * The bean names of the activities that must complete before this one is started by a
+     * {@link ParallelSequenceProcessor}. Null, the default, means this activity depends on every activity
+     * declared before it. Ignored by the {@link SequenceProcessor}.
+     */
+    public List<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    public void setDependsOn(List<String> dependsOn) {
+        this.dependsOn = dependsOn;
+    }
 }
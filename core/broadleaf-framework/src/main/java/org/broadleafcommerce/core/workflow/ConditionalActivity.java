@@ -0,0 +1,34 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.workflow;
+
+/**
+ * An {@link Activity} that may be skipped. Processors call {@link #shouldExecute(ProcessContext)} before
+ * executing an Activity that implements this interface; all other activities are always executed.
+ */
+public interface ConditionalActivity extends Activity {
+
+    /**
+     * Called by the encompassing processor before {@link #execute(ProcessContext)}. Activities whose
+     * inputs have not changed for this execution of the workflow may return false to be skipped.
+     * 
+     * @param context - process context for this workflow
+     * @return whether or not this Activity should be executed
+     */
+    public boolean shouldExecute(ProcessContext context);
+
+}
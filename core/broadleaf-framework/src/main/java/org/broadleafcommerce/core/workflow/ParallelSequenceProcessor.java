@@ -0,0 +1,465 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.workflow;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes its activities as a dependency graph rather than a strict sequence. Each activity may name,
+ * through {@link BaseActivity#setDependsOn(List)}, the activities that must complete before it starts;
+ * an activity that declares nothing depends on every activity before it, so a workflow that declares no
+ * dependencies behaves exactly like a {@link SequenceProcessor}. Dependencies must refer to activities
+ * declared earlier in the list.
+ *
+ * <p>Activities whose dependencies are satisfied run concurrently on a bounded pool of {@link #setMaxThreads(int)}
+ * threads. When only a single activity is runnable it is executed on the calling thread, so that it
+ * participates in the caller's transaction. Activities run on a pool thread do not, and must therefore
+ * only be declared independent when they do not rely on the caller's persistence context.</p>
+ *
+ * <p>The semantics are kept deterministic regardless of the order in which concurrent activities finish:</p>
+ * <ul>
+ *   <li>{@link ConditionalActivity#shouldExecute(ProcessContext)}, error handlers and context merges always run on the calling thread.</li>
+ *   <li>Activities that complete together are processed in declaration order.</li>
+ *   <li>An activity that fails without an error handler stops any further activities from being started. Once the
+ *   running activities have finished, the default error handler is invoked once, with the error of the first
+ *   failed activity in declaration order.</li>
+ *   <li>An activity that returns a different {@link ProcessContext} instance has it merged via
+ *   {@link #mergeContext(ProcessContext, ProcessContext, Activity)} once every activity declared before it has
+ *   finished, and its dependents are not started until that merge has happened.</li>
+ * </ul>
+ */
+public class ParallelSequenceProcessor extends SequenceProcessor implements DisposableBean {
+
+    private static final Log LOG = LogFactory.getLog(ParallelSequenceProcessor.class);
+
+    protected int maxThreads = 4;
+    protected int queueCapacity = 64;
+    protected ThreadPoolExecutor executor;
+
+    /**
+     * For each activity, the indexes of the activities it depends on
+     */
+    protected int[][] dependencies;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        super.afterPropertiesSet();
+        dependencies = resolveDependencies(getActivities());
+        if (maxThreads > 1 && executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            final String prefix = getBeanName() == null ? "blParallelWorkflow-" : getBeanName() + "-";
+            executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, prefix + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Translates the declared activity names into indexes, failing on names that are unknown or that refer to
+     * an activity declared later in the list.
+     */
+    protected int[][] resolveDependencies(List<Activity> activities) {
+        Map<String, Integer> positions = new HashMap<String, Integer>();
+        int[][] resolved = new int[activities.size()][];
+        for (int i = 0; i < activities.size(); i++) {
+            Activity activity = activities.get(i);
+            List<String> dependsOn = activity instanceof BaseActivity ? ((BaseActivity) activity).getDependsOn() : null;
+            if (dependsOn == null) {
+                resolved[i] = new int[i];
+                for (int j = 0; j < i; j++) {
+                    resolved[i][j] = j;
+                }
+            } else {
+                resolved[i] = new int[dependsOn.size()];
+                for (int j = 0; j < dependsOn.size(); j++) {
+                    Integer position = positions.get(dependsOn.get(j));
+                    if (position == null) {
+                        throw new BeanInitializationException("The activity [" + activity.getBeanName() + "] of the workflow processor ["
+                                + getBeanName() + "] depends on [" + dependsOn.get(j) + "], which is not an activity declared before it");
+                    }
+                    resolved[i][j] = position;
+                }
+            }
+            if (activity.getBeanName() != null) {
+                positions.put(activity.getBeanName(), i);
+            }
+        }
+        return resolved;
+    }
+
+    @Override
+    public ProcessContext doActivities(Object seedData) throws WorkflowException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(getBeanName() + " processor is running..");
+        }
+
+        List<Activity> activities = getActivities();
+        if (dependencies == null) {
+            dependencies = resolveDependencies(activities);
+        }
+
+        WorkflowStatistics statistics = workflowStatisticsService == null ? null : workflowStatisticsService.getStatistics(getBeanName());
+        boolean timed = statistics != null && workflowStatisticsService.isTimingEnabled();
+        long start = timed ? System.nanoTime() : 0L;
+        boolean failed = true;
+        if (statistics != null) {
+            statistics.begin();
+        }
+
+        ProcessContext context;
+        try {
+            context = createContext(seedData);
+            context = new Run(activities, context, statistics, timed).execute();
+            failed = false;
+        } finally {
+            if (statistics != null) {
+                statistics.end(timed ? System.nanoTime() - start : -1L, failed);
+            }
+        }
+        LOG.debug(getBeanName() + " processor is done.");
+
+        return context;
+    }
+
+    /**
+     * Combines the context returned by an activity with the context of the workflow. Called on the calling thread,
+     * in declaration order, only when the returned context is a different instance. The default implementation
+     * adopts the returned context, as the {@link SequenceProcessor} does; override to combine the two when
+     * concurrently running activities may each return their own context.
+     *
+     * @param current the context of the workflow
+     * @param result the context returned by the activity
+     * @param activity the activity that returned it
+     * @return the context the rest of the workflow should use
+     */
+    protected ProcessContext mergeContext(ProcessContext current, ProcessContext result, Activity activity) {
+        return result;
+    }
+
+    /**
+     * Executes a single activity, capturing its result, error and elapsed time. Runs on a pool thread unless
+     * it is the only runnable activity.
+     */
+    protected Outcome executeActivity(int index, Activity activity, ProcessContext context, boolean timed) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("running activity:" + activity.getBeanName() + " using arguments:" + context);
+        }
+        Outcome outcome = new Outcome(index);
+        long activityStart = timed ? System.nanoTime() : 0L;
+        try {
+            outcome.result = activity.execute(context);
+        } catch (Throwable th) {
+            outcome.error = th;
+        }
+        outcome.nanos = timed ? System.nanoTime() - activityStart : -1L;
+        return outcome;
+    }
+
+    protected static class Outcome {
+
+        protected final int index;
+        protected ProcessContext result;
+        protected Throwable error;
+        protected long nanos;
+
+        protected Outcome(int index) {
+            this.index = index;
+        }
+
+    }
+
+    /**
+     * The scheduling state of a single invocation of {@link #doActivities(Object)}. Only ever touched by the
+     * calling thread.
+     */
+    protected class Run {
+
+        protected final List<Activity> activities;
+        protected final WorkflowStatistics statistics;
+        protected final boolean timed;
+        protected final boolean[] started;
+        protected final boolean[] finished;
+        protected final ProcessContext[] results;
+        protected final CompletionService<Outcome> completionService;
+        protected final BroadleafRequestContext requestContext = BroadleafRequestContext.getBroadleafRequestContext();
+
+        protected ProcessContext context;
+        protected int merged;
+        protected int running;
+        protected boolean halted;
+        protected Outcome unhandled;
+        protected Throwable handlerError;
+
+        protected Run(List<Activity> activities, ProcessContext context, WorkflowStatistics statistics, boolean timed) {
+            this.activities = activities;
+            this.context = context;
+            this.statistics = statistics;
+            this.timed = timed;
+            started = new boolean[activities.size()];
+            finished = new boolean[activities.size()];
+            results = new ProcessContext[activities.size()];
+            completionService = executor == null ? null : new ExecutorCompletionService<Outcome>(executor);
+        }
+
+        protected ProcessContext execute() throws WorkflowException {
+            while (true) {
+                List<Integer> ready = halted ? Collections.<Integer>emptyList() : startable();
+                if (ready.isEmpty() && running == 0) {
+                    break;
+                }
+                if (completionService == null || (ready.size() == 1 && running == 0)) {
+                    for (Integer index : ready) {
+                        if (halted) {
+                            break;
+                        }
+                        started[index] = true;
+                        process(Collections.singletonList(executeActivity(index, activities.get(index), context, timed)));
+                    }
+                    continue;
+                }
+                for (Integer index : ready) {
+                    submit(index);
+                }
+                process(awaitCompletions());
+            }
+
+            if (unhandled != null) {
+                LOG.info("no error handler for this action, run default error" + "handler and abort processing ");
+                if (statistics != null && getDefaultErrorHandler() != null) {
+                    statistics.recordHandledError(getDefaultErrorHandler());
+                }
+                getDefaultErrorHandler().handleError(context, unhandled.error);
+            }
+            if (handlerError != null) {
+                if (handlerError instanceof WorkflowException) {
+                    throw (WorkflowException) handlerError;
+                }
+                if (handlerError instanceof RuntimeException) {
+                    throw (RuntimeException) handlerError;
+                }
+                if (handlerError instanceof Error) {
+                    throw (Error) handlerError;
+                }
+                throw new WorkflowException(handlerError);
+            }
+            return context;
+        }
+
+        /**
+         * @return the indexes, in declaration order, of the activities that may be started now. Activities
+         * that should not execute are marked finished on the way.
+         */
+        protected List<Integer> startable() {
+            List<Integer> ready = new ArrayList<Integer>();
+            boolean skipped;
+            do {
+                skipped = false;
+                ready.clear();
+                for (int i = 0; i < activities.size(); i++) {
+                    if (started[i] || !dependenciesSatisfied(i)) {
+                        continue;
+                    }
+                    Activity activity = activities.get(i);
+                    if (activity instanceof ConditionalActivity && !((ConditionalActivity) activity).shouldExecute(context)) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("skipping activity:" + activity.getBeanName() + " as its inputs have not changed");
+                        }
+                        if (statistics != null) {
+                            statistics.getActivityStatistics(activity).recordSkipped();
+                        }
+                        started[i] = true;
+                        finished[i] = true;
+                        merge();
+                        skipped = true;
+                    } else {
+                        ready.add(i);
+                    }
+                }
+            } while (skipped);
+            return ready;
+        }
+
+        protected boolean dependenciesSatisfied(int index) {
+            for (int dependency : dependencies[index]) {
+                if (!finished[dependency] || (results[dependency] != null && dependency >= merged)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected void submit(final int index) {
+            final Activity activity = activities.get(index);
+            final ProcessContext current = context;
+            started[index] = true;
+            running++;
+            completionService.submit(new Callable<Outcome>() {
+                @Override
+                public Outcome call() throws Exception {
+                    BroadleafRequestContext previous = BroadleafRequestContext.getBroadleafRequestContext();
+                    BroadleafRequestContext.setBroadleafRequestContext(requestContext);
+                    try {
+                        return executeActivity(index, activity, current, timed);
+                    } finally {
+                        BroadleafRequestContext.setBroadleafRequestContext(previous);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Waits for at least one running activity to finish and collects any others that have finished meanwhile.
+         */
+        protected List<Outcome> awaitCompletions() throws WorkflowException {
+            List<Outcome> outcomes = new ArrayList<Outcome>();
+            try {
+                Future<Outcome> future = completionService.take();
+                while (future != null) {
+                    running--;
+                    outcomes.add(future.get());
+                    future = completionService.poll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WorkflowException("Interrupted while waiting for the activities of " + getBeanName(), e);
+            } catch (ExecutionException e) {
+                throw new WorkflowException(e.getCause());
+            }
+            Collections.sort(outcomes, new Comparator<Outcome>() {
+                @Override
+                public int compare(Outcome o1, Outcome o2) {
+                    return o1.index < o2.index ? -1 : (o1.index == o2.index ? 0 : 1);
+                }
+            });
+            return outcomes;
+        }
+
+        protected void process(List<Outcome> outcomes) {
+            for (Outcome outcome : outcomes) {
+                Activity activity = activities.get(outcome.index);
+                if (statistics != null) {
+                    statistics.getActivityStatistics(activity).record(outcome.nanos, outcome.error != null);
+                }
+                if (outcome.result != null && outcome.result != context) {
+                    results[outcome.index] = outcome.result;
+                }
+                finished[outcome.index] = true;
+
+                if (outcome.error != null) {
+                    ErrorHandler errorHandler = activity.getErrorHandler();
+                    if (errorHandler == null) {
+                        if (unhandled == null || outcome.index < unhandled.index) {
+                            unhandled = outcome;
+                        }
+                        halted = true;
+                    } else if (handlerError == null) {
+                        LOG.info("run error handler and continue");
+                        if (statistics != null) {
+                            statistics.recordHandledError(errorHandler);
+                        }
+                        try {
+                            errorHandler.handleError(context, outcome.error);
+                        } catch (Throwable th) {
+                            handlerError = th;
+                            halted = true;
+                        }
+                    }
+                }
+                merge();
+
+                if (processShouldStop(context, activity)) {
+                    halted = true;
+                }
+            }
+        }
+
+        /**
+         * Merges the returned contexts of the finished activities, in declaration order, up to the first
+         * activity that has not yet finished.
+         */
+        protected void merge() {
+            while (merged < activities.size() && finished[merged]) {
+                if (results[merged] != null) {
+                    context = mergeContext(context, results[merged], activities.get(merged));
+                }
+                merged++;
+            }
+        }
+
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * The number of activities this processor executes concurrently, shared by all invocations of the processor.
+     * A value of 1 or less executes every activity on the calling thread in declaration order.
+     */
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * The number of activities that may wait for a pool thread. Once full, further activities run on the calling thread.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+}
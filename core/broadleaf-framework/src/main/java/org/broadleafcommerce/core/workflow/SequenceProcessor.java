@@ -19,15 +19,23 @@ package org.broadleafcommerce.core.workflow;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import javax.annotation.Resource;
 import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Executes its activities in order. Each run, and each activity within it, is recorded in the
+ * {@link WorkflowStatistics} of the processor obtained from the {@link WorkflowStatisticsService}.
+ */
 public class SequenceProcessor extends BaseProcessor {
 
     private static final Log LOG = LogFactory.getLog(SequenceProcessor.class);
 
     private ProcessContextFactory processContextFactory;
 
+    @Resource(name = "blWorkflowStatisticsService")
+    protected WorkflowStatisticsService workflowStatisticsService;
+
     /*
      * (non-Javadoc)
      *
@@ -49,32 +57,73 @@ public class SequenceProcessor extends BaseProcessor {
         //retrieve injected by Spring
         List<Activity> activities = getActivities();
 
-        //retrieve a new instance of the Workflow ProcessContext
-        ProcessContext context = createContext(seedData);
+        WorkflowStatistics statistics = workflowStatisticsService == null ? null : workflowStatisticsService.getStatistics(getBeanName());
+        boolean timed = statistics != null && workflowStatisticsService.isTimingEnabled();
+        long start = timed ? System.nanoTime() : 0L;
+        boolean failed = true;
+        if (statistics != null) {
+            statistics.begin();
+        }
 
-        for (Iterator<Activity> it = activities.iterator(); it.hasNext();) {
-            Activity activity = it.next();
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("running activity:" + activity.getBeanName() + " using arguments:" + context);
-            }
+        ProcessContext context;
+        try {
+            //retrieve a new instance of the Workflow ProcessContext
+            context = createContext(seedData);
+
+            for (Iterator<Activity> it = activities.iterator(); it.hasNext();) {
+                Activity activity = it.next();
+                WorkflowStatistics.ActivityStatistics activityStatistics = statistics == null ? null : statistics.getActivityStatistics(activity);
+                if (activity instanceof ConditionalActivity && !((ConditionalActivity) activity).shouldExecute(context)) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("skipping activity:" + activity.getBeanName() + " as its inputs have not changed");
+                    }
+                    if (activityStatistics != null) {
+                        activityStatistics.recordSkipped();
+                    }
+                    continue;
+                }
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("running activity:" + activity.getBeanName() + " using arguments:" + context);
+                }
+
+                long activityStart = timed ? System.nanoTime() : 0L;
+                Throwable error = null;
+                try {
+                    context = activity.execute(context);
+                } catch (Throwable th) {
+                    error = th;
+                }
+                if (activityStatistics != null) {
+                    activityStatistics.record(timed ? System.nanoTime() - activityStart : -1L, error != null);
+                }
+
+                if (error != null) {
+                    ErrorHandler errorHandler = activity.getErrorHandler();
+                    if (errorHandler == null) {
+                        LOG.info("no error handler for this action, run default error" + "handler and abort processing ");
+                        if (statistics != null && getDefaultErrorHandler() != null) {
+                            statistics.recordHandledError(getDefaultErrorHandler());
+                        }
+                        getDefaultErrorHandler().handleError(context, error);
+                        break;
+                    } else {
+                        LOG.info("run error handler and continue");
+                        if (statistics != null) {
+                            statistics.recordHandledError(errorHandler);
+                        }
+                        errorHandler.handleError(context, error);
+                    }
+                }
 
-            try {
-                context = activity.execute(context);
-            } catch (Throwable th) {
-                ErrorHandler errorHandler = activity.getErrorHandler();
-                if (errorHandler == null) {
-                    LOG.info("no error handler for this action, run default error" + "handler and abort processing ");
-                    getDefaultErrorHandler().handleError(context, th);
+                //ensure its ok to continue the process
+                if (processShouldStop(context, activity)) {
                     break;
-                } else {
-                    LOG.info("run error handler and continue");
-                    errorHandler.handleError(context, th);
                 }
             }
-
-            //ensure its ok to continue the process
-            if (processShouldStop(context, activity)) {
-                break;
+            failed = false;
+        } finally {
+            if (statistics != null) {
+                statistics.end(timed ? System.nanoTime() - start : -1L, failed);
             }
         }
         LOG.debug(getBeanName() + " processor is done.");
@@ -90,7 +139,7 @@ public class SequenceProcessor extends BaseProcessor {
      * @param activity
      *            the current activity in the iteration
      */
-    private boolean processShouldStop(ProcessContext context, Activity activity) {
+    protected boolean processShouldStop(ProcessContext context, Activity activity) {
         if (context != null && context.isStopped()) {
             LOG.info("Interrupted workflow as requested by:" + activity.getBeanName());
             return true;
@@ -98,7 +147,7 @@ public class SequenceProcessor extends BaseProcessor {
         return false;
     }
 
-    private ProcessContext createContext(Object seedData) throws WorkflowException {
+    protected ProcessContext createContext(Object seedData) throws WorkflowException {
         return processContextFactory.createContext(seedData);
     }
 
@@ -106,4 +155,8 @@ public class SequenceProcessor extends BaseProcessor {
         this.processContextFactory = processContextFactory;
     }
 
+    public void setWorkflowStatisticsService(WorkflowStatisticsService workflowStatisticsService) {
+        this.workflowStatisticsService = workflowStatisticsService;
+    }
+
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.workflow;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Execution statistics for a single workflow {@link Processor}: the number of runs in flight, the latency of
+ * the processor and of each of its activities, and the number of errors passed to each {@link ErrorHandler}.
+ * Latencies are recorded in a fixed set of buckets, so recording is a handful of atomic increments and the
+ * statistics never grow with the number of executions.
+ */
+public class WorkflowStatistics {
+
+    protected final String processorName;
+    protected final AtomicInteger inFlight = new AtomicInteger();
+    protected final AtomicLong failureCount = new AtomicLong();
+    protected final LatencyHistogram latency = new LatencyHistogram();
+    protected final ConcurrentMap<String, ActivityStatistics> activities = new ConcurrentHashMap<String, ActivityStatistics>();
+    protected final ConcurrentMap<String, AtomicLong> errorsByHandler = new ConcurrentHashMap<String, AtomicLong>();
+
+    public WorkflowStatistics(String processorName) {
+        this.processorName = processorName;
+    }
+
+    /**
+     * Records the start of a run of the processor
+     */
+    public void begin() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Records the end of a run of the processor
+     *
+     * @param nanos the duration of the run, or -1 if it was not timed
+     * @param failed whether the run ended with an exception
+     */
+    public void end(long nanos, boolean failed) {
+        inFlight.decrementAndGet();
+        if (failed) {
+            failureCount.incrementAndGet();
+        }
+        latency.record(nanos);
+    }
+
+    public ActivityStatistics getActivityStatistics(Activity activity) {
+        String name = getActivityName(activity);
+        ActivityStatistics statistics = activities.get(name);
+        if (statistics == null) {
+            statistics = new ActivityStatistics();
+            ActivityStatistics existing = activities.putIfAbsent(name, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    public void recordHandledError(ErrorHandler errorHandler) {
+        String name = errorHandler.getClass().getName();
+        AtomicLong count = errorsByHandler.get(name);
+        if (count == null) {
+            count = new AtomicLong();
+            AtomicLong existing = errorsByHandler.putIfAbsent(name, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Activities declared as inner beans do not have a meaningful bean name, so they are identified by class.
+     */
+    protected String getActivityName(Activity activity) {
+        String beanName = activity.getBeanName();
+        if (beanName == null || beanName.indexOf('#') >= 0) {
+            return activity.getClass().getSimpleName();
+        }
+        return beanName;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public Map<String, ActivityStatistics> getActivities() {
+        return activities;
+    }
+
+    public Map<String, AtomicLong> getErrorsByHandler() {
+        return errorsByHandler;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("inFlight: [%s], failures: [%s], %s", inFlight.get(), failureCount.get(), latency);
+    }
+
+    public static class ActivityStatistics {
+
+        protected final AtomicLong skippedCount = new AtomicLong();
+        protected final AtomicLong errorCount = new AtomicLong();
+        protected final LatencyHistogram latency = new LatencyHistogram();
+
+        public void recordSkipped() {
+            skippedCount.incrementAndGet();
+        }
+
+        /**
+         * @param nanos the duration of the execution, or -1 if it was not timed
+         * @param failed whether the activity threw an exception
+         */
+        public void record(long nanos, boolean failed) {
+            if (failed) {
+                errorCount.incrementAndGet();
+            }
+            latency.record(nanos);
+        }
+
+        public long getSkippedCount() {
+            return skippedCount.get();
+        }
+
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("skipped: [%s], errors: [%s], %s", skippedCount.get(), errorCount.get(), latency);
+        }
+
+    }
+
+    /**
+     * Counts durations in buckets bounded by {@link #BUCKET_BOUNDS} milliseconds. Percentiles are reported as the
+     * upper bound of the bucket they fall in.
+     */
+    public static class LatencyHistogram {
+
+        public static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+        protected final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+        protected final AtomicLong count = new AtomicLong();
+        protected final AtomicLong timedCount = new AtomicLong();
+        protected final AtomicLong totalTime = new AtomicLong();
+        protected final AtomicLong maxTime = new AtomicLong();
+
+        /**
+         * @param nanos the duration, or a negative value to only count the execution
+         */
+        public void record(long nanos) {
+            count.incrementAndGet();
+            if (nanos < 0) {
+                return;
+            }
+            timedCount.incrementAndGet();
+            totalTime.addAndGet(nanos);
+            long max = maxTime.get();
+            while (nanos > max && !maxTime.compareAndSet(max, nanos)) {
+                max = maxTime.get();
+            }
+            long millis = nanos / 1000000L;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && millis >= BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public double getAverageMillis() {
+            long timed = timedCount.get();
+            return timed == 0 ? 0D : totalTime.get() / 1000000D / timed;
+        }
+
+        public double getMaxMillis() {
+            return maxTime.get() / 1000000D;
+        }
+
+        /**
+         * @param percentile between 0 and 1
+         * @return the upper bound in milliseconds of the bucket holding the percentile, -1 if nothing has been
+         * timed or {@link Long#MAX_VALUE} if it is beyond the last bound
+         */
+        public long getPercentileMillis(double percentile) {
+            long timed = timedCount.get();
+            if (timed == 0) {
+                return -1;
+            }
+            long threshold = (long) Math.ceil(timed * percentile);
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                cumulative += buckets.get(i);
+                if (cumulative >= threshold) {
+                    return i < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[i] : Long.MAX_VALUE;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        public long[] getBucketCounts() {
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count: [%s], average: [%.3fms], max: [%.3fms], p50: [<%sms], p95: [<%sms], p99: [<%sms]",
+                    count.get(), getAverageMillis(), getMaxMillis(), format(getPercentileMillis(0.5D)),
+                    format(getPercentileMillis(0.95D)), format(getPercentileMillis(0.99D)));
+        }
+
+        protected String format(long bound) {
+            return bound == Long.MAX_VALUE ? "inf" : String.valueOf(bound);
+        }
+
+    }
+
+}
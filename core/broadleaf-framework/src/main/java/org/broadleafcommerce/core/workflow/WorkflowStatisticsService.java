@@ -0,0 +1,48 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.workflow;
+
+import java.util.Map;
+
+/**
+ * Collects the {@link WorkflowStatistics} of every workflow {@link Processor} in the application.
+ */
+public interface WorkflowStatisticsService {
+
+    /**
+     * @param processorName the bean name of the processor
+     * @return the statistics of the processor, or null if instrumentation is disabled
+     */
+    public WorkflowStatistics getStatistics(String processorName);
+
+    /**
+     * @return whether activity and processor durations are measured. When false only executions, skips and
+     * errors are counted.
+     */
+    public boolean isTimingEnabled();
+
+    /**
+     * @return the statistics of every processor that has run, keyed by processor name
+     */
+    public Map<String, WorkflowStatistics> getAllStatistics();
+
+    /**
+     * Discards all statistics
+     */
+    public void resetStatistics();
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.workflow;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default {@link WorkflowStatisticsService}, exported through JMX. Instrumentation is on by default: with timing
+ * enabled each activity costs two calls to {@link System#nanoTime()} and a few atomic increments. Setting
+ * <code>workflow.instrumentation.timing.enabled</code> to false reduces that to the counters alone, and
+ * <code>workflow.instrumentation.enabled</code> turns the instrumentation off entirely.
+ */
+@Service("blWorkflowStatisticsService")
+@ManagedResource(objectName="org.broadleafcommerce:name=WorkflowStatistics", description="Workflow Statistics", currencyTimeLimit=15)
+public class WorkflowStatisticsServiceImpl implements WorkflowStatisticsService {
+
+    @Value("${workflow.instrumentation.enabled}")
+    protected boolean enabled = true;
+
+    @Value("${workflow.instrumentation.timing.enabled}")
+    protected boolean timingEnabled = true;
+
+    protected final ConcurrentMap<String, WorkflowStatistics> statistics = new ConcurrentHashMap<String, WorkflowStatistics>();
+
+    @Override
+    public WorkflowStatistics getStatistics(String processorName) {
+        if (!enabled) {
+            return null;
+        }
+        WorkflowStatistics processorStatistics = statistics.get(processorName);
+        if (processorStatistics == null) {
+            processorStatistics = new WorkflowStatistics(processorName);
+            WorkflowStatistics existing = statistics.putIfAbsent(processorName, processorStatistics);
+            if (existing != null) {
+                processorStatistics = existing;
+            }
+        }
+        return processorStatistics;
+    }
+
+    @Override
+    public Map<String, WorkflowStatistics> getAllStatistics() {
+        return statistics;
+    }
+
+    @Override
+    @ManagedOperation(description="Discard all workflow statistics")
+    public void resetStatistics() {
+        statistics.clear();
+    }
+
+    @ManagedAttribute(description="The execution statistics of each workflow", currencyTimeLimit=15)
+    public Map<String, String> getProcessorStatistics() {
+        Map<String, String> summary = new TreeMap<String, String>();
+        for (WorkflowStatistics processorStatistics : statistics.values()) {
+            summary.put(processorStatistics.getProcessorName(), processorStatistics.toString());
+        }
+        return summary;
+    }
+
+    @ManagedAttribute(description="The execution statistics of each activity, keyed by workflow and activity", currencyTimeLimit=15)
+    public Map<String, String> getActivityStatistics() {
+        Map<String, String> summary = new TreeMap<String, String>();
+        for (WorkflowStatistics processorStatistics : statistics.values()) {
+            for (Map.Entry<String, WorkflowStatistics.ActivityStatistics> entry : processorStatistics.getActivities().entrySet()) {
+                summary.put(processorStatistics.getProcessorName() + "." + entry.getKey(), entry.getValue().toString());
+            }
+        }
+        return summary;
+    }
+
+    @ManagedAttribute(description="The number of errors passed to each error handler, keyed by workflow and error handler", currencyTimeLimit=15)
+    public Map<String, Long> getErrorCountsByHandler() {
+        Map<String, Long> summary = new TreeMap<String, Long>();
+        for (WorkflowStatistics processorStatistics : statistics.values()) {
+            for (Map.Entry<String, AtomicLong> entry : processorStatistics.getErrorsByHandler().entrySet()) {
+                summary.put(processorStatistics.getProcessorName() + "." + entry.getKey(), entry.getValue().get());
+            }
+        }
+        return summary;
+    }
+
+    @ManagedAttribute(description="The number of workflows currently executing", currencyTimeLimit=15)
+    public int getInFlightCount() {
+        int inFlight = 0;
+        for (WorkflowStatistics processorStatistics : statistics.values()) {
+            inFlight += processorStatistics.getInFlightCount();
+        }
+        return inFlight;
+    }
+
+    @ManagedOperation(description="Describe the statistics of a single workflow and its activities")
+    @ManagedOperationParameters({
+        @ManagedOperationParameter(name="processorName", description="The bean name of the workflow")
+    })
+    public String describeWorkflow(String processorName) {
+        WorkflowStatistics processorStatistics = statistics.get(processorName);
+        if (processorStatistics == null) {
+            return "No statistics recorded for " + processorName;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(processorName).append(": ").append(processorStatistics).append('\n');
+        for (Map.Entry<String, WorkflowStatistics.ActivityStatistics> entry : new TreeMap<String, WorkflowStatistics.ActivityStatistics>(processorStatistics.getActivities()).entrySet()) {
+            sb.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @ManagedAttribute(description="Whether workflow executions are instrumented", currencyTimeLimit=15)
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description="Whether workflow executions are instrumented", currencyTimeLimit=15)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    @ManagedAttribute(description="Whether workflow and activity durations are measured", currencyTimeLimit=15)
+    public boolean isTimingEnabled() {
+        return timingEnabled;
+    }
+
+    @ManagedAttribute(description="Whether workflow and activity durations are measured", currencyTimeLimit=15)
+    public void setTimingEnabled(boolean timingEnabled) {
+        this.timingEnabled = timingEnabled;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.catalog.service;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.core.catalog.domain.CategoryTreeRow;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class CategoryTreeTest extends TestCase {
+
+    private CategoryTree tree;
+
+    @Override
+    protected void setUp() throws Exception {
+        // root(1) -> hot sauces(2) -> mild(3); sale(4) -> mild(3) through an additional parent; archived(5) under root
+        CategoryTreeRow root = createRow(1L, null, "/");
+        CategoryTreeRow hotSauces = createRow(2L, 1L, "hot-sauces");
+        CategoryTreeRow mild = createRow(3L, 2L, "mild");
+        CategoryTreeRow sale = createRow(4L, 1L, "sale");
+        CategoryTreeRow archived = createRow(5L, 1L, "archived");
+        archived.setArchived(true);
+        link(root, hotSauces);
+        link(root, sale);
+        link(root, archived);
+        link(hotSauces, mild);
+        link(sale, mild);
+
+        tree = new CategoryTree(Arrays.asList(root, hotSauces, mild, sale, archived));
+    }
+
+    public void testHierarchies() throws Exception {
+        assertEquals(Arrays.asList(3L, 2L, 1L, 4L), tree.getFullHierarchy(3L));
+        assertEquals(Arrays.asList(3L, 2L, 1L), tree.getDefaultHierarchy(3L));
+        assertTrue(tree.getFullHierarchy(99L).isEmpty());
+    }
+
+    public void testDescendants() throws Exception {
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L, 3L, 4L, 5L)), tree.getDescendantIds(1L));
+        assertEquals(new HashSet<Long>(Arrays.asList(4L, 3L)), tree.getDescendantIds(4L));
+        assertEquals(new HashSet<Long>(Arrays.asList(3L)), tree.getDescendantIds(3L));
+    }
+
+    public void testChildCategoryURLMap() throws Exception {
+        Map<String, List<Long>> urlMap = tree.getChildCategoryURLMap(1L);
+        assertEquals(Arrays.asList(1L), urlMap.get(""));
+        assertEquals(Arrays.asList(1L, 2L, 3L), urlMap.get("/hot-sauces/mild"));
+        assertEquals(Arrays.asList(1L, 4L, 3L), urlMap.get("/sale/mild"));
+        assertFalse(urlMap.containsKey("/archived"));
+        assertSame(urlMap, tree.getChildCategoryURLMap(1L));
+        assertNull(tree.getChildCategoryURLMap(99L));
+    }
+
+    private CategoryTreeRow createRow(Long id, Long defaultParentId, String urlKey) {
+        CategoryTreeRow row = new CategoryTreeRow(id);
+        row.setDefaultParentId(defaultParentId);
+        row.setUrlKey(urlKey);
+        row.setActiveStartDate(new Date(0L));
+        return row;
+    }
+
+    private void link(CategoryTreeRow parent, CategoryTreeRow child) {
+        parent.getChildIds().add(child.getId());
+        child.getParentIds().add(parent.getId());
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.catalog.service.dynamic;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValueImpl;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuBundleItem;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+
+public class SkuPricingConsiderationContextTest extends TestCase {
+
+    private CountingPricingService pricingService;
+    private HashMap<String, String> considerations;
+
+    @Override
+    protected void setUp() throws Exception {
+        pricingService = new CountingPricingService();
+        considerations = new HashMap<String, String>();
+        considerations.put("customerType", "wholesale");
+        SkuPricingConsiderationContext.setSkuPricingConsiderationContext(considerations);
+        SkuPricingConsiderationContext.setSkuPricingService(pricingService);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SkuPricingConsiderationContext.setSkuPricingConsiderationContext(null);
+        SkuPricingConsiderationContext.setSkuPricingService(null);
+    }
+
+    public void testPricesAreMemoizedPerSku() throws Exception {
+        Sku sku = createSku(1L, "10.00", "8.00");
+
+        assertEquals(new Money("5.00"), sku.getSalePrice());
+        assertEquals(new Money("10.00"), sku.getRetailPrice());
+        assertEquals(new Money("5.00"), sku.getSalePrice());
+        assertEquals(1, pricingService.count);
+
+        createSku(2L, "20.00", null).getRetailPrice();
+        assertEquals(2, pricingService.count);
+    }
+
+    public void testMemoIsResetWithTheConsiderations() throws Exception {
+        Sku sku = createSku(1L, "10.00", "8.00");
+        sku.getSalePrice();
+
+        SkuPricingConsiderationContext.setSkuPricingConsiderationContext(new HashMap<String, String>(considerations));
+        sku.getSalePrice();
+        assertEquals(2, pricingService.count);
+
+        SkuPricingConsiderationContext.clearPriceMemo();
+        sku.getSalePrice();
+        assertEquals(3, pricingService.count);
+    }
+
+    public void testProxyExposesPersistedPrices() throws Exception {
+        Sku sku = createSku(null, "10.00", null);
+        Sku proxy = DefaultDynamicSkuPricingInvocationHandler.createProxy(sku);
+
+        assertEquals(new Money("10.00"), proxy.getRetailPrice());
+        assertNull(proxy.getSalePrice());
+        assertSame(proxy.getClass(), DefaultDynamicSkuPricingInvocationHandler.createProxy(sku).getClass());
+    }
+
+    private Sku createSku(Long id, String retailPrice, String salePrice) {
+        Sku sku = new SkuImpl();
+        sku.setId(id);
+        sku.setRetailPrice(new Money(retailPrice));
+        sku.setSalePrice(salePrice == null ? null : new Money(salePrice));
+        return sku;
+    }
+
+    /**
+     * Halves the persisted retail price to produce a sale price and counts the lookups
+     */
+    private static class CountingPricingService implements DynamicSkuPricingService {
+
+        private int count;
+
+        @Override
+        public DynamicSkuPrices getSkuPrices(Sku sku, @SuppressWarnings("rawtypes") HashMap skuPricingConsiderations) {
+            count++;
+            DynamicSkuPrices prices = new DynamicSkuPrices();
+            prices.setRetailPrice(sku.getRetailPrice());
+            prices.setSalePrice(sku.getRetailPrice().multiply(new BigDecimal("0.5")));
+            return prices;
+        }
+
+        @Override
+        public DynamicSkuPrices getSkuBundleItemPrice(SkuBundleItem sku, @SuppressWarnings("rawtypes") HashMap skuPricingConsiderations) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DynamicSkuPrices getPriceAdjustment(ProductOptionValueImpl productOptionValueImpl, Money priceAdjustment,
+                @SuppressWarnings("rawtypes") HashMap skuPricingConsiderationContext) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
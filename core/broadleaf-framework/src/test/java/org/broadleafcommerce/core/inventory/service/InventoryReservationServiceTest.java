@@ -0,0 +1,215 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.inventory.service;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.common.time.FixedTimeSource;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.core.inventory.dao.AvailabilityDao;
+import org.broadleafcommerce.core.inventory.domain.SkuAvailability;
+import org.broadleafcommerce.core.inventory.domain.SkuAvailabilityImpl;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InventoryReservationServiceTest extends TestCase {
+
+    private InventoryReservationServiceImpl reservationService;
+    private StubAvailabilityDao availabilityDao;
+
+    @Override
+    protected void setUp() throws Exception {
+        availabilityDao = new StubAvailabilityDao();
+        availabilityDao.addAvailability(1L, 50);
+        availabilityDao.addAvailability(2L, 5);
+        reservationService = new InventoryReservationServiceImpl();
+        reservationService.setEnabled(true);
+        reservationService.setReservationTimeToLive(60000L);
+        reservationService.setAvailabilityDao(availabilityDao);
+        reservationService.setTransactionManager(new StubTransactionManager());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SystemTime.reset();
+    }
+
+    public void testConcurrentReservationsNeverOversell() throws Exception {
+        final AtomicInteger successes = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 200; i++) {
+            final long orderId = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (reservationService.reserveInventory(orderId, 1L, null, 1)) {
+                        successes.incrementAndGet();
+                        reservationService.commitReservations(orderId);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(50, successes.get());
+        assertEquals(Integer.valueOf(0), reservationService.getAvailableQuantity(1L, null));
+
+        assertEquals(1, reservationService.flush());
+        assertEquals(Integer.valueOf(0), availabilityDao.availabilities.get(1L).getQuantityOnHand());
+        assertEquals(1, availabilityDao.updateCount);
+    }
+
+    public void testReleaseAndExpire() throws Exception {
+        assertTrue(reservationService.reserveInventory(10L, 2L, null, 3));
+        assertFalse(reservationService.reserveInventory(11L, 2L, null, 3));
+        assertEquals(Integer.valueOf(2), reservationService.getAvailableQuantity(2L, null));
+
+        reservationService.releaseReservations(10L);
+        assertEquals(Integer.valueOf(5), reservationService.getAvailableQuantity(2L, null));
+
+        assertTrue(reservationService.reserveInventory(11L, 2L, null, 5));
+        assertEquals(0, reservationService.expireReservations());
+        SystemTime.setLocalTimeSource(new FixedTimeSource(System.currentTimeMillis() + 120000L));
+        assertEquals(1, reservationService.expireReservations());
+        assertEquals(Integer.valueOf(5), reservationService.getAvailableQuantity(2L, null));
+
+        //committing or flushing after the reservation expired changes nothing
+        reservationService.commitReservations(11L);
+        assertEquals(0, reservationService.flush());
+        assertEquals(Integer.valueOf(5), availabilityDao.availabilities.get(2L).getQuantityOnHand());
+    }
+
+    public void testUntrackedSkuIsUnlimited() throws Exception {
+        assertNull(reservationService.getAvailableQuantity(3L, null));
+        assertTrue(reservationService.reserveInventory(20L, 3L, null, 1000));
+        reservationService.commitReservations(20L);
+        assertEquals(0, reservationService.flush());
+    }
+
+    public void testShortfallIsNotWritten() throws Exception {
+        assertTrue(reservationService.reserveInventory(30L, 2L, null, 3));
+        reservationService.commitReservations(30L);
+
+        //another node sold all but one unit in the meantime
+        availabilityDao.availabilities.get(2L).setQuantityOnHand(1);
+        assertEquals(0, reservationService.flush());
+        assertEquals(1, reservationService.getShortfallCount());
+        assertEquals(0, reservationService.getFlushedQuantity());
+        assertEquals(Integer.valueOf(1), availabilityDao.availabilities.get(2L).getQuantityOnHand());
+        assertEquals(Integer.valueOf(1), reservationService.getAvailableQuantity(2L, null));
+    }
+
+    public void testReconcile() throws Exception {
+        assertTrue(reservationService.reserveInventory(40L, 1L, null, 2));
+
+        //another node wrote its committed quantities
+        availabilityDao.availabilities.get(1L).setQuantityOnHand(10);
+        assertEquals(Integer.valueOf(48), reservationService.getAvailableQuantity(1L, null));
+        assertEquals(1, reservationService.reconcile());
+        assertEquals(Integer.valueOf(8), reservationService.getAvailableQuantity(1L, null));
+        assertFalse(reservationService.reserveInventory(41L, 1L, null, 9));
+    }
+
+    public static class StubAvailabilityDao implements AvailabilityDao {
+
+        protected Map<Long, SkuAvailability> availabilities = new HashMap<Long, SkuAvailability>();
+        protected int updateCount;
+
+        public void addAvailability(Long skuId, Integer quantityOnHand) {
+            SkuAvailability availability = new SkuAvailabilityImpl();
+            availability.setSkuId(skuId);
+            availability.setQuantityOnHand(quantityOnHand);
+            availabilities.put(skuId, availability);
+        }
+
+        @Override
+        public synchronized List<SkuAvailability> readSKUAvailability(List<Long> skuIds, boolean realTime) {
+            List<SkuAvailability> response = new ArrayList<SkuAvailability>();
+            for (Long skuId : skuIds) {
+                if (availabilities.containsKey(skuId)) {
+                    response.add(availabilities.get(skuId));
+                }
+            }
+            return response;
+        }
+
+        @Override
+        public List<SkuAvailability> readSKUAvailabilityForLocation(List<Long> skuIds, Long locationId, boolean realTime) {
+            return new ArrayList<SkuAvailability>();
+        }
+
+        @Override
+        public void save(SkuAvailability skuAvailability) {
+            availabilities.put(skuAvailability.getSkuId(), skuAvailability);
+        }
+
+        @Override
+        public synchronized int decrementQuantityOnHand(Long skuId, Long locationId, int quantity) {
+            SkuAvailability availability = availabilities.get(skuId);
+            if (availability.getQuantityOnHand() < quantity) {
+                return 0;
+            }
+            availability.setQuantityOnHand(availability.getQuantityOnHand() - quantity);
+            updateCount++;
+            return 1;
+        }
+
+    }
+
+    public static class StubTransactionManager extends AbstractPlatformTransactionManager {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.offer.service;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.core.offer.dao.OfferAuditDao;
+import org.broadleafcommerce.core.offer.domain.OfferAudit;
+import org.broadleafcommerce.core.offer.domain.OfferAuditImpl;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.broadleafcommerce.profile.core.domain.CustomerImpl;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OfferAuditServiceTest extends TestCase {
+
+    private OfferAuditServiceImpl offerAuditService;
+    private OfferAuditDao offerAuditDao;
+
+    @Override
+    protected void setUp() throws Exception {
+        offerAuditDao = EasyMock.createMock(OfferAuditDao.class);
+        offerAuditService = new OfferAuditServiceImpl();
+        offerAuditService.setOfferAuditDao(offerAuditDao);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testReadAndRecordUses() throws Exception {
+        final Map<Long, Long> stored = new HashMap<Long, Long>();
+        stored.put(1L, 2L);
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(EasyMock.eq(10L), (Collection<Long>) EasyMock.anyObject())).andAnswer(new IAnswer<Map<Long, Long>>() {
+            @Override
+            public Map<Long, Long> answer() throws Throwable {
+                Map<Long, Long> uses = new HashMap<Long, Long>();
+                for (Long offerId : (Collection<Long>) EasyMock.getCurrentArguments()[1]) {
+                    if (stored.containsKey(offerId)) {
+                        uses.put(offerId, stored.get(offerId));
+                    }
+                }
+                return uses;
+            }
+        }).times(2);
+        EasyMock.expect(offerAuditDao.create()).andAnswer(new IAnswer<OfferAudit>() {
+            @Override
+            public OfferAudit answer() throws Throwable {
+                return new OfferAuditImpl();
+            }
+        }).times(2);
+        offerAuditDao.saveAll((Collection<OfferAudit>) EasyMock.anyObject());
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(offerAuditDao);
+
+        Map<Long, Long> uses = offerAuditService.readUsesByCustomer(10L, Arrays.asList(1L, 2L));
+        assertEquals(Long.valueOf(2L), uses.get(1L));
+        assertEquals(Long.valueOf(0L), uses.get(2L));
+
+        //served from the cache
+        offerAuditService.readUsesByCustomer(10L, Arrays.asList(1L, 2L));
+        assertEquals(1, offerAuditService.getHitCount());
+
+        Customer customer = new CustomerImpl();
+        customer.setId(10L);
+        Order order = new OrderImpl();
+        order.setId(100L);
+        order.setCustomer(customer);
+        assertEquals(2, offerAuditService.recordUses(order, Arrays.asList(1L, 2L)).size());
+
+        //the cached counts are incremented rather than re-read
+        uses = offerAuditService.readUsesByCustomer(10L, Arrays.asList(1L, 2L));
+        assertEquals(Long.valueOf(3L), uses.get(1L));
+        assertEquals(Long.valueOf(1L), uses.get(2L));
+
+        //only the offer missing from the cache is counted
+        uses = offerAuditService.readUsesByCustomer(10L, Arrays.asList(1L, 3L));
+        assertEquals(Long.valueOf(3L), uses.get(1L));
+        assertEquals(Long.valueOf(0L), uses.get(3L));
+
+        EasyMock.verify(offerAuditDao);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testReadCurrentUsesBypassesCache() throws Exception {
+        Map<Long, Long> stored = new HashMap<Long, Long>();
+        stored.put(1L, 2L);
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(EasyMock.eq(10L), (Collection<Long>) EasyMock.anyObject())).andReturn(stored);
+        stored = new HashMap<Long, Long>();
+        stored.put(1L, 3L);
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(EasyMock.eq(10L), (Collection<Long>) EasyMock.anyObject())).andReturn(stored);
+        EasyMock.replay(offerAuditDao);
+
+        assertEquals(Long.valueOf(2L), offerAuditService.readUsesByCustomer(10L, Arrays.asList(1L)).get(1L));
+
+        //a use recorded on another node is seen even though the counts are cached here
+        Map<Long, Long> uses = offerAuditService.readCurrentUsesByCustomer(10L, Arrays.asList(1L, 2L));
+        assertEquals(Long.valueOf(3L), uses.get(1L));
+        assertEquals(Long.valueOf(0L), uses.get(2L));
+        assertEquals(Long.valueOf(0L), offerAuditService.readCurrentUsesByCustomer(null, Arrays.asList(1L)).get(1L));
+
+        EasyMock.verify(offerAuditDao);
+    }
+
+}
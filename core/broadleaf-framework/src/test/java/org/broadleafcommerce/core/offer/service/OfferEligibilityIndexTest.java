@@ -0,0 +1,139 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.offer.service;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.core.offer.dao.OfferDao;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferItemCriteria;
+import org.broadleafcommerce.core.offer.service.type.OfferDiscountType;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class OfferEligibilityIndexTest extends TestCase {
+
+    private OfferDataItemProvider dataProvider = new OfferDataItemProvider();
+    private OfferEligibilityIndexImpl index;
+    private Map<Long, Offer> offers = new HashMap<Long, Offer>();
+
+    @Override
+    protected void setUp() throws Exception {
+        addOffer(1L, dataProvider.createItemBasedOffer(null, "discreteOrderItem.sku.id == 1", OfferDiscountType.PERCENT_OFF).get(0));
+        addOffer(2L, dataProvider.createItemBasedOffer(null, "([5,6] contains discreteOrderItem.sku.id)", OfferDiscountType.PERCENT_OFF).get(0));
+        addOffer(3L, dataProvider.createItemBasedOffer(null, "discreteOrderItem.sku.id == 7 || discreteOrderItem.sku.name == \"test1\"", OfferDiscountType.PERCENT_OFF).get(0));
+        Offer futureOffer = dataProvider.createOrderBasedOffer(null, OfferDiscountType.PERCENT_OFF).get(0);
+        futureOffer.setStartDate(dataProvider.tomorrow());
+        addOffer(4L, futureOffer);
+
+        OfferDao offerDao = EasyMock.createMock(OfferDao.class);
+        EasyMock.expect(offerDao.readUnexpiredOffersByAutomaticDeliveryType()).andAnswer(new IAnswer<List<Offer>>() {
+            @Override
+            public List<Offer> answer() throws Throwable {
+                return new ArrayList<Offer>(offers.values());
+            }
+        }).anyTimes();
+        EasyMock.expect(offerDao.readOfferById(EasyMock.isA(Long.class))).andAnswer(new IAnswer<Offer>() {
+            @Override
+            public Offer answer() throws Throwable {
+                return offers.get(EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.expect(offerDao.readOffersByIds(EasyMock.<List<Long>>anyObject())).andAnswer(new IAnswer<List<Offer>>() {
+            @Override
+            public List<Offer> answer() throws Throwable {
+                List<Offer> response = new ArrayList<Offer>();
+                for (Object offerId : (List<?>) EasyMock.getCurrentArguments()[0]) {
+                    if (offers.containsKey(offerId)) {
+                        response.add(offers.get(offerId));
+                    }
+                }
+                return response;
+            }
+        }).anyTimes();
+        EasyMock.replay(offerDao);
+
+        index = new OfferEligibilityIndexImpl();
+        index.setOfferDao(offerDao);
+    }
+
+    public void testFindCandidateOffers() throws Exception {
+        Order order = dataProvider.createBasicOrder().getDelegate();
+        assertEquals(getIds(1L, 3L), getIds(index.findCandidateOffers(order)));
+        assertEquals(4, index.getIndexedOfferCount());
+        assertEquals(2, index.getUnrestrictedOfferCount());
+    }
+
+    public void testRefreshOffer() throws Exception {
+        Order order = dataProvider.createBasicOrder().getDelegate();
+        index.findCandidateOffers(order);
+
+        OfferItemCriteria criteria = offers.get(2L).getTargetItemCriteria().iterator().next();
+        criteria.setOrderItemMatchRule("discreteOrderItem.?sku.?id == 2 && discreteOrderItem.quantity > 1");
+        index.refreshOffer(2L);
+
+        assertEquals(getIds(1L, 2L, 3L), getIds(index.findCandidateOffers(order)));
+        assertEquals(1, index.getRebuildCount());
+        assertEquals(1, index.getOfferRefreshCount());
+    }
+
+    public void testParseRequirements() throws Exception {
+        assertEquals(1, index.parseRequirements("(discreteOrderItem.product.id == 10) && (discreteOrderItem.quantity > 1)").size());
+        assertEquals(1, index.parseRequirements("([10,11] contains discreteOrderItem.category.id.intValue())").size());
+        //negated or disjunctive comparisons do not require the referenced item
+        assertEquals(0, index.parseRequirements("!(discreteOrderItem.quantity > 1 && (discreteOrderItem.sku.id == 5))").size());
+        assertEquals(0, index.parseRequirements("!(discreteOrderItem.quantity > 1 && (discreteOrderItem.sku.id == 5) && discreteOrderItem.quantity < 10)").size());
+        assertEquals(0, index.parseRequirements("discreteOrderItem.quantity > 1 && !(discreteOrderItem.sku.id == 5)").size());
+        //only conjunctions are analyzed, at any depth
+        assertEquals(2, index.parseRequirements("(discreteOrderItem.product.id == 10 && ([5,6] contains discreteOrderItem.sku.id)) && discreteOrderItem.quantity != 1").size());
+        assertEquals(0, index.parseRequirements("(discreteOrderItem.sku.id == 5 && discreteOrderItem.quantity > 1").size());
+        assertEquals(0, index.parseRequirements("discreteOrderItem.sku.id == 5 || discreteOrderItem.sku.id == 6").size());
+        //operators inside string literals are ignored
+        assertEquals(1, index.parseRequirements("discreteOrderItem.sku.name == \"x || y\" && discreteOrderItem.sku.id == 5").size());
+    }
+
+    protected void addOffer(Long id, Offer offer) {
+        offer.setId(id);
+        offers.put(id, offer);
+    }
+
+    protected Set<Long> getIds(Long... ids) {
+        Set<Long> response = new HashSet<Long>();
+        for (Long id : ids) {
+            response.add(id);
+        }
+        return response;
+    }
+
+    protected Set<Long> getIds(List<Offer> offers) {
+        Set<Long> response = new HashSet<Long>();
+        for (Offer offer : offers) {
+            response.add(offer.getId());
+        }
+        return response;
+    }
+
+}
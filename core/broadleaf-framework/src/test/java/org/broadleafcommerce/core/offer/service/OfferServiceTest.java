@@ -19,6 +19,7 @@ package org.broadleafcommerce.core.offer.service;
 import junit.framework.TestCase;
 import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.core.offer.dao.CustomerOfferDao;
+import org.broadleafcommerce.core.offer.dao.OfferAuditDao;
 import org.broadleafcommerce.core.offer.dao.OfferCodeDao;
 import org.broadleafcommerce.core.offer.dao.OfferDao;
 import org.broadleafcommerce.core.offer.domain.CandidateItemOffer;
@@ -38,6 +39,7 @@ import org.broadleafcommerce.core.offer.service.processor.FulfillmentGroupOfferP
 import org.broadleafcommerce.core.offer.service.processor.FulfillmentGroupOfferProcessorImpl;
 import org.broadleafcommerce.core.offer.service.processor.ItemOfferProcessor;
 import org.broadleafcommerce.core.offer.service.processor.ItemOfferProcessorImpl;
+import org.broadleafcommerce.core.offer.service.processor.OfferRuleEngineImpl;
 import org.broadleafcommerce.core.offer.service.processor.OrderOfferProcessor;
 import org.broadleafcommerce.core.offer.service.processor.OrderOfferProcessorImpl;
 import org.broadleafcommerce.core.offer.service.type.OfferDiscountType;
@@ -58,7 +60,10 @@ import org.easymock.IAnswer;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 
@@ -106,6 +111,7 @@ public class OfferServiceTest extends TestCase {
         OrderOfferProcessor orderProcessor = new OrderOfferProcessorImpl();
         orderProcessor.setOfferDao(offerDaoMock);
         orderProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        orderProcessor.setOfferRuleEngine(new OfferRuleEngineImpl());
         orderProcessor.setOrderItemMergeService(orderItemMergeService);
         offerService.setOrderOfferProcessor(orderProcessor);
         offerService.setOrderItemMergeService(orderItemMergeService);
@@ -114,11 +120,13 @@ public class OfferServiceTest extends TestCase {
         itemProcessor.setOfferDao(offerDaoMock);
         itemProcessor.setOrderItemMergeService(orderItemMergeService);
         itemProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        itemProcessor.setOfferRuleEngine(new OfferRuleEngineImpl());
         offerService.setItemOfferProcessor(itemProcessor);
 
         FulfillmentGroupOfferProcessor fgProcessor = new FulfillmentGroupOfferProcessorImpl();
         fgProcessor.setOfferDao(offerDaoMock);
         fgProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        fgProcessor.setOfferRuleEngine(new OfferRuleEngineImpl());
         fgProcessor.setOrderItemMergeService(orderItemMergeService);
         offerService.setFulfillmentGroupOfferProcessor(fgProcessor);
         offerService.setPromotableItemFactory(new PromotableItemFactoryImpl());
@@ -423,6 +431,35 @@ public class OfferServiceTest extends TestCase {
         verify();
     }
 
+    @SuppressWarnings("unchecked")
+    public void testBuildOfferListForOrderRemovesUsedUpOffers() throws Exception {
+        List<Offer> automaticOffers = dataProvider.createCustomerBasedOffer(null, dataProvider.yesterday(), dataProvider.tomorrow(), OfferDiscountType.PERCENT_OFF);
+        automaticOffers.get(0).setId(1L);
+        automaticOffers.get(0).setMaxUsesPerCustomer(1L);
+        EasyMock.expect(customerOfferDaoMock.readCustomerOffersByCustomer(EasyMock.isA(Customer.class))).andReturn(new ArrayList<CustomerOffer>());
+        EasyMock.expect(offerDaoMock.readOffersByAutomaticDeliveryType()).andReturn(automaticOffers);
+
+        Map<Long, Long> uses = new HashMap<Long, Long>();
+        uses.put(1L, 1L);
+        OfferAuditDao offerAuditDaoMock = EasyMock.createMock(OfferAuditDao.class);
+        EasyMock.expect(offerAuditDaoMock.countUsesByCustomer(EasyMock.eq(10L), (Collection<Long>) EasyMock.anyObject())).andReturn(uses);
+        OfferAuditServiceImpl offerAuditService = new OfferAuditServiceImpl();
+        offerAuditService.setOfferAuditDao(offerAuditDaoMock);
+        offerService.setOfferAuditService(offerAuditService);
+
+        replay();
+        EasyMock.replay(offerAuditDaoMock);
+
+        Order order = dataProvider.createBasicOrder().getDelegate();
+        order.getCustomer().setId(10L);
+        assertTrue(offerService.buildOfferListForOrder(order).isEmpty());
+        //the uses read while pricing the cart are cached
+        assertTrue(offerService.verifyMaxCustomerUsageThreshold(order.getCustomer(), automaticOffers.get(0)) == false);
+
+        verify();
+        EasyMock.verify(offerAuditDaoMock);
+    }
+
     public class CandidateItemOfferAnswer implements IAnswer<CandidateItemOffer> {
 
         @Override
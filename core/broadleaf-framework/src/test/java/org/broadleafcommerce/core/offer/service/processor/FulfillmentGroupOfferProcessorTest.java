@@ -101,16 +101,19 @@ public class FulfillmentGroupOfferProcessorTest extends TestCase {
         fgProcessor = new FulfillmentGroupOfferProcessorImpl();
         fgProcessor.setOfferDao(offerDaoMock);
         fgProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        fgProcessor.setOfferRuleEngine(new OfferRuleEngineImpl());
         fgProcessor.setOrderItemMergeService(orderItemMergeService);
 
         OrderOfferProcessor orderProcessor = new OrderOfferProcessorImpl();
         orderProcessor.setOfferDao(offerDaoMock);
         orderProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        orderProcessor.setOfferRuleEngine(new OfferRuleEngineImpl());
         orderProcessor.setOrderItemMergeService(orderItemMergeService);
 
         ItemOfferProcessor itemProcessor = new ItemOfferProcessorImpl();
         itemProcessor.setOfferDao(offerDaoMock);
         itemProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        itemProcessor.setOfferRuleEngine(new OfferRuleEngineImpl());
         itemProcessor.setOrderItemMergeService(orderItemMergeService);
 
         offerService.setCustomerOfferDao(customerOfferDaoMock);
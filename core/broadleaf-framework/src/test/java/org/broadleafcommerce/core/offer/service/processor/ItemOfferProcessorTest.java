@@ -90,6 +90,7 @@ public class ItemOfferProcessorTest extends TestCase {
         itemProcessor = new ItemOfferProcessorImpl();
         itemProcessor.setOfferDao(offerDaoMock);
         itemProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        itemProcessor.setOfferRuleEngine(new OfferRuleEngineImpl());
         itemProcessor.setOrderItemMergeService(orderItemMergeService);
     }
 
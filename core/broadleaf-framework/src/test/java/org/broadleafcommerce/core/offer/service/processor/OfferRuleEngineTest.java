@@ -0,0 +1,149 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.offer.service.processor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.common.cache.invalidation.LoopbackCacheInvalidationBus;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.service.OfferDataItemProvider;
+import org.broadleafcommerce.core.offer.service.type.OfferDiscountType;
+
+public class OfferRuleEngineTest extends TestCase {
+
+    private OfferRuleEngineImpl ruleEngine;
+    private OfferDataItemProvider dataProvider = new OfferDataItemProvider();
+
+    @Override
+    protected void setUp() throws Exception {
+        ruleEngine = new OfferRuleEngineImpl();
+    }
+
+    public void testCompileOfferRules() throws Exception {
+        List<Offer> offers = dataProvider.createOrderBasedOfferWithItemCriteria("order.subTotal.getAmount()>20", OfferDiscountType.PERCENT_OFF, "([MVEL.eval(\"toUpperCase()\",\"test1\"),MVEL.eval(\"toUpperCase()\",\"test2\")] contains MVEL.eval(\"toUpperCase()\", discreteOrderItem.?category.name))");
+        Offer offer = offers.get(0);
+        offer.setId(1L);
+        ruleEngine.compileOfferRules(offer);
+
+        assertEquals(2, ruleEngine.getCachedExpressionCount());
+        assertEquals(1, ruleEngine.getCompiledOfferCount());
+        assertEquals(2, ruleEngine.getCompileCount());
+
+        //compiling the same offer again is a no-op
+        ruleEngine.compileOfferRules(offer);
+        assertEquals(2, ruleEngine.getCompileCount());
+
+        ruleEngine.invalidateOffer(offer);
+        assertEquals(0, ruleEngine.getCachedExpressionCount());
+        assertEquals(0, ruleEngine.getCompiledOfferCount());
+    }
+
+    public void testSharedExpressionsAreReferenceCounted() throws Exception {
+        Offer first = createOffer(1L, "order.subTotal.getAmount()>20", "discreteOrderItem.quantity > 1");
+        Offer second = createOffer(2L, "order.subTotal.getAmount()>20", "discreteOrderItem.quantity > 2");
+        ruleEngine.compileOfferRules(first);
+        ruleEngine.compileOfferRules(second);
+        assertEquals(3, ruleEngine.getCachedExpressionCount());
+
+        //the order rule is still used by the second offer
+        ruleEngine.invalidateOffer(first);
+        assertEquals(2, ruleEngine.getCachedExpressionCount());
+        assertTrue(ruleEngine.compiledExpressions.containsKey("order.subTotal.getAmount()>20"));
+        assertFalse(ruleEngine.compiledExpressions.containsKey("discreteOrderItem.quantity > 1"));
+
+        //an edited offer releases the rules it no longer uses once it is invalidated
+        second.getQualifyingItemCriteria().iterator().next().setOrderItemMatchRule("discreteOrderItem.quantity > 3");
+        ruleEngine.invalidateOffer(second);
+        ruleEngine.compileOfferRules(second);
+        assertEquals(2, ruleEngine.getCachedExpressionCount());
+        assertFalse(ruleEngine.compiledExpressions.containsKey("discreteOrderItem.quantity > 2"));
+        assertTrue(ruleEngine.compiledExpressions.containsKey("discreteOrderItem.quantity > 3"));
+    }
+
+    public void testOfferRulesDisplaceAdHocExpressions() throws Exception {
+        ruleEngine.setMaxCachedExpressions(2);
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("value", 5);
+        assertTrue(ruleEngine.execute("value > 1", vars));
+        assertTrue(ruleEngine.execute("value > 2", vars));
+        assertEquals(2, ruleEngine.getCachedExpressionCount());
+
+        ruleEngine.compileOfferRules(createOffer(1L, "order.subTotal.getAmount()>20", "discreteOrderItem.quantity > 1"));
+        assertEquals(2, ruleEngine.getCachedExpressionCount());
+        assertTrue(ruleEngine.compiledExpressions.containsKey("order.subTotal.getAmount()>20"));
+        assertTrue(ruleEngine.compiledExpressions.containsKey("discreteOrderItem.quantity > 1"));
+    }
+
+    public void testInvalidationReachesOtherNodes() throws Exception {
+        LoopbackCacheInvalidationBus localBus = new LoopbackCacheInvalidationBus();
+        LoopbackCacheInvalidationBus remoteBus = new LoopbackCacheInvalidationBus();
+        localBus.addPeer(remoteBus);
+        ruleEngine.cacheInvalidationBus = localBus;
+        ruleEngine.init();
+        OfferRuleEngineImpl remoteRuleEngine = new OfferRuleEngineImpl();
+        remoteRuleEngine.cacheInvalidationBus = remoteBus;
+        remoteRuleEngine.init();
+
+        Offer offer = createOffer(1L, "order.subTotal.getAmount()>20", "discreteOrderItem.quantity > 1");
+        ruleEngine.compileOfferRules(offer);
+        remoteRuleEngine.compileOfferRules(offer);
+
+        assertEquals(1, remoteRuleEngine.getCompiledOfferCount());
+
+        //without a flush interval, the bus sends the invalidation to its peers straight away
+        ruleEngine.invalidateOffer(offer);
+        assertEquals(0, ruleEngine.getCompiledOfferCount());
+        assertEquals(0, remoteRuleEngine.getCompiledOfferCount());
+        assertEquals(0, remoteRuleEngine.getCachedExpressionCount());
+    }
+
+    public void testExecute() throws Exception {
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("value", 5);
+
+        assertTrue(ruleEngine.execute("value > 4", vars));
+        assertEquals(1, ruleEngine.getMissCount());
+        assertTrue(ruleEngine.execute("value > 4", vars));
+        assertEquals(1, ruleEngine.getHitCount());
+        assertEquals(1, ruleEngine.getCompileCount());
+
+        //a bad expression evaluates to false rather than propagating the failure
+        assertFalse(ruleEngine.execute("value >", vars));
+        assertEquals(1, ruleEngine.getCompileFailureCount());
+    }
+
+    public void testMaxCachedExpressions() throws Exception {
+        ruleEngine.setMaxCachedExpressions(1);
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("value", 5);
+
+        assertTrue(ruleEngine.execute("value > 1", vars));
+        assertTrue(ruleEngine.execute("value > 2", vars));
+        assertEquals(1, ruleEngine.getCachedExpressionCount());
+    }
+
+    protected Offer createOffer(Long id, String orderRule, String orderItemMatchRule) {
+        Offer offer = dataProvider.createOrderBasedOfferWithItemCriteria(orderRule, OfferDiscountType.PERCENT_OFF, orderItemMatchRule).get(0);
+        offer.setId(id);
+        return offer;
+    }
+
+}
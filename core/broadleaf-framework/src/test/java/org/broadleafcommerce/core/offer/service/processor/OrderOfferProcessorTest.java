@@ -50,6 +50,7 @@ public class OrderOfferProcessorTest extends TestCase {
         orderProcessor = new OrderOfferProcessorImpl();
         orderProcessor.setOfferDao(offerDaoMock);
         orderProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        orderProcessor.setOfferRuleEngine(new OfferRuleEngineImpl());
     }
     
     public void replay() {
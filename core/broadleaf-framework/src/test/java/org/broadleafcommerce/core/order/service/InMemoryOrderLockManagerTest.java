@@ -0,0 +1,89 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.order.service;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InMemoryOrderLockManagerTest extends TestCase {
+
+    public void testSerializesWorkOnTheSameOrder() throws Exception {
+        final InMemoryOrderLockManager lockManager = new InMemoryOrderLockManager();
+        final Order order = new OrderImpl();
+        order.setId(1L);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Object lock = lockManager.acquireLock(order);
+                    try {
+                        maxActive.set(Math.max(maxActive.get(), active.incrementAndGet()));
+                        Thread.sleep(20);
+                        active.decrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        lockManager.releaseLock(lock);
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxActive.get());
+        assertEquals(4, lockManager.getAcquiredCount());
+        assertEquals(0, lockManager.getActiveLockCount());
+    }
+
+    public void testTimeoutAndReentrancy() throws Exception {
+        final InMemoryOrderLockManager lockManager = new InMemoryOrderLockManager();
+        lockManager.setLockTimeout(10);
+        final Order order = new OrderImpl();
+        order.setId(1L);
+        assertNull(lockManager.acquireLock(new OrderImpl()));
+
+        Object lock = lockManager.acquireLock(order);
+        Object nested = lockManager.acquireLock(order);
+        assertNotNull(nested);
+        lockManager.releaseLock(nested);
+
+        final Object[] other = new Object[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                other[0] = lockManager.acquireLock(order);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNull(other[0]);
+        assertEquals(1, lockManager.getTimeoutCount());
+
+        lockManager.releaseLock(lock);
+        assertEquals(0, lockManager.getActiveLockCount());
+    }
+
+}
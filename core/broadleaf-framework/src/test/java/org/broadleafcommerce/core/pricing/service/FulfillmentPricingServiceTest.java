@@ -0,0 +1,112 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.pricing.service;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.vendor.service.exception.FulfillmentPriceException;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.core.order.fulfillment.domain.FixedPriceFulfillmentOptionImpl;
+import org.broadleafcommerce.core.pricing.service.fulfillment.provider.FulfillmentEstimationResponse;
+import org.broadleafcommerce.core.pricing.service.fulfillment.provider.FulfillmentPricingProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class FulfillmentPricingServiceTest extends TestCase {
+
+    public void testCalculateCostForFulfillmentGroupsConcurrently() throws Exception {
+        FulfillmentPricingServiceImpl service = new FulfillmentPricingServiceImpl();
+        service.setProviders(Collections.<FulfillmentPricingProvider>singletonList(new IdPricingProvider()));
+        service.setParallelism(3);
+        service.setParallelThreshold(2);
+        service.init();
+        try {
+            Order order = new OrderImpl();
+            List<FulfillmentGroup> fulfillmentGroups = new ArrayList<FulfillmentGroup>();
+            for (long i = 1; i <= 10; i++) {
+                FulfillmentGroup fulfillmentGroup = new FulfillmentGroupImpl();
+                fulfillmentGroup.setId(i);
+                fulfillmentGroup.setOrder(order);
+                fulfillmentGroup.setFulfillmentOption(new FixedPriceFulfillmentOptionImpl());
+                fulfillmentGroups.add(fulfillmentGroup);
+            }
+
+            List<FulfillmentGroup> results = service.calculateCostForFulfillmentGroups(fulfillmentGroups);
+            assertEquals(10, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertSame(fulfillmentGroups.get(i), results.get(i));
+                assertEquals(new Money(i + 1), results.get(i).getShippingPrice());
+            }
+            assertEquals(1, service.getProviderLatencies().size());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    public void testProviderFailure() throws Exception {
+        FulfillmentPricingServiceImpl service = new FulfillmentPricingServiceImpl();
+        service.setProviders(Collections.<FulfillmentPricingProvider>singletonList(new IdPricingProvider()));
+        service.setParallelism(2);
+        service.setParallelThreshold(1);
+        service.init();
+        try {
+            FulfillmentGroup fulfillmentGroup = new FulfillmentGroupImpl();
+            fulfillmentGroup.setFulfillmentOption(new FixedPriceFulfillmentOptionImpl());
+            service.calculateCostForFulfillmentGroups(Collections.singletonList(fulfillmentGroup));
+            fail();
+        } catch (FulfillmentPriceException e) {
+            //expected, the group has no id
+        } finally {
+            service.destroy();
+        }
+    }
+
+    /**
+     * Prices each group at its id, and fails for groups without an id
+     */
+    private static class IdPricingProvider implements FulfillmentPricingProvider {
+
+        @Override
+        public FulfillmentGroup calculateCostForFulfillmentGroup(FulfillmentGroup fulfillmentGroup) throws FulfillmentPriceException {
+            if (fulfillmentGroup.getId() == null) {
+                throw new FulfillmentPriceException("No id");
+            }
+            fulfillmentGroup.setShippingPrice(new Money(fulfillmentGroup.getId()));
+            return fulfillmentGroup;
+        }
+
+        @Override
+        public boolean canCalculateCostForFulfillmentGroup(FulfillmentGroup fulfillmentGroup, FulfillmentOption option) {
+            return true;
+        }
+
+        @Override
+        public FulfillmentEstimationResponse estimateCostForFulfillmentGroup(FulfillmentGroup fulfillmentGroup, Set<FulfillmentOption> options) throws FulfillmentPriceException {
+            return null;
+        }
+
+    }
+
+}
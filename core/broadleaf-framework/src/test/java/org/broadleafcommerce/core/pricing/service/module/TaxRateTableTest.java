@@ -0,0 +1,106 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.pricing.service.module;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItemImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItemImpl;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.profile.core.domain.Address;
+import org.broadleafcommerce.profile.core.domain.AddressImpl;
+import org.broadleafcommerce.profile.core.domain.State;
+import org.broadleafcommerce.profile.core.domain.StateImpl;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TaxRateTableTest extends TestCase {
+
+    public void testResolveRate() throws Exception {
+        Map<String, Double> stateRates = new HashMap<String, Double>();
+        stateRates.put("TX", 0.0625);
+        TaxRateTable table = new TaxRateTable.Builder()
+            .addRates(TaxRateTable.Jurisdiction.STATE, stateRates)
+            .load(new StringReader("# rates\nPOSTAL_CODE,75240,0.0825\ncity,Dallas,0.08\n\nDEFAULT,,0.05\n"))
+            .build();
+        assertEquals(3, table.size());
+
+        State state = new StateImpl();
+        state.setAbbreviation("tx");
+        state.setName("Texas");
+        Address address = new AddressImpl();
+        address.setState(state);
+        address.setCity("Austin");
+        assertEquals(new BigDecimal("0.0625"), table.resolveRate(address));
+
+        address.setCity("DALLAS");
+        assertEquals(new BigDecimal("0.08"), table.resolveRate(address));
+
+        address.setPostalCode("75240");
+        assertEquals(new BigDecimal("0.0825"), table.resolveRate(address));
+
+        assertEquals(new BigDecimal("0.05"), table.resolveRate(new AddressImpl()));
+        assertEquals(new BigDecimal("0.05"), table.resolveRate(null));
+    }
+
+    public void testSimpleTaxModuleUsesRateHooks() throws Exception {
+        Order order = new OrderImpl();
+        DiscreteOrderItem item = new DiscreteOrderItemImpl();
+        item.setOrder(order);
+        item.setPrice(new Money(10D));
+        FulfillmentGroup fulfillmentGroup = new FulfillmentGroupImpl();
+        fulfillmentGroup.setOrder(order);
+        fulfillmentGroup.setShippingPrice(new Money(5D));
+        fulfillmentGroup.setIsShippingPriceTaxable(true);
+        FulfillmentGroupItem fgItem = new FulfillmentGroupItemImpl();
+        fgItem.setOrderItem(item);
+        fgItem.setQuantity(2);
+        fgItem.setFulfillmentGroup(fulfillmentGroup);
+        fulfillmentGroup.getFulfillmentGroupItems().add(fgItem);
+
+        SimpleTaxModule taxModule = new SimpleTaxModule() {
+            @Override
+            protected BigDecimal resolveItemTaxRate(Address address) {
+                return new BigDecimal("0.1");
+            }
+        };
+        taxModule.setDefaultFulfillmentGroupTaxRate(0.2);
+        taxModule.calculateTaxForFulfillmentGroup(fulfillmentGroup);
+
+        assertEquals(new Money(2D), fgItem.getTaxes().get(0).getAmount());
+        assertEquals(new Money(1D), fulfillmentGroup.getTaxes().get(0).getAmount());
+    }
+
+    public void testLoadMalformedFile() throws Exception {
+        try {
+            new TaxRateTable.Builder().load(new StringReader("STATE,TX,six percent"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("line 1"));
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.pricing.service.workflow;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItemImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItemImpl;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.core.order.service.call.OrderItemRequestDTO;
+import org.broadleafcommerce.core.order.service.workflow.CartOperationContext;
+import org.broadleafcommerce.core.order.service.workflow.CartOperationRequest;
+import org.broadleafcommerce.core.order.service.workflow.add.AddFulfillmentGroupItemActivity;
+import org.broadleafcommerce.core.order.service.workflow.remove.RemoveFulfillmentGroupItemActivity;
+import org.broadleafcommerce.core.order.service.workflow.update.UpdateFulfillmentGroupItemActivity;
+import org.broadleafcommerce.core.order.strategy.NullFulfillmentGroupItemStrategyImpl;
+import org.broadleafcommerce.core.pricing.service.exception.TaxException;
+import org.broadleafcommerce.core.pricing.service.module.FulfillmentGroupTaxModule;
+import org.broadleafcommerce.core.workflow.Activity;
+import org.broadleafcommerce.core.workflow.BaseActivity;
+import org.broadleafcommerce.core.workflow.ConditionalActivity;
+import org.broadleafcommerce.core.workflow.ProcessContext;
+import org.broadleafcommerce.core.workflow.SequenceProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PricingChangeSetTest extends TestCase {
+
+    private Order order;
+    private FulfillmentGroup fg1;
+    private FulfillmentGroup fg2;
+    private DiscreteOrderItem item1;
+
+    @Override
+    protected void setUp() throws Exception {
+        order = new OrderImpl();
+        item1 = createItem(10L, 5D);
+        fg1 = createFulfillmentGroup(1L, item1);
+        fg2 = createFulfillmentGroup(2L, createItem(20L, 7D));
+        fg1.setMerchandiseTotal(new Money(5D));
+        fg2.setMerchandiseTotal(new Money(7D));
+    }
+
+    public void testMarkOrderItemChanged() throws Exception {
+        PricingChangeSet changeSet = new PricingChangeSet();
+        assertTrue(changeSet.isEmpty());
+
+        changeSet.markOrderItemChanged(order, 20L);
+        assertTrue(changeSet.isOrderItemsChanged());
+        assertTrue(changeSet.isFulfillmentGroupChanged(fg2));
+        assertFalse(changeSet.isFulfillmentGroupChanged(fg1));
+        assertFalse(changeSet.isFull());
+
+        //an item that cannot be located reprices every fulfillment group
+        changeSet.markOrderItemChanged(order, 99L);
+        assertTrue(changeSet.isFulfillmentGroupChanged(fg1));
+        assertTrue(PricingChangeSet.full().isFull());
+    }
+
+    public void testUnchangedActivitiesAreSkipped() throws Exception {
+        RecordingActivity recorder = new RecordingActivity();
+        SequenceProcessor processor = createProcessor(recorder);
+
+        PricingContext context = (PricingContext) processor.doActivities(new PricingRequest(order, new PricingChangeSet()));
+        assertEquals(0, recorder.executions);
+        assertFalse(context.getChangeSet().isAnyFulfillmentGroupChanged());
+
+        //a new merchandise total marks only the affected fulfillment group
+        item1.setPrice(new Money(6D));
+        context = (PricingContext) processor.doActivities(new PricingRequest(order, new PricingChangeSet()));
+        assertEquals(1, recorder.executions);
+        assertTrue(context.getChangeSet().isFulfillmentGroupChanged(fg1));
+        assertFalse(context.getChangeSet().isFulfillmentGroupChanged(fg2));
+
+        //seeding with the order alone prices everything
+        context = (PricingContext) processor.doActivities(order);
+        assertEquals(2, recorder.executions);
+        assertTrue(context.getChangeSet().isFull());
+    }
+
+    public void testTaxActivityRetaxesChangedFulfillmentGroups() throws Exception {
+        RecordingTaxModule taxModule = new RecordingTaxModule();
+        TaxActivity taxActivity = new TaxActivity();
+        taxActivity.setTaxModule(taxModule);
+        SequenceProcessor processor = createProcessor(taxActivity);
+
+        processor.doActivities(new PricingRequest(order, new PricingChangeSet()));
+        assertEquals(0, taxModule.orderCalculations);
+        assertTrue(taxModule.taxedFulfillmentGroups.isEmpty());
+
+        //only the fulfillment group whose merchandise total changed is re-taxed
+        item1.setPrice(new Money(6D));
+        processor.doActivities(new PricingRequest(order, new PricingChangeSet()));
+        assertEquals(0, taxModule.orderCalculations);
+        assertEquals(1, taxModule.taxedFulfillmentGroups.size());
+        assertSame(fg1, taxModule.taxedFulfillmentGroups.get(0));
+
+        //seeding with the order alone taxes the entire order
+        processor.doActivities(order);
+        assertEquals(1, taxModule.orderCalculations);
+        assertEquals(1, taxModule.taxedFulfillmentGroups.size());
+    }
+
+    public void testCartActivitiesMarkChangedOrderItems() throws Exception {
+        final MovingFulfillmentGroupItemStrategy strategy = new MovingFulfillmentGroupItemStrategy(fg2);
+
+        CartOperationRequest request = new CartOperationRequest(order, new OrderItemRequestDTO(), true);
+        request.setAddedOrderItem(item1);
+        executeCartActivity(new AddFulfillmentGroupItemActivity() {{
+            fgItemStrategy = strategy;
+        }}, request);
+        assertTrue(request.getPricingChangeSet().isFulfillmentGroupChanged(fg1));
+        assertFalse(request.getPricingChangeSet().isFulfillmentGroupChanged(fg2));
+
+        //an item moved between fulfillment groups reprices both the old and the new group
+        request = new CartOperationRequest(order, new OrderItemRequestDTO(), true);
+        request.setAddedOrderItem(item1);
+        executeCartActivity(new UpdateFulfillmentGroupItemActivity() {{
+            fgItemStrategy = strategy;
+        }}, request);
+        assertTrue(fg1.getFulfillmentGroupItems().isEmpty());
+        assertTrue(request.getPricingChangeSet().isFulfillmentGroupChanged(fg1));
+        assertTrue(request.getPricingChangeSet().isFulfillmentGroupChanged(fg2));
+        assertFalse(request.getPricingChangeSet().isAllFulfillmentGroupsChanged());
+
+        //a removed item is marked before its fulfillment group item is removed
+        request = new CartOperationRequest(order, new OrderItemRequestDTO().setOrderItemId(10L), true);
+        executeCartActivity(new RemoveFulfillmentGroupItemActivity() {{
+            fgItemStrategy = strategy;
+        }}, request);
+        assertTrue(request.getPricingChangeSet().isFulfillmentGroupChanged(fg2));
+        assertFalse(request.getPricingChangeSet().isFulfillmentGroupChanged(fg1));
+        assertFalse(request.getPricingChangeSet().isAllFulfillmentGroupsChanged());
+    }
+
+    protected void executeCartActivity(Activity activity, CartOperationRequest request) throws Exception {
+        CartOperationContext context = new CartOperationContext();
+        context.setSeedData(request);
+        activity.execute(context);
+    }
+
+    protected SequenceProcessor createProcessor(Activity activity) {
+        List<Activity> activities = new ArrayList<Activity>();
+        activities.add(new FulfillmentGroupMerchandiseTotalActivity());
+        activities.add(activity);
+        SequenceProcessor processor = new SequenceProcessor();
+        processor.setProcessContextFactory(new PricingProcessContextFactory());
+        processor.setActivities(activities);
+        return processor;
+    }
+
+    protected DiscreteOrderItem createItem(Long id, double price) {
+        DiscreteOrderItem item = new DiscreteOrderItemImpl();
+        item.setId(id);
+        item.setOrder(order);
+        item.setQuantity(1);
+        item.setPrice(new Money(price));
+        return item;
+    }
+
+    protected FulfillmentGroup createFulfillmentGroup(Long id, DiscreteOrderItem item) {
+        FulfillmentGroup fulfillmentGroup = new FulfillmentGroupImpl();
+        fulfillmentGroup.setId(id);
+        fulfillmentGroup.setOrder(order);
+        FulfillmentGroupItem fgItem = new FulfillmentGroupItemImpl();
+        fgItem.setOrderItem(item);
+        fgItem.setFulfillmentGroup(fulfillmentGroup);
+        fulfillmentGroup.getFulfillmentGroupItems().add(fgItem);
+        order.getFulfillmentGroups().add(fulfillmentGroup);
+        return fulfillmentGroup;
+    }
+
+    public static class RecordingActivity extends BaseActivity implements ConditionalActivity {
+
+        protected int executions;
+
+        @Override
+        public boolean shouldExecute(ProcessContext context) {
+            return ((PricingContext) context).getChangeSet().isAnyFulfillmentGroupChanged();
+        }
+
+        public ProcessContext execute(ProcessContext context) throws Exception {
+            executions++;
+            return context;
+        }
+
+    }
+
+    public static class RecordingTaxModule implements FulfillmentGroupTaxModule {
+
+        protected int orderCalculations;
+        protected List<FulfillmentGroup> taxedFulfillmentGroups = new ArrayList<FulfillmentGroup>();
+
+        public String getName() {
+            return "recording";
+        }
+
+        public void setName(String name) {
+        }
+
+        public Order calculateTaxForOrder(Order order) throws TaxException {
+            orderCalculations++;
+            return order;
+        }
+
+        public FulfillmentGroup calculateTaxForFulfillmentGroup(FulfillmentGroup fulfillmentGroup) throws TaxException {
+            taxedFulfillmentGroups.add(fulfillmentGroup);
+            return fulfillmentGroup;
+        }
+
+    }
+
+    /**
+     * Moves an updated item to the given fulfillment group and removes the fulfillment group items of a removed
+     * item, without touching the database
+     */
+    public static class MovingFulfillmentGroupItemStrategy extends NullFulfillmentGroupItemStrategyImpl {
+
+        protected FulfillmentGroup target;
+
+        public MovingFulfillmentGroupItemStrategy(FulfillmentGroup target) {
+            this.target = target;
+        }
+
+        @Override
+        public CartOperationRequest onItemUpdated(CartOperationRequest request) {
+            FulfillmentGroupItem fgItem = removeFulfillmentGroupItem(request.getOrder(), request.getAddedOrderItem().getId());
+            fgItem.setFulfillmentGroup(target);
+            target.getFulfillmentGroupItems().add(fgItem);
+            return request;
+        }
+
+        @Override
+        public CartOperationRequest onItemRemoved(CartOperationRequest request) {
+            removeFulfillmentGroupItem(request.getOrder(), request.getItemRequest().getOrderItemId());
+            return request;
+        }
+
+        protected FulfillmentGroupItem removeFulfillmentGroupItem(Order order, Long orderItemId) {
+            for (FulfillmentGroup fulfillmentGroup : order.getFulfillmentGroups()) {
+                for (FulfillmentGroupItem fgItem : fulfillmentGroup.getFulfillmentGroupItems()) {
+                    if (orderItemId.equals(fgItem.getOrderItem().getId())) {
+                        fulfillmentGroup.getFulfillmentGroupItems().remove(fgItem);
+                        return fgItem;
+                    }
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
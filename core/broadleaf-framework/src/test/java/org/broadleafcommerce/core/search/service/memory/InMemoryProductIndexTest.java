@@ -0,0 +1,184 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.search.service.memory;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.core.catalog.domain.CategoryTreeRow;
+import org.broadleafcommerce.core.catalog.service.CategoryTree;
+import org.broadleafcommerce.core.search.dao.SolrIndexDao;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.FieldImpl;
+import org.broadleafcommerce.core.search.domain.ProductSearchCriteria;
+import org.broadleafcommerce.core.search.domain.ProductSearchResult;
+import org.broadleafcommerce.core.search.domain.SearchFacet;
+import org.broadleafcommerce.core.search.domain.SearchFacetDTO;
+import org.broadleafcommerce.core.search.domain.SearchFacetImpl;
+import org.broadleafcommerce.core.search.domain.SearchFacetResultDTO;
+import org.broadleafcommerce.core.search.domain.solr.ProductIndexRow;
+import org.broadleafcommerce.core.search.service.solr.SolrIndexCategoryCache;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class InMemoryProductIndexTest extends TestCase {
+
+    private InMemoryProductIndex index;
+    private SolrIndexCategoryCache categoryCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        // category 2 is a child of category 1
+        CategoryTreeRow child = new CategoryTreeRow(2L);
+        child.setDefaultParentId(1L);
+        CategoryTree categoryTree = new CategoryTree(Arrays.asList(new CategoryTreeRow(1L), child));
+
+        categoryCache = new SolrIndexCategoryCache(categoryTree, new SolrIndexDao() {
+            @Override
+            public boolean isProjectable(Field field) {
+                return true;
+            }
+
+            @Override
+            public List<ProductIndexRow> readProductIndexRows(List<Long> productIds, List<Field> fields) {
+                return new ArrayList<ProductIndexRow>();
+            }
+
+            @Override
+            public List<Long> readProductIdsByCategory(Long categoryId) {
+                return categoryId == 1L ? Arrays.asList(3L, 1L) : Collections.<Long>emptyList();
+            }
+        });
+
+        index = new InMemoryProductIndex(Arrays.asList(
+                createField("name", "name", true),
+                createField("color", "productAttributes.color", false),
+                createField("price", "defaultSku.retailPrice", false)));
+        index.add(createRow(1L, "Hot Sauce", "red", "4.99", 1L), categoryCache);
+        index.add(createRow(2L, "Mild Sauce", "green", "2.99", 2L), categoryCache);
+        index.add(createRow(3L, "Hot Salsa", "red", "9.99", 1L), categoryCache);
+    }
+
+    public void testCategoriesIncludeDescendants() throws Exception {
+        assertEquals(3, index.matchCategory(1L, false).cardinality());
+        assertEquals(2, index.matchCategory(1L, true).cardinality());
+        assertEquals(1, index.matchCategory(2L, false).cardinality());
+    }
+
+    public void testFilterAndFacetCounts() throws Exception {
+        BitSet docs = index.matchAll();
+        assertEquals(2, index.matchValues("productAttributes.color", new String[] { "red" }).cardinality());
+        assertEquals(2, index.matchValues("defaultSku.retailPrice", new String[] { "range[0:5]" }).cardinality());
+        assertEquals(1, index.matchValues("defaultSku.retailPrice", new String[] { "range[5:null]" }).cardinality());
+        //malformed ranges are ignored rather than failing the search
+        assertEquals(0, index.matchValues("defaultSku.retailPrice", new String[] { "range[5", "range[a:b]", "range[]" }).cardinality());
+        assertEquals(1, index.matchValues("defaultSku.retailPrice", new String[] { "range[a:b]", "range[5:null]" }).cardinality());
+        assertEquals(1, index.countRange("defaultSku.retailPrice", docs, new BigDecimal("5"), null));
+
+        Map<Object, Integer> counts = index.countValues("productAttributes.color", docs);
+        assertEquals(Arrays.<Object>asList("green", "red"), new ArrayList<Object>(counts.keySet()));
+        assertEquals(Integer.valueOf(2), counts.get("red"));
+
+        assertEquals(2, index.matchText("hot").cardinality());
+        assertEquals(1, index.matchText("HOT sauce").cardinality());
+    }
+
+    public void testActiveFacetsExcludeOnlyTheirOwnFilter() throws Exception {
+        SearchFacetDTO colorFacet = createFacet(index.getField("color"));
+        SearchFacetDTO priceFacet = createFacet(index.getField("price"));
+        Map<String, String[]> filters = new HashMap<String, String[]>();
+        filters.put("color", new String[] { "red" });
+        filters.put("price", new String[] { "range[0:5]" });
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setFilterCriteria(filters);
+        criteria.setReadProducts(false);
+
+        ProductSearchResult result = new InMemorySearchServiceImpl().findProducts(index, index.matchAll(),
+                Arrays.asList(colorFacet, priceFacet), criteria, null);
+        assertEquals(1, result.getTotalResults().intValue());
+        assertTrue(colorFacet.isActive() && priceFacet.isActive());
+
+        //the colors are counted within the price filter, and the prices within the color filter
+        assertEquals("{green=1, red=1}", getQuantities(colorFacet).toString());
+        assertEquals("{4.99=1, 9.99=1}", getQuantities(priceFacet).toString());
+    }
+
+    public void testSortAndPaging() throws Exception {
+        BitSet docs = index.matchAll();
+        List<InMemoryProductIndex.Sort> byPrice = Arrays.asList(new InMemoryProductIndex.Sort("defaultSku.retailPrice", true));
+        assertEquals(Arrays.asList(3L, 1L, 2L), index.sort(docs, byPrice, null, 0, 10));
+        assertEquals(Arrays.asList(1L), index.sort(docs, byPrice, null, 1, 1));
+
+        // products without a position in the category are ordered last
+        List<InMemoryProductIndex.Sort> noSorts = Collections.emptyList();
+        assertEquals(Arrays.asList(3L, 1L, 2L), index.sort(docs, noSorts, 1L, 0, 10));
+    }
+
+    public void testUpdatesOnlyAffectCopies() throws Exception {
+        InMemoryProductIndex copy = index.copy();
+        copy.add(createRow(1L, "Hot Sauce", "green", "4.99", 1L), categoryCache);
+        copy.remove(2L);
+
+        assertEquals(2, copy.size());
+        assertEquals(2, copy.getDeletedCount());
+        assertEquals(1, copy.matchValues("productAttributes.color", new String[] { "green" }).cardinality());
+        assertEquals(3, index.size());
+        assertEquals(2, index.matchValues("productAttributes.color", new String[] { "red" }).cardinality());
+    }
+
+    private Field createField(String abbreviation, String propertyName, boolean searchable) {
+        Field field = new FieldImpl();
+        field.setAbbreviation(abbreviation);
+        field.setPropertyName(propertyName);
+        field.setSearchable(searchable);
+        return field;
+    }
+
+    private SearchFacetDTO createFacet(Field field) {
+        SearchFacet facet = new SearchFacetImpl();
+        facet.setField(field);
+        SearchFacetDTO dto = new SearchFacetDTO();
+        dto.setFacet(facet);
+        return dto;
+    }
+
+    private Map<String, Integer> getQuantities(SearchFacetDTO facet) {
+        Map<String, Integer> quantities = new TreeMap<String, Integer>();
+        for (SearchFacetResultDTO value : facet.getFacetValues()) {
+            quantities.put(value.getValue(), value.getQuantity());
+        }
+        return quantities;
+    }
+
+    private ProductIndexRow createRow(Long id, String name, String color, String price, Long categoryId) {
+        ProductIndexRow row = new ProductIndexRow(id);
+        row.getPropertyValues().put("name", name);
+        row.getPropertyValues().put("productAttributes.color", color);
+        row.getPropertyValues().put("defaultSku.retailPrice", new BigDecimal(price));
+        row.getExplicitCategoryIds().add(categoryId);
+        return row;
+    }
+
+}
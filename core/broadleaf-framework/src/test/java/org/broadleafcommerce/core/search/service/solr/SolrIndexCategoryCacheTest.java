@@ -0,0 +1,68 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.service.solr;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.core.catalog.domain.CategoryTreeRow;
+import org.broadleafcommerce.core.catalog.service.CategoryTree;
+import org.broadleafcommerce.core.search.dao.SolrIndexDao;
+import org.easymock.EasyMock;
+
+public class SolrIndexCategoryCacheTest extends TestCase {
+
+    private SolrIndexDao solrIndexDaoMock;
+    private SolrIndexCategoryCache categoryCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        CategoryTreeRow root = new CategoryTreeRow(1L);
+        CategoryTreeRow parent = new CategoryTreeRow(2L);
+        parent.setDefaultParentId(1L);
+        parent.getParentIds().add(4L);
+        CategoryTreeRow child = new CategoryTreeRow(3L);
+        child.setDefaultParentId(2L);
+        CategoryTreeRow otherParent = new CategoryTreeRow(4L);
+        otherParent.setDefaultParentId(1L);
+
+        solrIndexDaoMock = EasyMock.createMock(SolrIndexDao.class);
+        EasyMock.expect(solrIndexDaoMock.readProductIdsByCategory(3L)).andReturn(Arrays.asList(30L, 10L, 20L)).once();
+        EasyMock.replay(solrIndexDaoMock);
+
+        categoryCache = new SolrIndexCategoryCache(new CategoryTree(Arrays.asList(root, parent, child, otherParent)), solrIndexDaoMock);
+    }
+
+    public void testFullCategoryHierarchy() throws Exception {
+        List<Long> hierarchy = categoryCache.getFullCategoryHierarchy(3L);
+        assertEquals(Arrays.asList(3L, 2L, 1L, 4L), hierarchy);
+        assertEquals(1, categoryCache.getFullCategoryHierarchy(1L).size());
+    }
+
+    public void testProductPosition() throws Exception {
+        assertEquals(0, categoryCache.getProductPosition(3L, 30L));
+        assertEquals(1, categoryCache.getProductPosition(3L, 10L));
+        assertEquals(2, categoryCache.getProductPosition(3L, 20L));
+        assertEquals(-1, categoryCache.getProductPosition(3L, 40L));
+
+        //positions are read once per category
+        EasyMock.verify(solrIndexDaoMock);
+    }
+
+}
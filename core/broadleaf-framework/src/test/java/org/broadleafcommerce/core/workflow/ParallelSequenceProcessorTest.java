@@ -0,0 +1,138 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.core.workflow;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.core.order.service.workflow.CartOperationContext;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ParallelSequenceProcessorTest extends TestCase {
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+    private final List<Throwable> handled = new ArrayList<Throwable>();
+    private ParallelSequenceProcessor processor;
+
+    @Override
+    protected void setUp() throws Exception {
+        processor = new ParallelSequenceProcessor();
+        processor.setBeanName("blTestWorkflow");
+        processor.setBeanFactory(new DefaultListableBeanFactory());
+        processor.setProcessContextFactory(new ProcessContextFactory() {
+            @Override
+            public ProcessContext createContext(Object preSeedData) throws WorkflowException {
+                return new CartOperationContext();
+            }
+        });
+        processor.setDefaultErrorHandler(new ErrorHandler() {
+            @Override
+            public void handleError(ProcessContext context, Throwable th) throws WorkflowException {
+                handled.add(th);
+            }
+
+            @Override
+            public void setBeanName(String name) {
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        processor.destroy();
+    }
+
+    public void testIndependentActivitiesRunConcurrently() throws Exception {
+        //neither activity can finish unless the other one is running at the same time
+        final CountDownLatch latch = new CountDownLatch(2);
+        processor.setActivities(Arrays.<Activity>asList(
+                new TestActivity("first", null, latch, null),
+                new TestActivity("second", Collections.<String>emptyList(), latch, null),
+                new TestActivity("third", Arrays.asList("first", "second"), null, null)));
+        processor.afterPropertiesSet();
+
+        processor.doActivities();
+
+        assertEquals(3, executed.size());
+        assertEquals("third", executed.get(2));
+        assertTrue(handled.isEmpty());
+    }
+
+    public void testFirstUnhandledErrorInDeclarationOrderIsReported() throws Exception {
+        IllegalStateException first = new IllegalStateException("first");
+        IllegalStateException second = new IllegalStateException("second");
+        processor.setActivities(Arrays.<Activity>asList(
+                new TestActivity("first", Collections.<String>emptyList(), null, first),
+                new TestActivity("second", Collections.<String>emptyList(), null, second),
+                new TestActivity("third", Arrays.asList("first"), null, null)));
+        processor.afterPropertiesSet();
+
+        processor.doActivities();
+
+        assertEquals(1, handled.size());
+        assertSame(first, handled.get(0));
+        assertFalse(executed.contains("third"));
+    }
+
+    public void testDependenciesMustBeDeclaredEarlier() throws Exception {
+        processor.setActivities(Arrays.<Activity>asList(
+                new TestActivity("first", Arrays.asList("second"), null, null),
+                new TestActivity("second", null, null, null)));
+        try {
+            processor.afterPropertiesSet();
+            fail();
+        } catch (BeanInitializationException e) {
+            //expected
+        }
+    }
+
+    private class TestActivity extends BaseActivity {
+
+        private final CountDownLatch latch;
+        private final RuntimeException error;
+
+        private TestActivity(String name, List<String> dependsOn, CountDownLatch latch, RuntimeException error) {
+            setBeanName(name);
+            setDependsOn(dependsOn);
+            this.latch = latch;
+            this.error = error;
+        }
+
+        @Override
+        public ProcessContext execute(ProcessContext context) throws Exception {
+            if (latch != null) {
+                latch.countDown();
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+            }
+            if (error != null) {
+                throw error;
+            }
+            executed.add(getBeanName());
+            return context;
+        }
+
+    }
+
+}
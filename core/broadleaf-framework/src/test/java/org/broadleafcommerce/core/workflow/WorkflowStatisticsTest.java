@@ -0,0 +1,102 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.workflow;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.core.order.service.workflow.CartOperationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WorkflowStatisticsTest extends TestCase {
+
+    public void testActivitiesAreRecorded() throws Exception {
+        WorkflowStatisticsServiceImpl statisticsService = new WorkflowStatisticsServiceImpl();
+
+        BaseActivity succeeding = new BaseActivity() {
+            @Override
+            public ProcessContext execute(ProcessContext context) throws Exception {
+                return context;
+            }
+        };
+        succeeding.setBeanName("succeeding");
+        BaseActivity failing = new BaseActivity() {
+            @Override
+            public ProcessContext execute(ProcessContext context) throws Exception {
+                throw new IllegalStateException();
+            }
+        };
+        failing.setBeanName("failing");
+        failing.setErrorHandler(new ErrorHandler() {
+            @Override
+            public void handleError(ProcessContext context, Throwable th) throws WorkflowException {
+                //continue with the next activity
+            }
+
+            @Override
+            public void setBeanName(String name) {
+            }
+        });
+        BaseActivity skipped = new SkippedActivity();
+        skipped.setBeanName("skipped");
+
+        List<Activity> activities = new ArrayList<Activity>();
+        activities.add(succeeding);
+        activities.add(failing);
+        activities.add(skipped);
+        SequenceProcessor processor = new SequenceProcessor();
+        processor.setBeanName("blTestWorkflow");
+        processor.setActivities(activities);
+        processor.setWorkflowStatisticsService(statisticsService);
+        processor.setProcessContextFactory(new ProcessContextFactory() {
+            @Override
+            public ProcessContext createContext(Object preSeedData) throws WorkflowException {
+                return new CartOperationContext();
+            }
+        });
+
+        processor.doActivities();
+        processor.doActivities();
+
+        WorkflowStatistics statistics = statisticsService.getAllStatistics().get("blTestWorkflow");
+        assertEquals(2, statistics.getLatency().getCount());
+        assertEquals(0, statistics.getFailureCount());
+        assertEquals(0, statistics.getInFlightCount());
+        assertEquals(2, statistics.getActivities().get("succeeding").getLatency().getCount());
+        assertEquals(2, statistics.getActivities().get("failing").getErrorCount());
+        assertEquals(2, statistics.getActivities().get("skipped").getSkippedCount());
+        assertEquals(1, statisticsService.getErrorCountsByHandler().size());
+        assertEquals(3, statisticsService.getActivityStatistics().size());
+        assertTrue(statistics.getLatency().getPercentileMillis(0.99D) > 0);
+    }
+
+    public static class SkippedActivity extends BaseActivity implements ConditionalActivity {
+
+        @Override
+        public boolean shouldExecute(ProcessContext context) {
+            return false;
+        }
+
+        @Override
+        public ProcessContext execute(ProcessContext context) throws Exception {
+            return context;
+        }
+
+    }
+
+}
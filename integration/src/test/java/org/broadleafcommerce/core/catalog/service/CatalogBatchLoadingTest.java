@@ -0,0 +1,138 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.dao.ProductDao;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.broadleafcommerce.core.media.domain.Media;
+import org.broadleafcommerce.core.media.domain.MediaImpl;
+import org.broadleafcommerce.test.BaseTest;
+import org.hibernate.ejb.HibernateEntityManager;
+import org.hibernate.stat.Statistics;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.annotations.Test;
+
+import javax.annotation.Resource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the SQL statements issued by each {@link CatalogPrefetchPlan}. A plan must cost the same number of
+ * statements for a page of two products as for a page of eight, and rendering the prefetched associations must
+ * not issue any further statements.
+ */
+public class CatalogBatchLoadingTest extends BaseTest {
+
+    @Resource
+    private CatalogService catalogService;
+
+    @Resource
+    private CatalogBatchLoadingService catalogBatchLoadingService;
+
+    @Resource
+    private ProductDao productDao;
+
+    @Test(groups = {"testCatalogBatchLoading"})
+    @Transactional
+    public void testListingTilePlan() throws Exception {
+        List<Long> smallPage = createProducts(2);
+        List<Long> largePage = createProducts(8);
+
+        long smallCount = countPrefetchStatements(smallPage, CatalogPrefetchPlan.LISTING_TILE);
+        long largeCount = countPrefetchStatements(largePage, CatalogPrefetchPlan.LISTING_TILE);
+        assert smallCount > 0;
+        assert smallCount == largeCount;
+
+        List<Product> products = readProducts(largePage);
+        catalogBatchLoadingService.prefetch(products, CatalogPrefetchPlan.LISTING_TILE);
+        Statistics statistics = getStatistics();
+        long before = statistics.getPrepareStatementCount();
+        for (Product product : products) {
+            assert product.getDefaultSku().getSkuMedia().get("primary") != null;
+            product.getDefaultSku().getProductOptionValues().size();
+        }
+        assert statistics.getPrepareStatementCount() == before;
+    }
+
+    @Test(groups = {"testCatalogBatchLoading"})
+    @Transactional
+    public void testPlansAreIndependentOfPageSize() throws Exception {
+        List<Long> smallPage = createProducts(2);
+        List<Long> largePage = createProducts(8);
+
+        for (String planName : new String[] {CatalogPrefetchPlan.PRODUCT_DETAIL, CatalogPrefetchPlan.PRODUCT_OPTIONS, CatalogPrefetchPlan.API_PRODUCT}) {
+            long smallCount = countPrefetchStatements(smallPage, planName);
+            long largeCount = countPrefetchStatements(largePage, planName);
+            assert smallCount == largeCount : planName + " issued " + smallCount + " statements for 2 products and "
+                    + largeCount + " for 8";
+        }
+    }
+
+    @Test(groups = {"testCatalogBatchLoading"})
+    @Transactional
+    public void testDetachedProductsAreSkipped() throws Exception {
+        List<Product> products = readProducts(createProducts(2));
+        em.clear();
+        Statistics statistics = getStatistics();
+        long before = statistics.getPrepareStatementCount();
+        catalogBatchLoadingService.prefetch(products, CatalogPrefetchPlan.LISTING_TILE);
+        assert statistics.getPrepareStatementCount() == before;
+    }
+
+    protected long countPrefetchStatements(List<Long> productIds, String planName) {
+        List<Product> products = readProducts(productIds);
+        Statistics statistics = getStatistics();
+        long before = statistics.getPrepareStatementCount();
+        catalogBatchLoadingService.prefetch(products, planName);
+        return statistics.getPrepareStatementCount() - before;
+    }
+
+    protected List<Product> readProducts(List<Long> productIds) {
+        em.flush();
+        em.clear();
+        return productDao.readProductsByIds(productIds);
+    }
+
+    protected Statistics getStatistics() {
+        Statistics statistics = ((HibernateEntityManager) em).getSession().getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        return statistics;
+    }
+
+    protected List<Long> createProducts(int count) {
+        List<Long> productIds = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            Product product = new ProductImpl();
+            Sku defaultSku = new SkuImpl();
+            defaultSku.setName("batchLoadingTest" + i);
+            defaultSku.setRetailPrice(new Money(BigDecimal.valueOf(15.0)));
+            Media media = new MediaImpl();
+            media.setUrl("/img/batchLoadingTest" + i + ".png");
+            defaultSku.getSkuMedia().put("primary", media);
+            product.setDefaultSku(defaultSku);
+            productIds.add(catalogService.saveProduct(product).getId());
+        }
+        return productIds;
+    }
+
+}
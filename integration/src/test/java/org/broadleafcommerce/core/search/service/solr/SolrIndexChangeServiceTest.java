@@ -0,0 +1,99 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryImpl;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.search.dao.SearchIndexChangeDao;
+import org.broadleafcommerce.core.search.domain.SearchIndexChange;
+import org.broadleafcommerce.core.search.domain.SearchIndexChangeType;
+import org.broadleafcommerce.test.BaseTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.Test;
+
+import javax.annotation.Resource;
+
+import java.util.List;
+
+public class SolrIndexChangeServiceTest extends BaseTest {
+
+    @Resource(name = "blSolrIndexChangeService")
+    protected SolrIndexChangeServiceImpl changeService;
+
+    @Resource(name = "blSearchIndexChangeDao")
+    protected SearchIndexChangeDao searchIndexChangeDao;
+
+    @Resource(name = "blCatalogService")
+    protected CatalogService catalogService;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @Test(groups = {"testSolrIndexChangeService"})
+    public void testChangesAreQueuedByTheModifyingTransaction() throws Exception {
+        boolean enabled = changeService.enabled;
+        changeService.enabled = true;
+        try {
+            final Long committedId = saveCategory("Queued Category", false);
+            final Long rolledBackId = saveCategory("Discarded Category", true);
+
+            new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    List<SearchIndexChange> changes = searchIndexChangeDao.readOldestChanges(1000);
+                    int committed = 0;
+                    for (SearchIndexChange change : changes) {
+                        if (SearchIndexChangeType.CATEGORY.equals(change.getEntityType())) {
+                            assert !change.getEntityId().equals(rolledBackId);
+                            if (change.getEntityId().equals(committedId)) {
+                                committed++;
+                            }
+                        }
+                    }
+                    assert committed == 1;
+                    searchIndexChangeDao.delete(changes);
+                }
+            });
+        } finally {
+            changeService.enabled = enabled;
+        }
+    }
+
+    protected Long saveCategory(final String name, final boolean rollback) {
+        return new TransactionTemplate(transactionManager).execute(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                Category category = new CategoryImpl();
+                category.setName(name);
+                category = catalogService.saveCategory(category);
+                //the category is flushed by the commit, not before
+                category.setDescription(name);
+                if (rollback) {
+                    em.flush();
+                    status.setRollbackOnly();
+                }
+                return category.getId();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2008-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.broadleafcommerce.openadmin.server.dao;
+
+import org.broadleafcommerce.core.catalog.domain.CategoryImpl;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.openadmin.client.dto.FieldMetadata;
+import org.broadleafcommerce.openadmin.client.dto.ForeignKey;
+import org.broadleafcommerce.openadmin.client.dto.MergedPropertyType;
+import org.broadleafcommerce.test.BaseTest;
+import org.testng.annotations.Test;
+
+import javax.annotation.Resource;
+
+import java.util.Map;
+
+public class DynamicEntityDaoTest extends BaseTest {
+
+    @Resource(name="blDynamicEntityDao")
+    protected DynamicEntityDao dynamicEntityDao;
+
+    @Test(groups = {"testDynamicEntityDao"})
+    public void testParentRecordsShareMetadata() throws Exception {
+        dynamicEntityDao.setStandardEntityManager(em);
+        Class<?>[] entities = dynamicEntityDao.getAllPolymorphicEntitiesFromCeiling(Class.forName(Product.class.getName()));
+
+        ForeignKey firstParent = new ForeignKey("defaultCategory", CategoryImpl.class.getName());
+        firstParent.setCurrentValue("1");
+        ForeignKey secondParent = firstParent.cloneForeignKey();
+        secondParent.setCurrentValue("2");
+
+        Map<String, FieldMetadata> first = getReadOnlyMergedProperties(entities, firstParent);
+        int mergedEntries = DynamicEntityDaoImpl.MERGED_PROPERTIES_CACHE.size();
+        Map<String, FieldMetadata> second = getReadOnlyMergedProperties(entities, secondParent);
+
+        assert !first.isEmpty();
+        assert first == second;
+        assert DynamicEntityDaoImpl.MERGED_PROPERTIES_CACHE.size() == mergedEntries;
+
+        DynamicEntityDaoImpl dao = (DynamicEntityDaoImpl) dynamicEntityDao;
+        assert dao.getCacheKey(firstParent, null, null, MergedPropertyType.PRIMARY, false, entities[0], null, false).equals(
+                dao.getCacheKey(secondParent, null, null, MergedPropertyType.PRIMARY, false, entities[0], null, false));
+    }
+
+    @Test(groups = {"testDynamicEntityDao"})
+    public void testMergedPropertiesAreCopies() throws Exception {
+        dynamicEntityDao.setStandardEntityManager(em);
+        Class<?>[] entities = dynamicEntityDao.getAllPolymorphicEntitiesFromCeiling(Class.forName(Product.class.getName()));
+        ForeignKey parent = new ForeignKey("defaultCategory", CategoryImpl.class.getName());
+
+        Map<String, FieldMetadata> shared = getReadOnlyMergedProperties(entities, parent);
+        Map<String, FieldMetadata> copy = dynamicEntityDao.getMergedProperties(Product.class.getName(), entities, parent,
+                new String[]{}, new ForeignKey[]{}, MergedPropertyType.PRIMARY, false, new String[]{}, new String[]{}, null, "");
+
+        assert copy.keySet().equals(shared.keySet());
+        for (Map.Entry<String, FieldMetadata> entry : copy.entrySet()) {
+            assert entry.getValue() != shared.get(entry.getKey());
+        }
+        try {
+            shared.clear();
+            assert false;
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+    }
+
+    protected Map<String, FieldMetadata> getReadOnlyMergedProperties(Class<?>[] entities, ForeignKey foreignKey) {
+        return ((ReadOnlyMergedPropertiesProvider) dynamicEntityDao).getReadOnlyMergedProperties(Product.class.getName(),
+                entities, foreignKey, new String[]{}, new ForeignKey[]{}, MergedPropertyType.PRIMARY, false,
+                new String[]{}, new String[]{}, null, "");
+    }
+
+}